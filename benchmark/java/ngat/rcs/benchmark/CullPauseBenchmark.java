@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package ngat.rcs.benchmark;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import ngat.rcs.telemetry.SegmentedStatusArchive;
+import ngat.rcs.telemetry.StatusRingArchive;
+
+/**
+ * Cull pause times. An archive is filled with synthetic items then culled a
+ * slice at a time while a writer thread keeps adding items at a steady rate,
+ * as a gateway's processor thread culls while status keeps arriving. Reports
+ * the time each cull takes and how long the writer's adds are held up.
+ * <p>
+ * SegmentedStatusArchive is the archive behind the task, operations, state
+ * model, instrument and reactive system gateways. StatusRingArchive is the
+ * archive behind the telescope gateway.
+ *
+ * Usage: CullPauseBenchmark [archive-size] [culls] [writer-interval-micros]
+ *
+ */
+public class CullPauseBenchmark {
+
+	/** Maximum number of writer samples kept. */
+	private static final int MAX_WRITER_SAMPLES = 1000000;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		int size = (args.length > 0 ? Integer.parseInt(args[0]) : 500000);
+		int nculls = (args.length > 1 ? Integer.parseInt(args[1]) : 50);
+		long interval = 1000L * (args.length > 2 ? Long.parseLong(args[2]) : 20L);
+
+		try {
+			final SegmentedStatusArchive<Object> segmented = new SegmentedStatusArchive<Object>();
+			run("SegmentedStatusArchive", new Archive() {
+				public void add(long time, Object item) {
+					segmented.add(time, item);
+				}
+
+				public int cullBefore(long cutoff, List<Object> out) {
+					return segmented.cullBefore(cutoff, out);
+				}
+			}, size, nculls, interval);
+
+			final StatusRingArchive<Object> ring = new StatusRingArchive<Object>(4 * size, Long.MAX_VALUE);
+			run("StatusRingArchive", new Archive() {
+				public void add(long time, Object item) {
+					ring.add(time, item);
+				}
+
+				public int cullBefore(long cutoff, List<Object> out) {
+					return ring.cullBefore(cutoff, out);
+				}
+			}, size, nculls, interval);
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/** The archive operations used. */
+	private interface Archive {
+
+		public void add(long time, Object item);
+
+		public int cullBefore(long cutoff, List<Object> out);
+	}
+
+	private static void run(String name, final Archive archive, int size, int nculls, final long interval)
+			throws Exception {
+
+		// one item per milli
+		final Object item = new Object();
+		for (int i = 0; i < size; i++)
+			archive.add(i, item);
+
+		final Measurement writes = new Measurement("  Writer add", MAX_WRITER_SAMPLES);
+		final long first = size;
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		Thread writer = new Thread("CullWriter") {
+			public void run() {
+				long time = first;
+				while (!stop.get()) {
+					long t0 = System.nanoTime();
+					archive.add(time++, item);
+					writes.add(System.nanoTime() - t0, 1);
+					LockSupport.parkNanos(interval);
+				}
+			}
+		};
+		writer.start();
+
+		Measurement culls = new Measurement("  Cull", nculls);
+		List<Object> out = new Vector<Object>();
+		long culled = 0L;
+		for (int ic = 0; ic < nculls; ic++) {
+			long cutoff = (long) (ic + 1) * size / nculls;
+			out.clear();
+			long t0 = System.nanoTime();
+			int n = archive.cullBefore(cutoff, out);
+			culls.add(System.nanoTime() - t0, n);
+			culled += n;
+			Thread.sleep(10L);
+		}
+
+		stop.set(true);
+		writer.join();
+
+		System.err.println(name + ": " + size + " items, " + nculls + " culls, " + culled + " items culled");
+		culls.reportLatency();
+		writes.reportLatency();
+	}
+
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package ngat.rcs.benchmark;
+
+import java.rmi.RemoteException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ngat.rcs.telemetry.StatusDeliveryEngine;
+import ngat.rcs.telemetry.TaskArchiveGateway;
+import ngat.rcs.tms.TaskLifecycleListener;
+import ngat.rcs.tms.events.TaskLifecycleEvent;
+
+/**
+ * Listener fan-out cost with N simulated listeners. Synthetic task events are
+ * published through a TaskArchiveGateway with N registered listeners, each of
+ * which can be made to take a fixed time per notification to stand in for a
+ * remote call. Reports the publishing thread's cost per update, the time for
+ * every listener to be sent every update, and the delivery latency seen by the
+ * listeners.
+ *
+ * Usage: FanOutBenchmark [listener-counts] [updates] [listener-delay-micros]
+ *
+ * where listener-counts is a comma separated list of listener counts.
+ *
+ */
+public class FanOutBenchmark {
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		String[] counts = (args.length > 0 ? args[0] : "1,10,50").split(",");
+		int nupdates = (args.length > 1 ? Integer.parseInt(args[1]) : 20000);
+		long delay = 1000L * (args.length > 2 ? Long.parseLong(args[2]) : 0L);
+
+		try {
+			for (int ic = 0; ic < counts.length; ic++) {
+				int nlisteners = Integer.parseInt(counts[ic].trim());
+
+				SyntheticTaskMonitor tmon = new SyntheticTaskMonitor(50);
+				TaskArchiveGateway tag = new TaskArchiveGateway(tmon);
+
+				long start = System.currentTimeMillis();
+				TaskLifecycleEvent[] events = new TaskLifecycleEvent[nupdates];
+				Map<TaskLifecycleEvent, Integer> index = new IdentityHashMap<TaskLifecycleEvent, Integer>();
+				for (int i = 0; i < nupdates; i++) {
+					events[i] = tmon.createEvent(start + i, i);
+					index.put(events[i], new Integer(i));
+				}
+				long[] published = new long[nupdates];
+
+				TimingListener[] listeners = new TimingListener[nlisteners];
+				for (int il = 0; il < nlisteners; il++) {
+					listeners[il] = new TimingListener(index, published, delay);
+					tag.addTaskEventListener(listeners[il]);
+				}
+
+				Measurement m = new Measurement("  Publish", nupdates);
+				long t0 = System.nanoTime();
+				for (int i = 0; i < nupdates; i++) {
+					long tp = System.nanoTime();
+					published[i] = tp;
+					tmon.fire(events[i]);
+					m.add(System.nanoTime() - tp, 1);
+				}
+
+				// wait until every update has been sent to, or dropped for, every listener
+				StatusDeliveryEngine<TaskLifecycleListener, TaskLifecycleEvent> delivery = tag.getDeliveryEngine();
+				long expected = (long) nlisteners * nupdates;
+				long done = 0L;
+				long dropped = 0L;
+				while (true) {
+					done = 0L;
+					dropped = 0L;
+					List<StatusDeliveryEngine.ListenerStatistics> stats = delivery.getStatistics();
+					for (int is = 0; is < stats.size(); is++) {
+						StatusDeliveryEngine.ListenerStatistics s = stats.get(is);
+						done += s.getDelivered() + s.getDropped() + s.getFailed();
+						dropped += s.getDropped();
+					}
+					if (done >= expected)
+						break;
+					Thread.sleep(1L);
+				}
+				long elapsed = System.nanoTime() - t0;
+
+				long received = 0L;
+				long total = 0L;
+				long max = 0L;
+				for (int il = 0; il < nlisteners; il++) {
+					received += listeners[il].received;
+					total += listeners[il].totalLatency;
+					max = Math.max(max, listeners[il].maxLatency);
+					tag.removeTaskEventListener(listeners[il]);
+				}
+				tmon.removeTaskEventListener(tag);
+
+				System.err.println("Listeners: " + nlisteners + ", updates: " + nupdates + ", listener delay: "
+						+ (delay / 1000L) + " us");
+				m.reportThroughput();
+				System.err.println("  Delivered: " + received + " of " + expected + " in " + (elapsed / 1000000L)
+						+ " ms, " + (elapsed > 0 ? (long) (1.0e9 * received / elapsed) : 0L) + " deliveries/s, dropped "
+						+ dropped);
+				System.err.println("  Latency: mean " + (received > 0 ? total / received : 0L) + " ns, max " + max
+						+ " ns");
+			}
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/** Records how long each event took to arrive. */
+	private static class TimingListener implements TaskLifecycleListener {
+
+		private Map<TaskLifecycleEvent, Integer> index;
+
+		private long[] published;
+
+		private long delay;
+
+		volatile long received;
+
+		volatile long totalLatency;
+
+		volatile long maxLatency;
+
+		TimingListener(Map<TaskLifecycleEvent, Integer> index, long[] published, long delay) {
+			this.index = index;
+			this.published = published;
+			this.delay = delay;
+		}
+
+		public void taskLifecycleEventNotification(TaskLifecycleEvent event) throws RemoteException {
+			long latency = System.nanoTime() - published[index.get(event).intValue()];
+			received++;
+			totalLatency += latency;
+			if (latency > maxLatency)
+				maxLatency = latency;
+			// stand in for the time a remote call takes
+			if (delay > 0L) {
+				long until = System.nanoTime() + delay;
+				while (System.nanoTime() < until)
+					;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package ngat.rcs.benchmark;
+
+import java.util.Random;
+
+import ngat.message.RCS_TCS.TCS_Status;
+import ngat.rcs.scm.collation.StatusHistory;
+import ngat.rcs.scm.collation.StatusPool;
+import ngat.rcs.telemetry.StatusRingArchive;
+import ngat.rcs.telemetry.StatusRollup;
+import ngat.rcs.telemetry.TaskArchiveGateway;
+import ngat.rcs.telemetry.TelescopeArchiveGateway;
+
+/**
+ * History range-query latency against archive size. For each archive size the
+ * archives are filled with synthetic updates one second apart, then timed with
+ * queries for randomly placed windows of a fixed length:
+ * <ul>
+ * <li>TaskArchiveGateway.getTaskLifecycleHistory().
+ * <li>The telescope gateway's archive (StatusRingArchive.range()).
+ * <li>StatusPool.range() on the meteorology history.
+ * <li>StatusRollup.getRollup() over the whole archive span in a fixed number
+ * of points.
+ * </ul>
+ *
+ * Usage: HistoryQueryBenchmark [sizes] [queries] [window-secs]
+ *
+ * where sizes is a comma separated list of archive sizes.
+ *
+ */
+public class HistoryQueryBenchmark {
+
+	/** Points asked for in rollup queries. */
+	private static final int ROLLUP_POINTS = 500;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		String[] sizes = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+		int nqueries = (args.length > 1 ? Integer.parseInt(args[1]) : 2000);
+		final long window = 1000L * (args.length > 2 ? Long.parseLong(args[2]) : 600L);
+
+		try {
+			StatusPool.initialize(StatusPool.DEFAULT_HISTORY_SIZE);
+
+			for (int is = 0; is < sizes.length; is++) {
+				final int size = Integer.parseInt(sizes[is].trim());
+				final long start = System.currentTimeMillis() - 1000L * size;
+				final long span = Math.max(1L, 1000L * size - window);
+				final Random random = new Random(1234L);
+
+				System.err.println("Archive size: " + size + ", query window: " + (window / 1000L) + " s");
+
+				// task archive gateway
+				SyntheticTaskMonitor tmon = new SyntheticTaskMonitor(50);
+				final TaskArchiveGateway tag = new TaskArchiveGateway(tmon);
+				for (int i = 0; i < size; i++)
+					tmon.fire(tmon.createEvent(start + 1000L * i, i));
+				tmon.removeTaskEventListener(tag);
+				Measurement.time("  TaskArchiveGateway history", new Measurement.Operation() {
+					public void run(int i) throws Exception {
+						long t1 = start + (long) (random.nextDouble() * span);
+						Measurement.sink += tag.getTaskLifecycleHistory(t1, t1 + window).size();
+					}
+				}, nqueries / 4, nqueries, 1).reportLatency();
+
+				// telescope archive
+				final StatusRingArchive<Object> archive = new StatusRingArchive<Object>(Math.max(size,
+						TelescopeArchiveGateway.DEFAULT_ARCHIVE_CAPACITY), TelescopeArchiveGateway.DEFAULT_RETENTION_PERIOD);
+				Object item = new Object();
+				for (int i = 0; i < size; i++)
+					archive.add(start + 1000L * i, item);
+				Measurement.time("  Telescope archive range", new Measurement.Operation() {
+					public void run(int i) throws Exception {
+						long t1 = start + (long) (random.nextDouble() * span);
+						Measurement.sink += archive.range(t1, t1 + window).size();
+					}
+				}, nqueries / 4, nqueries, 1).reportLatency();
+
+				// status pool, whose history is stamped as segments arrive
+				StatusPool.initialize(size);
+				TCS_Status.Meteorology segment = new TCS_Status.Meteorology();
+				for (int i = 0; i < size; i++) {
+					segment.extTemperature = 5.0 + 0.001 * i;
+					StatusPool.insert(segment);
+				}
+				StatusHistory history = StatusPool.getHistory(StatusPool.METEOROLOGY_UPDATE_EVENT);
+				final long pstart = history.getEarliestTime();
+				final long pspan = Math.max(1L, history.getLatestTime() - pstart);
+				final long pwindow = pspan * window / Math.max(1L, 1000L * size);
+				Measurement.time("  StatusPool range", new Measurement.Operation() {
+					public void run(int i) throws Exception {
+						long t1 = pstart + (long) (random.nextDouble() * pspan);
+						Measurement.sink += StatusPool.range(StatusPool.METEOROLOGY_UPDATE_EVENT, "extTemperature", t1,
+								t1 + pwindow).getSize();
+					}
+				}, nqueries / 4, nqueries, 1).reportLatency();
+
+				// rollup over the whole span
+				final StatusRollup rollup = new StatusRollup(TelescopeArchiveGateway.ROLLUP_COLUMNS);
+				double[] row = rollup.createRow();
+				for (int i = 0; i < size; i++) {
+					for (int j = 0; j < row.length; j++)
+						row[j] = i + j;
+					rollup.add(start + 1000L * i, row);
+				}
+				final String[] columns = rollup.getColumns();
+				Measurement.time("  Telescope rollup", new Measurement.Operation() {
+					public void run(int i) throws Exception {
+						Measurement.sink += rollup.getRollup(columns, start, start + 1000L * size, ROLLUP_POINTS)
+								.getSize();
+					}
+				}, nqueries / 4, nqueries, 1).reportLatency();
+			}
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+}
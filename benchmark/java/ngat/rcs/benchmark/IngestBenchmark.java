@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package ngat.rcs.benchmark;
+
+import ngat.message.RCS_TCS.TCS_Status;
+import ngat.rcs.scm.collation.StatusPool;
+import ngat.rcs.telemetry.MeteorologyArchiveGateway;
+import ngat.rcs.telemetry.StatusRingArchive;
+import ngat.rcs.telemetry.StatusRollup;
+import ngat.rcs.telemetry.TaskArchiveGateway;
+import ngat.rcs.telemetry.TelescopeArchiveGateway;
+
+/**
+ * Ingest throughput and allocation per status update. Synthetic updates are
+ * fed through:
+ * <ul>
+ * <li>TaskArchiveGateway, from a SyntheticTaskMonitor, with no listeners.
+ * <li>StatusPool.insert(), with meteorology segments.
+ * <li>The telescope gateway's archive (a StatusRingArchive at the gateway's
+ * default capacity).
+ * <li>The telescope and meteorology gateways' rollups.
+ * </ul>
+ * The telescope and meteorology gateways are measured through the structures
+ * they are built on as their status classes come from the TCM and EMS. Items
+ * other than task events are created ahead of the timed runs and reused so the
+ * allocation reported is that of the ingest path alone.
+ *
+ * Usage: IngestBenchmark [updates] [batch]
+ *
+ */
+public class IngestBenchmark {
+
+	/** Number of distinct items fed round. */
+	private static final int POOL_SIZE = 1024;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		int nupdates = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+		int batch = (args.length > 1 ? Integer.parseInt(args[1]) : 1000);
+		int nwarm = nupdates / 4;
+
+		try {
+			// updates arrive once a second ending now
+			final long start = System.currentTimeMillis() - 1000L * (nwarm + nupdates);
+
+			// task archive gateway
+			final SyntheticTaskMonitor tmon = new SyntheticTaskMonitor(50);
+			TaskArchiveGateway tag = new TaskArchiveGateway(tmon);
+			Measurement.time("TaskArchiveGateway ingest", new Measurement.Operation() {
+				public void run(int i) throws Exception {
+					tmon.fire(tmon.createEvent(start + 1000L * i, i));
+				}
+			}, nwarm, nupdates, batch).reportThroughput();
+			tmon.removeTaskEventListener(tag);
+
+			// status pool
+			StatusPool.initialize(StatusPool.DEFAULT_HISTORY_SIZE);
+			final TCS_Status.Meteorology[] segments = new TCS_Status.Meteorology[POOL_SIZE];
+			for (int i = 0; i < POOL_SIZE; i++) {
+				segments[i] = new TCS_Status.Meteorology();
+				segments[i].extTemperature = 5.0 + 0.01 * i;
+				segments[i].humidity = 0.2 + 0.0005 * i;
+				segments[i].pressure = 770.0;
+				segments[i].windSpeed = 0.01 * i;
+				segments[i].windDirn = i % 360;
+			}
+			Measurement.time("StatusPool insert", new Measurement.Operation() {
+				public void run(int i) throws Exception {
+					StatusPool.insert(segments[i % POOL_SIZE]);
+				}
+			}, nwarm, nupdates, batch).reportThroughput();
+
+			// telescope archive
+			final Object[] items = new Object[POOL_SIZE];
+			for (int i = 0; i < POOL_SIZE; i++)
+				items[i] = new Object();
+			final StatusRingArchive<Object> archive = new StatusRingArchive<Object>(
+					TelescopeArchiveGateway.DEFAULT_ARCHIVE_CAPACITY, TelescopeArchiveGateway.DEFAULT_RETENTION_PERIOD);
+			Measurement.time("Telescope archive add", new Measurement.Operation() {
+				public void run(int i) throws Exception {
+					archive.add(start + 1000L * i, items[i % POOL_SIZE]);
+				}
+			}, nwarm, nupdates, batch).reportThroughput();
+
+			// rollups
+			timeRollup("Telescope rollup add", new StatusRollup(TelescopeArchiveGateway.ROLLUP_COLUMNS), start, nwarm,
+					nupdates, batch);
+			timeRollup("Meteorology rollup add", new StatusRollup(MeteorologyArchiveGateway.ROLLUP_COLUMNS), start,
+					nwarm, nupdates, batch);
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	private static void timeRollup(String name, final StatusRollup rollup, final long start, int nwarm, int nupdates,
+			int batch) throws Exception {
+		final double[][] rows = new double[POOL_SIZE][];
+		for (int i = 0; i < POOL_SIZE; i++) {
+			rows[i] = rollup.createRow();
+			for (int j = 0; j < rows[i].length; j++)
+				rows[i][j] = i + j;
+		}
+		Measurement.time(name, new Measurement.Operation() {
+			public void run(int i) throws Exception {
+				rollup.add(start + 1000L * i, rows[i % POOL_SIZE]);
+			}
+		}, nwarm, nupdates, batch).reportThroughput();
+	}
+
+}
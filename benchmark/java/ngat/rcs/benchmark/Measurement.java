@@ -0,0 +1,199 @@
+/**
+ *
+ */
+package ngat.rcs.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Collects timing samples for a benchmark and reports them. Each sample is the
+ * time (nanos) taken by one timed section, which may cover a number of
+ * operations. Allocation is measured with the per-thread allocation counter
+ * when the JVM provides one.
+ *
+ * @author eng
+ *
+ */
+public class Measurement {
+
+	/** An operation to be timed. */
+	public interface Operation {
+
+		/**
+		 * @param i
+		 *            The operation number, counting from 0.
+		 */
+		public void run(int i) throws Exception;
+	}
+
+	/** Thread allocation counter, null if the JVM does not provide one. */
+	private static Method allocatedBytes;
+
+	private static Object threadBean;
+
+	static {
+		try {
+			Class c = Class.forName("com.sun.management.ThreadMXBean");
+			Object bean = ManagementFactory.getThreadMXBean();
+			if (c.isInstance(bean)) {
+				Method m = c.getMethod("getThreadAllocatedBytes", new Class[] { long.class });
+				m.invoke(bean, new Object[] { new Long(Thread.currentThread().getId()) });
+				allocatedBytes = m;
+				threadBean = bean;
+			}
+		} catch (Throwable t) {
+			allocatedBytes = null;
+		}
+	}
+
+	/** Stops the JIT discarding benchmark results as unused. */
+	public static volatile long sink;
+
+	private String name;
+
+	private long[] samples;
+
+	private int nsamples;
+
+	private long operations;
+
+	private long bytes = -1L;
+
+	/**
+	 * @param name
+	 *            What is being measured.
+	 * @param capacity
+	 *            Maximum number of samples.
+	 */
+	public Measurement(String name, int capacity) {
+		this.name = name;
+		samples = new long[Math.max(1, capacity)];
+	}
+
+	/**
+	 * @return Bytes allocated by the current thread so far, or -1 if the JVM
+	 *         cannot tell.
+	 */
+	public static long allocatedBytes() {
+		if (allocatedBytes == null)
+			return -1L;
+		try {
+			return ((Long) allocatedBytes.invoke(threadBean, new Object[] { new Long(Thread.currentThread()
+					.getId()) })).longValue();
+		} catch (Throwable t) {
+			return -1L;
+		}
+	}
+
+	/**
+	 * Time an operation. The operation is run a number of times to warm up,
+	 * then timed in batches.
+	 *
+	 * @param name
+	 *            What is being measured.
+	 * @param op
+	 *            The operation.
+	 * @param warmup
+	 *            Number of untimed runs.
+	 * @param count
+	 *            Number of timed runs.
+	 * @param batch
+	 *            Number of runs per sample, 1 to time each run.
+	 * @return The measurement, including allocation over the timed runs.
+	 */
+	public static Measurement time(String name, Operation op, int warmup, int count, int batch) throws Exception {
+		for (int i = 0; i < warmup; i++)
+			op.run(i);
+		batch = Math.max(1, batch);
+		Measurement m = new Measurement(name, count / batch + 1);
+		long b0 = allocatedBytes();
+		int i = 0;
+		while (i < count) {
+			int n = Math.min(batch, count - i);
+			long t0 = System.nanoTime();
+			for (int j = 0; j < n; j++)
+				op.run(warmup + i + j);
+			m.add(System.nanoTime() - t0, n);
+			i += n;
+		}
+		long b1 = allocatedBytes();
+		m.setAllocatedBytes(b0 < 0 || b1 < 0 ? -1L : b1 - b0);
+		return m;
+	}
+
+	/**
+	 * Record a sample.
+	 *
+	 * @param nanos
+	 *            Time taken.
+	 * @param ops
+	 *            Number of operations the time covers.
+	 */
+	public void add(long nanos, long ops) {
+		if (nsamples < samples.length)
+			samples[nsamples++] = nanos;
+		operations += ops;
+	}
+
+	/**
+	 * Record the bytes allocated over all the samples.
+	 *
+	 * @param bytes
+	 *            Bytes allocated, a negative value if unknown.
+	 */
+	public void setAllocatedBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/** @return The number of samples. */
+	public int getSampleCount() {
+		return nsamples;
+	}
+
+	/** @return The total time of all samples (nanos). */
+	public long getTotalTime() {
+		long total = 0L;
+		for (int i = 0; i < nsamples; i++)
+			total += samples[i];
+		return total;
+	}
+
+	/**
+	 * @param fraction
+	 *            A fraction between 0 and 1.
+	 * @return The sample time (nanos) at the specified fraction of the sorted
+	 *         samples.
+	 */
+	public long getPercentile(double fraction) {
+		if (nsamples == 0)
+			return 0L;
+		long[] sorted = new long[nsamples];
+		System.arraycopy(samples, 0, sorted, 0, nsamples);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(fraction * nsamples) - 1;
+		return sorted[Math.max(0, Math.min(nsamples - 1, index))];
+	}
+
+	/** Write the throughput and allocation per operation to System.err. */
+	public void reportThroughput() {
+		long total = getTotalTime();
+		StringBuffer buffer = new StringBuffer(name);
+		buffer.append(": ").append(operations).append(" ops, ");
+		buffer.append(total > 0 ? (long) (1.0e9 * operations / total) : 0L).append(" ops/s, ");
+		buffer.append(operations > 0 ? total / operations : 0L).append(" ns/op");
+		if (bytes >= 0 && operations > 0)
+			buffer.append(", ").append(bytes / operations).append(" bytes/op");
+		System.err.println(buffer.toString());
+	}
+
+	/** Write the distribution of sample times to System.err. */
+	public void reportLatency() {
+		long total = getTotalTime();
+		System.err.println(name + ": " + nsamples + " samples, mean " + (nsamples > 0 ? total / nsamples : 0L)
+				+ " ns, p50 " + getPercentile(0.5) + " ns, p99 " + getPercentile(0.99) + " ns, max "
+				+ getPercentile(1.0) + " ns");
+	}
+
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package ngat.rcs.benchmark;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Vector;
+
+import ngat.rcs.tms.TaskDescriptor;
+import ngat.rcs.tms.TaskLifecycleListener;
+import ngat.rcs.tms.TaskMonitor;
+import ngat.rcs.tms.events.TaskLifecycleEvent;
+import ngat.rcs.tms.events.TaskStartedEvent;
+
+/**
+ * In-process source of synthetic task lifecycle events, standing in for the
+ * task management system so a TaskArchiveGateway can be driven without a
+ * running RCS.
+ *
+ * @author eng
+ *
+ */
+public class SyntheticTaskMonitor implements TaskMonitor {
+
+	private List<TaskLifecycleListener> listeners = new Vector<TaskLifecycleListener>();
+
+	/** Tasks the events are drawn from. */
+	private TaskDescriptor[] tasks;
+
+	/**
+	 * @param ntasks
+	 *            Number of distinct tasks to generate events for.
+	 */
+	public SyntheticTaskMonitor(int ntasks) {
+		tasks = new TaskDescriptor[Math.max(1, ntasks)];
+		for (int i = 0; i < tasks.length; i++)
+			tasks[i] = new TaskDescriptor("Task" + i, "BenchmarkTask");
+	}
+
+	public void addTaskEventListener(TaskLifecycleListener l) throws RemoteException {
+		if (!listeners.contains(l))
+			listeners.add(l);
+	}
+
+	public void removeTaskEventListener(TaskLifecycleListener l) throws RemoteException {
+		listeners.remove(l);
+	}
+
+	/**
+	 * @param time
+	 *            Event time.
+	 * @param i
+	 *            Event number, used to pick a task.
+	 * @return A new synthetic event.
+	 */
+	public TaskLifecycleEvent createEvent(long time, int i) {
+		return new TaskStartedEvent(time, tasks[i % tasks.length]);
+	}
+
+	/**
+	 * Send an event to the registered listeners.
+	 *
+	 * @param event
+	 *            The event.
+	 */
+	public void fire(TaskLifecycleEvent event) throws RemoteException {
+		for (int il = 0; il < listeners.size(); il++)
+			listeners.get(il).taskLifecycleEventNotification(event);
+	}
+
+}
@@ -33,11 +33,13 @@ import ngat.net.cil.tcs.TcsStatusPacket;
 import ngat.net.cil.test.CilServer;
 import ngat.net.cil.test.DespatcherThread;
 import ngat.net.cil.test.ReaderThread;
+import ngat.net.telemetry.SecondaryCache;
 import ngat.rcs.comms.*;
 import ngat.rcs.control.*;
 import ngat.rcs.emm.*;
 import ngat.rcs.ers.test.BasicReactiveSystem;
 import ngat.rcs.iss.FITS_HeaderInfo;
+import ngat.rcs.iss.FITS_HeaderSnapshotService;
 import ngat.rcs.iss.ISS;
 import ngat.rcs.iss.ISS_Server;
 import ngat.rcs.newstatemodel.*;
@@ -50,8 +52,10 @@ import ngat.rcs.scm.collation.InstrumentStatusProvider;
 import ngat.rcs.scm.detection.*;
 import ngat.rcs.telemetry.DefaultGroupOperationsMonitor;
 import ngat.rcs.telemetry.InstrumentArchiveGateway;
+import ngat.rcs.telemetry.MappedSegmentBackingStore;
 import ngat.rcs.telemetry.OperationsArchiveGateway;
 import ngat.rcs.telemetry.StateModelArchiveGateway;
+import ngat.rcs.telemetry.StatusRecorder;
 import ngat.rcs.tms.*;
 import ngat.rcs.tms.executive.*;
 import ngat.rcs.tms.manager.*;
@@ -581,6 +585,7 @@ public class RCS_Controller implements Logging {
 			Naming.rebind("OperationsGateway", oag);
 			oag.setProcessInterval(10000L);
 			oag.setBackingStoreAgeLimit(10 * 60 * 1000L);
+			oag.setBackingStore(controller.createBackingStore("operations"));
 			oag.startProcessor();
 		} catch (Exception iax) {
 			iax.printStackTrace();
@@ -1228,7 +1233,7 @@ public class RCS_Controller implements Logging {
 		// ----------------------------
 		// Initialize Status mechanism.
 		// ----------------------------
-		int tcspoolSize = rcs_config.getIntValue("tcs.status.pool.size", 20);
+		int tcspoolSize = rcs_config.getIntValue("tcs.status.pool.size", StatusPool.DEFAULT_HISTORY_SIZE);
 		StatusPool.initialize(tcspoolSize);
 		TCS_Status.mapCodes();
 		TcsStatusPacket.mapCodes();
@@ -1260,6 +1265,17 @@ public class RCS_Controller implements Logging {
 		long pollingInterval = rcs_config.getLongValue("task.queue.polling.interval", DEFAULT_TASK_QUEUE_POLLING_INTERVAL);
 		ParallelTaskImpl.setPollingInterval(pollingInterval);
 
+		// Task worker threads - pooled or one per task.
+		if (rcs_config.getBooleanValue("task.worker.pool", false)) {
+			int maxIdle = rcs_config.getIntValue("task.worker.pool.max.idle",
+					PooledTaskExecutionService.DEFAULT_MAX_IDLE);
+			long keepAlive = rcs_config.getLongValue("task.worker.pool.keep.alive",
+					PooledTaskExecutionService.DEFAULT_KEEP_ALIVE);
+			int maxThreads = rcs_config.getIntValue("task.worker.pool.max.threads", 0);
+			TaskWorker.setExecutionService(new PooledTaskExecutionService(maxIdle, keepAlive, maxThreads));
+		}
+		bootLog.log(1, CLASS, rcsId, "init", "Task execution using: " + TaskWorker.getExecutionService());
+
 		// Recovery. THIS IS STILL USED BUT NOT A LOT
 		try {
 			File file = rcs_config.getFile("task.recovery.config.file", "config/recovery.properties");
@@ -1848,6 +1864,7 @@ public class RCS_Controller implements Logging {
 			Naming.rebind("InstrumentGateway", iag);
 			iag.setProcessInterval(10000L);
 			iag.setBackingStoreAgeLimit(10 * 60 * 1000L);
+			iag.setBackingStore(createBackingStore("instrument"));
 
 			iag.startProcessor();
 		} catch (Exception iax) {
@@ -1942,37 +1959,36 @@ public class RCS_Controller implements Logging {
 		 */
 
 		// ############# TEMP CONFIGURE STATUS - using SPP as wrapper round
-		// TCS_Status cats.
-		StatusPool.latest();
+		// TCS_Status cats, each reads the latest version of its segment.
 
-		StatusPoolProvider sppMeteo = new StatusPoolProvider(StatusPool.latest().meteorology);
+		StatusPoolProvider sppMeteo = new StatusPoolProvider(StatusPool.METEOROLOGY_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("METEO", sppMeteo);
 
-		StatusPoolProvider sppMech = new StatusPoolProvider(StatusPool.latest().mechanisms);
+		StatusPoolProvider sppMech = new StatusPoolProvider(StatusPool.MECHANISMS_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("MECHANISM", sppMech);
 
-		StatusPoolProvider sppLim = new StatusPoolProvider(StatusPool.latest().limits);
+		StatusPoolProvider sppLim = new StatusPoolProvider(StatusPool.LIMITS_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("LIMITS", sppLim);
 
-		StatusPoolProvider sppState = new StatusPoolProvider(StatusPool.latest().state);
+		StatusPoolProvider sppState = new StatusPoolProvider(StatusPool.STATE_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("STATE", sppState);
 
-		StatusPoolProvider sppAstro = new StatusPoolProvider(StatusPool.latest().astrometry);
+		StatusPoolProvider sppAstro = new StatusPoolProvider(StatusPool.ASTROMETRY_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("ASTRO", sppAstro);
 
-		StatusPoolProvider sppTime = new StatusPoolProvider(StatusPool.latest().time);
+		StatusPoolProvider sppTime = new StatusPoolProvider(StatusPool.TIME_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("TIME", sppTime);
 
-		StatusPoolProvider sppAuto = new StatusPoolProvider(StatusPool.latest().autoguider);
+		StatusPoolProvider sppAuto = new StatusPoolProvider(StatusPool.AUTOGUIDER_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("AUTOGUIDER", sppAuto);
 
-		StatusPoolProvider sppNet = new StatusPoolProvider(StatusPool.latest().network);
+		StatusPoolProvider sppNet = new StatusPoolProvider(StatusPool.NETWORK_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("NETWORK", sppNet);
 
-		StatusPoolProvider sppSrc = new StatusPoolProvider(StatusPool.latest().source);
+		StatusPoolProvider sppSrc = new StatusPoolProvider(StatusPool.SOURCE_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("SOURCE", sppSrc);
 
-		StatusPoolProvider sppCal = new StatusPoolProvider(StatusPool.latest().calibrate);
+		StatusPoolProvider sppCal = new StatusPoolProvider(StatusPool.CALIBRATE_UPDATE_EVENT);
 		LegacyStatusProviderRegistry.getInstance().addStatusCategory("CALIB", sppCal);
 
 		// SkyModel
@@ -1986,6 +2002,9 @@ public class RCS_Controller implements Logging {
 			// bootLog.log(1, CLASS, rcsId, "init",
 			// "SkyModel Archive Gateway initialised");
 			// Naming.rebind("SkyModelGateway", sag);
+			// sag.setProcessInterval(10000L);
+			// sag.setBackingStoreAgeLimit(10 * 60 * 1000L);
+			// sag.setBackingStore(createBackingStore("skymodel"));
 			// sag.startProcessor();
 
 			// Make some sort of thing which is able to provide
@@ -2062,13 +2081,31 @@ public class RCS_Controller implements Logging {
 			// bootLog.log(1, CLASS, rcsId, "init",
 			// "Meteorology Archive Gateway initialised");
 			// Naming.rebind("MeteorologyGateway", mag);
-			// mag.startProcessor();
 
 		} catch (Exception ex) {
 			bootLog.log(FATAL, 1, CLASS, rcsId, "init", "Error initializing MeteorologyProvider : ", null, ex);
 			throw new RCSStartupException("Error initializing EMS MeteorologyProvider: " + ex, EMS_CONFIG);
 		}
 
+		// Record telescope and meteorology status for replay through the
+		// reactive system - the archive gateways only hold a few hours.
+		if (rcs_config.getBooleanValue("telemetry.record.status", false)) {
+			long retention = rcs_config.getLongValue("telemetry.record.retention",
+					MappedSegmentBackingStore.DEFAULT_RETENTION_PERIOD);
+			SecondaryCache telescopeStore = createBackingStore("telescope", retention);
+			SecondaryCache meteorologyStore = createBackingStore("meteorology", retention);
+			if (telescopeStore != null || meteorologyStore != null) {
+				try {
+					StatusRecorder recorder = new StatusRecorder(telescopeStore, meteorologyStore);
+					telescope.addTelescopeStatusUpdateListener(recorder);
+					meteo.addMeteorologyStatusUpdateListener(recorder);
+					bootLog.log(1, CLASS, rcsId, "init", "Recording telescope and meteorology status for replay");
+				} catch (Exception e) {
+					bootLog.log(WARNING, 1, CLASS, rcsId, "init", "Unable to record status for replay: " + e);
+				}
+			}
+		}
+
 		// ---------------------------------------
 		// IMS (infrastructure monitoring System)
 		// ---------------------------------------
@@ -2131,6 +2168,7 @@ public class RCS_Controller implements Logging {
 			Naming.rebind("ReactiveSystemGateway", rag);
 			rag.setProcessInterval(10000L);
 			rag.setBackingStoreAgeLimit(10 * 60 * 1000L);
+			rag.setBackingStore(createBackingStore("reactive"));
 			rag.startProcessor();
 		} catch (Exception iax) {
 			iax.printStackTrace();
@@ -2281,6 +2319,13 @@ public class RCS_Controller implements Logging {
 		StatusPool.register(FITS_HeaderInfo.getInstance(), StatusPool.TIME_UPDATE_EVENT);
 		StatusPool.register(FITS_HeaderInfo.getInstance(), StatusPool.STATE_UPDATE_EVENT);
 
+		// Must follow the FITS_HeaderInfo registrations so headers are updated first.
+		FITS_HeaderSnapshotService.getInstance().setMaxAge(
+				rcs_config.getLongValue("fits.status.max.age", FITS_HeaderSnapshotService.DEFAULT_MAX_AGE));
+		FITS_HeaderSnapshotService.getInstance().setIdleAge(
+				rcs_config.getLongValue("fits.status.idle.age", FITS_HeaderSnapshotService.DEFAULT_IDLE_AGE));
+		FITS_HeaderSnapshotService.getInstance().initialize();
+
 		// ### TRACKING MONITOR
 		try {
 			defaultTrackingMonitor = new DefaultTrackingMonitor();
@@ -2478,6 +2523,7 @@ public class RCS_Controller implements Logging {
 			Naming.rebind("StateModelGateway", smag);
 			smag.setProcessInterval(10000L);
 			smag.setBackingStoreAgeLimit(10 * 60 * 1000L);
+			smag.setBackingStore(createBackingStore("statemodel"));
 			smag.startProcessor();
 
 			(new Thread(tsm)).start();
@@ -2625,6 +2671,45 @@ public class RCS_Controller implements Logging {
 
 	}
 
+	/**
+	 * Create a backing store for an archive gateway's aged data.
+	 * 
+	 * @param prefix
+	 *            Filename prefix for the gateway's segment files.
+	 * @return A backing store under the directory set by
+	 *         telemetry.backing.store.dir or null if none is set or the
+	 *         directory cannot be used.
+	 */
+	private SecondaryCache createBackingStore(String prefix) {
+		return createBackingStore(prefix, rcs_config.getLongValue("telemetry.backing.store.retention",
+				MappedSegmentBackingStore.DEFAULT_RETENTION_PERIOD));
+	}
+
+	/**
+	 * @param prefix
+	 *            Prefix for the store's segment files.
+	 * @param retention
+	 *            Maximum age (millis) of data to keep.
+	 * @return A backing store under the directory set by
+	 *         telemetry.backing.store.dir or null if none is set or the
+	 *         directory cannot be used.
+	 */
+	private SecondaryCache createBackingStore(String prefix, long retention) {
+		String dirName = rcs_config.getProperty("telemetry.backing.store.dir");
+		if (dirName == null)
+			return null;
+		int segmentSize = rcs_config.getIntValue("telemetry.backing.store.segment.size",
+				MappedSegmentBackingStore.DEFAULT_SEGMENT_SIZE);
+		try {
+			return new MappedSegmentBackingStore(new File(dirName), prefix, segmentSize, retention);
+		} catch (Exception e) {
+			// the gateway still runs, it just keeps no history beyond its age limit.
+			bootLog.log(WARNING, 1, CLASS, rcsId, "init", "Unable to create backing store: " + prefix + " in: "
+					+ dirName + ", continuing without: " + e);
+			return null;
+		}
+	}
+
 	// -----------------
 	// Global accessors.
 	// -----------------
@@ -0,0 +1,293 @@
+package ngat.rcs.control;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Sends telemetry to one UDP client packed into datagrams of up to a
+ * configured size, see TelemetryDatagram for the format. Items the client has
+ * not asked for are dropped before queueing. Queued items are encoded and sent
+ * by a sender thread, never by the publishing thread, once a datagram's worth
+ * has built up or the oldest item has waited for the maximum delay. If the
+ * queue fills the oldest items are dropped.
+ *
+ * @author eng
+ *
+ */
+public class BatchedTelemetrySender implements Runnable {
+
+	/** Default maximum datagram size, to fit an ethernet MTU. */
+	public static final int DEFAULT_MAX_DATAGRAM_SIZE = 1400;
+
+	/** Default maximum time (millis) an item waits to be sent. */
+	public static final long DEFAULT_MAX_DELAY = 100L;
+
+	/** Default maximum number of items queued. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 5000;
+
+	/** Items queued before the sender is woken early. */
+	private static final int WAKE_THRESHOLD = 32;
+
+	/** Client address. */
+	private InetAddress address;
+
+	/** Client port. */
+	private int port;
+
+	/** Categories the client wants, null for all. */
+	private Set<String> wants;
+
+	private int maxDatagramSize;
+
+	private long maxDelay;
+
+	private int queueCapacity;
+
+	private DatagramSocket socket;
+
+	/** Queued {category, item} pairs. */
+	private LinkedList<Object[]> queue;
+
+	/** Time the oldest queued item was queued. */
+	private long oldestQueued;
+
+	private volatile boolean closed;
+
+	/** Sequence number of the next datagram. */
+	private int sequence;
+
+	private volatile long itemsSent;
+
+	private volatile long itemsDropped;
+
+	private volatile long itemsFailed;
+
+	private volatile long datagramsSent;
+
+	private volatile long bytesSent;
+
+	/**
+	 * Create a BatchedTelemetrySender with default settings.
+	 *
+	 * @param wants
+	 *            Names of the categories the client wants, null or empty for
+	 *            all.
+	 * @param host
+	 *            Client host.
+	 * @param port
+	 *            Client port.
+	 * @throws IOException
+	 *             If the host is unknown or a socket cannot be opened.
+	 */
+	public BatchedTelemetrySender(Collection wants, String host, int port) throws IOException {
+		this(wants, host, port, DEFAULT_MAX_DATAGRAM_SIZE, DEFAULT_MAX_DELAY, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param wants
+	 *            Names of the categories the client wants, null or empty for
+	 *            all.
+	 * @param host
+	 *            Client host.
+	 * @param port
+	 *            Client port.
+	 * @param maxDatagramSize
+	 *            Maximum datagram size (bytes). A single item larger than this
+	 *            is sent in a datagram of its own.
+	 * @param maxDelay
+	 *            Maximum time (millis) an item waits to be sent.
+	 * @param queueCapacity
+	 *            Maximum number of items queued.
+	 * @throws IOException
+	 *             If the host is unknown or a socket cannot be opened.
+	 */
+	public BatchedTelemetrySender(Collection wants, String host, int port, int maxDatagramSize, long maxDelay,
+			int queueCapacity) throws IOException {
+		this.address = InetAddress.getByName(host);
+		this.port = port;
+		if (wants != null && !wants.isEmpty()) {
+			this.wants = new HashSet<String>();
+			Iterator it = wants.iterator();
+			while (it.hasNext())
+				this.wants.add(String.valueOf(it.next()));
+		}
+		this.maxDatagramSize = Math.max(TelemetryDatagram.HEADER_SIZE + 1,
+				Math.min(maxDatagramSize, TelemetryDatagram.MAX_UDP_PAYLOAD));
+		this.maxDelay = Math.max(0L, maxDelay);
+		this.queueCapacity = Math.max(1, queueCapacity);
+		queue = new LinkedList<Object[]>();
+		socket = new DatagramSocket();
+	}
+
+	/** Start the sender thread. */
+	public void start() {
+		Thread thread = new Thread(this, "TelemetrySender:" + address.getHostAddress() + ":" + port);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @param category
+	 *            A category name.
+	 * @return True if the client wants items of this category.
+	 */
+	public boolean wants(String category) {
+		return wants == null || wants.contains(category);
+	}
+
+	/**
+	 * Queue an item for sending if the client wants its category. Never blocks
+	 * on the network.
+	 *
+	 * @param category
+	 *            The item category.
+	 * @param item
+	 *            The item.
+	 */
+	public void publish(String category, Object item) {
+		if (!wants(category))
+			return;
+		synchronized (queue) {
+			if (closed)
+				return;
+			if (queue.isEmpty())
+				oldestQueued = System.currentTimeMillis();
+			if (queue.size() >= queueCapacity) {
+				queue.removeFirst();
+				itemsDropped++;
+			}
+			queue.addLast(new Object[] { category, item });
+			if (queue.size() == 1 || queue.size() >= WAKE_THRESHOLD)
+				queue.notifyAll();
+		}
+	}
+
+	/** Stop the sender after sending any queued items. */
+	public void close() {
+		synchronized (queue) {
+			closed = true;
+			queue.notifyAll();
+		}
+	}
+
+	public long getItemsSent() {
+		return itemsSent;
+	}
+
+	/** @return The number of items dropped because the queue was full. */
+	public long getItemsDropped() {
+		return itemsDropped;
+	}
+
+	/** @return The number of items which could not be encoded or sent. */
+	public long getItemsFailed() {
+		return itemsFailed;
+	}
+
+	public long getDatagramsSent() {
+		return datagramsSent;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public void run() {
+		List<Object[]> batch = new Vector<Object[]>();
+		ByteArrayOutputStream datagram = new ByteArrayOutputStream(maxDatagramSize);
+		ByteArrayOutputStream record = new ByteArrayOutputStream(maxDatagramSize);
+		ByteArrayOutputStream payload = new ByteArrayOutputStream(maxDatagramSize);
+		while (true) {
+			synchronized (queue) {
+				try {
+					while (queue.isEmpty() && !closed)
+						queue.wait();
+					// let a batch build up unless it is already large enough
+					long wait = oldestQueued + maxDelay - System.currentTimeMillis();
+					while (!closed && queue.size() < WAKE_THRESHOLD && wait > 0) {
+						queue.wait(wait);
+						wait = oldestQueued + maxDelay - System.currentTimeMillis();
+					}
+				} catch (InterruptedException ix) {
+				}
+				if (queue.isEmpty() && closed)
+					break;
+				batch.addAll(queue);
+				queue.clear();
+			}
+			send(batch, datagram, record, payload);
+			batch.clear();
+		}
+		socket.close();
+	}
+
+	/** Pack the items into as few datagrams as possible and send them. */
+	private void send(List<Object[]> batch, ByteArrayOutputStream datagram, ByteArrayOutputStream record,
+			ByteArrayOutputStream payload) {
+		DataOutputStream recordOut = new DataOutputStream(record);
+		datagram.reset();
+		int count = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			Object[] entry = batch.get(i);
+			record.reset();
+			try {
+				TelemetryDatagram.writeItem(recordOut, (String) entry[0], entry[1], payload);
+				recordOut.flush();
+			} catch (Exception e) {
+				itemsFailed++;
+				continue;
+			}
+			if (count > 0 && TelemetryDatagram.HEADER_SIZE + datagram.size() + record.size() > maxDatagramSize) {
+				transmit(datagram, count);
+				datagram.reset();
+				count = 0;
+			}
+			if (TelemetryDatagram.HEADER_SIZE + record.size() > TelemetryDatagram.MAX_UDP_PAYLOAD) {
+				itemsFailed++;
+				continue;
+			}
+			try {
+				record.writeTo(datagram);
+			} catch (IOException iox) {
+				// cannot happen writing to memory
+			}
+			count++;
+		}
+		if (count > 0)
+			transmit(datagram, count);
+	}
+
+	/** Prefix the header to the packed records and send. */
+	private void transmit(ByteArrayOutputStream records, int count) {
+		try {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(TelemetryDatagram.HEADER_SIZE + records.size());
+			DataOutputStream out = new DataOutputStream(buffer);
+			TelemetryDatagram.writeHeader(out, sequence, System.currentTimeMillis(), count);
+			records.writeTo(out);
+			out.flush();
+			byte[] data = buffer.toByteArray();
+			socket.send(new DatagramPacket(data, data.length, address, port));
+			itemsSent += count;
+			datagramsSent++;
+			bytesSent += data.length;
+		} catch (IOException iox) {
+			itemsFailed += count;
+			System.err.println("BatchedTelemetrySender: Failed to send to " + address + ":" + port + ": " + iox);
+		}
+		// a failed datagram still uses up its sequence number so the client
+		// sees the gap
+		sequence++;
+	}
+
+}
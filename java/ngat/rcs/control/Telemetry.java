@@ -66,9 +66,29 @@ public class Telemetry {
     /** The list of clients who want telemtry data.*/
     protected List targets;
 
+    /** Senders for clients using the batched UDP transport.*/
+    protected List<BatchedTelemetrySender> batchedTargets;
+
+    /** True if UDP clients should use the batched transport.*/
+    protected boolean batchedUdp;
+
+    /** Maximum datagram size for the batched transport.*/
+    protected int batchSize = BatchedTelemetrySender.DEFAULT_MAX_DATAGRAM_SIZE;
+
+    /** Maximum delay (ms) before a batch is sent.*/
+    protected long batchDelay = BatchedTelemetrySender.DEFAULT_MAX_DELAY;
+
     private Telemetry() { 
 	
 	targets = new Vector();
+	batchedTargets = new Vector<BatchedTelemetrySender>();
+
+	ConfigurationProperties config = RCS_Controller.getConfig();
+	if (config != null) {
+	    batchedUdp = "batched".equalsIgnoreCase(config.getProperty("telemetry.udp.transport", "legacy"));
+	    batchSize  = config.getIntValue("telemetry.udp.batch.size", BatchedTelemetrySender.DEFAULT_MAX_DATAGRAM_SIZE);
+	    batchDelay = config.getLongValue("telemetry.udp.batch.delay", BatchedTelemetrySender.DEFAULT_MAX_DELAY);
+	}
 
 	dataLogger = new DataLogger();
 
@@ -90,6 +110,10 @@ public class Telemetry {
 
 	switch (conset.type) {
 	case ConnectionSetupInfo.UDP:
+	    if (batchedUdp) {
+		addBatchedConnection(clientId, conset.host, conset.port, wants);
+		break;
+	    }
 	    DataForwarder df = new DataForwarder(wants, conset.host, conset.port);	
 	    dataLogger.addUpdateListener(df);	
 	    targets.add(clientId);
@@ -104,8 +128,29 @@ public class Telemetry {
 	}
     }
 
+    /** Add a client using the batched UDP transport. If the ID is already known we dont add it.
+     * @param clientId The client's ID.
+     * @param host The client's host.
+     * @param port The client's UDP port.
+     * @param wants Names of the categories the client wants, null or empty for all.
+     */
+    public void addBatchedConnection(String clientId, String host, int port, Vector wants) throws IOException {
+
+	if (targets.contains(clientId)) 
+	    return;
+
+	BatchedTelemetrySender sender = new BatchedTelemetrySender(wants, host, port, batchSize, batchDelay, 
+								   BatchedTelemetrySender.DEFAULT_QUEUE_CAPACITY);
+	sender.start();
+	batchedTargets.add(sender);
+	targets.add(clientId);
+    }
+
     public void publish(String cat, TelemetryInfo info) {
 
+	for (int i = 0; i < batchedTargets.size(); i++)
+	    batchedTargets.get(i).publish(cat, info);
+
 	try {
 	    dataLogger.push(info);
 	} catch (InterruptedException ix) {}
@@ -0,0 +1,247 @@
+package ngat.rcs.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Wire format for batched telemetry datagrams. A datagram carries a header
+ * followed by a number of item records:
+ *
+ * <pre>
+ * header: int magic, byte version, int sequence, long sendTime, short itemCount
+ * item:   byte category code [UTF category if code is 0], unsigned short length, payload
+ * </pre>
+ *
+ * The sequence number increments by one per datagram sent to a client so a
+ * receiver can count lost datagrams. Well known categories are sent as a
+ * single byte code. The payload is the serialized telemetry item with each
+ * class descriptor reduced to the class name, as sender and receiver share the
+ * same classes.
+ *
+ * @author eng
+ *
+ */
+public class TelemetryDatagram {
+
+	/** Marks a telemetry datagram ("RCTB"). */
+	public static final int MAGIC = 0x52435442;
+
+	public static final int VERSION = 1;
+
+	/** Size of the header in bytes. */
+	public static final int HEADER_SIZE = 19;
+
+	/** Largest payload a UDP datagram can carry. */
+	public static final int MAX_UDP_PAYLOAD = 65507;
+
+	/** Categories sent as a code, the code is the index + 1. */
+	private static final String[] CATEGORIES = new String[] { "STATUS", "LOG", "OBS", "EXP", "DPRT", "SPY",
+			"STATE_MODEL" };
+
+	/** Class descriptors already looked up, keyed by class name. */
+	private static final Map<String, ObjectStreamClass> DESCRIPTORS = new HashMap<String, ObjectStreamClass>();
+
+	/** Sequence number of the datagram. */
+	private int sequence;
+
+	/** Time the datagram was sent. */
+	private long sendTime;
+
+	/** Item categories. */
+	private List<String> categories;
+
+	/** Items. */
+	private List<Object> items;
+
+	private TelemetryDatagram(int sequence, long sendTime, int size) {
+		this.sequence = sequence;
+		this.sendTime = sendTime;
+		categories = new Vector<String>(size);
+		items = new Vector<Object>(size);
+	}
+
+	public int getSequence() {
+		return sequence;
+	}
+
+	public long getSendTime() {
+		return sendTime;
+	}
+
+	/** @return The number of items in the datagram. */
+	public int size() {
+		return items.size();
+	}
+
+	public String getCategory(int i) {
+		return categories.get(i);
+	}
+
+	public Object getItem(int i) {
+		return items.get(i);
+	}
+
+	/**
+	 * Write a datagram header.
+	 *
+	 * @param out
+	 *            Where to write the header.
+	 * @param sequence
+	 *            The datagram sequence number.
+	 * @param sendTime
+	 *            The send time.
+	 * @param itemCount
+	 *            The number of item records which follow.
+	 */
+	public static void writeHeader(DataOutputStream out, int sequence, long sendTime, int itemCount)
+			throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeInt(sequence);
+		out.writeLong(sendTime);
+		out.writeShort(itemCount);
+	}
+
+	/**
+	 * Encode an item record.
+	 *
+	 * @param out
+	 *            Where to write the record.
+	 * @param category
+	 *            The item category.
+	 * @param item
+	 *            The item, which must be serializable.
+	 * @param buffer
+	 *            Scratch buffer for the payload, reset before use.
+	 */
+	public static void writeItem(DataOutputStream out, String category, Object item, ByteArrayOutputStream buffer)
+			throws IOException {
+		buffer.reset();
+		ObjectOutputStream oos = new CompactObjectOutputStream(buffer);
+		oos.writeObject(item);
+		oos.flush();
+		if (buffer.size() > 0xFFFF)
+			throw new IOException("Telemetry item too large: " + buffer.size() + " bytes");
+
+		int code = getCategoryCode(category);
+		out.writeByte(code);
+		if (code == 0)
+			out.writeUTF(category);
+		out.writeShort(buffer.size());
+		buffer.writeTo(out);
+	}
+
+	/**
+	 * Decode a datagram.
+	 *
+	 * @param data
+	 *            The datagram buffer.
+	 * @param offset
+	 *            Start of the datagram.
+	 * @param length
+	 *            Length of the datagram.
+	 * @return The decoded datagram.
+	 * @throws Exception
+	 *             If the datagram is not a telemetry datagram, is corrupt or
+	 *             carries an item of an unknown class.
+	 */
+	public static TelemetryDatagram decode(byte[] data, int offset, int length) throws Exception {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a telemetry datagram");
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported telemetry datagram version: " + version);
+		int sequence = in.readInt();
+		long sendTime = in.readLong();
+		int count = in.readUnsignedShort();
+
+		TelemetryDatagram datagram = new TelemetryDatagram(sequence, sendTime, count);
+		for (int i = 0; i < count; i++) {
+			int code = in.readUnsignedByte();
+			String category;
+			if (code == 0)
+				category = in.readUTF();
+			else if (code <= CATEGORIES.length)
+				category = CATEGORIES[code - 1];
+			else
+				throw new IOException("Unknown telemetry category code: " + code);
+			int size = in.readUnsignedShort();
+			byte[] payload = new byte[size];
+			in.readFully(payload);
+			ObjectInputStream ois = new CompactObjectInputStream(new ByteArrayInputStream(payload));
+			datagram.categories.add(category);
+			datagram.items.add(ois.readObject());
+		}
+		return datagram;
+	}
+
+	/** @return The code for a category, 0 if it is not a well known one. */
+	private static int getCategoryCode(String category) {
+		for (int i = 0; i < CATEGORIES.length; i++) {
+			if (CATEGORIES[i].equals(category))
+				return i + 1;
+		}
+		return 0;
+	}
+
+	/** Writes class descriptors as just the class name. */
+	private static class CompactObjectOutputStream extends ObjectOutputStream {
+
+		CompactObjectOutputStream(OutputStream out) throws IOException {
+			super(out);
+		}
+
+		@Override
+		protected void writeStreamHeader() throws IOException {
+			// no header, the datagram header identifies the format
+		}
+
+		@Override
+		protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+			writeUTF(desc.getName());
+		}
+	}
+
+	/** Reads class descriptors written by CompactObjectOutputStream. */
+	private static class CompactObjectInputStream extends ObjectInputStream {
+
+		CompactObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected void readStreamHeader() throws IOException {
+			// no header
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+			String name = readUTF();
+			synchronized (DESCRIPTORS) {
+				ObjectStreamClass desc = DESCRIPTORS.get(name);
+				if (desc != null)
+					return desc;
+				Class c = Class.forName(name, false, Thread.currentThread().getContextClassLoader());
+				desc = ObjectStreamClass.lookup(c);
+				if (desc == null)
+					throw new ClassNotFoundException("Not serializable: " + name);
+				DESCRIPTORS.put(name, desc);
+				return desc;
+			}
+		}
+	}
+
+}
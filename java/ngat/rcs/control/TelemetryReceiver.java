@@ -0,0 +1,139 @@
+package ngat.rcs.control;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+
+/**
+ * Client side of the batched telemetry transport. Receives datagrams sent by
+ * BatchedTelemetrySender, decodes them and hands each item to a listener.
+ * Gaps in the datagram sequence numbers are counted as lost datagrams.
+ *
+ * @author eng
+ *
+ */
+public class TelemetryReceiver implements Runnable {
+
+	/** Receives decoded telemetry items. */
+	public interface Listener {
+
+		/**
+		 * @param category
+		 *            The item category.
+		 * @param item
+		 *            The item.
+		 */
+		public void telemetryReceived(String category, Object item);
+	}
+
+	/** Requested socket receive buffer size. */
+	private static final int RECEIVE_BUFFER_SIZE = 1024 * 1024;
+
+	private DatagramSocket socket;
+
+	private Listener listener;
+
+	private volatile boolean closed;
+
+	/** Sequence number expected next, -1 until the first datagram. */
+	private long expected = -1L;
+
+	private volatile long datagramsReceived;
+
+	private volatile long datagramsLost;
+
+	private volatile long datagramsCorrupt;
+
+	private volatile long itemsReceived;
+
+	private volatile long bytesReceived;
+
+	/**
+	 * @param port
+	 *            Local port to receive on.
+	 * @param listener
+	 *            Receives the items, may be null to just count them.
+	 * @throws SocketException
+	 */
+	public TelemetryReceiver(int port, Listener listener) throws SocketException {
+		socket = new DatagramSocket(port);
+		// room for bursts while items are being decoded
+		socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+		this.listener = listener;
+	}
+
+	/** @return The local port. */
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	/** Start a receiver thread. */
+	public void start() {
+		Thread thread = new Thread(this, "TelemetryReceiver:" + getPort());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void close() {
+		closed = true;
+		socket.close();
+	}
+
+	public long getDatagramsReceived() {
+		return datagramsReceived;
+	}
+
+	/** @return The number of datagrams missing from the sequence. */
+	public long getDatagramsLost() {
+		return datagramsLost;
+	}
+
+	public long getDatagramsCorrupt() {
+		return datagramsCorrupt;
+	}
+
+	public long getItemsReceived() {
+		return itemsReceived;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public void run() {
+		byte[] buffer = new byte[TelemetryDatagram.MAX_UDP_PAYLOAD];
+		DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+		while (!closed) {
+			try {
+				packet.setLength(buffer.length);
+				socket.receive(packet);
+			} catch (IOException iox) {
+				if (!closed)
+					System.err.println("TelemetryReceiver: Receive failed: " + iox);
+				continue;
+			}
+			TelemetryDatagram datagram = null;
+			try {
+				datagram = TelemetryDatagram.decode(packet.getData(), packet.getOffset(), packet.getLength());
+			} catch (Exception e) {
+				datagramsCorrupt++;
+				continue;
+			}
+			datagramsReceived++;
+			bytesReceived += packet.getLength();
+
+			long sequence = datagram.getSequence() & 0xFFFFFFFFL;
+			if (expected >= 0 && sequence > expected)
+				datagramsLost += sequence - expected;
+			expected = (sequence + 1) & 0xFFFFFFFFL;
+
+			for (int i = 0; i < datagram.size(); i++) {
+				itemsReceived++;
+				if (listener != null)
+					listener.telemetryReceived(datagram.getCategory(i), datagram.getItem(i));
+			}
+		}
+	}
+
+}
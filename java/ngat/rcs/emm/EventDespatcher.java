@@ -24,10 +24,12 @@ import java.util.*;
 import ngat.util.*;
 import ngat.util.logging.*;
 
-/** Carries out the event despatching task. Examines the EventQueue
- * at a regular interval (config-parameter), retrieves codes of any
- * Events fired by the Status Monitoring mechanism, looks up the
- * list of EventSubscribers and despatches notifications to them.
+/** Carries out the event despatching task. Blocks on the EventQueue
+ * until an event is posted, then drains all waiting events (priority
+ * queue first) looking up the list of EventSubscribers and despatching
+ * notifications to them. Timed events are released by the EventQueue
+ * while the despatcher is waiting - it is woken exactly when the next one
+ * falls due. The interval (config-parameter) is just the longest single wait.
  *
  * <dl>
  * <dt><b>RCS:</b>
@@ -42,12 +44,30 @@ public class EventDespatcher extends ControlThread {
 
     protected static final String CLASS = "EventDespatcher";
 
-    /** Default value for the EventQueue poll interval (1sec).*/
+    /** Default value for the maximum EventQueue wait (1sec).*/
     public static final long DEFAULT_INTERVAL = 1000L;
     
-    /** The interval (msecs) between checks of the EventQueue.*/
+    /** The maximum interval (msecs) to block on the EventQueue in one wait.*/
     protected long interval;
 
+    /** Number of events despatched.*/
+    protected long despatchCount;
+
+    /** Sum of post-to-delivery latencies (msecs).*/
+    protected long totalLatency;
+
+    /** Largest post-to-delivery latency seen (msecs).*/
+    protected long maxLatency;
+
+    /** Post-to-delivery latency of the most recent event (msecs).*/
+    protected long lastLatency;
+
+    /** Number of events waiting when the despatcher last woke.*/
+    protected int lastQueueDepth;
+
+    /** Largest number of events waiting at any wakeup.*/
+    protected int maxQueueDepth;
+
     /** The current EventID.*/
     protected Integer id;
 
@@ -78,7 +98,8 @@ public class EventDespatcher extends ControlThread {
     @Override
 	public void initialise() {}
     
-    /** On each cycle:- get event, locate Subscribers, notify, sleep for interval.*/
+    /** On each cycle:- release timed events, block until an event is available,
+     * then drain and despatch every waiting event before blocking again.*/
     @Override
 	public void mainTask() {
 	EventQueue.Event ev = null;
@@ -86,14 +107,26 @@ public class EventDespatcher extends ControlThread {
 	// Look for timed events which are now valid.
 	EventQueue.checkForTimedEvents();
 
-	// No event on queue - skip to sleep.
-	if (EventQueue.peekEvent() != null) {
-	    // Get next event from queue.
-	    ev = EventQueue.getNextEvent();
+	// Block until something is posted or a timed event falls due.
+	try {
+	    if (!EventQueue.awaitEvent(interval))
+		return;
+	} catch (InterruptedException e) {
+	    return;
+	}
+
+	int depth = EventQueue.getPriorityQueueSize() + EventQueue.getDefaultQueueSize();
+	synchronized (this) {
+	    lastQueueDepth = depth;
+	    if (depth > maxQueueDepth)
+		maxQueueDepth = depth;
+	}
+
+	// Drain the queue - priority events are always taken first.
+	while ((ev = EventQueue.getNextEvent()) != null) {
 	    // Locate any subscribers to the event.
 	    list = EventRegistry.findSubscribers(ev.topic);
 	    if (list != null) {
-		//synchronized (list) {
 		    Iterator it = list.iterator();
 		    while (it.hasNext()) {
 			subscriber = (EventSubscriber)it.next();
@@ -102,11 +135,19 @@ public class EventDespatcher extends ControlThread {
 			eventLog.log(1, CLASS, "-", "main",
 				     "DESPATCH: To: "+subscriber.getSubscriberId()+ " :Topic: "+ev.topic+" :Data: "+ev.data);
 		    }
-		//}
 	    }
+	    long latency = System.currentTimeMillis() - ev.postTime;
+	    synchronized (this) {
+		despatchCount++;
+		totalLatency += latency;
+		lastLatency = latency;
+		if (latency > maxLatency)
+		    maxLatency = latency;
+	    }
+	    eventLog.log(2, CLASS, "-", "main",
+			 "DESPATCHED: Topic: "+ev.topic+" Latency: "+latency+"ms Backlog: "+
+			 (EventQueue.getPriorityQueueSize() + EventQueue.getDefaultQueueSize()));
 	}
-	// Sleep for interval.
-	try { Thread.sleep(interval);} catch (InterruptedException e){}
     }
     
     /** Shutdown method - does nothing yet.*/
@@ -114,12 +155,42 @@ public class EventDespatcher extends ControlThread {
 	public void shutdown() {}
     
     
-    /** Sets the interval between status requests.
+    /** Sets the maximum interval to block on the EventQueue.
      * @param interval The interval (msecs).*/
     public void setInterval(long interval) { this.interval = interval; }
 
-    /** @return The interval between status requests.*/
+    /** @return The maximum interval to block on the EventQueue.*/
     public long getInterval() { return interval; }
+
+    /** @return The number of events despatched.*/
+    public synchronized long getDespatchCount() { return despatchCount; }
+
+    /** @return The mean post-to-delivery latency (msecs).*/
+    public synchronized double getMeanLatency() {
+	return (despatchCount == 0 ? 0.0 : (double)totalLatency/(double)despatchCount);
+    }
+
+    /** @return The largest post-to-delivery latency seen (msecs).*/
+    public synchronized long getMaxLatency() { return maxLatency; }
+
+    /** @return The post-to-delivery latency of the last event (msecs).*/
+    public synchronized long getLastLatency() { return lastLatency; }
+
+    /** @return The number of events waiting at the last wakeup.*/
+    public synchronized int getLastQueueDepth() { return lastQueueDepth; }
+
+    /** @return The largest number of events waiting at any wakeup.*/
+    public synchronized int getMaxQueueDepth() { return maxQueueDepth; }
+
+    /** Reset the latency and queue-depth statistics.*/
+    public synchronized void resetStatistics() {
+	despatchCount  = 0L;
+	totalLatency   = 0L;
+	maxLatency     = 0L;
+	lastLatency    = 0L;
+	lastQueueDepth = 0;
+	maxQueueDepth  = 0;
+    }
     
 }
 
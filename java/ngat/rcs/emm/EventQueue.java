@@ -56,8 +56,20 @@ public class EventQueue {
 	/** Internal structure to hold priority events. */
 	protected Vector priorityQueue;
 
-	/** Internal structure to hold time-critical events. */
-	protected Vector timeQueue;
+	/** Internal structure to hold time-critical events, ordered by release time. */
+	protected PriorityQueue timeQueue;
+
+	/** Pending time-critical events indexed by topic, for cancellation. */
+	protected Map timedTopics;
+
+	/** Number of timed events posted - used to keep FIFO order for equal release times. */
+	protected long timedSequence;
+
+	/** Number of live (not cancelled) timed events. */
+	protected int timedCount;
+
+	/** Monitor used to signal waiting despatchers when an event is posted. */
+	protected final Object lock = new Object();
 
 	/** Singleton instance. */
 	private static EventQueue instance = null;
@@ -69,7 +81,8 @@ public class EventQueue {
 	private EventQueue() {
 		defaultQueue = new Vector();
 		priorityQueue = new Vector();
-		timeQueue = new Vector();
+		timeQueue = new PriorityQueue(11, new TimedEventComparator());
+		timedTopics = new HashMap();
 		eventLog = LogManager.getLogger("EVENT");
 	}
 
@@ -83,7 +96,7 @@ public class EventQueue {
 	public static void postEvent(String topic) {
 		// if (instance.queue.contains(topic)) return;
 		Event ev = new Event(topic);
-		instance.defaultQueue.add(ev);
+		instance.enqueue(instance.defaultQueue, ev);
 		eventLog.log(1, CLASS, "-", "-", "POST: Default: " + ev.toString());
 
 	}
@@ -94,10 +107,10 @@ public class EventQueue {
 		Event ev = new Event(topic);
 
 		if (level == PRIORITY_LEVEL) {
-			instance.priorityQueue.add(ev);
+			instance.enqueue(instance.priorityQueue, ev);
 			eventLog.log(1, CLASS, "-", "-", "POST: Priority: " + ev.toString());
 		} else {
-			instance.defaultQueue.add(ev);
+			instance.enqueue(instance.defaultQueue, ev);
 			eventLog.log(1, CLASS, "-", "-", "POST: Default: " + ev.toString());
 		}
 	}
@@ -106,7 +119,7 @@ public class EventQueue {
 	public static void postEvent(String topic, Object data) {
 		// if (instance.queue.contains(topic)) return;
 		Event ev = new Event(topic, data);
-		instance.defaultQueue.add(ev);
+		instance.enqueue(instance.defaultQueue, ev);
 		eventLog.log(1, CLASS, "-", "-", "POST: Default: " + ev.toString());
 
 	}
@@ -116,11 +129,11 @@ public class EventQueue {
 		// if (instance.queue.contains(topic)) return;
 		Event ev = new Event(topic, data);
 		if (level == PRIORITY_LEVEL) {
-			instance.priorityQueue.add(ev);
+			instance.enqueue(instance.priorityQueue, ev);
 			eventLog.log(1, CLASS, "-", "-", "POST: Priority: [" + topic + "] : "
 					+ (data != null ? data.getClass().getName() : "NULL"));
 		} else {
-			instance.defaultQueue.add(ev);
+			instance.enqueue(instance.defaultQueue, ev);
 			eventLog.log(1, CLASS, "-", "-", "POST: Default: " + ev.toString());
 		}
 	}
@@ -146,47 +159,183 @@ public class EventQueue {
 	 */
 	public static void postTimedEvent(String topic, Object data, long after, long before, int level) {
 		TimedEvent tev = new TimedEvent(topic, data, after, before, level);
-		instance.timeQueue.add(tev);
+		synchronized (instance.lock) {
+			tev.sequence = instance.timedSequence++;
+			instance.timeQueue.add(tev);
+			Set pending = (Set) instance.timedTopics.get(topic);
+			if (pending == null) {
+				pending = new HashSet();
+				instance.timedTopics.put(topic, pending);
+			}
+			pending.add(tev);
+			instance.timedCount++;
+			// only need to wake a waiting despatcher if this is now the next due
+			if (instance.timeQueue.peek() == tev)
+				instance.lock.notifyAll();
+		}
 		eventLog.log(1, CLASS, "-", "-", "POST: Timed: " + tev.toString());
 	}
 
 	/**
 	 * Checks for any enabled TimedEvents and places them appropriately in the
-	 * required priority queue.
+	 * required priority queue. Only events whose release time has passed are
+	 * examined. Events whose 'before' time has already passed by the time they
+	 * are released are discarded.
 	 */
 	public static void checkForTimedEvents() {
-		// System.err.println("EQ::Checking for TimedEvents");
-		long now = System.currentTimeMillis();
-		TimedEvent t = null;
-		Iterator tevs = instance.timeQueue.iterator();
-		while (tevs.hasNext()) {
-			t = (TimedEvent) tevs.next();
-			if (t == null)
+		synchronized (instance.lock) {
+			instance.releaseTimedEvents(System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Cancel all pending timed events with the specified topic.
+	 * 
+	 * @param topic
+	 *            The event topic.
+	 * @return The number of events cancelled.
+	 */
+	public static int cancelTimedEvents(String topic) {
+		synchronized (instance.lock) {
+			Set pending = (Set) instance.timedTopics.remove(topic);
+			if (pending == null)
+				return 0;
+			// Cancelled events are left on the heap and dropped when they
+			// reach the head.
+			Iterator it = pending.iterator();
+			while (it.hasNext()) {
+				TimedEvent t = (TimedEvent) it.next();
+				t.cancelled = true;
+			}
+			instance.timedCount -= pending.size();
+			eventLog.log(1, CLASS, "-", "-", "CANCEL: Timed: " + topic + " (" + pending.size() + " events)");
+			return pending.size();
+		}
+	}
+
+	/**
+	 * Release any due timed events onto their queues. Must be called holding
+	 * the lock.
+	 * 
+	 * @param now
+	 *            The current time.
+	 */
+	private void releaseTimedEvents(long now) {
+		while (!timeQueue.isEmpty()) {
+			TimedEvent t = (TimedEvent) timeQueue.peek();
+			if (!t.cancelled && t.after > 0 && t.after >= now)
+				return;
+			timeQueue.poll();
+			if (t.cancelled)
 				continue;
-			if (((t.after <= 0) || (t.after < now)) && ((t.before <= 0) || (t.before > now))) {
+			Set pending = (Set) timedTopics.get(t.topic);
+			if (pending != null) {
+				pending.remove(t);
+				if (pending.isEmpty())
+					timedTopics.remove(t.topic);
+			}
+			timedCount--;
+			if ((t.before <= 0) || (t.before > now))
 				postEvent(t.topic, t.data, t.level);
-				tevs.remove();
+			else
+				eventLog.log(1, CLASS, "-", "-", "EXPIRED: Timed: " + t.toString());
+		}
+	}
+
+	/**
+	 * @return The time at which the next timed event becomes due or zero if
+	 *         there are none. Must be called holding the lock.
+	 */
+	private long nextTimedRelease() {
+		TimedEvent t = (TimedEvent) timeQueue.peek();
+		if (t == null)
+			return 0L;
+		// release requires now > after
+		return (t.after <= 0 ? 1L : t.after + 1);
+	}
+
+	/**
+	 * Add an event to the specified queue and wake any despatcher which is
+	 * blocked waiting for work.
+	 * 
+	 * @param queue
+	 *            The queue to add to.
+	 * @param ev
+	 *            The event.
+	 */
+	private void enqueue(Vector queue, Event ev) {
+		synchronized (lock) {
+			queue.add(ev);
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Block the caller until at least one event is available on either queue
+	 * or the timeout expires. Returns immediately if events are already
+	 * waiting. Timed events are released while waiting, the caller is woken
+	 * exactly when the next one becomes due.
+	 * 
+	 * @param timeout
+	 *            The maximum time to wait (msec).
+	 * @return True if there is an event waiting.
+	 * @throws InterruptedException
+	 *             If the caller is interrupted while waiting.
+	 */
+	public static boolean awaitEvent(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (instance.lock) {
+			while (true) {
+				long now = System.currentTimeMillis();
+				instance.releaseTimedEvents(now);
+				if (!instance.priorityQueue.isEmpty() || !instance.defaultQueue.isEmpty())
+					return true;
+				long until = deadline;
+				long release = instance.nextTimedRelease();
+				if (release > 0L && release < until)
+					until = release;
+				long wait = until - now;
+				if (wait <= 0L) {
+					if (now >= deadline)
+						return false;
+					continue;
+				}
+				instance.lock.wait(wait);
 			}
 		}
 	}
 
+	/** @return The number of events waiting on the priority queue. */
+	public static int getPriorityQueueSize() {
+		return instance.priorityQueue.size();
+	}
+
+	/** @return The number of events waiting on the default queue. */
+	public static int getDefaultQueueSize() {
+		return instance.defaultQueue.size();
+	}
+
+	/** @return The number of timed events not yet released. */
+	public static int getTimedQueueSize() {
+		synchronized (instance.lock) {
+			return instance.timedCount;
+		}
+	}
+
 	/**
 	 * @return Remove an event from the EventQueue and return it. If both lists
 	 *         are empty, returns null.
 	 */
 	public static Event getNextEvent() {
-		if (instance.priorityQueue.isEmpty()) {
-			if (instance.defaultQueue.isEmpty())
-				return null;
-			else {
-				Event event = (Event) instance.defaultQueue.firstElement();
-				instance.defaultQueue.remove(event);
-				return event;
+		synchronized (instance.lock) {
+			if (instance.priorityQueue.isEmpty()) {
+				if (instance.defaultQueue.isEmpty())
+					return null;
+				else
+					return (Event) instance.defaultQueue.remove(0);
 			}
+			return (Event) instance.priorityQueue.remove(0);
 		}
-		Event event = (Event) instance.priorityQueue.firstElement();
-		instance.priorityQueue.remove(event);
-		return event;
 	}
 
 	/**
@@ -194,20 +343,24 @@ public class EventQueue {
 	 * list is empty, returns null.
 	 */
 	public static Event peekEvent() {
-		if (instance.priorityQueue.isEmpty()) {
-			if (instance.defaultQueue.isEmpty())
-				return null;
-			else {
-				return (Event) instance.defaultQueue.firstElement();
+		synchronized (instance.lock) {
+			if (instance.priorityQueue.isEmpty()) {
+				if (instance.defaultQueue.isEmpty())
+					return null;
+				else {
+					return (Event) instance.defaultQueue.firstElement();
+				}
 			}
+			return (Event) instance.priorityQueue.firstElement();
 		}
-		return (Event) instance.priorityQueue.firstElement();
 	}
 
 	/** Clear the entire queue of <b>all</b> events without despatching. */
 	public static void clear() {
-		instance.priorityQueue.clear();
-		instance.defaultQueue.clear();
+		synchronized (instance.lock) {
+			instance.priorityQueue.clear();
+			instance.defaultQueue.clear();
+		}
 	}
 
 	/**
@@ -215,17 +368,19 @@ public class EventQueue {
 	 * despatching.
 	 */
 	public static void clear(String topic) {
-		Iterator it = instance.defaultQueue.iterator();
-		while (it.hasNext()) {
-			Event ev = (Event) it.next();
-			if (ev.topic.equals(topic))
-				instance.defaultQueue.remove(ev);
-		}
-		it = instance.priorityQueue.iterator();
-		while (it.hasNext()) {
-			Event ev = (Event) it.next();
-			if (ev.topic.equals(topic))
-				instance.priorityQueue.remove(ev);
+		synchronized (instance.lock) {
+			Iterator it = instance.defaultQueue.iterator();
+			while (it.hasNext()) {
+				Event ev = (Event) it.next();
+				if (ev.topic.equals(topic))
+					it.remove();
+			}
+			it = instance.priorityQueue.iterator();
+			while (it.hasNext()) {
+				Event ev = (Event) it.next();
+				if (ev.topic.equals(topic))
+					it.remove();
+			}
 		}
 	}
 
@@ -235,9 +390,13 @@ public class EventQueue {
 
 		public Object data;
 
+		/** Time the event was created (posted). */
+		public long postTime;
+
 		Event(String topic, Object data) {
 			this.topic = topic;
 			this.data = data;
+			this.postTime = System.currentTimeMillis();
 		}
 
 		Event(String topic) {
@@ -259,6 +418,12 @@ public class EventQueue {
 
 		int level;
 
+		/** Order of posting, breaks ties between equal release times. */
+		long sequence;
+
+		/** Set when the event has been cancelled before release. */
+		boolean cancelled;
+
 		TimedEvent(String topic, Object data, long after, long before, int level) {
 			super(topic, data);
 			this.before = before;
@@ -281,6 +446,20 @@ public class EventQueue {
 
 	}
 
+	/** Orders TimedEvents by release time then by order of posting. */
+	private static class TimedEventComparator implements Comparator {
+
+		public int compare(Object o1, Object o2) {
+			TimedEvent t1 = (TimedEvent) o1;
+			TimedEvent t2 = (TimedEvent) o2;
+			long a1 = (t1.after <= 0 ? 0L : t1.after);
+			long a2 = (t2.after <= 0 ? 0L : t2.after);
+			if (a1 != a2)
+				return (a1 < a2 ? -1 : 1);
+			return (t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1));
+		}
+	}
+
 }
 
 /**
@@ -55,6 +55,10 @@ import java.util.*;
  * if they are just going to ignore them - this decision would be 
  * determined by the subscriber's internal state.
  * <p>
+ * Subscriptions are compiled into a prefix-trie (TopicIndex) so that the
+ * cost of finding the subscribers to a topic depends on the length of the
+ * topic rather than on the number of subscriptions.
+ * <p>
  * The Events are arranged as a tree of <i>topics</i> - a subscriber
  * can subscribe to any point in the tree and will be notified if
  * a topic at any point below in the tree is published.
@@ -77,15 +81,21 @@ import java.util.*;
 
 public class EventRegistry {
     
-    /** Internal structure for storing subscriber lists.*/
+    /** Internal structure for storing subscriber lists (subscriber to topics).*/
     protected Map registry;
+
+    /** Compiled prefix index of the current subscriptions. Replaced (never
+     * modified) after a subscription changes so despatchers can read it
+     * without locking. Null when it needs recompiling.*/
+    protected volatile TopicIndex index;
     
     /** The singleton instance.*/
     protected static EventRegistry instance = null;
     
     /** Create an EventRegistry.*/
     private EventRegistry() {
-	registry = Collections.synchronizedMap(new HashMap());
+	registry = new HashMap();
+	index    = TopicIndex.EMPTY;
     }
     
     /** @return The singleton instance.*/
@@ -95,19 +105,13 @@ public class EventRegistry {
 	return instance;
     }
     
-    /** Register a specified EventID - creates a new Vector to
-     * hold the List of Subscribers for this event.
-     * If the event is already registered this has no effect -
-     * i.e. the subscriber list is not zapped. There is generally
-     * no reason for this to be called as it is invoked whenever
-     * a Subscriber subscribes to a new event code. 
-     * @paramtopic The topic as specified in EventID for
+    /** Register a specified topic. Topics no longer need registering 
+     * before subscribers are added, this is retained for compatibility 
+     * and has no effect.
+     * @param topic The topic as specified in EventID for
      * which to create an entry.
      */
-    public static void registerEvent(String topic) {
-	if (instance.registry.get(topic) == null)
-	    instance.registry.put(topic, new Vector());
-    }
+    public static void registerEvent(String topic) {}
 
     
 
@@ -115,27 +119,26 @@ public class EventRegistry {
      * If the subscriber has already subscribed to this event it is
      * not added again - i.e. a Subscriber can only subscribe once to
      * any given EventID this prevents it being notified more than
-     * once when an event is actually fired. If the event specified
-     * by eventId has not yet been registered then an entry is made
-     * for it in the table.
+     * once when an event is actually fired. 
      * @param topic The topic to subscribe to.
      * @param subscriber The Subscriber to add.
      */
     public static void subscribe(String topic, EventSubscriber subscriber) {
 	System.err.println("EMM: Subscribe: "+topic+" For: "+subscriber);
-	// Create an entry for subscriber if none already.
-	if (instance.registry.get(subscriber) == null) {
-	    List list =  new Vector();
+	synchronized (instance) {
+	    // Create an entry for subscriber if none already.
+	    List list = (List)instance.registry.get(subscriber);
+	    if (list == null) {
+		list = new Vector();
+		instance.registry.put(subscriber, list);
+	    }
+	    // If already subscribed - exit.
+	    if (list.contains(topic))
+		return;
+	    // Ok - subscribe.
 	    list.add(topic);
-	    instance.registry.put(subscriber, list);	    
-	    return;
+	    instance.rebuild();
 	}
-	// If already subscribed - exit.
-	List list = (List)instance.registry.get(subscriber);
-	if (list.contains(topic))
-	    return;
-	// Ok - subscribe.
-	list.add(topic);
     }
     
     /** Un-subscribe the specified Subscriber to the specified Topic.
@@ -145,51 +148,41 @@ public class EventRegistry {
      * @param subscriber The Subscriber to remove.
      */
     public static void unsubscribe(String topic, EventSubscriber subscriber) { 
-	// Ignore if no entry for event.
-	if (instance.registry.get(subscriber) == null)
-	    return;
-	// If not already subscribed - exit.
-	List list = (List)instance.registry.get(subscriber);
-	if (!list.contains(topic))
-	    return;
-	// Ok - unsubscribe.
-	list.remove(topic);
+	synchronized (instance) {
+	    // Ignore if no entry for event.
+	    List list = (List)instance.registry.get(subscriber);
+	    if (list == null)
+		return;
+	    // If not already subscribed - exit.
+	    if (!list.remove(topic))
+		return;
+	    instance.rebuild();
+	}
     }
 
     /** Remove a subscrber's subscription to all topics.*/
     public static void removeSubscriptions(EventSubscriber subscriber) {
-	if (instance.registry.containsKey(subscriber)) {
-	    List list = (List)instance.registry.get(subscriber);
-	    list.clear();
+	synchronized (instance) {
+	    if (instance.registry.remove(subscriber) != null)
+		instance.rebuild();
 	}
     }
 
     /** @return The List of Subscribers which have registered for the
-     * specified topic and any topics higher in the tree. 
+     * specified topic and any topics higher in the tree. The list is
+     * a shared read-only snapshot and must not be modified.
      * @param topic The topic to check for subscribers.
      */
     public static List findSubscribers(String topic) {
-	List results = new Vector();
-
-	EventSubscriber subscriber = null;
-	List   list = null;
-	String atopic = null;
-
-	Iterator it = instance.registry.keySet().iterator();
-	while (it.hasNext()) {
-	    subscriber = (EventSubscriber)it.next();
-	    list       = (List)instance.registry.get(subscriber);
-	    Iterator topics = list.iterator();
-	    boolean  found  = false;
-	    while (topics.hasNext() && !found ) {
-		atopic = (String)topics.next();
-		if (topic.startsWith(atopic)) {
-		    found = true;
-		    results.add(subscriber);
-		}
+	TopicIndex current = instance.index;
+	if (current == null) {
+	    synchronized (instance) {
+		if (instance.index == null)
+		    instance.index = TopicIndex.build(instance.registry);
+		current = instance.index;
 	    }
 	}
-	return results;
+	return current.find(topic);
     }
     
     /** Remove all subscribers which have registered for the
@@ -200,24 +193,33 @@ public class EventRegistry {
      * @param topic The topic to check for subscribers.
      */
     public static void removeSubscribers(String topic) {
-	
-	EventSubscriber subscriber = null;
-	List   list = null;
-	
-	Iterator it = instance.registry.keySet().iterator();
-	while (it.hasNext()) {
-	    subscriber = (EventSubscriber)it.next();
-	    list       = (List)instance.registry.get(subscriber);
-	    if (list.contains(topic))
-		list.remove(topic);
-	}	
+	synchronized (instance) {
+	    boolean changed = false;
+	    Iterator it = instance.registry.values().iterator();
+	    while (it.hasNext()) {
+		List list = (List)it.next();
+		if (list.remove(topic))
+		    changed = true;
+	    }
+	    if (changed)
+		instance.rebuild();
+	}
     }
     
    
     /** Remove all subscribers which have registered for <b>any</b>
      * and all events. Subscribers recieve no warning of this.*/
     public static void removeAllSubscribers() {
-	instance.registry.clear();
+	synchronized (instance) {
+	    instance.registry.clear();
+	    instance.index = TopicIndex.EMPTY;
+	}
+    }
+
+    /** Discard the prefix index so it is recompiled from the registry
+     * on the next lookup. Must be called holding the instance lock.*/
+    private void rebuild() {
+	index = null;
     }
     
 }
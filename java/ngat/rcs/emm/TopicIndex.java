@@ -0,0 +1,163 @@
+/*
+    Copyright 2006, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of Robotic Control System.
+
+     Robotic Control Systemis free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Robotic Control System is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Robotic Control System; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package ngat.rcs.emm;
+
+import java.util.*;
+
+/** An immutable prefix-trie over subscription topics. Each node of the trie
+ * corresponds to a prefix and holds the subscribers who subscribed with
+ * exactly that prefix. A lookup walks the published topic one character at
+ * a time collecting subscribers on the way down, so its cost depends on the
+ * length of the topic rather than the number of subscriptions.
+ * <p>
+ * The index is never modified once built - the EventRegistry builds a new one
+ * whenever a subscription changes and publishes it in place of the old one.
+ * Each node holds the result for any topic whose walk ends there, worked out
+ * when the index is built, so a lookup allocates nothing and the memory used
+ * depends on the subscriptions rather than on the topics published.
+ */
+public class TopicIndex {
+
+    /** An empty index with no subscriptions.*/
+    public static final TopicIndex EMPTY = new TopicIndex(new Node());
+
+    /** Root node - holds subscribers to the empty topic.*/
+    private final Node root;
+
+    /** Create a TopicIndex with the specified root node.*/
+    private TopicIndex(Node root) {
+	this.root  = root;
+    }
+
+    /** Build an index from a map of subscriber to list of subscribed topics.
+     * @param subscriptions Map from EventSubscriber to a List of String topic prefixes.
+     * @return A new immutable index.
+     */
+    public static TopicIndex build(Map subscriptions) {
+	Builder root = new Builder();
+	Iterator it = subscriptions.entrySet().iterator();
+	while (it.hasNext()) {
+	    Map.Entry entry = (Map.Entry)it.next();
+	    EventSubscriber subscriber = (EventSubscriber)entry.getKey();
+	    Iterator topics = ((List)entry.getValue()).iterator();
+	    while (topics.hasNext()) {
+		String topic = (String)topics.next();
+		Builder node = root;
+		for (int i = 0; i < topic.length(); i++)
+		    node = node.child(topic.charAt(i));
+		if (!node.subscribers.contains(subscriber))
+		    node.subscribers.add(subscriber);
+	    }
+	}
+	return new TopicIndex(root.compile(new ArrayList()));
+    }
+
+    /** @return An unmodifiable List of the subscribers whose subscribed prefix
+     * matches the start of the specified topic. Each subscriber appears once only.
+     * @param topic The topic to look up.
+     */
+    public List find(String topic) {
+	Node node = root;
+	for (int i = 0; i < topic.length(); i++) {
+	    Node next = node.child(topic.charAt(i));
+	    if (next == null)
+		break;
+	    node = next;
+	}
+	return node.matches;
+    }
+
+    /** A compiled (immutable) node. Children are held in a sorted char array
+     * searched by bisection.*/
+    private static class Node {
+
+	/** Sorted keys of the child nodes.*/
+	final char[] keys;
+
+	/** Child nodes, parallel to keys.*/
+	final Node[] children;
+
+	/** Subscribers registered at this prefix or any shorter one, as an
+	 * unmodifiable List with each subscriber once only.*/
+	final List matches;
+
+	Node() {
+	    this(new char[0], new Node[0], Collections.EMPTY_LIST);
+	}
+
+	Node(char[] keys, Node[] children, List matches) {
+	    this.keys     = keys;
+	    this.children = children;
+	    this.matches  = matches;
+	}
+
+	/** @return The child for character c or null.*/
+	Node child(char c) {
+	    int i = Arrays.binarySearch(keys, c);
+	    return (i < 0 ? null : children[i]);
+	}
+    }
+
+    /** A mutable node used while building the trie.*/
+    private static class Builder {
+
+	/** Children keyed by character, kept in key order.*/
+	final TreeMap children = new TreeMap();
+
+	/** Subscribers registered at exactly this prefix.*/
+	final List subscribers = new ArrayList();
+
+	/** @return The child for character c, creating it if needed.*/
+	Builder child(char c) {
+	    Character key = new Character(c);
+	    Builder node = (Builder)children.get(key);
+	    if (node == null) {
+		node = new Builder();
+		children.put(key, node);
+	    }
+	    return node;
+	}
+
+	/** @return An immutable copy of this node and its descendants.
+	 * @param inherited Subscribers registered at the shorter prefixes above this node.
+	 */
+	Node compile(List inherited) {
+	    List found = new ArrayList(inherited);
+	    for (int i = 0; i < subscribers.size(); i++) {
+		if (!found.contains(subscribers.get(i)))
+		    found.add(subscribers.get(i));
+	    }
+	    List matches = Collections.unmodifiableList(found);
+
+	    char[] keys = new char[children.size()];
+	    Node[] nodes = new Node[children.size()];
+	    int i = 0;
+	    Iterator it = children.entrySet().iterator();
+	    while (it.hasNext()) {
+		Map.Entry entry = (Map.Entry)it.next();
+		keys[i]  = ((Character)entry.getKey()).charValue();
+		nodes[i] = ((Builder)entry.getValue()).compile(matches);
+		i++;
+	    }
+	    return new Node(keys, nodes, matches);
+	}
+    }
+
+}
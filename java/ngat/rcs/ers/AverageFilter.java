@@ -3,9 +3,6 @@
  */
 package ngat.rcs.ers;
 
-import java.util.List;
-import java.util.Vector;
-
 import ngat.util.logging.LogGenerator;
 import ngat.util.logging.LogManager;
 import ngat.util.logging.Logger;
@@ -16,10 +13,14 @@ import ngat.util.logging.Logger;
  */
 public class AverageFilter extends ContinuousFilter {
 
-	protected List<Sample> samples;
+	/** Samples within the timespan. */
+	protected SlidingWindow window;
 
 	protected long timespan;
 	
+	/** Logger, its level decides whether the trace is formatted. */
+	private transient Logger alogger;
+
 	/** Logger. */
 	private transient LogGenerator slogger;
 
@@ -31,9 +32,9 @@ public class AverageFilter extends ContinuousFilter {
 	{
 		super(name);
 		this.timespan = timespan;
-		samples = new Vector<Sample>();
+		window = new SlidingWindow(timespan);
 		
-		Logger alogger = LogManager.getLogger("ERS"); 
+		alogger = LogManager.getLogger("ERS"); 
 		slogger = alogger.generate().system("RCS")
 				.subSystem("Reactive")
 				.srcCompClass(this.getClass().getSimpleName())
@@ -42,25 +43,19 @@ public class AverageFilter extends ContinuousFilter {
 
 	@Override
 	protected double processUpdate(long time, double dvalue) {
-		samples.add(new Sample(time, dvalue));
-		// remove samples older than (time-timespan)
-		while (samples.size() > 0 && samples.get(0).time < time - timespan)
-			samples.remove(0);
+		window.add(time, dvalue);
+		double fvalue = window.getMean();
 
-		double fvalue = 0.0;
-		for (int i = 0; i < samples.size(); i++) {
-			fvalue += samples.get(i).value.doubleValue();
-		}
-		fvalue /= Math.max(1.0, samples.size());
-		
-		slogger.create().info().level(3).block("processUpdate")
-		.msg(String.format("%6s time=%tT timeSpan=%tT samplesize=%6d value=%6.2f average value=%6.2f \n",
-			name, 
-			time,
-			timespan,
-			samples.size(),
-			dvalue,
-			fvalue)).send();
+		// only format the trace when it will be logged
+		if (alogger.getLogLevel() >= 3)
+			slogger.create().info().level(3).block("processUpdate")
+			.msg(String.format("%6s time=%tT timeSpan=%tT samplesize=%6d value=%6.2f average value=%6.2f \n",
+				name, 
+				time,
+				timespan,
+				window.size(),
+				dvalue,
+				fvalue)).send();
 		
 		return fvalue;
 
@@ -59,15 +59,15 @@ public abstract class ContinuousFilter implements Filter {
 	}
 
 	public double filterUpdate(long time, double dvalue) {
-		return filterUpdate(time, new Double(dvalue)).doubleValue();
+		this.dvalue = dvalue;
+		return processUpdate(time, dvalue);
 	}
 	
 	/* (non-Javadoc)
 	 * @see ngat.rcs.newenv.Filter#filterUpdate(long, java.lang.Number)
 	 */
 	public Number filterUpdate(long time, Number value) {
-		dvalue = value.doubleValue();
-		return processUpdate(time, dvalue);
+		return new Double(filterUpdate(time, value.doubleValue()));
 	}
 	
 	protected abstract double processUpdate(long time, double dvalue);
@@ -23,4 +23,10 @@ public interface Criterion extends Serializable {
 	 */
 	public boolean criterionUpdate(long time, Number value);
 	
+	/** Apply criterion update without boxing. Discrete criteria truncate the value.
+	 * @param time Time of the update.
+	 * @param value Value of update.
+	 */
+	public boolean criterionUpdate(long time, double value);
+	
 }
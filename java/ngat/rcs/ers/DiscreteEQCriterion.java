@@ -31,15 +31,18 @@ public class DiscreteEQCriterion implements Criterion {
 	}
 
 	public boolean criterionUpdate(long time, int ivalue) {
-		return criterionUpdate(time, new Integer(ivalue));
+		return (ivalue == testValue);
 	}
 	
+	public boolean criterionUpdate(long time, double dvalue) {
+		return criterionUpdate(time, (int) dvalue);
+	}
 	
 	/* (non-Javadoc)
 	 * @see ngat.rcs.newenv.Criterion#criterionUpdate(long, java.lang.Number)
 	 */
 	public boolean criterionUpdate(long time, Number value) {
-		return (value.intValue() == testValue);
+		return criterionUpdate(time, value.intValue());
 	}
 	
 	public String toString() { return "DEQ "+name+" = "+testValue; } 
@@ -62,7 +62,15 @@ public abstract class DiscreteFilter implements Filter {
 	 * @see ngat.rcs.newenv.Filter#filterUpdate(long, java.lang.Number)
 	 */
 	public Number filterUpdate(long time, Number value) {
-		ivalue = value.intValue();
+		return new Integer(filterUpdate(time, value.intValue()));
+	}
+
+	public double filterUpdate(long time, double dvalue) {
+		return filterUpdate(time, (int) dvalue);
+	}
+
+	public int filterUpdate(long time, int ivalue) {
+		this.ivalue = ivalue;
 		return processUpdate(time, ivalue);
 	}
 
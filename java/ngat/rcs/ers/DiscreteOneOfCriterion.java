@@ -35,8 +35,16 @@ public class DiscreteOneOfCriterion implements Criterion {
 	 * @see ngat.rcs.newenv.Criterion#criterionUpdate(long, java.lang.Number)
 	 */
 	public boolean criterionUpdate(long time, Number value) {
+		return criterionUpdate(time, value.intValue());
+	}
+	
+	public boolean criterionUpdate(long time, double dvalue) {
+		return criterionUpdate(time, (int) dvalue);
+	}
+	
+	public boolean criterionUpdate(long time, int ivalue) {
 		for (int i = 0; i < testValues.length; i++) {
-			if (value.intValue() == testValues[i])
+			if (ivalue == testValues[i])
 				return true;
 		}
 		return false;
@@ -3,16 +3,14 @@
  */
 package ngat.rcs.ers;
 
-import java.util.List;
-import java.util.Vector;
-
 /**
  * @author eng
  *
  */
 public class ExponentialAverageFilter extends ContinuousFilter {
 
-	protected List<Sample> samples;
+	/** Samples within the timespan, with their exponentially weighted mean. */
+	protected SlidingWindow window;
 
 	protected long timespan;
 	
@@ -27,26 +25,13 @@ public class ExponentialAverageFilter extends ContinuousFilter {
 		super(name);
 		this.timespan = timespan;
 		this.decayTime = decayTime;
-		samples = new Vector<Sample>();
+		window = new SlidingWindow(timespan, decayTime, SlidingWindow.DEFAULT_CAPACITY);
 	}
 	
 	@Override
 	protected double processUpdate(long time, double dvalue) {
-		samples.add(new Sample(time, dvalue));
-		// remove samples older than (time-timespan)
-		while (samples.size() > 0 && samples.get(0).time < time - timespan)
-			samples.remove(0);
-
-		double fvalue = 0.0;
-		double tvalue = 0.0;
-		for (int i = 0; i < samples.size(); i++) {
-			double dfvalue = samples.get(i).value.doubleValue();
-			double stime = (samples.get(i).time);
-			fvalue += dfvalue*Math.exp(-(time-stime)/decayTime);
-			tvalue += Math.exp(-(time-stime)/decayTime);
-		}
-		
-		return fvalue/tvalue;
+		window.add(time, dvalue);
+		return window.getExponentialMean();
 	}
 	
 	@Override
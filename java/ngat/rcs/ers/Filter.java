@@ -41,4 +41,12 @@ public interface Filter extends Serializable {
 	 */
 	public Number filterUpdate(long time, Number value);
 	
+	/** Apply filter update without boxing. Discrete filters truncate the value 
+	 * and return their output widened.
+	 * @param time Time of the update.
+	 * @param value Value of update.
+	 * @return The filter's output.
+	 */
+	public double filterUpdate(long time, double value);
+	
 }
@@ -27,14 +27,14 @@ public class GTCriterion implements Criterion {
 	}
 	
 	public boolean criterionUpdate(long time, double dvalue) {
-		return criterionUpdate(time, new Double(dvalue));
+		return (dvalue > minimum);
 	}
 	
 	/* (non-Javadoc)
 	 * @see ngat.rcs.newenv.Criterion#criterionUpdate(long, java.lang.Number)
 	 */
 	public boolean criterionUpdate(long time, Number value) {
-		return (value.doubleValue() > minimum);	
+		return criterionUpdate(time, value.doubleValue());
 	}
 
 	public String toString() { return "GT "+name+" > "+minimum; } 
@@ -27,11 +27,11 @@ public class LTCriterion implements Criterion {
 	}
 	
 	public boolean criterionUpdate(long time, double dvalue) {
-		return criterionUpdate(time, new Double(dvalue));
+		return (dvalue < maximum);
 	}
 	
 	public boolean criterionUpdate(long time, Number value) {
-		return (value.doubleValue() < maximum);
+		return criterionUpdate(time, value.doubleValue());
 	}
 	
 	public String toString() { return "LT "+name+" < "+maximum; } 
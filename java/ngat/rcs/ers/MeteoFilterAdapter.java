@@ -17,12 +17,42 @@ import ngat.ems.DustStatus;
  */
 public class MeteoFilterAdapter implements FilterAdapter {
 
+	/** Item code for a category and item this adapter cannot extract. */
+	public static final int UNKNOWN_ITEM = 0;
+
+	public static final int WMS_DEW_POINT = 1;
+
+	public static final int WMS_TEMPERATURE = 2;
+
+	public static final int WMS_HUMIDITY = 3;
+
+	public static final int WMS_LIGHT = 4;
+
+	public static final int WMS_MOISTURE = 5;
+
+	public static final int WMS_PRESSURE = 6;
+
+	public static final int WMS_WIND_DIRECTION = 7;
+
+	public static final int WMS_WIND_SPEED = 8;
+
+	public static final int WMS_RAIN = 9;
+
+	public static final int WMS_STATE = 10;
+
+	public static final int CLOUD_SKY_AMB = 11;
+
+	public static final int DUST = 12;
+
 	private String catName;
 
 	private String itemName;
 
 	private Filter filter;
 
+	/** The item extracted, resolved from the category and item names. */
+	private int item;
+
 	/**
 	 * @param catName
 	 * @param itemName
@@ -32,6 +62,7 @@ public class MeteoFilterAdapter implements FilterAdapter {
 		this.catName = catName;
 		this.itemName = itemName;
 		this.filter = filter;
+		item = resolveItem(catName, itemName);
 	}
 
 	public String getCatName() {
@@ -49,6 +80,21 @@ public class MeteoFilterAdapter implements FilterAdapter {
 		return filter;
 	}
 
+	/** @return The code of the item extracted, UNKNOWN_ITEM if the category and item are not recognised. */
+	public int getItem() {
+		return item;
+	}
+
+	/** @return True if this adapter recognises its category and item. */
+	public boolean isResolved() {
+		return item != UNKNOWN_ITEM;
+	}
+
+	/** @return True if the item extracted takes integer values. */
+	public boolean isDiscrete() {
+		return item == WMS_RAIN || item == WMS_STATE;
+	}
+
 	/**
 	 * Extracts the relevant status entry for which this adapter has been setup.
 	 * 
@@ -56,60 +102,109 @@ public class MeteoFilterAdapter implements FilterAdapter {
 	 * @return The required status entry or NULL if not available.
 	 */
 	public Number getStatusItem(MeteorologyStatus status) {
-
-		if (catName.equals("WMS")) {
-			return extractWmsStatus(status);
-		} else if (catName.equals("CLOUD")) {
-			return extractCloudStatus(status);
-		} else if (catName.equals("DUST")) {
-			return extractDustStatus(status);
-		}
-		return null;
+		if (item == UNKNOWN_ITEM)
+			return null;
+		if (isDiscrete())
+			return new Integer(getIntItem(status));
+		return new Double(getDoubleItem(status));
 	}
 
-	private Number extractWmsStatus(MeteorologyStatus status) {
-		WmsStatus wms = (WmsStatus) status;
-
-		if (itemName.equals("dewpoint"))
-			return new Double(wms.getDewPointTemperature());
-		else if (itemName.equals("temperature"))
-			return new Double(wms.getExtTemperature());
-		else if (itemName.equals("humidity"))
-			return new Double(wms.getHumidity());
-		else if (itemName.equals("light"))
-			return new Double(wms.getLightLevel());
-		else if (itemName.equals("moisture"))
-			return new Double(wms.getMoistureFraction());
-		else if (itemName.equals("pressure"))
-			return new Double(wms.getPressure());
-		else if (itemName.equals("wind.drin"))
-			return new Double(wms.getWindDirn());
-		else if (itemName.equals("wind.speed"))
-			return new Double(wms.getWindSpeed());
-		else if (itemName.equals("rain"))
-			return new Integer(wms.getRainState());
-		else if (itemName.equals("state"))
-			return new Integer(wms.getWmsStatus());
-		return null;
-
+	/**
+	 * Extracts the relevant status entry for which this adapter has been setup,
+	 * without boxing. Integer items are widened.
+	 * 
+	 * @param status
+	 * @return The required status entry or NaN if not available.
+	 */
+	public double getDoubleItem(MeteorologyStatus status) {
+		switch (item) {
+		case WMS_DEW_POINT:
+			return ((WmsStatus) status).getDewPointTemperature();
+		case WMS_TEMPERATURE:
+			return ((WmsStatus) status).getExtTemperature();
+		case WMS_HUMIDITY:
+			return ((WmsStatus) status).getHumidity();
+		case WMS_LIGHT:
+			return ((WmsStatus) status).getLightLevel();
+		case WMS_MOISTURE:
+			return ((WmsStatus) status).getMoistureFraction();
+		case WMS_PRESSURE:
+			return ((WmsStatus) status).getPressure();
+		case WMS_WIND_DIRECTION:
+			return ((WmsStatus) status).getWindDirn();
+		case WMS_WIND_SPEED:
+			return ((WmsStatus) status).getWindSpeed();
+		case WMS_RAIN:
+			return ((WmsStatus) status).getRainState();
+		case WMS_STATE:
+			return ((WmsStatus) status).getWmsStatus();
+		case CLOUD_SKY_AMB:
+			return ((CloudStatus) status).getSkyMinusAmb();
+		case DUST:
+			return ((DustStatus) status).getDust();
+		}
+		return Double.NaN;
 	}
 
-	private Number extractCloudStatus(MeteorologyStatus status) {
-
-		CloudStatus cloud = (CloudStatus) status;
-
-		if (itemName.equals("skyamb"))
-			return new Double(cloud.getSkyMinusAmb());
-		return null;
+	/**
+	 * Extracts the relevant status entry for which this adapter has been setup,
+	 * without boxing. Continuous items are truncated.
+	 * 
+	 * @param status
+	 * @return The required status entry or 0 if not available.
+	 */
+	public int getIntItem(MeteorologyStatus status) {
+		switch (item) {
+		case WMS_RAIN:
+			return ((WmsStatus) status).getRainState();
+		case WMS_STATE:
+			return ((WmsStatus) status).getWmsStatus();
+		case UNKNOWN_ITEM:
+			return 0;
+		}
+		return (int) getDoubleItem(status);
 	}
 
-	private Number extractDustStatus(MeteorologyStatus status) {
+	/**
+	 * Works out which item a category and item name refer to.
+	 * 
+	 * @param catName
+	 * @param itemName
+	 * @return The item code, UNKNOWN_ITEM if not recognised.
+	 */
+	public static int resolveItem(String catName, String itemName) {
+		if (catName == null || itemName == null)
+			return UNKNOWN_ITEM;
 
-		DustStatus dust = (DustStatus) status;
-		
-		if (itemName.equals("dust"))
-			return new Double(dust.getDust());
-		return null;
+		if (catName.equals("WMS")) {
+			if (itemName.equals("dewpoint"))
+				return WMS_DEW_POINT;
+			else if (itemName.equals("temperature"))
+				return WMS_TEMPERATURE;
+			else if (itemName.equals("humidity"))
+				return WMS_HUMIDITY;
+			else if (itemName.equals("light"))
+				return WMS_LIGHT;
+			else if (itemName.equals("moisture"))
+				return WMS_MOISTURE;
+			else if (itemName.equals("pressure"))
+				return WMS_PRESSURE;
+			else if (itemName.equals("wind.drin"))
+				return WMS_WIND_DIRECTION;
+			else if (itemName.equals("wind.speed"))
+				return WMS_WIND_SPEED;
+			else if (itemName.equals("rain"))
+				return WMS_RAIN;
+			else if (itemName.equals("state"))
+				return WMS_STATE;
+		} else if (catName.equals("CLOUD")) {
+			if (itemName.equals("skyamb"))
+				return CLOUD_SKY_AMB;
+		} else if (catName.equals("DUST")) {
+			if (itemName.equals("dust"))
+				return DUST;
+		}
+		return UNKNOWN_ITEM;
 	}
 
 }
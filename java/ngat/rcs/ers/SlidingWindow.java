@@ -0,0 +1,296 @@
+/**
+ *
+ */
+package ngat.rcs.ers;
+
+import java.io.Serializable;
+
+/**
+ * A time window over a stream of samples, kept in circular primitive buffers.
+ * Each sample added evicts those older than the timespan before the new
+ * sample's time. The sum, mean, minimum, maximum and exponentially weighted
+ * mean of the samples in the window are kept up to date as samples come and
+ * go, so each costs constant time however long the window, and adding a
+ * sample allocates nothing once the buffers have grown to fit the window.
+ * <p>
+ * Samples are expected in time order. As with a list scan from the oldest
+ * end, a late sample only stops older samples being evicted ahead of it.
+ *
+ * @author eng
+ *
+ */
+public class SlidingWindow implements Serializable {
+
+	/** Initial buffer capacity. */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/** Length of the window (millis). */
+	private long timespan;
+
+	/** Decay time (millis) for the exponentially weighted mean, 0 if not kept. */
+	private long decayTime;
+
+	/** Sample times. */
+	private long[] times;
+
+	/** Sample values, parallel to times. */
+	private double[] values;
+
+	/** Sequence number of the oldest sample held. */
+	private long first;
+
+	/** Sequence number the next sample will receive. */
+	private long next;
+
+	/** Sum of the values in the window. */
+	private double sum;
+
+	/**
+	 * Sum of the values in the window, each weighted by exp(-(latest-t)/decay).
+	 */
+	private double weightedSum;
+
+	/** Sum of the weights of the values in the window. */
+	private double weightTotal;
+
+	/** Time of the latest sample. */
+	private long latest;
+
+	/** Evictions until the running sums are next recomputed. */
+	private int refresh;
+
+	/**
+	 * Sequence numbers of the candidates for the window minimum, their values
+	 * increasing from the head.
+	 */
+	private long[] minQueue;
+
+	private int minHead;
+
+	private int minSize;
+
+	/**
+	 * Sequence numbers of the candidates for the window maximum, their values
+	 * decreasing from the head.
+	 */
+	private long[] maxQueue;
+
+	private int maxHead;
+
+	private int maxSize;
+
+	/**
+	 * Create a SlidingWindow which keeps no exponentially weighted mean.
+	 *
+	 * @param timespan
+	 *            Length of the window (millis).
+	 */
+	public SlidingWindow(long timespan) {
+		this(timespan, 0L, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param timespan
+	 *            Length of the window (millis).
+	 * @param decayTime
+	 *            Decay time (millis) for the exponentially weighted mean, 0 to
+	 *            not keep one.
+	 * @param capacity
+	 *            Initial buffer capacity, the buffers grow to fit the window as
+	 *            needed.
+	 */
+	public SlidingWindow(long timespan, long decayTime, int capacity) {
+		this.timespan = timespan;
+		this.decayTime = Math.max(0L, decayTime);
+		capacity = Math.max(2, capacity);
+		times = new long[capacity];
+		values = new double[capacity];
+		minQueue = new long[capacity];
+		maxQueue = new long[capacity];
+		refresh = capacity;
+	}
+
+	/** @return The length of the window (millis). */
+	public long getTimespan() {
+		return timespan;
+	}
+
+	/** @return The decay time (millis) of the exponentially weighted mean. */
+	public long getDecayTime() {
+		return decayTime;
+	}
+
+	/**
+	 * Add a sample and evict any samples older than the timespan before it.
+	 *
+	 * @param time
+	 *            Sample time.
+	 * @param value
+	 *            Sample value.
+	 */
+	public void add(long time, double value) {
+		if (next - first == times.length)
+			grow();
+
+		// bring the weights up to the new sample's time
+		if (decayTime > 0L) {
+			if (next > first) {
+				double decay = Math.exp(-(double) (time - latest) / (double) decayTime);
+				weightedSum *= decay;
+				weightTotal *= decay;
+			}
+			weightedSum += value;
+			weightTotal += 1.0;
+		}
+		latest = time;
+
+		int slot = slot(next);
+		times[slot] = time;
+		values[slot] = value;
+		sum += value;
+
+		// drop candidates the new sample outlives and beats
+		while (minSize > 0 && values[slot(minQueue[index(minHead, minSize - 1)])] >= value)
+			minSize--;
+		minQueue[index(minHead, minSize++)] = next;
+		while (maxSize > 0 && values[slot(maxQueue[index(maxHead, maxSize - 1)])] <= value)
+			maxSize--;
+		maxQueue[index(maxHead, maxSize++)] = next;
+
+		next++;
+
+		while (first < next && times[slot(first)] < time - timespan)
+			evictOldest();
+	}
+
+	/** @return The number of samples in the window. */
+	public int size() {
+		return (int) (next - first);
+	}
+
+	/** @return The sum of the values in the window. */
+	public double getSum() {
+		return sum;
+	}
+
+	/** @return The mean of the values in the window, 0 if it is empty. */
+	public double getMean() {
+		return sum / Math.max(1, size());
+	}
+
+	/** @return The smallest value in the window, NaN if it is empty. */
+	public double getMin() {
+		return (minSize == 0 ? Double.NaN : values[slot(minQueue[minHead])]);
+	}
+
+	/** @return The largest value in the window, NaN if it is empty. */
+	public double getMax() {
+		return (maxSize == 0 ? Double.NaN : values[slot(maxQueue[maxHead])]);
+	}
+
+	/**
+	 * @return The mean of the values in the window, each weighted by
+	 *         exp(-(latest-t)/decayTime) where latest is the time of the latest
+	 *         sample, NaN if it is empty or no decay time was set.
+	 */
+	public double getExponentialMean() {
+		return weightedSum / weightTotal;
+	}
+
+	/** @return The time of the oldest sample in the window. */
+	public long getOldestTime() {
+		return times[slot(first)];
+	}
+
+	/** @return The time of the latest sample. */
+	public long getLatestTime() {
+		return latest;
+	}
+
+	/** Remove all samples. */
+	public void clear() {
+		first = next;
+		sum = 0.0;
+		weightedSum = 0.0;
+		weightTotal = 0.0;
+		minSize = 0;
+		maxSize = 0;
+	}
+
+	/** Remove the oldest sample from the window and the running sums. */
+	private void evictOldest() {
+		int slot = slot(first);
+		double value = values[slot];
+		sum -= value;
+		if (decayTime > 0L) {
+			double weight = Math.exp(-(double) (latest - times[slot]) / (double) decayTime);
+			weightedSum -= value * weight;
+			weightTotal -= weight;
+		}
+		if (minSize > 0 && minQueue[minHead] == first) {
+			minHead = index(minHead, 1);
+			minSize--;
+		}
+		if (maxSize > 0 && maxQueue[maxHead] == first) {
+			maxHead = index(maxHead, 1);
+			maxSize--;
+		}
+		first++;
+
+		// subtracting leaves rounding error behind, so start the sums afresh
+		// once per buffer's worth of evictions
+		if (--refresh <= 0)
+			recompute();
+	}
+
+	/** Recompute the running sums from the samples in the window. */
+	private void recompute() {
+		sum = 0.0;
+		weightedSum = 0.0;
+		weightTotal = 0.0;
+		for (long is = first; is < next; is++) {
+			int slot = slot(is);
+			sum += values[slot];
+			if (decayTime > 0L) {
+				double weight = Math.exp(-(double) (latest - times[slot]) / (double) decayTime);
+				weightedSum += values[slot] * weight;
+				weightTotal += weight;
+			}
+		}
+		refresh = times.length;
+	}
+
+	/** Double the buffers, keeping the samples and candidates in order. */
+	private void grow() {
+		int capacity = times.length;
+		long[] gtimes = new long[2 * capacity];
+		double[] gvalues = new double[2 * capacity];
+		for (long is = first; is < next; is++) {
+			gtimes[(int) (is % gtimes.length)] = times[slot(is)];
+			gvalues[(int) (is % gvalues.length)] = values[slot(is)];
+		}
+		long[] gmin = new long[2 * capacity];
+		for (int i = 0; i < minSize; i++)
+			gmin[i] = minQueue[index(minHead, i)];
+		long[] gmax = new long[2 * capacity];
+		for (int i = 0; i < maxSize; i++)
+			gmax[i] = maxQueue[index(maxHead, i)];
+		times = gtimes;
+		values = gvalues;
+		minQueue = gmin;
+		minHead = 0;
+		maxQueue = gmax;
+		maxHead = 0;
+	}
+
+	/** @return The buffer slot of a sequence number. */
+	private int slot(long sequence) {
+		return (int) (sequence % times.length);
+	}
+
+	/** @return The queue position offset places after head. */
+	private int index(int head, int offset) {
+		return (head + offset) % times.length;
+	}
+
+}
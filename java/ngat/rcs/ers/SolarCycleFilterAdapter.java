@@ -47,5 +47,13 @@ public class SolarCycleFilterAdapter implements FilterAdapter {
 		// we just return the value of the supplied status
 		return status.getState();		
 	}
+
+	/** Extracts the relevant status entry without boxing.
+	 * @param status
+	 * @return The state of the supplied status.
+	 */
+	public int getIntItem(SolarCycleStatus status) {
+		return status.getState();
+	}
 	
 }
@@ -22,11 +22,70 @@ import ngat.tcm.TelescopeNetworkStatus;
  */
 public class TelescopeFilterAdapter implements FilterAdapter {
 
+	/** Item code for a category and item this adapter cannot extract. */
+	public static final int UNKNOWN_ITEM = 0;
+
+	public static final int AXIS_POSITION = 1;
+
+	public static final int AXIS_DEMAND = 2;
+
+	public static final int AXIS_STATE = 3;
+
+	public static final int AUX_POSITION = 4;
+
+	public static final int AUX_DEMAND = 5;
+
+	public static final int AUX_STATE = 6;
+
+	public static final int ROTATOR_SKY_ANGLE = 7;
+
+	public static final int ROTATOR_MODE = 8;
+
+	public static final int FOCUS_OFFSET = 9;
+
+	public static final int AUTOGUIDER_TEMPERATURE = 10;
+
+	public static final int AUTOGUIDER_FWHM = 11;
+
+	public static final int AUTOGUIDER_MODE = 12;
+
+	public static final int AUTOGUIDER_MAGNITUDE = 13;
+
+	public static final int AUTOGUIDER_STATE = 14;
+
+	public static final int AUTOGUIDER_SOFTWARE = 15;
+
+	public static final int ENV_AGBOX_TEMPERATURE = 16;
+
+	public static final int ENV_OIL_TEMPERATURE = 17;
+
+	public static final int ENV_PRIMARY_TEMPERATURE = 18;
+
+	public static final int ENV_SECONDARY_TEMPERATURE = 19;
+
+	public static final int ENV_TRUSS_TEMPERATURE = 20;
+
+	public static final int TCS_CONTROL_STATE = 21;
+
+	public static final int TCS_ENGINEERING_STATE = 22;
+
+	public static final int TCS_NETWORK_STATE = 23;
+
+	public static final int TCS_SYSTEM_STATE = 24;
+
+	public static final int NETWORK_STATE = 25;
+
 	private String catName;
 
 	private String itemName;
 
 	private Filter filter;
+
+	/** The item extracted, resolved from the category and item names. */
+	private int item;
+
+	/** True if the item is a state or mode rather than a measurement. */
+	private boolean discrete;
 	
 	/**
 	 * @param catName
@@ -37,6 +96,8 @@ public class TelescopeFilterAdapter implements FilterAdapter {
 		this.catName = catName;
 		this.itemName = itemName;
 		this.filter = filter;
+		item = resolveItem(catName, itemName);
+		discrete = isDiscrete(item);
 	}
 	
 	
@@ -56,138 +117,217 @@ public class TelescopeFilterAdapter implements FilterAdapter {
 	public Filter getFilter() {
 		return filter;
 	}
+
+	/** @return The code of the item extracted, UNKNOWN_ITEM if the category and item are not recognised. */
+	public int getItem() {
+		return item;
+	}
+
+	/** @return True if this adapter recognises its category and item. */
+	public boolean isResolved() {
+		return item != UNKNOWN_ITEM;
+	}
+
+	/** @return True if the item extracted takes integer values. */
+	public boolean isDiscrete() {
+		return discrete;
+	}
 	
 	/** Extracts the relevant status entry for which this adapter has been setup.
 	 * @param status
 	 * @return The required status entry or NULL if not available.
 	 */
 	public Number getStatusItem(TelescopeStatus status) {
+		if (item == UNKNOWN_ITEM)
+			return null;
+		if (discrete)
+			return new Integer(getIntItem(status));
+		return new Double(getDoubleItem(status));
+	}
 
-		if (catName.equals("AZM")) {
-			return extractAxisStatus(status);
-		} else if (catName.equals("ALT")) {
-			return extractAxisStatus(status);
+	/**
+	 * Extracts the relevant status entry for which this adapter has been setup,
+	 * without boxing. Integer items are widened.
+	 * 
+	 * @param status
+	 * @return The required status entry or NaN if not available.
+	 */
+	public double getDoubleItem(TelescopeStatus status) {
+		switch (item) {
+		case AXIS_POSITION:
+			return ((PrimaryAxisStatus) status).getCurrentPosition();
+		case AXIS_DEMAND:
+			return ((PrimaryAxisStatus) status).getDemandPosition();
+		case ROTATOR_SKY_ANGLE:
+			return ((RotatorAxisStatus) status).getSkyAngle();
+		case FOCUS_OFFSET:
+			return ((FocusStatus) status).getFocusOffset();
+		case AUTOGUIDER_TEMPERATURE:
+			return ((AutoguiderStatus) status).getAutoguiderTemperature();
+		case AUTOGUIDER_FWHM:
+			return ((AutoguiderStatus) status).getGuideFwhm();
+		case AUTOGUIDER_MAGNITUDE:
+			return ((AutoguiderStatus) status).getGuideStarMagnitude();
+		case ENV_AGBOX_TEMPERATURE:
+			return ((TelescopeEnvironmentStatus) status).getAgBoxTemperature();
+		case ENV_OIL_TEMPERATURE:
+			return ((TelescopeEnvironmentStatus) status).getOilTemperature();
+		case ENV_PRIMARY_TEMPERATURE:
+			return ((TelescopeEnvironmentStatus) status).getPrimaryMirrorTemperature();
+		case ENV_SECONDARY_TEMPERATURE:
+			return ((TelescopeEnvironmentStatus) status).getSecondaryMirrorTemperature();
+		case ENV_TRUSS_TEMPERATURE:
+			return ((TelescopeEnvironmentStatus) status).getTrussTemperature();
+		case UNKNOWN_ITEM:
+			return Double.NaN;
+		default:
+			return getIntItem(status);
+		}
+	}
+
+	/**
+	 * Extracts the relevant status entry for which this adapter has been setup,
+	 * without boxing. Continuous items are truncated.
+	 * 
+	 * @param status
+	 * @return The required status entry or 0 if not available.
+	 */
+	public int getIntItem(TelescopeStatus status) {
+		switch (item) {
+		case AXIS_STATE:
+			return ((PrimaryAxisStatus) status).getMechanismState();
+		case AUX_POSITION:
+			return ((AuxilliaryMechanismStatus) status).getCurrentPosition();
+		case AUX_DEMAND:
+			return ((AuxilliaryMechanismStatus) status).getDemandPosition();
+		case AUX_STATE:
+			return ((AuxilliaryMechanismStatus) status).getMechanismState();
+		case ROTATOR_MODE:
+			return ((RotatorAxisStatus) status).getRotatorMode();
+		case AUTOGUIDER_MODE:
+			return ((AutoguiderStatus) status).getGuideMode();
+		case AUTOGUIDER_STATE:
+			return ((AutoguiderStatus) status).getGuideState();
+		case AUTOGUIDER_SOFTWARE:
+			return ((AutoguiderStatus) status).getSoftwareState();
+		case TCS_CONTROL_STATE:
+			return ((TelescopeControlSystemStatus) status).getTelescopeControlSystemState();
+		case TCS_ENGINEERING_STATE:
+			return ((TelescopeControlSystemStatus) status).getTelescopeEngineeringControlState();
+		case TCS_NETWORK_STATE:
+			return ((TelescopeControlSystemStatus) status).getTelescopeNetworkControlState();
+		case TCS_SYSTEM_STATE:
+			return ((TelescopeControlSystemStatus) status).getTelescopeSystemState();
+		case NETWORK_STATE:
+			return ((TelescopeNetworkStatus) status).getTelescopeNetworkState();
+		case UNKNOWN_ITEM:
+			return 0;
+		default:
+			return (int) getDoubleItem(status);
+		}
+	}
+
+	/**
+	 * Works out which item a category and item name refer to.
+	 * 
+	 * @param catName
+	 * @param itemName
+	 * @return The item code, UNKNOWN_ITEM if not recognised.
+	 */
+	public static int resolveItem(String catName, String itemName) {
+		if (catName == null || itemName == null)
+			return UNKNOWN_ITEM;
+
+		if (catName.equals("AZM") || catName.equals("ALT")) {
+			return resolveAxisItem(itemName);
 		} else if (catName.equals("ROT")) {
-			return extractRotStatus(status);
-		} else if (catName.equals("SMF")) {
-			return extractFocusStatus(status);
-		} else if (catName.equals("AGF")) {
-			return extractFocusStatus(status);
-		} else if (catName.equals("AFI")) {
-			return extractAuxStatus(status);
-		} else if (catName.equals("AMD")) {
-			return extractAuxStatus(status);
+			if (itemName.equals("rotator.skyangle"))
+				return ROTATOR_SKY_ANGLE;
+			else if (itemName.equals("rotator.mode"))
+				return ROTATOR_MODE;
+			return resolveAxisItem(itemName);
+		} else if (catName.equals("SMF") || catName.equals("AGF")) {
+			if (itemName.equals("focus.offset"))
+				return FOCUS_OFFSET;
+			return resolveAxisItem(itemName);
+		} else if (catName.equals("AFI") || catName.equals("AMD") || catName.equals("PMC")
+				|| catName.equals("EN1") || catName.equals("EN2")) {
+			if (itemName.equals("axis.position"))
+				return AUX_POSITION;
+			else if (itemName.equals("axis.demand"))
+				return AUX_DEMAND;
+			else if (itemName.equals("axis.state"))
+				return AUX_STATE;
 		} else if (catName.equals("AGG")) {
-			return extractAgStatus(status);
+			if (itemName.equals("autoguider.temperature"))
+				return AUTOGUIDER_TEMPERATURE;
+			else if (itemName.equals("autoguider.fwhm"))
+				return AUTOGUIDER_FWHM;
+			else if (itemName.equals("autoguider.mode"))
+				return AUTOGUIDER_MODE;
+			else if (itemName.equals("autoguider.magnitude"))
+				return AUTOGUIDER_MAGNITUDE;
+			else if (itemName.equals("autoguider.state"))
+				return AUTOGUIDER_STATE;
+			else if (itemName.equals("autoguider.software"))
+				return AUTOGUIDER_SOFTWARE;
 		} else if (catName.equals("ENV")) {
-			return extractEnvStatus(status);
+			if (itemName.equals("env.agbox.temperature"))
+				return ENV_AGBOX_TEMPERATURE;
+			else if (itemName.equals("env.oil.temperature"))
+				return ENV_OIL_TEMPERATURE;
+			else if (itemName.equals("env.primary.mirror.temperature"))
+				return ENV_PRIMARY_TEMPERATURE;
+			else if (itemName.equals("env.secondary.mirror.temperature"))
+				return ENV_SECONDARY_TEMPERATURE;
+			else if (itemName.equals("env.truss.temperature"))
+				return ENV_TRUSS_TEMPERATURE;
 		} else if (catName.equals("TCS")) {
-			return extractTcsStatus(status);
-		} else if (catName.equals("PMC")) {
-		    return extractAuxStatus(status);
-		} else if (catName.equals("EN1")) {
-			return extractAuxStatus(status);
-		} else if (catName.equals("EN2")) {
-			return extractAuxStatus(status);
+			if (itemName.equals("tcs.control.state"))
+				return TCS_CONTROL_STATE;
+			else if (itemName.equals("tcs.engineering.state"))
+				return TCS_ENGINEERING_STATE;
+			else if (itemName.equals("tcs.network.state"))
+				return TCS_NETWORK_STATE;
+			else if (itemName.equals("tcs.system.state"))
+				return TCS_SYSTEM_STATE;
 		} else if (catName.equals("CIL_NET")) {
-		    return extractNetworkStatus(status);
+			if (itemName.equals("network.state"))
+				return NETWORK_STATE;
 		}
-		return null;
+		return UNKNOWN_ITEM;
 	}
 
-    private Number extractNetworkStatus(TelescopeStatus status) {
-	TelescopeNetworkStatus network = (TelescopeNetworkStatus)status;
-	if (itemName.equals("network.state"))
-	    return new Integer(network.getTelescopeNetworkState());
-	return null;
-    }
-
-	private Number extractAxisStatus(TelescopeStatus status) {
-		PrimaryAxisStatus axis = (PrimaryAxisStatus) status;
+	private static int resolveAxisItem(String itemName) {
 		if (itemName.equals("axis.position"))
-			return new Double(axis.getCurrentPosition());
+			return AXIS_POSITION;
 		else if (itemName.equals("axis.demand"))
-			return new Double(axis.getDemandPosition());
+			return AXIS_DEMAND;
 		else if (itemName.equals("axis.state"))
-			return new Integer(axis.getMechanismState());
-		return null;
+			return AXIS_STATE;
+		return UNKNOWN_ITEM;
 	}
 
-	private Number extractAuxStatus(TelescopeStatus status) {
-		AuxilliaryMechanismStatus aux = (AuxilliaryMechanismStatus) status;
-		if (itemName.equals("axis.position"))
-			return new Integer(aux.getCurrentPosition());
-		else if (itemName.equals("axis.demand"))
-			return new Integer(aux.getDemandPosition());
-		else if (itemName.equals("axis.state"))
-			return new Integer(aux.getMechanismState());
-		return null;
-	}
-
-	private Number extractRotStatus(TelescopeStatus status) {
-		RotatorAxisStatus rot = (RotatorAxisStatus) status;
-		if (itemName.equals("rotator.skyangle"))
-			return new Double(rot.getSkyAngle());
-		else if (itemName.equals("rotator.mode"))
-			return new Integer(rot.getRotatorMode());
-		else
-			return extractAxisStatus(status);
-	}
-
-	private Number extractFocusStatus(TelescopeStatus status) {
-		FocusStatus focus = (FocusStatus) status;
-		if (itemName.equals("focus.offset"))
-			return new Double(focus.getFocusOffset());
-		else
-			return extractAxisStatus(status);
-	}
-
-	private Number extractAgStatus(TelescopeStatus status) {
-		AutoguiderStatus ag = (AutoguiderStatus) status;
-		if (itemName.equals("autoguider.temperature"))
-			return new Double(ag.getAutoguiderTemperature());
-		else if (itemName.equals("autoguider.fwhm"))
-			return new Double(ag.getGuideFwhm());
-		else if (itemName.equals("autoguider.mode"))
-			return new Integer(ag.getGuideMode());
-		else if (itemName.equals("autoguider.magnitude"))
-			return new Double(ag.getGuideStarMagnitude());
-		else if (itemName.equals("autoguider.state"))
-			return new Integer(ag.getGuideState());
-		else if (itemName.equals("autoguider.software"))
-			return new Integer(ag.getSoftwareState());
-		return null;
-	}
-
-	private Number extractEnvStatus(TelescopeStatus status) {
-		TelescopeEnvironmentStatus env = (TelescopeEnvironmentStatus) status;
-		if (itemName.equals("env.agbox.temperature"))
-			return new Double(env.getAgBoxTemperature());
-		else if (itemName.equals("env.oil.temperature"))
-			return new Double(env.getOilTemperature());
-		else if (itemName.equals("env.primary.mirror.temperature"))
-			return new Double(env.getPrimaryMirrorTemperature());
-		else if (itemName.equals("env.secondary.mirror.temperature"))
-			return new Double(env.getSecondaryMirrorTemperature());
-		else if (itemName.equals("env.truss.temperature"))
-			return new Double(env.getTrussTemperature());
-		return null;
-	}
-
-	private Number extractTcsStatus(TelescopeStatus status) {
-		TelescopeControlSystemStatus tcs = (TelescopeControlSystemStatus) status;
-		if (itemName.equals("tcs.control.state"))
-			return new Integer(tcs.getTelescopeControlSystemState());
-		else if (itemName.equals("tcs.engineering.state"))
-			return new Integer(tcs.getTelescopeEngineeringControlState());
-		else if (itemName.equals("tcs.network.state"))
-			return new Integer(tcs.getTelescopeNetworkControlState());
-		else if (itemName.equals("tcs.system.state"))
-			return new Integer(tcs.getTelescopeSystemState());
-		return null;
+	/** @return True if an item takes integer values. */
+	private static boolean isDiscrete(int item) {
+		switch (item) {
+		case AXIS_STATE:
+		case AUX_POSITION:
+		case AUX_DEMAND:
+		case AUX_STATE:
+		case ROTATOR_MODE:
+		case AUTOGUIDER_MODE:
+		case AUTOGUIDER_STATE:
+		case AUTOGUIDER_SOFTWARE:
+		case TCS_CONTROL_STATE:
+		case TCS_ENGINEERING_STATE:
+		case TCS_NETWORK_STATE:
+		case TCS_SYSTEM_STATE:
+		case NETWORK_STATE:
+			return true;
+		default:
+			return false;
+		}
 	}
 
-
-
-
 }
@@ -0,0 +1,64 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.replay;
+
+import java.util.List;
+import java.util.Vector;
+
+import ngat.ems.MeteorologyStatus;
+import ngat.ems.MeteorologyStatusArchive;
+import ngat.net.telemetry.StatusCategory;
+import ngat.tcm.TelescopeStatus;
+import ngat.tcm.TelescopeStatusArchive;
+
+/**
+ * Reads status from the history APIs of the telescope and meteorology archive
+ * gateways. The gateways only hold their retention period, so this suits
+ * replaying the last few hours.
+ * 
+ * @author eng
+ *
+ */
+public class ArchiveStatusSource implements StatusSource {
+
+	private TelescopeStatusArchive telescopeArchive;
+
+	private MeteorologyStatusArchive meteorologyArchive;
+
+	/**
+	 * @param telescopeArchive
+	 *            The telescope archive, null if not used.
+	 * @param meteorologyArchive
+	 *            The meteorology archive, null if not used.
+	 */
+	public ArchiveStatusSource(TelescopeStatusArchive telescopeArchive, MeteorologyStatusArchive meteorologyArchive) {
+		this.telescopeArchive = telescopeArchive;
+		this.meteorologyArchive = meteorologyArchive;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ngat.rcs.ers.replay.StatusSource#getStatus(long, long)
+	 */
+	public List<StatusCategory> getStatus(long t1, long t2) throws Exception {
+		List<StatusCategory> list = new Vector<StatusCategory>();
+		if (telescopeArchive != null) {
+			List<TelescopeStatus> tlist = telescopeArchive.getTelescopeStatusHistory(t1, t2);
+			if (tlist != null)
+				list.addAll(tlist);
+		}
+		if (meteorologyArchive != null) {
+			List<MeteorologyStatus> mlist = meteorologyArchive.getMeteorologyStatusHistory(t1, t2);
+			if (mlist != null)
+				list.addAll(mlist);
+		}
+		return list;
+	}
+
+	public String toString() {
+		return "ArchiveStatusSource: telescope: " + telescopeArchive + ", meteorology: " + meteorologyArchive;
+	}
+
+}
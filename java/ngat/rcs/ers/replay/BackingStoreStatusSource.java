@@ -0,0 +1,63 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.replay;
+
+import java.io.File;
+import java.util.List;
+
+import ngat.net.telemetry.SecondaryCache;
+import ngat.net.telemetry.StatusCategory;
+import ngat.rcs.telemetry.MappedSegmentBackingStore;
+
+/**
+ * Reads status from a backing store, such as the segment files written by a
+ * MappedSegmentBackingStore, for replaying periods older than the archive
+ * gateways hold.
+ * 
+ * @author eng
+ *
+ */
+public class BackingStoreStatusSource implements StatusSource {
+
+	private SecondaryCache store;
+
+	/**
+	 * @param store
+	 *            The backing store.
+	 */
+	public BackingStoreStatusSource(SecondaryCache store) {
+		this.store = store;
+	}
+
+	/**
+	 * Read the segment files written by a MappedSegmentBackingStore. The files
+	 * are opened read-only with no retention limit, so they may belong to a
+	 * running system and nothing is culled.
+	 * 
+	 * @param dir
+	 *            Directory holding the segment files.
+	 * @param prefix
+	 *            Prefix of the segment filenames.
+	 * @throws Exception
+	 *             If the directory cannot be read.
+	 */
+	public BackingStoreStatusSource(File dir, String prefix) throws Exception {
+		this(new MappedSegmentBackingStore(dir, prefix, MappedSegmentBackingStore.DEFAULT_SEGMENT_SIZE,
+				Long.MAX_VALUE, true));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ngat.rcs.ers.replay.StatusSource#getStatus(long, long)
+	 */
+	public List<StatusCategory> getStatus(long t1, long t2) throws Exception {
+		return store.retrieveStatus(t1, t2);
+	}
+
+	public String toString() {
+		return "BackingStoreStatusSource: " + store;
+	}
+
+}
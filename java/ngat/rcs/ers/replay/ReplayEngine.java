@@ -0,0 +1,352 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.replay;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.rmi.Naming;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.SimpleTimeZone;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ngat.astrometry.BasicSite;
+import ngat.astrometry.ISite;
+import ngat.ems.MeteorologyStatusArchive;
+import ngat.net.telemetry.StatusCategory;
+import ngat.rcs.ers.test.BasicReactiveSystem;
+import ngat.tcm.TelescopeStatusArchive;
+import ngat.util.CommandTokenizer;
+import ngat.util.ConfigurationProperties;
+import ngat.util.XmlConfigurator;
+
+/**
+ * Replays archived status through any number of reactive systems, each
+ * configured with its own rulebase, on a simulated clock. The timeline is read
+ * a chunk at a time, the next chunk being read while the runs work through the
+ * current one. Each run is independent so the runs are shared out between a
+ * pool of threads, one run per thread at a time.
+ * <p>
+ * Usage: ReplayEngine --rules file[,file...] (--start time --end time | --hours
+ * n) [--telescope url] [--meteo url] [--store-dir dir --store-prefixes
+ * prefix[,prefix...]] [--sweep name=v1,v2[;name=v1,v2...]] [--latitude deg]
+ * [--longitude deg] [--threads n] [--chunk hours] [--filter-interval secs]
+ * [--out dir]
+ * <p>
+ * Times are UTC in the form yyyy-MM-ddTHH:mm. Archived status is read from the
+ * telescope and meteorology archive gateways at the given RMI urls, from
+ * backing store segment files with the given prefixes, or both. With --sweep,
+ * each rulebase is treated as a template and run once for every combination
+ * of the listed values, with ${name} replaced by the value. Each run's record
+ * is written to a file in the output directory named after the run. The site
+ * (degs, east positive) used by solar cycle filters defaults to the LT's.
+ * <p>
+ * The telescope and meteorology segment files (the default prefixes) are
+ * written by the RCS's StatusRecorder when telemetry.record.status is true,
+ * under telemetry.backing.store.dir. They only go back as far as
+ * telemetry.record.retention, so set it to cover the longest period to be
+ * replayed.
+ *
+ * @author eng
+ *
+ */
+public class ReplayEngine {
+
+	/** Default length (millis) of a chunk of the timeline. */
+	public static final long DEFAULT_CHUNK_LENGTH = 24 * 3600 * 1000L;
+
+	/** Default site latitude (degs), the LT on La Palma as in site.latitude. */
+	public static final double DEFAULT_LATITUDE = 28.76;
+
+	/** Default site longitude (degs), the LT on La Palma as in site.longitude. */
+	public static final double DEFAULT_LONGITUDE = -17.881;
+
+	private List<StatusSource> sources;
+
+	private List<ReplayRun> runs;
+
+	private int nthreads;
+
+	private long chunkLength;
+
+	/**
+	 * @param nthreads
+	 *            Number of threads to run the replays on.
+	 * @param chunkLength
+	 *            Length (millis) of each chunk of the timeline.
+	 */
+	public ReplayEngine(int nthreads, long chunkLength) {
+		this.nthreads = Math.max(1, nthreads);
+		this.chunkLength = Math.max(1L, chunkLength);
+		sources = new Vector<StatusSource>();
+		runs = new Vector<ReplayRun>();
+	}
+
+	public void addSource(StatusSource source) {
+		sources.add(source);
+	}
+
+	public void addRun(ReplayRun run) {
+		runs.add(run);
+	}
+
+	public List<ReplayRun> getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Replay the archived status for a period through every run.
+	 * 
+	 * @param start
+	 *            Start of the period.
+	 * @param end
+	 *            End of the period.
+	 * @throws Exception
+	 *             If the status cannot be read or a run fails.
+	 */
+	public void replay(long start, long end) throws Exception {
+
+		final StatusTimeline timeline = new StatusTimeline(sources, start);
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		ExecutorService workers = Executors.newFixedThreadPool(Math.min(nthreads, Math.max(1, runs.size())));
+
+		try {
+			for (int ir = 0; ir < runs.size(); ir++)
+				runs.get(ir).begin(start);
+
+			long t1 = start;
+			Future<List<StatusCategory>> next = reader.submit(readChunk(timeline, t1, Math.min(end, t1 + chunkLength)));
+			while (next != null) {
+				List<StatusCategory> chunk = next.get();
+
+				// start reading the next chunk while this one is replayed
+				t1 = Math.min(end, t1 + chunkLength);
+				next = (t1 < end ? reader.submit(readChunk(timeline, t1, Math.min(end, t1 + chunkLength))) : null);
+
+				List<Future<Object>> replays = new Vector<Future<Object>>();
+				for (int ir = 0; ir < runs.size(); ir++)
+					replays.add(workers.submit(replayChunk(runs.get(ir), chunk)));
+				for (int ir = 0; ir < replays.size(); ir++)
+					replays.get(ir).get();
+			}
+
+			for (int ir = 0; ir < runs.size(); ir++)
+				runs.get(ir).finish(end);
+
+		} finally {
+			reader.shutdownNow();
+			workers.shutdownNow();
+		}
+	}
+
+	private Callable<List<StatusCategory>> readChunk(final StatusTimeline timeline, final long t1, final long t2) {
+		return new Callable<List<StatusCategory>>() {
+			public List<StatusCategory> call() throws Exception {
+				return timeline.read(t1, t2);
+			}
+		};
+	}
+
+	private Callable<Object> replayChunk(final ReplayRun run, final List<StatusCategory> chunk) {
+		return new Callable<Object>() {
+			public Object call() throws Exception {
+				run.replay(chunk);
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int exitStatus = 0;
+		// each run's record, closed whatever happens
+		List<PrintWriter> outputs = new Vector<PrintWriter>();
+		try {
+			ConfigurationProperties config = CommandTokenizer.use("--").parse(args);
+
+			SimpleDateFormat idf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
+			idf.setTimeZone(new SimpleTimeZone(0, "UTC"));
+			long start;
+			long end;
+			if (config.getProperty("start") != null) {
+				start = idf.parse(config.getProperty("start")).getTime();
+				end = (config.getProperty("end") != null ? idf.parse(config.getProperty("end")).getTime() : System
+						.currentTimeMillis());
+			} else {
+				end = System.currentTimeMillis();
+				start = end - 3600 * 1000L * config.getLongValue("hours", 24L);
+			}
+
+			int nthreads = config.getIntValue("threads", Runtime.getRuntime().availableProcessors());
+			long chunkLength = 3600 * 1000L * config.getLongValue("chunk", DEFAULT_CHUNK_LENGTH / 3600000L);
+			long filterInterval = 1000L * config.getLongValue("filter-interval", 60L);
+			File outDir = new File(config.getProperty("out", "."));
+			if (!outDir.exists() && !outDir.mkdirs())
+				throw new IllegalArgumentException("Unable to create output directory: " + outDir);
+
+			// solar cycle filters need the real site, not the equator at greenwich
+			if (config.getProperty("latitude") == null || config.getProperty("longitude") == null)
+				System.err.println("Site not fully specified, using LT site defaults for missing values: lat "
+						+ DEFAULT_LATITUDE + ", long " + DEFAULT_LONGITUDE);
+			ISite site = new BasicSite("Replay", Math.toRadians(config.getDoubleValue("latitude", DEFAULT_LATITUDE)),
+					Math.toRadians(config.getDoubleValue("longitude", DEFAULT_LONGITUDE)));
+
+			ReplayEngine engine = new ReplayEngine(nthreads, chunkLength);
+
+			// archive gateways
+			TelescopeStatusArchive tar = null;
+			MeteorologyStatusArchive mar = null;
+			if (config.getProperty("telescope") != null)
+				tar = (TelescopeStatusArchive) Naming.lookup(config.getProperty("telescope"));
+			if (config.getProperty("meteo") != null)
+				mar = (MeteorologyStatusArchive) Naming.lookup(config.getProperty("meteo"));
+			if (tar != null || mar != null)
+				engine.addSource(new ArchiveStatusSource(tar, mar));
+
+			// backing store files, opened read-only
+			if (config.getProperty("store-dir") != null) {
+				File storeDir = new File(config.getProperty("store-dir"));
+				String[] prefixes = config.getProperty("store-prefixes", "telescope,meteorology").split(",");
+				for (int ip = 0; ip < prefixes.length; ip++)
+					engine.addSource(new BackingStoreStatusSource(storeDir, prefixes[ip].trim()));
+			}
+
+			// one run per rulebase and combination of swept values
+			String rulesList = config.getProperty("rules");
+			if (rulesList == null)
+				throw new IllegalArgumentException("No rulebase specified, use --rules file[,file...]");
+			List<String[]> sweeps = parseSweep(config.getProperty("sweep"));
+			String[] rulesFiles = rulesList.split(",");
+			for (int ir = 0; ir < rulesFiles.length; ir++) {
+				File rulesFile = new File(rulesFiles[ir].trim());
+				String template = readFile(rulesFile);
+				String baseName = rulesFile.getName().replaceAll("\\.xml$", "");
+				for (int is = 0; is < sweeps.size(); is++) {
+					String[] values = sweeps.get(is);
+					String runName = baseName;
+					String text = template;
+					for (int iv = 0; iv < values.length; iv += 2) {
+						runName += "_" + values[iv] + "=" + values[iv + 1];
+						text = text.replace("${" + values[iv] + "}", values[iv + 1]);
+					}
+					runName = runName.replaceAll("[^A-Za-z0-9._=-]", "_");
+
+					File runRules = rulesFile;
+					if (values.length > 0) {
+						runRules = File.createTempFile(runName + ".", ".xml");
+						runRules.deleteOnExit();
+						writeFile(runRules, text);
+					}
+
+					BasicReactiveSystem system = new BasicReactiveSystem(site);
+					XmlConfigurator.use(runRules).configure(system);
+					PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(new File(outDir, runName
+							+ ".replay"))));
+					outputs.add(out);
+					engine.addRun(new ReplayRun(runName, system, out, filterInterval));
+				}
+			}
+
+			System.err.println("Replaying " + idf.format(new Date(start)) + " to "
+					+ idf.format(new Date(end)) + " through " + engine.getRuns().size() + " runs on "
+					+ nthreads + " threads");
+			long t0 = System.currentTimeMillis();
+			engine.replay(start, end);
+			System.err.println("Replay completed in " + (System.currentTimeMillis() - t0) + " ms");
+
+			List<ReplayRun> runs = engine.getRuns();
+			for (int ir = 0; ir < runs.size(); ir++) {
+				List<String> summary = runs.get(ir).getSummary();
+				for (int i = 0; i < summary.size(); i++)
+					System.err.println(summary.get(i));
+			}
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			exitStatus = 1;
+		} finally {
+			for (int io = 0; io < outputs.size(); io++) {
+				PrintWriter out = outputs.get(io);
+				// checkError() flushes, PrintWriter hides write failures otherwise
+				if (out.checkError()) {
+					System.err.println("Error writing replay record " + (io + 1) + " of " + outputs.size());
+					exitStatus = 1;
+				}
+				out.close();
+			}
+		}
+		System.exit(exitStatus);
+	}
+
+	/**
+	 * Expand a sweep specification into every combination of values.
+	 * 
+	 * @param spec
+	 *            name=v1,v2[;name=v1,v2...], or null for no sweep.
+	 * @return Each combination as alternating names and values.
+	 */
+	public static List<String[]> parseSweep(String spec) {
+		List<String[]> combinations = new Vector<String[]>();
+		combinations.add(new String[0]);
+		if (spec == null || spec.trim().length() == 0)
+			return combinations;
+
+		String[] params = spec.split(";");
+		for (int ip = 0; ip < params.length; ip++) {
+			int eq = params[ip].indexOf('=');
+			if (eq < 1)
+				throw new IllegalArgumentException("Bad sweep parameter: " + params[ip]);
+			String name = params[ip].substring(0, eq).trim();
+			String[] values = params[ip].substring(eq + 1).split(",");
+
+			List<String[]> expanded = new Vector<String[]>();
+			for (int ic = 0; ic < combinations.size(); ic++) {
+				String[] base = combinations.get(ic);
+				for (int iv = 0; iv < values.length; iv++) {
+					String[] combination = new String[base.length + 2];
+					System.arraycopy(base, 0, combination, 0, base.length);
+					combination[base.length] = name;
+					combination[base.length + 1] = values[iv].trim();
+					expanded.add(combination);
+				}
+			}
+			combinations = expanded;
+		}
+		return combinations;
+	}
+
+	private static String readFile(File file) throws Exception {
+		StringBuffer buffer = new StringBuffer();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line = null;
+			while ((line = in.readLine()) != null)
+				buffer.append(line).append("\n");
+		} finally {
+			in.close();
+		}
+		return buffer.toString();
+	}
+
+	private static void writeFile(File file, String text) throws Exception {
+		FileWriter out = new FileWriter(file);
+		try {
+			out.write(text);
+		} finally {
+			out.close();
+		}
+	}
+
+}
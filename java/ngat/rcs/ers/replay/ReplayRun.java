@@ -0,0 +1,293 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.replay;
+
+import java.io.PrintWriter;
+import java.rmi.RemoteException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SimpleTimeZone;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import ngat.net.telemetry.StatusCategory;
+import ngat.rcs.ers.ReactiveSystemUpdateListener;
+import ngat.rcs.ers.test.BasicReactiveSystem;
+
+/**
+ * One reactive system being driven by replayed status, and a record of what it
+ * did. Filter values, criterion flips and rule changes are written as tab
+ * separated lines:
+ * 
+ * <pre>
+ *  time  FILTER     name  input  output
+ *  time  CRITERION  name  true|false
+ *  time  RULE       name  true|false
+ * </pre>
+ * 
+ * Filter values can be thinned to one per filter per interval to keep the
+ * output manageable over long replays. Criteria and rules are written only
+ * when their output changes.
+ * <p>
+ * A run is driven by one thread at a time.
+ * 
+ * @author eng
+ *
+ */
+public class ReplayRun implements ReactiveSystemUpdateListener {
+
+	/** How a rule behaved over the replay. */
+	public static class RuleStatistics {
+
+		private boolean state;
+
+		/** When the rule last became true. */
+		private long since;
+
+		private int triggers;
+
+		private long timeTrue;
+
+		/** @return The number of times the rule became true. */
+		public int getTriggers() {
+			return triggers;
+		}
+
+		/** @return The total time (millis) the rule was true. */
+		public long getTimeTrue() {
+			return timeTrue;
+		}
+
+		/** @return True if the rule was true at the end of the replay. */
+		public boolean getState() {
+			return state;
+		}
+	}
+
+	private String name;
+
+	private BasicReactiveSystem system;
+
+	/** Where to write the record, null for none. */
+	private PrintWriter out;
+
+	/** Minimum time (millis) between recorded values of a filter, 0 to record all. */
+	private long filterInterval;
+
+	/** Time each filter's value was last recorded. */
+	private Map<String, long[]> filterRecorded;
+
+	private Map<String, Boolean> criterionStates;
+
+	private Map<String, RuleStatistics> ruleStatistics;
+
+	private long start;
+
+	private long end;
+
+	private long statusReplayed;
+
+	private long criterionFlips;
+
+	/** Time (nanos) spent processing status. */
+	private long processingTime;
+
+	private SimpleDateFormat odf;
+
+	/**
+	 * Create a ReplayRun, registering it for updates from the system.
+	 * 
+	 * @param name
+	 *            Name of the run.
+	 * @param system
+	 *            A configured reactive system whose cache reader is not
+	 *            running.
+	 * @param out
+	 *            Where to write the record, null for none.
+	 * @param filterInterval
+	 *            Minimum time (millis) between recorded values of a filter, 0
+	 *            to record all.
+	 */
+	public ReplayRun(String name, BasicReactiveSystem system, PrintWriter out, long filterInterval)
+			throws RemoteException {
+		this.name = name;
+		this.system = system;
+		this.out = out;
+		this.filterInterval = filterInterval;
+		filterRecorded = new HashMap<String, long[]>();
+		criterionStates = new HashMap<String, Boolean>();
+		ruleStatistics = new TreeMap<String, RuleStatistics>();
+		odf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+		odf.setTimeZone(new SimpleTimeZone(0, "UTC"));
+		system.addReactiveSystemUpdateListener(this);
+	}
+
+	/** @return The name of the run. */
+	public String getName() {
+		return name;
+	}
+
+	/** @return The reactive system being driven. */
+	public BasicReactiveSystem getSystem() {
+		return system;
+	}
+
+	/**
+	 * Prepare for a replay.
+	 * 
+	 * @param start
+	 *            Start of the replay.
+	 */
+	public void begin(long start) {
+		this.start = start;
+		this.end = start;
+		if (out != null)
+			out.println("# Replay run: " + name + " from " + odf.format(new Date(start)));
+	}
+
+	/**
+	 * Pass a chunk of status through the reactive system.
+	 * 
+	 * @param chunk
+	 *            Status in time order.
+	 */
+	public void replay(List<StatusCategory> chunk) {
+		long t0 = System.nanoTime();
+		for (int is = 0; is < chunk.size(); is++)
+			system.replayStatus(chunk.get(is));
+		processingTime += System.nanoTime() - t0;
+		statusReplayed += chunk.size();
+	}
+
+	/**
+	 * Finish the replay, counting the time rules are still true up to the end,
+	 * and write a summary.
+	 * 
+	 * @param end
+	 *            End of the replay.
+	 */
+	public void finish(long end) {
+		this.end = end;
+		Iterator<RuleStatistics> ir = ruleStatistics.values().iterator();
+		while (ir.hasNext()) {
+			RuleStatistics rs = ir.next();
+			if (rs.state) {
+				rs.timeTrue += end - rs.since;
+				rs.since = end;
+			}
+		}
+		if (out != null) {
+			List<String> summary = getSummary();
+			for (int i = 0; i < summary.size(); i++)
+				out.println("# " + summary.get(i));
+			out.flush();
+		}
+	}
+
+	/** @return The number of status replayed. */
+	public long getStatusReplayed() {
+		return statusReplayed;
+	}
+
+	/** @return The number of criterion output changes. */
+	public long getCriterionFlips() {
+		return criterionFlips;
+	}
+
+	/** @return Time (nanos) spent processing status. */
+	public long getProcessingTime() {
+		return processingTime;
+	}
+
+	/** @return How each rule behaved, keyed by rule name. */
+	public Map<String, RuleStatistics> getRuleStatistics() {
+		return ruleStatistics;
+	}
+
+	/** @return A summary of the run, one line per entry. */
+	public List<String> getSummary() {
+		List<String> summary = new Vector<String>();
+		long span = Math.max(1L, end - start);
+		summary.add(String.format("Run: %s: %d status in %d ms (%d status/s), %d criterion flips", name,
+				statusReplayed, processingTime / 1000000L,
+				(processingTime > 0L ? (long) (1.0e9 * statusReplayed / processingTime) : 0L), criterionFlips));
+		Iterator<String> ir = ruleStatistics.keySet().iterator();
+		while (ir.hasNext()) {
+			String ruleName = ir.next();
+			RuleStatistics rs = ruleStatistics.get(ruleName);
+			summary.add(String.format("  Rule: %-24s triggers: %6d, true for: %8.2f h (%5.2f%%)", ruleName,
+					rs.triggers, rs.timeTrue / 3600000.0, 100.0 * rs.timeTrue / span));
+		}
+		return summary;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ngat.rcs.ers.ReactiveSystemUpdateListener#filterUpdated(java.lang.String, long, java.lang.Number, java.lang.Number)
+	 */
+	public void filterUpdated(String filterName, long time, Number updateValue, Number filterOutputValue)
+			throws RemoteException {
+		if (out == null)
+			return;
+		long[] recorded = filterRecorded.get(filterName);
+		if (recorded == null) {
+			recorded = new long[] { Long.MIN_VALUE };
+			filterRecorded.put(filterName, recorded);
+		}
+		if (filterInterval > 0L && recorded[0] != Long.MIN_VALUE && time - recorded[0] < filterInterval)
+			return;
+		recorded[0] = time;
+		out.println(odf.format(new Date(time)) + "\tFILTER\t" + filterName + "\t" + updateValue + "\t"
+				+ filterOutputValue);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ngat.rcs.ers.ReactiveSystemUpdateListener#criterionUpdated(java.lang.String, long, boolean)
+	 */
+	public void criterionUpdated(String critName, long time, boolean critOutputValue) throws RemoteException {
+		Boolean previous = criterionStates.get(critName);
+		if (previous != null && previous.booleanValue() == critOutputValue)
+			return;
+		criterionStates.put(critName, Boolean.valueOf(critOutputValue));
+		criterionFlips++;
+		if (out != null)
+			out.println(odf.format(new Date(time)) + "\tCRITERION\t" + critName + "\t" + critOutputValue);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ngat.rcs.ers.ReactiveSystemUpdateListener#ruleUpdated(java.lang.String, long, boolean)
+	 */
+	public void ruleUpdated(String ruleName, long time, boolean ruleOutputValue) throws RemoteException {
+		RuleStatistics rs = ruleStatistics.get(ruleName);
+		if (rs == null) {
+			rs = new RuleStatistics();
+			ruleStatistics.put(ruleName, rs);
+		} else if (rs.state == ruleOutputValue) {
+			return;
+		}
+		if (ruleOutputValue) {
+			rs.triggers++;
+			rs.since = time;
+		} else if (rs.state) {
+			rs.timeTrue += time - rs.since;
+		}
+		rs.state = ruleOutputValue;
+		if (out != null)
+			out.println(odf.format(new Date(time)) + "\tRULE\t" + ruleName + "\t" + ruleOutputValue);
+	}
+
+	public String toString() {
+		return "ReplayRun: " + name;
+	}
+
+}
@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.replay;
+
+import java.util.List;
+
+import ngat.net.telemetry.StatusCategory;
+
+/**
+ * A supply of archived status for replay through a reactive system.
+ * 
+ * @author eng
+ *
+ */
+public interface StatusSource {
+
+	/**
+	 * Retrieve archived status.
+	 * 
+	 * @param t1
+	 *            Start of the period.
+	 * @param t2
+	 *            End of the period.
+	 * @return The status stamped in the period, in any order. Status at or
+	 *         just outside the ends of the period may also be included.
+	 * @throws Exception
+	 *             If the archive cannot be read.
+	 */
+	public List<StatusCategory> getStatus(long t1, long t2) throws Exception;
+
+}
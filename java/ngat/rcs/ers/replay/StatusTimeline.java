@@ -0,0 +1,126 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.replay;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
+
+import ngat.astrometry.SolarCycleStatus;
+import ngat.net.telemetry.StatusCategory;
+import ngat.rcs.ers.test.BasicReactiveSystem;
+import ngat.rcs.newstatemodel.PowerCycleStatus;
+
+/**
+ * Merges archived status from a number of sources into a single time-ordered
+ * stream for replay, a chunk at a time so that months of status need not be
+ * held at once. The solar and power cycle status a live reactive system
+ * generates for itself on a timer are generated here on the simulated clock,
+ * at the same intervals measured from the start of the replay.
+ * 
+ * @author eng
+ *
+ */
+public class StatusTimeline {
+
+	/** Orders status by timestamp, keeping the order of equal timestamps. */
+	private static final Comparator<StatusCategory> TIME_ORDER = new Comparator<StatusCategory>() {
+		public int compare(StatusCategory s1, StatusCategory s2) {
+			long t1 = s1.getStatusTimeStamp();
+			long t2 = s2.getStatusTimeStamp();
+			return (t1 < t2 ? -1 : (t1 > t2 ? 1 : 0));
+		}
+	};
+
+	private List<StatusSource> sources;
+
+	/** Start of the replay, from which the synthetic status intervals run. */
+	private long start;
+
+	/** How often (millis) to generate solar cycle status, 0 for none. */
+	private long solarCycleInterval;
+
+	/** How often (millis) to generate power cycle status, 0 for none. */
+	private long powerCycleInterval;
+
+	/**
+	 * Create a StatusTimeline generating solar and power cycle status at the
+	 * reactive system's intervals.
+	 * 
+	 * @param sources
+	 *            The archived status sources.
+	 * @param start
+	 *            Start of the replay.
+	 */
+	public StatusTimeline(List<StatusSource> sources, long start) {
+		this(sources, start, BasicReactiveSystem.SOLAR_CYCLE_UPDATE_INTERVAL,
+				BasicReactiveSystem.POWER_CYCLE_UPDATE_INTERVAL);
+	}
+
+	/**
+	 * @param sources
+	 *            The archived status sources.
+	 * @param start
+	 *            Start of the replay.
+	 * @param solarCycleInterval
+	 *            How often (millis) to generate solar cycle status, 0 for
+	 *            none.
+	 * @param powerCycleInterval
+	 *            How often (millis) to generate power cycle status, 0 for
+	 *            none.
+	 */
+	public StatusTimeline(List<StatusSource> sources, long start, long solarCycleInterval, long powerCycleInterval) {
+		this.sources = sources;
+		this.start = start;
+		this.solarCycleInterval = solarCycleInterval;
+		this.powerCycleInterval = powerCycleInterval;
+	}
+
+	/**
+	 * Read a chunk of the timeline. Chunks read for consecutive periods join
+	 * up with no status repeated or missed.
+	 * 
+	 * @param t1
+	 *            Start of the chunk, not before the start of the replay.
+	 * @param t2
+	 *            End of the chunk (exclusive).
+	 * @return The status stamped from t1 up to t2, in time order.
+	 * @throws Exception
+	 *             If a source cannot be read.
+	 */
+	public List<StatusCategory> read(long t1, long t2) throws Exception {
+		List<StatusCategory> list = new Vector<StatusCategory>();
+		for (int is = 0; is < sources.size(); is++) {
+			List<StatusCategory> slist = sources.get(is).getStatus(t1, t2);
+			if (slist == null)
+				continue;
+			for (int i = 0; i < slist.size(); i++) {
+				StatusCategory status = slist.get(i);
+				long time = status.getStatusTimeStamp();
+				if (time >= t1 && time < t2)
+					list.add(status);
+			}
+		}
+
+		if (solarCycleInterval > 0L) {
+			for (long time = firstTick(t1, solarCycleInterval); time < t2; time += solarCycleInterval)
+				list.add(new SolarCycleStatus(time));
+		}
+		if (powerCycleInterval > 0L) {
+			for (long time = firstTick(t1, powerCycleInterval); time < t2; time += powerCycleInterval)
+				list.add(new PowerCycleStatus(time));
+		}
+
+		Collections.sort(list, TIME_ORDER);
+		return list;
+	}
+
+	/** @return The first time at or after t1 which is a whole number of intervals from the start. */
+	private long firstTick(long t1, long interval) {
+		long ticks = (Math.max(t1, start) - start + interval - 1) / interval;
+		return start + ticks * interval;
+	}
+
+}
@@ -13,7 +13,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.SimpleTimeZone;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.text.DateFormatter;
 
@@ -30,6 +36,7 @@ import ngat.rcs.ers.ActualStateFilter;
 import ngat.rcs.ers.AverageFilter;
 import ngat.rcs.ers.Criterion;
 import ngat.rcs.ers.DiscreteEQCriterion;
+import ngat.rcs.ers.DiscreteFilter;
 import ngat.rcs.ers.DiscreteOneOfCriterion;
 import ngat.rcs.ers.Filter;
 import ngat.rcs.ers.FractionTimeRule;
@@ -105,26 +112,73 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 	private Map<String, Rule> criterionToRule;
 	private Map<String, Rule> ruleToRule; // forward mapping up the rule hierarchy
 
+	/** The filter, criterion and rule mappings compiled for processing updates.*/
+	private volatile RuleGraph graph;
+
 	private List<ReactiveSystemUpdateListener> listeners;
 
-	/** Holds a time-ordered list of status objects received by various feeds we are registered for.*/
-	private List<StatusCategory> cache;
+	/** Default maximum number of status objects waiting in the cache.*/
+	public static final int DEFAULT_CACHE_CAPACITY = 10000;
+
+	/** Maximum number of status objects processed per drain of the cache.*/
+	public static final int MAX_BATCH = 100;
+
+	/** How often do we update the solar-cycle status.*/
+	public static final long SOLAR_CYCLE_UPDATE_INTERVAL = 60*1000L;
+
+	/** How often do we update the power-cycle status.*/
+	public static final long POWER_CYCLE_UPDATE_INTERVAL = 10*1000L;
 
-	/** Cache reader. Processes the time-ordered list of status objects.*/
+	/** Holds a time-ordered queue of status objects received by various feeds we are registered for.*/
+	private BlockingQueue<CacheEntry> cache;
+
+	/** Cache reader. Processes the time-ordered queue of status objects.*/
 	private CacheReader reader;
 	
 	/** True if the cache-reader is running.*/
 	private volatile boolean cacheReaderRunning = false;
+
+	/** Generates the solar-cycle and power-cycle status objects.*/
+	private Timer syntheticSources;
+
+	/** Largest number of status objects seen waiting in the cache.*/
+	private volatile int maxCacheDepth;
+
+	/** Counts status objects discarded because the cache was full, by any ingesting thread.*/
+	private final AtomicLong cacheDropped = new AtomicLong();
+
+	/** Counts status objects processed.*/
+	private volatile long statusProcessed;
+
+	/** Time (nanos) from arrival to rule evaluation of the latest status processed.*/
+	private volatile long lastIngestLatency;
+
+	/** Longest time (nanos) from arrival to rule evaluation.*/
+	private volatile long maxIngestLatency;
+
+	/** Total time (nanos) from arrival to rule evaluation of all status processed.*/
+	private volatile long totalIngestLatency;
 	
 	SimpleTimeZone UTC = new SimpleTimeZone(0, "UTC");
 	
 	/** Logger. */
+	private Logger alogger;
+
 	private LogGenerator slogger;
 
 	/**
      * 
      */
 	public BasicReactiveSystem(ISite site) throws RemoteException {
+		this(site, DEFAULT_CACHE_CAPACITY);
+	}
+
+	/**
+	 * @param site The telescope site.
+	 * @param cacheCapacity Maximum number of status objects waiting in the cache, when
+	 *            full the oldest are discarded.
+	 */
+	public BasicReactiveSystem(ISite site, int cacheCapacity) throws RemoteException {
 		this.site = site;
 		
 		filters = new HashMap<String, Filter>();
@@ -137,12 +191,13 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 		filterToCriterion = new HashMap<String, List<Criterion>>();		
 		criterionToRule = new HashMap<String, Rule>();
 		ruleToRule = new HashMap<String, Rule>();
-		cache = new Vector<StatusCategory>();
+		graph = new RuleGraph(filters, filterToCriterion, criterionToRule, ruleToRule);
+		cache = new LinkedBlockingQueue<CacheEntry>(Math.max(1, cacheCapacity));
 
 		listeners = new Vector<ReactiveSystemUpdateListener>();
 
 
-		Logger alogger = LogManager.getLogger("ERS"); 
+		alogger = LogManager.getLogger("ERS"); 
 		slogger = alogger.generate().system("RCS")
 					.subSystem("Reactive")
 					.srcCompClass(this.getClass().getSimpleName())
@@ -150,7 +205,7 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 		
 	}
 
-	/** Start the cache reader. We should check it isnt already running first.*/
+	/** Start the cache reader and the synthetic status sources. We should check it isnt already running first.*/
 	public void startCacheReader() {
 		if (reader == null)
 			reader = new CacheReader();
@@ -158,6 +213,78 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 			return;		
 		reader.start();
 		cacheReaderRunning = true;
+
+		syntheticSources = new Timer("ERS_SYNTHETIC_SOURCES", true);
+		// Solar-cycle status change at fixed times before sunrise and sunset.
+		syntheticSources.scheduleAtFixedRate(new TimerTask() {
+			public void run() {
+				SolarCycleStatus solarStatus = new SolarCycleStatus(System.currentTimeMillis());
+				slogger.create().info().level(2).extractCallInfo().msg("Adding solar cycle update: "+solarStatus).send();
+				ingest(solarStatus);
+			}
+		}, 0L, SOLAR_CYCLE_UPDATE_INTERVAL);
+		// Power-cycle status changes during a brief interval at a fixed time of day.
+		syntheticSources.scheduleAtFixedRate(new TimerTask() {
+			public void run() {
+				PowerCycleStatus powerStatus = new PowerCycleStatus(System.currentTimeMillis());
+				slogger.create().info().level(2).extractCallInfo().msg("Adding power cycle update: "+powerStatus).send();
+				ingest(powerStatus);
+			}
+		}, 0L, POWER_CYCLE_UPDATE_INTERVAL);
+	}
+
+	/** @return The number of status objects waiting in the cache.*/
+	public int getCacheDepth() {
+		return cache.size();
+	}
+
+	/** @return The largest number of status objects seen waiting in the cache.*/
+	public int getMaxCacheDepth() {
+		return maxCacheDepth;
+	}
+
+	/** @return The number of status objects discarded because the cache was full.*/
+	public long getCacheDropped() {
+		return cacheDropped.get();
+	}
+
+	/** @return The number of status objects processed.*/
+	public long getStatusProcessed() {
+		return statusProcessed;
+	}
+
+	/** @return Time (nanos) from arrival to rule evaluation of the latest status processed.*/
+	public long getLastIngestLatency() {
+		return lastIngestLatency;
+	}
+
+	/** @return Longest time (nanos) from arrival to rule evaluation.*/
+	public long getMaxIngestLatency() {
+		return maxIngestLatency;
+	}
+
+	/** @return Mean time (nanos) from arrival to rule evaluation.*/
+	public long getMeanIngestLatency() {
+		long n = statusProcessed;
+		return (n > 0 ? totalIngestLatency / n : 0L);
+	}
+
+	/**
+	 * Add a status to the cache, waking the cache reader. If the cache is full
+	 * the oldest status is discarded to make room.
+	 */
+	private void ingest(StatusCategory status) {
+		CacheEntry entry = new CacheEntry(status, System.nanoTime());
+		while (!cache.offer(entry)) {
+			if (cache.poll() != null) {
+				long dropped = cacheDropped.incrementAndGet();
+				slogger.create().info().level(1).extractCallInfo()
+					.msg("Cache full, discarded oldest status, total discarded: " + dropped).send();
+			}
+		}
+		int depth = cache.size();
+		if (depth > maxCacheDepth)
+			maxCacheDepth = depth;
 	}
 
 	private void addTelescopeMapping(String cat, TelescopeFilterAdapter filter) {
@@ -234,6 +361,16 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 			rules.put(r.getRuleName(), r);
 			slogger.create().info().level(1).extractCallInfo().msg("Add rule: " + r).send();
 		}
+
+		graph = new RuleGraph(filters, filterToCriterion, criterionToRule, ruleToRule);
+		slogger.create().info().level(1).extractCallInfo()
+			.msg("Compiled rule graph: " + graph.getFilterCount() + " filters, " + graph.getCriterionCount()
+				+ " criteria, " + graph.getRuleCount() + " rules, order: " + graph.getRuleOrder()).send();
+	}
+
+	/** @return The compiled filter, criterion and rule graph.*/
+	public RuleGraph getRuleGraph() {
+		return graph;
 	}
 
 	private Filter configureFilter(Element node) throws Exception {
@@ -279,6 +416,11 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 			// METEO WMS humidity
 			
 			MeteoFilterAdapter mf = new MeteoFilterAdapter(cat, item, filter);
+			if (!mf.isResolved()) {
+				slogger.create().info().level(1).extractCallInfo()
+					.msg("Unknown item: MET." + cat + "." + item + ", filter " + fname + " will not be updated").send();
+				return filter;
+			}
 			addMeteoMapping(cat, mf);			
 			slogger.create().info().level(1).extractCallInfo().msg("Link: MET." + cat + "." + item + " -> " + fname).send();
 		} else if (source.equalsIgnoreCase("TEL")) {
@@ -286,6 +428,11 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 			// TEL AZM axis.status
 			
 			TelescopeFilterAdapter tf = new TelescopeFilterAdapter(cat, item, filter);
+			if (!tf.isResolved()) {
+				slogger.create().info().level(1).extractCallInfo()
+					.msg("Unknown item: TEL." + cat + "." + item + ", filter " + fname + " will not be updated").send();
+				return filter;
+			}
 			addTelescopeMapping(cat, tf);			
 			slogger.create().info().level(1).extractCallInfo().msg("Link: TEL." + cat + "." + item + " -> " + fname).send();
 			
@@ -725,7 +872,7 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 
 	public void meteorologyStatusUpdate(MeteorologyStatus status) throws RemoteException {
 		slogger.create().info().level(3).extractCallInfo().msg("Received meteo update").send();
-		cache.add(status);
+		ingest(status);
 	}
 
 	public void telescopeNetworkFailure(long time, String arg1) throws RemoteException {
@@ -737,7 +884,7 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 		TelescopeNetworkStatus network = new TelescopeNetworkStatus("CIL_NET");
 		network.setStatusTimeStamp(time);
 		network.setTelescopeNetworkState(TelescopeNetworkStatus.NETWORK_FAIL); // = 2
-		cache.add(network);
+		ingest(network);
 	}
 
 	public void telescopeStatusUpdate(TelescopeStatus status) throws RemoteException {
@@ -745,9 +892,16 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 		.msg("Received telescope status update: " + status.getCategoryName())
 		.send();
 			
-		cache.add(status);
+		ingest(status);
 
-		// Add a network OK message at same time but first determine which network
+		// Add a network OK message at same time
+		ingest(createNetworkStatus(status));
+
+	}
+
+	/** @return A network OK status for the network a telescope status arrived over, at the same time.*/
+	private TelescopeNetworkStatus createNetworkStatus(TelescopeStatus status) {
+		// first determine which network
 		String networkCategory = "";
 		if (status instanceof AutoguiderActiveStatus)
 			networkCategory = status.getCategoryName()+"_NET";
@@ -757,24 +911,62 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 		TelescopeNetworkStatus network = new TelescopeNetworkStatus(networkCategory);
 		network.setStatusTimeStamp(status.getStatusTimeStamp());
 		network.setTelescopeNetworkState(TelescopeNetworkStatus.NETWORK_OKAY); // = 1
-		cache.add(network);
+		return network;
+	}
+
+	/**
+	 * Process a status straight away on the caller's thread, bypassing the cache,
+	 * as if it had just been received from its provider. Filters and rules run on 
+	 * the status timestamps, so archived status can be replayed as fast as it is 
+	 * supplied. The cache reader should not be running and the solar and power 
+	 * cycle status must be supplied by the caller.
+	 * 
+	 * @param status The status to process.
+	 */
+	public void replayStatus(StatusCategory status) {
+		if (reader == null)
+			reader = new CacheReader();
+		reader.process(status);
+		statusProcessed++;
+		if (status instanceof TelescopeStatus) {
+			reader.process(createNetworkStatus((TelescopeStatus) status));
+			statusProcessed++;
+		}
+	}
 
+	/** A status waiting in the cache, and when it arrived.*/
+	private static class CacheEntry {
+
+		final StatusCategory status;
+
+		/** Arrival time (nanos).*/
+		final long queued;
+
+		CacheEntry(StatusCategory status, long queued) {
+			this.status = status;
+			this.queued = queued;
+		}
 	}
 
 	private class CacheReader extends ControlThread {
 
-		/** How often do we update the solar-cycle status.*/
-		private static final long SOLAR_CYCLE_UPDATE_INTERVAL = 60*1000L;
+		/** How long (millis) to wait for a status before going round again.*/
+		private static final long IDLE_WAIT = 5000L;
 
-		/** How often do we update the power-cycle status.*/
-		private static final long POWER_CYCLE_UPDATE_INTERVAL = 10*1000L;
+		/** Status objects taken from the cache for processing.*/
+		private List<CacheEntry> batch = new Vector<CacheEntry>();
+
+		/** Passes criterion and rule updates from the rule graph to our listeners.*/
+		private RuleGraph.Listener graphListener = new RuleGraph.Listener() {
+			public void criterionUpdated(String critName, long time, boolean critOutputValue) {
+				notifyListenersCriterionUpdated(critName, time, critOutputValue);
+			}
+
+			public void ruleUpdated(String ruleName, long time, boolean ruleOutputValue) {
+				notifyListenersRuleUpdated(ruleName, time, ruleOutputValue);
+			}
+		};
 
-		/** When was the last solar-cycle status update.*/
-		private long timeLastSolarStatusUpdate = 0L;
-		
-		/** When was the last power-cycle status update.*/
-		private long timeLastPowerStatusUpdate = 0L;
-		
 		CacheReader() {
 			super("ERS_CACHE_READER", true);
 		
@@ -788,280 +980,132 @@ public class BasicReactiveSystem extends UnicastRemoteObject implements Reactive
 
 		@Override
 		protected void mainTask() {
-		
-			slogger.create().info().level(1).extractCallInfo().msg("Cache size: " + cache.size()).send();
-						
-			while (cache.size() > 0) {
-				
-				long now = System.currentTimeMillis();
-				
-				// Check the solar-cycle status at NOW time, see how long since we last updated
-				// We create a solar status object so we can stuff it in the cache and process it later (soon)
-				
-				if (now - timeLastSolarStatusUpdate > SOLAR_CYCLE_UPDATE_INTERVAL) {
-					// Solar-cycle status change at fixed times before sunrise and sunset.
-					SolarCycleStatus solarStatus = new SolarCycleStatus(now);
-					cache.add(solarStatus);
-					timeLastSolarStatusUpdate = now;
-					slogger.create().info().level(2).extractCallInfo().msg("Adding solar cycle update: "+solarStatus).send();
-				}
-				// Check the power-cycle status at NOW time, see how long since we last updated
-				// We create a power status object so we can stuff it in the cache and process it later (soon)
-				
-				if (now - timeLastPowerStatusUpdate > POWER_CYCLE_UPDATE_INTERVAL) {
-					// Power-cycle status changes during a brief interval at a fixed time of day.
-					PowerCycleStatus powerStatus = new PowerCycleStatus(now);
-					cache.add(powerStatus);
-					timeLastPowerStatusUpdate = now;
-					slogger.create().info().level(2).extractCallInfo().msg("Adding power cycle update: "+powerStatus).send();
-				}
-				
-				StatusCategory status = cache.remove(0);
+
+			// wait for the next status, then take whatever else has arrived with it
+			CacheEntry first = null;
+			try {
+				first = cache.poll(IDLE_WAIT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ix) {
+			}
+			if (first == null)
+				return;
+			batch.clear();
+			batch.add(first);
+			cache.drainTo(batch, MAX_BATCH - 1);
+
+			slogger.create().info().level(2).extractCallInfo()
+				.msg("Processing " + batch.size() + " status, cache depth: " + cache.size()).send();
+
+			for (int is = 0; is < batch.size(); is++) {
+				CacheEntry entry = batch.get(is);
+				process(entry.status);
+
+				long latency = System.nanoTime() - entry.queued;
+				lastIngestLatency = latency;
+				if (latency > maxIngestLatency)
+					maxIngestLatency = latency;
+				totalIngestLatency += latency;
+				statusProcessed++;
+			}
+			batch.clear();
+		}
+
+		/** Update the filters, criteria and rules fed by a status.*/
+		private void process(StatusCategory status) {
 			
+			RuleGraph graph = BasicReactiveSystem.this.graph;
+			if (alogger.getLogLevel() >= 3)
 				slogger.create().info().level(3).extractCallInfo()
 					.msg("Read status from cache with cat: " + status.getCategoryName()).send();
-				String cat = status.getCategoryName();
-
-				Filter filter = null;
-				Number value;
-				if (status instanceof TelescopeStatus) {
-					// TELESCOPE
-					TelescopeStatus telstatus = (TelescopeStatus) status;
-					List<TelescopeFilterAdapter> tlist = telescopeCatToFilter.get(cat);
-					if (tlist == null)
-						continue;
-				
-					for (int i = 0; i < tlist.size(); i++) {
-						TelescopeFilterAdapter tf = tlist.get(i);
-						Number update = tf.getStatusItem(telstatus);
-						long time = telstatus.getStatusTimeStamp();
-						filter = tf.getFilter();
-						value = filter.filterUpdate(time, update);
-
-						if (value instanceof Double)						
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4.2f -> %4.2f \n", 
-									filter.getFilterName(),
-									update, value)).send();
-						else if (value instanceof Integer)						
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4d -> %4d \n", 
-									filter.getFilterName(), update,
-									value)).send();
-						else							
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %6s -> %6s \n",  
-										filter.getFilterName(), update.toString(),
-										value.toString())).send();
-						
-						notifyListenersFilterUpdated(filter.getFilterName(), time, update, value);
-						// check associated criteria
-						List<Criterion> critlist = filterToCriterion.get(filter.getFilterName());
-						if (critlist == null)
-							continue;
-						for (int ic = 0; ic < critlist.size(); ic++) {
-							Criterion crit = critlist.get(ic);
-							boolean critValue = crit.criterionUpdate(time, value);
-							notifyListenersCriterionUpdated(crit.getCriterionName(), time, critValue);
-							// now check which rule is attached to this filter
-							Rule rule = criterionToRule.get(crit.getCriterionName());
-							double ruleValue = rule.ruleUpdate(time, critValue);
-							notifyListenersRuleUpdated(rule.getRuleName(), time, (ruleValue > 0.99));
-							// forward scan through feed-in rules
-							propagateRuleUpdates(rule, time, ruleValue);
-
-						}
-					}
-
-				} else if (status instanceof MeteorologyStatus) {
-					// METEOROLOGY
-					MeteorologyStatus metstatus = (MeteorologyStatus) status;
-					List<MeteoFilterAdapter> mlist = meteoCatToFilter.get(cat);
-					if (mlist == null)
-						continue;
-					for (int i = 0; i < mlist.size(); i++) {
-						MeteoFilterAdapter mf = mlist.get(i);
-						Number update = mf.getStatusItem(metstatus);
-						long time = metstatus.getStatusTimeStamp();
-						filter = mf.getFilter();
-						value = filter.filterUpdate(time, update);
-
-						if (value instanceof Double)						
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4.2f -> %4.2f \n", 
-									filter.getFilterName(),
-									update, value)).send();
-						else if (value instanceof Integer)							
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4d -> %4d \n", 
-									filter.getFilterName(), update,
-									value)).send();
-						else							
-							slogger.create().info().level(1).extractCallInfo()
-							.msg(String.format("Update filter: %12s %6s -> %6s \n",  
-									filter.getFilterName(), update.toString(),
-									value.toString())).send();
-						
-						notifyListenersFilterUpdated(filter.getFilterName(), time, update, value);
-						// check associated criteria
-						
-						//System.err.println("Checking crits for filter: "+filter.getFilterName());
-						List<Criterion> critlist = filterToCriterion.get(filter.getFilterName());
-						if (critlist == null)
-						    continue;
-						for (int ic = 0; ic < critlist.size(); ic++) {
-							Criterion crit = critlist.get(ic);
-							boolean critValue = crit.criterionUpdate(time, value);
-							notifyListenersCriterionUpdated(crit.getCriterionName(), time, critValue);
-							// now check which rule is attached to this filter
-							Rule rule = criterionToRule.get(crit.getCriterionName());
-							double ruleValue = rule.ruleUpdate(time, critValue);
-							notifyListenersRuleUpdated(rule.getRuleName(), time, (ruleValue > 0.99));
-							// forward scan thro feedin rules
-							propagateRuleUpdates(rule, time, ruleValue);
-
-						}
-					}
-				} else if (status instanceof SolarCycleStatus) {
-					// SOLAR-CYCLE
-					SolarCycleStatus solarCycleStatus = (SolarCycleStatus)status;
-					List<SolarCycleFilterAdapter> slist = solarCatToFilter.get(cat);
-					if (slist == null)
-						continue;
-					for (int i = 0; i < slist.size(); i++) {
-						SolarCycleFilterAdapter mf = slist.get(i);
-						Number update = mf.getStatusItem(solarCycleStatus);
-						long time = solarCycleStatus.getStatusTimeStamp();
-						filter = mf.getFilter();
-						value = filter.filterUpdate(time, update);
-
-						if (value instanceof Double)						
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4.2f -> %4.2f \n", 
-									filter.getFilterName(),
-									update, value)).send();
-						else if (value instanceof Integer)							
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4d -> %4d \n", 
-									filter.getFilterName(), update,
-									value)).send();
-						else		
-							slogger.create().info().level(1).extractCallInfo()
-							.msg(String.format("Update filter: %12s %6s -> %6s \n",  
-								filter.getFilterName(), update.toString(),
-								value.toString())).send();						
-							
-						
-						notifyListenersFilterUpdated(filter.getFilterName(), time, update, value);
-						// check associated criteria
-						List<Criterion> critlist = filterToCriterion.get(filter.getFilterName());
-						if (critlist == null)
-						    continue;
-						for (int ic = 0; ic < critlist.size(); ic++) {
-							Criterion crit = critlist.get(ic);
-							boolean critValue = crit.criterionUpdate(time, value);
-							notifyListenersCriterionUpdated(crit.getCriterionName(), time, critValue);
-							// now check which rule is attached to this filter
-							Rule rule = criterionToRule.get(crit.getCriterionName());
-							double ruleValue = rule.ruleUpdate(time, critValue);
-							notifyListenersRuleUpdated(rule.getRuleName(), time, (ruleValue > 0.99));
-							// forward scan thro feedin rules
-							propagateRuleUpdates(rule, time, ruleValue);
-
-						}
-					}
-				} else if (status instanceof PowerCycleStatus) {
-					// POWER_CYCLE
-					PowerCycleStatus powerCycleStatus = (PowerCycleStatus)status;
-					List<PowerCycleFilterAdapter> slist = powerCatToFilter.get(cat);
-					if (slist == null)
-						continue;
-					for (int i = 0; i < slist.size(); i++) {
-						PowerCycleFilterAdapter mf = slist.get(i);
-						Number update = mf.getStatusItem(powerCycleStatus);
-						long time = powerCycleStatus.getStatusTimeStamp();
-						filter = mf.getFilter();
-						value = filter.filterUpdate(time, update);
-
-						if (value instanceof Double)						
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4.2f -> %4.2f \n", 
-									filter.getFilterName(),
-									update, value)).send();
-						else if (value instanceof Integer)							
-							slogger.create().info().level(1).extractCallInfo()
-								.msg(String.format("Update filter: %12s %4d -> %4d \n", 
-									filter.getFilterName(), update,
-									value)).send();
-						else	
-							slogger.create().info().level(1).extractCallInfo()
-							.msg(String.format("Update filter: " + 
-								filter.getFilterName() + " " + update + " -> "
-								+ value)).send();						
-						
-						notifyListenersFilterUpdated(filter.getFilterName(), time, update, value);
-						// check associated criteria
-						List<Criterion> critlist = filterToCriterion.get(filter.getFilterName());
-						if (critlist == null)
-						    continue;
-						for (int ic = 0; ic < critlist.size(); ic++) {
-							Criterion crit = critlist.get(ic);
-							boolean critValue = crit.criterionUpdate(time, value);
-							notifyListenersCriterionUpdated(crit.getCriterionName(), time, critValue);
-							// now check which rule is attached to this filter
-							Rule rule = criterionToRule.get(crit.getCriterionName());
-							double ruleValue = rule.ruleUpdate(time, critValue);
-							notifyListenersRuleUpdated(rule.getRuleName(), time, (ruleValue > 0.99));
-							// forward scan thro feedin rules
-							propagateRuleUpdates(rule, time, ruleValue);
-
-						}
-					}
+			String cat = status.getCategoryName();
+
+			if (status instanceof TelescopeStatus) {
+				// TELESCOPE
+				TelescopeStatus telstatus = (TelescopeStatus) status;
+				List<TelescopeFilterAdapter> tlist = telescopeCatToFilter.get(cat);
+				if (tlist == null)
+					return;
+			
+				long time = telstatus.getStatusTimeStamp();
+				for (int i = 0; i < tlist.size(); i++) {
+					TelescopeFilterAdapter tf = tlist.get(i);
+					update(graph, tf.getFilter(), time, tf.getDoubleItem(telstatus), tf.isDiscrete());
 				}
 
-				// lookup rules associated with crits
-
+			} else if (status instanceof MeteorologyStatus) {
+				// METEOROLOGY
+				MeteorologyStatus metstatus = (MeteorologyStatus) status;
+				List<MeteoFilterAdapter> mlist = meteoCatToFilter.get(cat);
+				if (mlist == null)
+					return;
+				long time = metstatus.getStatusTimeStamp();
+				for (int i = 0; i < mlist.size(); i++) {
+					MeteoFilterAdapter mf = mlist.get(i);
+					update(graph, mf.getFilter(), time, mf.getDoubleItem(metstatus), mf.isDiscrete());
+				}
+			} else if (status instanceof SolarCycleStatus) {
+				// SOLAR-CYCLE
+				SolarCycleStatus solarCycleStatus = (SolarCycleStatus)status;
+				List<SolarCycleFilterAdapter> slist = solarCatToFilter.get(cat);
+				if (slist == null)
+					return;
+				long time = solarCycleStatus.getStatusTimeStamp();
+				for (int i = 0; i < slist.size(); i++) {
+					SolarCycleFilterAdapter mf = slist.get(i);
+					update(graph, mf.getFilter(), time, mf.getIntItem(solarCycleStatus), true);
+				}
+			} else if (status instanceof PowerCycleStatus) {
+				// POWER_CYCLE
+				PowerCycleStatus powerCycleStatus = (PowerCycleStatus)status;
+				List<PowerCycleFilterAdapter> slist = powerCatToFilter.get(cat);
+				if (slist == null)
+					return;
+				long time = powerCycleStatus.getStatusTimeStamp();
+				for (int i = 0; i < slist.size(); i++) {
+					PowerCycleFilterAdapter mf = slist.get(i);
+					update(graph, mf.getFilter(), time, mf.getIntItem(powerCycleStatus), true);
+				}
 			}
 
-			try {
-				Thread.sleep(2000);
-			} catch (InterruptedException ix) {
-			}
 		}
 
-		@Override
-		protected void shutdown() {
+		/**
+		 * Update a filter with a sample and pass its output up the rule graph.
+		 * The sample and output are only boxed when logged or sent to listeners.
+		 * 
+		 * @param graph The rule graph.
+		 * @param filter The filter.
+		 * @param time Time of the sample.
+		 * @param update The sample, widened if the item is discrete.
+		 * @param discreteUpdate True if the item is discrete.
+		 */
+		private void update(RuleGraph graph, Filter filter, long time, double update, boolean discreteUpdate) {
+			double value = filter.filterUpdate(time, update);
+			boolean discrete = (filter instanceof DiscreteFilter);
+
+			if (alogger.getLogLevel() >= 1)
+				slogger.create().info().level(1).extractCallInfo()
+					.msg(String.format("Update filter: %12s " + (discreteUpdate ? "%4d" : "%4.2f") + " -> "
+							+ (discrete ? "%4d" : "%4.2f") + " \n", filter.getFilterName(),
+							box(update, discreteUpdate), box(value, discrete))).send();
+
+			if (!listeners.isEmpty())
+				notifyListenersFilterUpdated(filter.getFilterName(), time, box(update, discreteUpdate),
+						box(value, discrete));
+			// update the criteria, rules and super-rules fed by this filter
+			graph.filterUpdated(filter, time, value, graphListener);
+		}
 
+		/** @return The value as an Integer if discrete, otherwise as a Double.*/
+		private Number box(double value, boolean discrete) {
+			if (discrete)
+				return new Integer((int) value);
+			return new Double(value);
 		}
 
-		/** Propagate sub-rule triggers up the rule hierarchy.*/
-		private void propagateRuleUpdates(Rule rule, long time, double value) {
-			String ruleName = rule.getRuleName();
-			Iterator<String> ir = ruleToRule.keySet().iterator();
-			int countMatches = 0;
-			while (ir.hasNext()) {
-				String testRuleName = ir.next();
-
-				if (testRuleName.equals(ruleName)) {
-					countMatches++;
-					Rule nextRule = ruleToRule.get(ruleName);
-					double outValue = 0.0;
-				
-					slogger.create().info().level(1).extractCallInfo()
-						.msg("Propagate: " + ruleName + " ->  " + nextRule.getRuleName()).send();
-					
-					if (nextRule instanceof Conjunct) {
-						outValue = ((Conjunct) nextRule).subruleUpdate(ruleName, time, value);
-						propagateRuleUpdates(nextRule, time, outValue);
-						notifyListenersRuleUpdated(nextRule.getRuleName(), time, (outValue > 0.99));
-					} else if (nextRule instanceof Disjunct) {
-						outValue = ((Disjunct) nextRule).subruleUpdate(ruleName, time, value);
-						propagateRuleUpdates(nextRule, time, outValue);
-						notifyListenersRuleUpdated(nextRule.getRuleName(), time, (outValue > 0.99));
-					}
-				}
+		@Override
+		protected void shutdown() {
 
-			}
 		}
 
 	}
@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package ngat.rcs.ers.test;
+
+import ngat.rcs.ers.Rule;
+
+/**
+ * A rule whose output is combined from the outputs of its subrules. Each
+ * subrule's latest output is held in a numbered slot.
+ * 
+ * @author eng
+ * 
+ */
+public interface CompoundRule extends Rule {
+
+	/**
+	 * Add a feed-in subrule.
+	 * 
+	 * @param subrule
+	 *            The subrule which feeds in.
+	 */
+	public void addSubrule(Rule subrule);
+
+	/**
+	 * @param ruleName
+	 *            The name of a subrule.
+	 * @return The slot holding the subrule's output, or -1 if it is not a
+	 *         subrule.
+	 */
+	public int getSubruleIndex(String ruleName);
+
+	/**
+	 * Record a subrule's output without recombining.
+	 * 
+	 * @param index
+	 *            The subrule's slot.
+	 * @param value
+	 *            The subrule's output.
+	 */
+	public void setSubruleValue(int index, double value);
+
+	/**
+	 * Combine the recorded subrule outputs.
+	 * 
+	 * @param time
+	 *            Time of the update.
+	 * @return The rule's output.
+	 */
+	public double evaluate(long time);
+
+}
@@ -3,9 +3,8 @@
  */
 package ngat.rcs.ers.test;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.Vector;
 
 import ngat.rcs.ers.Rule;
 import ngat.util.logging.LogGenerator;
@@ -16,11 +15,17 @@ import ngat.util.logging.Logger;
  * @author eng
  * 
  */
-public class Conjunct implements Rule {
+public class Conjunct implements CompoundRule {
 
 	private String name;
 
-	Map<String, Double> ruleValues;
+	/** Names of the subrules, by slot. */
+	private List<String> subruleNames;
+
+	/** Latest output of each subrule, by slot. */
+	private double[] subruleValues;
+
+	private int nsubrules;
 	
 	/** Logger. */
 	private transient LogGenerator slogger;
@@ -30,7 +35,8 @@ public class Conjunct implements Rule {
 	 */
 	public Conjunct(String name) {
 		this.name = name;
-		ruleValues = new HashMap<String, Double>();
+		subruleNames = new Vector<String>();
+		subruleValues = new double[4];
 		
 		Logger alogger = LogManager.getLogger("ERS"); 
 		slogger = alogger.generate().system("RCS")
@@ -57,17 +63,7 @@ public class Conjunct implements Rule {
 	 * @see ngat.rcs.ers.Rule#ruleUpdate(long, boolean)
 	 */
 	public double ruleUpdate(long time, boolean criterion) {
-		double output = 0.0;
-		Iterator<String> ir = ruleValues.keySet().iterator();
-		while (ir.hasNext()) {
-			String subruleName = ir.next();
-			double subruleValue = ruleValues.get(subruleName);
-			output += subruleValue;
-		}
-		if (ruleValues.size() == 0)
-			return 0.0;
-		// normally the average of the subrule values but could be weighted
-		output /= (ruleValues.size());
+		double output = combine();
 	
 		slogger.create().info().level(3).block("ruleUpdate")
 			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, output))
@@ -77,18 +73,11 @@ public class Conjunct implements Rule {
 	}
 	
 	public double subruleUpdate(String ruleName, long time, double value) {
-		ruleValues.put(ruleName, value);
-		double output = 0.0;
-		Iterator<String> ir = ruleValues.keySet().iterator();
-		while (ir.hasNext()) {
-			String subruleName = ir.next();
-			double subruleValue = ruleValues.get(subruleName);
-			output += subruleValue;
-		}
-		if (ruleValues.size() == 0)
-			return 0.0;
-		// normally the average of the subrule values but could be weighted
-		output /= (ruleValues.size());
+		int index = getSubruleIndex(ruleName);
+		if (index < 0)
+			index = add(ruleName);
+		subruleValues[index] = value;
+		double output = combine();
 		
 		slogger.create().info().level(3).block("subruleUpdate")
 			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, output))
@@ -96,6 +85,27 @@ public class Conjunct implements Rule {
 		return output;
 		
 	}
+
+	public int getSubruleIndex(String ruleName) {
+		for (int i = 0; i < nsubrules; i++) {
+			if (subruleNames.get(i).equals(ruleName))
+				return i;
+		}
+		return -1;
+	}
+
+	public void setSubruleValue(int index, double value) {
+		subruleValues[index] = value;
+	}
+
+	public double evaluate(long time) {
+		double output = combine();
+
+		slogger.create().info().level(3).block("evaluate")
+			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, output))
+			.send();
+		return output;
+	}
 	
 	/**
 	 * Add a feed-in subrule for this conjunct.
@@ -104,7 +114,32 @@ public class Conjunct implements Rule {
 	 *            The subrule which feeds in.
 	 */
 	public void addSubrule(Rule subrule) {
-		ruleValues.put(subrule.getRuleName(), new Double(0.0));
+		int index = getSubruleIndex(subrule.getRuleName());
+		if (index < 0)
+			index = add(subrule.getRuleName());
+		subruleValues[index] = 0.0;
+	}
+
+	/** Add a slot for a subrule. */
+	private int add(String ruleName) {
+		if (nsubrules == subruleValues.length) {
+			double[] grown = new double[2 * nsubrules];
+			System.arraycopy(subruleValues, 0, grown, 0, nsubrules);
+			subruleValues = grown;
+		}
+		subruleNames.add(ruleName);
+		return nsubrules++;
+	}
+
+	/** Combine the subrule outputs. */
+	private double combine() {
+		double output = 0.0;
+		for (int i = 0; i < nsubrules; i++)
+			output += subruleValues[i];
+		if (nsubrules == 0)
+			return 0.0;
+		// normally the average of the subrule values but could be weighted
+		return output / nsubrules;
 	}
 
 	public String toString() {return "CONJUNCT: "+name;}
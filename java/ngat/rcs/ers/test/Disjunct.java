@@ -3,9 +3,8 @@
  */
 package ngat.rcs.ers.test;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.Vector;
 
 import ngat.rcs.ers.Rule;
 import ngat.util.logging.LogGenerator;
@@ -16,12 +15,18 @@ import ngat.util.logging.Logger;
  * @author eng
  * 
  */
-public class Disjunct implements Rule {
+public class Disjunct implements CompoundRule {
 
 	private String name;
 
-	Map<String, Double> ruleValues;
+	/** Names of the subrules, by slot. */
+	private List<String> subruleNames;
 
+	/** Latest output of each subrule, by slot. */
+	private double[] subruleValues;
+
+	private int nsubrules;
+	
 	/** Logger. */
 	private transient LogGenerator slogger;
 	
@@ -30,13 +35,15 @@ public class Disjunct implements Rule {
 	 */
 	public Disjunct(String name) {
 		this.name = name;
-		ruleValues = new HashMap<String, Double>();
+		subruleNames = new Vector<String>();
+		subruleValues = new double[4];
 		
 		Logger alogger = LogManager.getLogger("ERS"); 
 		slogger = alogger.generate().system("RCS")
 					.subSystem("Reactive")
 					.srcCompClass(this.getClass().getSimpleName())
 					.srcCompId(name);
+		
 	}
 
 	/*
@@ -56,54 +63,85 @@ public class Disjunct implements Rule {
 	 * @see ngat.rcs.ers.Rule#ruleUpdate(long, boolean)
 	 */
 	public double ruleUpdate(long time, boolean criterion) {
-		double max = 0.0;
-		Iterator<String> ir = ruleValues.keySet().iterator();
-		while (ir.hasNext()) {
-			String subruleName = ir.next();
-			double subruleValue = ruleValues.get(subruleName);
-			if (subruleValue > max)
-				max = subruleValue;
-		}
-
-		// normally the highest of the subrule outputs but could be weighted.
-		
+		double output = combine();
+	
 		slogger.create().info().level(3).block("ruleUpdate")
-			.msg(String.format("%6s t=%tT cas=%4b  out=%4.2f \n",name, time, max))
+			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, output))
 			.send();
 		
-		
-		return max;
+		return output;
 	}
 	
 	public double subruleUpdate(String ruleName, long time, double value) {
-		ruleValues.put(ruleName, value);
-		double max = 0.0;
-		Iterator<String> ir = ruleValues.keySet().iterator();
-		while (ir.hasNext()) {
-			String subruleName = ir.next();
-			double subruleValue = ruleValues.get(subruleName);
-			if (subruleValue > max)
-				max = subruleValue;
-		}
-
-		// normally the highest of the subrule outputs but could be weighted.
-	
+		int index = getSubruleIndex(ruleName);
+		if (index < 0)
+			index = add(ruleName);
+		subruleValues[index] = value;
+		double output = combine();
+		
 		slogger.create().info().level(3).block("subruleUpdate")
-			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, max))
+			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, output))
 			.send();
+		return output;
 		
-		
-		return max;
 	}
+
+	public int getSubruleIndex(String ruleName) {
+		for (int i = 0; i < nsubrules; i++) {
+			if (subruleNames.get(i).equals(ruleName))
+				return i;
+		}
+		return -1;
+	}
+
+	public void setSubruleValue(int index, double value) {
+		subruleValues[index] = value;
+	}
+
+	public double evaluate(long time) {
+		double output = combine();
+
+		slogger.create().info().level(3).block("evaluate")
+			.msg(String.format("%6s t=%tT out=%4.2f \n",name, time, output))
+			.send();
+		return output;
+	}
+	
 	/**
-	 * Add a feed-in subrule for this conjunct.
+	 * Add a feed-in subrule for this disjunct.
 	 * 
 	 * @param subrule
 	 *            The subrule which feeds in.
 	 */
 	public void addSubrule(Rule subrule) {
-		ruleValues.put(subrule.getRuleName(), new Double(0.0));
+		int index = getSubruleIndex(subrule.getRuleName());
+		if (index < 0)
+			index = add(subrule.getRuleName());
+		subruleValues[index] = 0.0;
 	}
-	
+
+	/** Add a slot for a subrule. */
+	private int add(String ruleName) {
+		if (nsubrules == subruleValues.length) {
+			double[] grown = new double[2 * nsubrules];
+			System.arraycopy(subruleValues, 0, grown, 0, nsubrules);
+			subruleValues = grown;
+		}
+		subruleNames.add(ruleName);
+		return nsubrules++;
+	}
+
+	/** Combine the subrule outputs. */
+	private double combine() {
+		double max = 0.0;
+		for (int i = 0; i < nsubrules; i++) {
+			if (subruleValues[i] > max)
+				max = subruleValues[i];
+		}
+		// normally the highest of the subrule outputs but could be weighted.
+		return max;
+	}
+
 	public String toString() {return "DISJUNCT: "+name;}
+	
 }
@@ -0,0 +1,199 @@
+/**
+ *
+ */
+package ngat.rcs.ers.test;
+
+import java.util.List;
+import java.util.Vector;
+
+import ngat.astrometry.SolarCycleStatus;
+import ngat.net.telemetry.StatusCategory;
+import ngat.rcs.ers.replay.ReplayEngine;
+import ngat.rcs.ers.replay.StatusSource;
+import ngat.rcs.ers.replay.StatusTimeline;
+import ngat.rcs.newstatemodel.PowerCycleStatus;
+
+/**
+ * Checks the parts of the replay engine which need no archive or rulebase:
+ * expansion of --sweep specifications, and the joins between timeline chunks
+ * and the synthetic solar and power cycle status generated on the simulated
+ * clock. Exits non-zero if any check fails.
+ * <p>
+ * java ngat.rcs.ers.test.ReplayTest
+ *
+ * @author eng
+ *
+ */
+public class ReplayTest {
+
+	/** Number of failed checks. */
+	private static int failures;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		try {
+			testSweep();
+			testChunkEdges();
+			testSyntheticTicks();
+		} catch (Exception e) {
+			e.printStackTrace();
+			failures++;
+		}
+
+		if (failures > 0) {
+			System.err.println("ReplayTest: " + failures + " check(s) FAILED");
+			System.exit(1);
+		}
+		System.err.println("ReplayTest: all checks passed");
+	}
+
+	/** Every combination of swept values, the last parameter varying fastest. */
+	private static void testSweep() {
+		List<String[]> none = ReplayEngine.parseSweep(null);
+		check("sweep: none", none.size() == 1 && none.get(0).length == 0);
+		check("sweep: blank", ReplayEngine.parseSweep("  ").size() == 1);
+
+		List<String[]> sweep = ReplayEngine.parseSweep("wind=10,15; hum = 70,80,90 ");
+		check("sweep: combinations", sweep.size() == 6);
+		check("sweep: first", equal(sweep.get(0), new String[] { "wind", "10", "hum", "70" }));
+		check("sweep: second", equal(sweep.get(1), new String[] { "wind", "10", "hum", "80" }));
+		check("sweep: last", equal(sweep.get(5), new String[] { "wind", "15", "hum", "90" }));
+
+		try {
+			ReplayEngine.parseSweep("=10,15");
+			check("sweep: no name rejected", false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			ReplayEngine.parseSweep("wind");
+			check("sweep: no values rejected", false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Consecutive chunks join up: status on a chunk boundary is in the later
+	 * chunk only, status a source returns from outside the chunk is dropped
+	 * and each chunk is in time order.
+	 */
+	private static void testChunkEdges() throws Exception {
+		List<StatusSource> sources = new Vector<StatusSource>();
+		sources.add(new FixedSource(new long[] { 1500, 0, 999, 1000, 1999, 2000, 500 }));
+		sources.add(new FixedSource(new long[] { 1000, 250 }));
+		StatusTimeline timeline = new StatusTimeline(sources, 0L, 0L, 0L);
+
+		List<StatusCategory> first = timeline.read(0L, 1000L);
+		List<StatusCategory> second = timeline.read(1000L, 2000L);
+		check("edges: first chunk", equal(times(first), new long[] { 0, 250, 500, 999 }));
+		check("edges: second chunk", equal(times(second), new long[] { 1000, 1000, 1500, 1999 }));
+		check("edges: equal times keep source order", ((ArchivedStatus) second.get(0)).source == 0
+				&& ((ArchivedStatus) second.get(1)).source == 1);
+		check("edges: empty chunk", timeline.read(3000L, 4000L).isEmpty());
+	}
+
+	/**
+	 * Synthetic status is generated at whole intervals from the start of the
+	 * replay, once each however the timeline is chunked.
+	 */
+	private static void testSyntheticTicks() throws Exception {
+		List<StatusSource> sources = new Vector<StatusSource>();
+		StatusTimeline timeline = new StatusTimeline(sources, 500L, 300L, 400L);
+
+		List<StatusCategory> all = new Vector<StatusCategory>();
+		all.addAll(timeline.read(500L, 1100L));
+		all.addAll(timeline.read(1100L, 1250L));
+		all.addAll(timeline.read(1250L, 1700L));
+
+		check("ticks: solar", equal(times(all, SolarCycleStatus.class), new long[] { 500, 800, 1100, 1400 }));
+		check("ticks: power", equal(times(all, PowerCycleStatus.class), new long[] { 500, 900, 1300 }));
+		check("ticks: in order", equal(times(all), new long[] { 500, 500, 800, 900, 1100, 1300, 1400 }));
+
+		// a chunk starting between ticks picks up the next whole interval
+		check("ticks: mid-interval start", equal(times(timeline.read(1450L, 1800L), SolarCycleStatus.class),
+				new long[] { 1700 }));
+
+		// no ticks before the start of the replay
+		check("ticks: none before start", equal(times(timeline.read(0L, 600L), PowerCycleStatus.class),
+				new long[] { 500 }));
+
+		StatusTimeline quiet = new StatusTimeline(sources, 500L, 0L, 0L);
+		check("ticks: disabled", quiet.read(500L, 5000L).isEmpty());
+	}
+
+	private static long[] times(List<StatusCategory> list) {
+		return times(list, StatusCategory.class);
+	}
+
+	/** @return The timestamps of the status of the specified class. */
+	private static long[] times(List<StatusCategory> list, Class type) {
+		List<StatusCategory> matched = new Vector<StatusCategory>();
+		for (int i = 0; i < list.size(); i++) {
+			if (type.isInstance(list.get(i)))
+				matched.add(list.get(i));
+		}
+		long[] times = new long[matched.size()];
+		for (int i = 0; i < times.length; i++)
+			times[i] = matched.get(i).getStatusTimeStamp();
+		return times;
+	}
+
+	private static boolean equal(long[] a, long[] b) {
+		return java.util.Arrays.equals(a, b);
+	}
+
+	private static boolean equal(String[] a, String[] b) {
+		return java.util.Arrays.equals(a, b);
+	}
+
+	private static void check(String name, boolean ok) {
+		if (!ok) {
+			System.err.println("FAIL: " + name);
+			failures++;
+		}
+	}
+
+	/** Returns its status whatever period is asked for. */
+	private static class FixedSource implements StatusSource {
+
+		private static int nsources;
+
+		private List<StatusCategory> list = new Vector<StatusCategory>();
+
+		FixedSource(long[] times) {
+			int source = nsources++;
+			for (int i = 0; i < times.length; i++)
+				list.add(new ArchivedStatus(source, times[i]));
+		}
+
+		public List<StatusCategory> getStatus(long t1, long t2) {
+			return list;
+		}
+	}
+
+	/** Archived status from a numbered source. */
+	private static class ArchivedStatus implements StatusCategory {
+
+		int source;
+
+		long time;
+
+		ArchivedStatus(int source, long time) {
+			this.source = source;
+			this.time = time;
+		}
+
+		public String getCategoryName() {
+			return "TEST";
+		}
+
+		public long getStatusTimeStamp() {
+			return time;
+		}
+	}
+
+}
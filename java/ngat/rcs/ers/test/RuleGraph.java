@@ -0,0 +1,314 @@
+/**
+ *
+ */
+package ngat.rcs.ers.test;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import ngat.rcs.ers.Criterion;
+import ngat.rcs.ers.Filter;
+import ngat.rcs.ers.Rule;
+
+/**
+ * The filter, criterion, rule and super-rule graph of a reactive system
+ * compiled into integer-indexed arrays. Each filter has an array of the
+ * criteria it feeds, each criterion the rule it feeds, and each rule its
+ * super-rule and its slot in the super-rule. Rules are ranked in topological
+ * order, subrules before super-rules.
+ * <p>
+ * A filter update touches only the criteria, rules and super-rules above that
+ * filter. Each affected super-rule is recombined once, after all its affected
+ * subrules, so the cost of an update depends on the fan-out above the filter
+ * rather than on the size of the rulebase.
+ *
+ * @author eng
+ *
+ */
+public class RuleGraph {
+
+	/** Receives the outputs of the criteria and rules as they are updated. */
+	public interface Listener {
+
+		public void criterionUpdated(String critName, long time, boolean critOutputValue);
+
+		public void ruleUpdated(String ruleName, long time, boolean ruleOutputValue);
+	}
+
+	/** Filter indices, keyed by filter instance. */
+	private Map<Filter, Integer> filterIndex;
+
+	/** Criteria fed by each filter. */
+	private int[][] filterCriteria;
+
+	private Criterion[] criteria;
+
+	private String[] criterionNames;
+
+	/** Rule fed by each criterion, -1 if none. */
+	private int[] criterionRule;
+
+	private Rule[] rules;
+
+	private String[] ruleNames;
+
+	/** Super-rule of each rule, -1 if none. */
+	private int[] ruleParent;
+
+	/** Slot of each rule in its super-rule. */
+	private int[] ruleSlot;
+
+	/** Position of each rule in the topological order. */
+	private int[] rank;
+
+	/** Rules in topological order. */
+	private int[] order;
+
+	/** Super-rules waiting to be recombined, a heap ordered by rank. */
+	private int[] pending;
+
+	private int npending;
+
+	/** Update generation in which each rule was last made pending. */
+	private int[] stamp;
+
+	private int generation;
+
+	/**
+	 * Compile a rule graph.
+	 *
+	 * @param filters
+	 *            Filters, keyed by name.
+	 * @param filterToCriterion
+	 *            Criteria fed by each filter, keyed by filter name.
+	 * @param criterionToRule
+	 *            Rule fed by each criterion, keyed by criterion name.
+	 * @param ruleToRule
+	 *            Super-rule of each subrule, keyed by subrule name.
+	 * @throws IllegalArgumentException
+	 *             If the rules form a cycle.
+	 */
+	public RuleGraph(Map<String, Filter> filters, Map<String, List<Criterion>> filterToCriterion,
+			Map<String, Rule> criterionToRule, Map<String, Rule> ruleToRule) {
+
+		// number the rules
+		Map<String, Integer> ruleIndex = new HashMap<String, Integer>();
+		List<Rule> ruleList = new Vector<Rule>();
+		Iterator<Rule> ir = criterionToRule.values().iterator();
+		while (ir.hasNext())
+			number(ir.next(), ruleIndex, ruleList);
+		ir = ruleToRule.values().iterator();
+		while (ir.hasNext())
+			number(ir.next(), ruleIndex, ruleList);
+		rules = ruleList.toArray(new Rule[ruleList.size()]);
+		int nrules = rules.length;
+		ruleNames = new String[nrules];
+		for (int r = 0; r < nrules; r++)
+			ruleNames[r] = rules[r].getRuleName();
+
+		// link subrules to super-rules
+		ruleParent = new int[nrules];
+		ruleSlot = new int[nrules];
+		int[] nchildren = new int[nrules];
+		for (int r = 0; r < nrules; r++) {
+			ruleParent[r] = -1;
+			Rule parent = ruleToRule.get(ruleNames[r]);
+			if (!(parent instanceof CompoundRule))
+				continue;
+			int slot = ((CompoundRule) parent).getSubruleIndex(ruleNames[r]);
+			if (slot < 0)
+				continue;
+			ruleParent[r] = ruleIndex.get(parent.getRuleName()).intValue();
+			ruleSlot[r] = slot;
+			nchildren[ruleParent[r]]++;
+		}
+
+		// rank the rules, subrules first
+		rank = new int[nrules];
+		order = new int[nrules];
+		int head = 0;
+		int tail = 0;
+		for (int r = 0; r < nrules; r++) {
+			if (nchildren[r] == 0)
+				order[tail++] = r;
+		}
+		while (head < tail) {
+			int r = order[head];
+			rank[r] = head++;
+			int p = ruleParent[r];
+			if (p >= 0 && --nchildren[p] == 0)
+				order[tail++] = p;
+		}
+		if (tail < nrules) {
+			for (int r = 0; r < nrules; r++) {
+				if (nchildren[r] > 0)
+					throw new IllegalArgumentException("Rule cycle through: " + ruleNames[r]);
+			}
+		}
+
+		// number the criteria and link them to rules
+		Map<Criterion, Integer> criterionIndex = new IdentityHashMap<Criterion, Integer>();
+		List<Criterion> criterionList = new Vector<Criterion>();
+		Iterator<List<Criterion>> ic = filterToCriterion.values().iterator();
+		while (ic.hasNext()) {
+			List<Criterion> clist = ic.next();
+			for (int i = 0; i < clist.size(); i++) {
+				Criterion crit = clist.get(i);
+				if (!criterionIndex.containsKey(crit)) {
+					criterionIndex.put(crit, new Integer(criterionList.size()));
+					criterionList.add(crit);
+				}
+			}
+		}
+		criteria = criterionList.toArray(new Criterion[criterionList.size()]);
+		criterionNames = new String[criteria.length];
+		criterionRule = new int[criteria.length];
+		for (int c = 0; c < criteria.length; c++) {
+			criterionNames[c] = criteria[c].getCriterionName();
+			Rule rule = criterionToRule.get(criterionNames[c]);
+			criterionRule[c] = (rule == null ? -1 : ruleIndex.get(rule.getRuleName()).intValue());
+		}
+
+		// link the filters to criteria
+		filterIndex = new IdentityHashMap<Filter, Integer>();
+		filterCriteria = new int[filters.size()][];
+		Iterator<Filter> iff = filters.values().iterator();
+		while (iff.hasNext()) {
+			Filter filter = iff.next();
+			int f = filterIndex.size();
+			filterIndex.put(filter, new Integer(f));
+			List<Criterion> clist = filterToCriterion.get(filter.getFilterName());
+			int n = (clist == null ? 0 : clist.size());
+			filterCriteria[f] = new int[n];
+			for (int i = 0; i < n; i++)
+				filterCriteria[f][i] = criterionIndex.get(clist.get(i)).intValue();
+		}
+
+		pending = new int[nrules];
+		stamp = new int[nrules];
+	}
+
+	/** @return The number of filters. */
+	public int getFilterCount() {
+		return filterCriteria.length;
+	}
+
+	/** @return The number of criteria. */
+	public int getCriterionCount() {
+		return criteria.length;
+	}
+
+	/** @return The number of rules. */
+	public int getRuleCount() {
+		return rules.length;
+	}
+
+	/** @return The names of the rules in topological order, subrules first. */
+	public List<String> getRuleOrder() {
+		List<String> list = new Vector<String>();
+		for (int i = 0; i < order.length; i++)
+			list.add(ruleNames[order[i]]);
+		return list;
+	}
+
+	/**
+	 * Pass a filter's new output up the graph. Updates each criterion the
+	 * filter feeds and the rule it feeds, then recombines each super-rule
+	 * above those rules once, subrules first.
+	 *
+	 * @param filter
+	 *            The filter.
+	 * @param time
+	 *            Time of the update.
+	 * @param value
+	 *            The filter's output, widened if the filter is discrete.
+	 * @param listener
+	 *            Receives the new criterion and rule outputs.
+	 */
+	public void filterUpdated(Filter filter, long time, double value, Listener listener) {
+		Integer f = filterIndex.get(filter);
+		if (f == null)
+			return;
+
+		if (++generation == Integer.MAX_VALUE) {
+			generation = 1;
+			for (int r = 0; r < stamp.length; r++)
+				stamp[r] = 0;
+		}
+
+		int[] crits = filterCriteria[f.intValue()];
+		for (int i = 0; i < crits.length; i++) {
+			int c = crits[i];
+			boolean critValue = criteria[c].criterionUpdate(time, value);
+			listener.criterionUpdated(criterionNames[c], time, critValue);
+			int r = criterionRule[c];
+			if (r < 0)
+				continue;
+			double ruleValue = rules[r].ruleUpdate(time, critValue);
+			listener.ruleUpdated(ruleNames[r], time, (ruleValue > 0.99));
+			feed(r, ruleValue);
+		}
+
+		while (npending > 0) {
+			int p = take();
+			double ruleValue = ((CompoundRule) rules[p]).evaluate(time);
+			listener.ruleUpdated(ruleNames[p], time, (ruleValue > 0.99));
+			feed(p, ruleValue);
+		}
+	}
+
+	/** Pass a rule's output to its super-rule and mark the super-rule pending. */
+	private void feed(int r, double value) {
+		int p = ruleParent[r];
+		if (p < 0)
+			return;
+		((CompoundRule) rules[p]).setSubruleValue(ruleSlot[r], value);
+		if (stamp[p] == generation)
+			return;
+		stamp[p] = generation;
+
+		// sift up by rank
+		int i = npending++;
+		while (i > 0) {
+			int up = (i - 1) / 2;
+			if (rank[pending[up]] <= rank[p])
+				break;
+			pending[i] = pending[up];
+			i = up;
+		}
+		pending[i] = p;
+	}
+
+	/** @return The pending rule of lowest rank, removed from the heap. */
+	private int take() {
+		int top = pending[0];
+		int last = pending[--npending];
+		int i = 0;
+		while (true) {
+			int down = 2 * i + 1;
+			if (down >= npending)
+				break;
+			if (down + 1 < npending && rank[pending[down + 1]] < rank[pending[down]])
+				down++;
+			if (rank[pending[down]] >= rank[last])
+				break;
+			pending[i] = pending[down];
+			i = down;
+		}
+		pending[i] = last;
+		return top;
+	}
+
+	/** Give a rule the next index if it has none. */
+	private static void number(Rule rule, Map<String, Integer> ruleIndex, List<Rule> ruleList) {
+		if (rule == null || ruleIndex.containsKey(rule.getRuleName()))
+			return;
+		ruleIndex.put(rule.getRuleName(), new Integer(ruleList.size()));
+		ruleList.add(rule);
+	}
+
+}
@@ -0,0 +1,388 @@
+/*
+    Copyright 2006, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of Robotic Control System.
+
+     Robotic Control Systemis free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Robotic Control System is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Robotic Control System; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package ngat.rcs.iss;
+
+import ngat.rcs.scm.collation.*;
+import ngat.fits.FitsHeaderCardImage;
+import ngat.util.logging.*;
+
+import java.util.*;
+
+/**
+ * Provides per-request snapshots of the FITS header cards. Tracks the age of
+ * each StatusPool segment the headers depend on so that a request returns as
+ * soon as every segment is fresh enough, waiting only while some segment is
+ * stale and never beyond a deadline. A segment which has not been updated
+ * for longer than the idle age (e.g. the autoguider when not guiding) has no
+ * request outstanding and is not waited for - its last value is used. <br>
+ * <br>
+ * The cards in a snapshot are copies taken under the FITS_HeaderInfo lock, so
+ * they are consistent with each other and are not affected by later updates.
+ */
+public class FITS_HeaderSnapshotService implements StatusSegmentListener {
+
+	public static final String CLASS = "FITS_HeaderSnapshotService";
+
+	/** Default maximum age (millis) of a segment for it to count as fresh. */
+	public static final long DEFAULT_MAX_AGE = 2000L;
+
+	/**
+	 * Default age (millis) beyond which a segment is treated as idle and not
+	 * waited for.
+	 */
+	public static final long DEFAULT_IDLE_AGE = 30000L;
+
+	/** The StatusPool segments the FITS headers are derived from. */
+	public static final int[] HEADER_SEGMENTS = new int[] { StatusPool.STATE_UPDATE_EVENT,
+			StatusPool.SOURCE_UPDATE_EVENT, StatusPool.ASTROMETRY_UPDATE_EVENT, StatusPool.METEOROLOGY_UPDATE_EVENT,
+			StatusPool.TIME_UPDATE_EVENT, StatusPool.MECHANISMS_UPDATE_EVENT, StatusPool.AUTOGUIDER_UPDATE_EVENT };
+
+	/** Static instance. */
+	private static FITS_HeaderSnapshotService instance;
+
+	/** Maximum age (millis) of a segment for it to count as fresh. */
+	private volatile long maxAge = DEFAULT_MAX_AGE;
+
+	/** Age (millis) beyond which a segment is treated as idle. */
+	private volatile long idleAge = DEFAULT_IDLE_AGE;
+
+	/** Signalled whenever a header segment is updated. */
+	private Object updated = new Object();
+
+	/** ISS Logging. */
+	private Logger issLog;
+
+	private FITS_HeaderSnapshotService() {
+		issLog = LogManager.getLogger("ISS");
+	}
+
+	/** @return The singleton instance. */
+	public static synchronized FITS_HeaderSnapshotService getInstance() {
+		if (instance == null)
+			instance = new FITS_HeaderSnapshotService();
+		return instance;
+	}
+
+	/**
+	 * Register with the StatusPool for updates to the header segments. Should
+	 * be called after FITS_HeaderInfo has registered, so that the header cards
+	 * have been updated by the time this service is notified.
+	 */
+	public void initialize() {
+		for (int i = 0; i < HEADER_SEGMENTS.length; i++)
+			StatusPool.register(this, HEADER_SEGMENTS[i]);
+	}
+
+	/**
+	 * @param maxAge
+	 *            Maximum age (millis) of a segment for it to count as fresh.
+	 */
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	/** @return Maximum age (millis) of a segment for it to count as fresh. */
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	/**
+	 * @param idleAge
+	 *            Age (millis) beyond which a segment is treated as idle and
+	 *            not waited for.
+	 */
+	public void setIdleAge(long idleAge) {
+		this.idleAge = idleAge;
+	}
+
+	/** @return Age (millis) beyond which a segment is treated as idle. */
+	public long getIdleAge() {
+		return idleAge;
+	}
+
+	/** Notification from the StatusPool - wake any waiting requests. */
+	public void segmentUpdated(StatusSegmentSnapshot snapshot) {
+		synchronized (updated) {
+			updated.notifyAll();
+		}
+	}
+
+	/**
+	 * Wait until each header segment which is not idle has been published no
+	 * earlier than maxAge before the request time, or until the timeout
+	 * expires. Segments last published more than idleAge before the request
+	 * time are not waited for.
+	 *
+	 * @param requestTime
+	 *            The time the status was requested.
+	 * @param timeout
+	 *            The longest time (millis) to wait.
+	 * @return A list of the update codes (Integer) of any active segments
+	 *         which are still stale, empty if all are fresh.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	public List awaitFresh(long requestTime, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (updated) {
+			while (true) {
+				List stale = findStale(requestTime - maxAge, requestTime - idleAge);
+				long remaining = deadline - System.currentTimeMillis();
+				if (stale.isEmpty() || remaining <= 0)
+					return stale;
+				updated.wait(remaining);
+			}
+		}
+	}
+
+	/**
+	 * @return The codes of any header segments published before the limit
+	 *         but not before the idle limit.
+	 */
+	private List findStale(long limit, long idleLimit) {
+		List stale = new Vector();
+		for (int i = 0; i < HEADER_SEGMENTS.length; i++) {
+			long published = StatusPool.getSegment(HEADER_SEGMENTS[i]).getPublishTime();
+			if (published < limit && published >= idleLimit)
+				stale.add(new Integer(HEADER_SEGMENTS[i]));
+		}
+		return stale;
+	}
+
+	/** @return The codes of any header segments published before the idle limit. */
+	private List findIdle(long idleLimit) {
+		List idle = new Vector();
+		for (int i = 0; i < HEADER_SEGMENTS.length; i++) {
+			if (StatusPool.getSegment(HEADER_SEGMENTS[i]).getPublishTime() < idleLimit)
+				idle.add(new Integer(HEADER_SEGMENTS[i]));
+		}
+		return idle;
+	}
+
+	/**
+	 * Wait for fresh status (see awaitFresh()) then take a snapshot of the
+	 * header cards.
+	 *
+	 * @param requestTime
+	 *            The time the status was requested.
+	 * @param timeout
+	 *            The longest time (millis) to wait for fresh status.
+	 * @return An unmodifiable list of copies of the current header cards.
+	 */
+	public List getFreshHeaders(long requestTime, long timeout) {
+		long start = System.currentTimeMillis();
+		List idle = findIdle(requestTime - idleAge);
+		if (!idle.isEmpty())
+			issLog.log(2, CLASS, "-", "getFreshHeaders", "Not waiting for idle segments: " + idle);
+		try {
+			List stale = awaitFresh(requestTime, timeout);
+			if (stale.isEmpty())
+				issLog.log(2, CLASS, "-", "getFreshHeaders", "All active status segments fresh after "
+						+ (System.currentTimeMillis() - start) + " ms");
+			else
+				issLog.log(2, CLASS, "-", "getFreshHeaders", "Timed out after " + (System.currentTimeMillis() - start)
+						+ " ms with stale segments: " + stale);
+		} catch (InterruptedException ix) {
+			issLog.log(2, CLASS, "-", "getFreshHeaders", "Interrupted waiting for results");
+		}
+		return snapshot();
+	}
+
+	/** @return An unmodifiable list of copies of the current header cards. */
+	public List snapshot() {
+		List cards = new ArrayList();
+		synchronized (FITS_HeaderInfo.getInstance().lock) {
+
+			cards.add(copy(FITS_HeaderInfo.current_TELESCOP));
+			// Planetarium, Robotic, Eng, Manual
+			cards.add(copy(FITS_HeaderInfo.current_TELMODE));
+
+			// Identity.
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_TAGID));
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_USERID));
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_PROGID));
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_PROPID));
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_GROUPID));
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_OBSID));
+
+			cards.add(copy(FITS_HeaderInfo.current_GRPTIMNG));
+			cards.add(copy(FITS_HeaderInfo.current_GRPUID));
+			cards.add(copy(FITS_HeaderInfo.current_GRPMONP));
+			cards.add(copy(FITS_HeaderInfo.current_GRPNUMOB));
+			cards.add(copy(FITS_HeaderInfo.current_GRPSEECO));
+			cards.add(copy(FITS_HeaderInfo.current_GRPSKYCO));
+			cards.add(copy(FITS_HeaderInfo.current_GRPEXTCO));
+			cards.add(copy(FITS_HeaderInfo.current_GRPAIRCO));
+			cards.add(copy(FITS_HeaderInfo.current_GRPMINHA));
+			cards.add(copy(FITS_HeaderInfo.current_GRPMAXHA));
+
+			cards.add(copy(FITS_HeaderInfo.current_GRPEDATE));
+			cards.add(copy(FITS_HeaderInfo.current_GRPNOMEX));
+			cards.add(copy(FITS_HeaderInfo.current_USRDEFOC));
+
+			cards.add(copy(FITS_HeaderInfo.current_LATITUDE));
+			cards.add(copy(FITS_HeaderInfo.current_LONGITUD));
+
+			// Source
+			cards.add(copy(FITS_HeaderInfo.current_RA));
+			cards.add(copy(FITS_HeaderInfo.current_DEC));
+			cards.add(copy(FITS_HeaderInfo.current_RADECSYS));
+			cards.add(copy(FITS_HeaderInfo.current_EQUINOX));
+			cards.add(copy(FITS_HeaderInfo.current_LST));
+			// These are from the source.
+			cards.add(copy(FITS_HeaderInfo.current_CAT_RA));
+			cards.add(copy(FITS_HeaderInfo.current_CAT_DEC));
+			cards.add(copy(FITS_HeaderInfo.current_CAT_EQUI));
+			cards.add(copy(FITS_HeaderInfo.current_CAT_EPOC));
+			cards.add(copy(FITS_HeaderInfo.current_CAT_NAME));
+			cards.add(copy(FITS_HeaderInfo.current_OBJECT));
+			cards.add(copy(FITS_HeaderInfo.current_SRCTYPE));
+			// Some of these apply to Fixed sources others to moving.
+			cards.add(copy(FITS_HeaderInfo.current_PM_RA));
+			cards.add(copy(FITS_HeaderInfo.current_PM_DEC));
+			cards.add(copy(FITS_HeaderInfo.current_PARALLAX));
+			cards.add(copy(FITS_HeaderInfo.current_RADVEL));
+			cards.add(copy(FITS_HeaderInfo.current_RATRACK));
+			cards.add(copy(FITS_HeaderInfo.current_DECTRACK));
+
+			cards.add(copy(FITS_HeaderInfo.current_NETSTATE));
+			cards.add(copy(FITS_HeaderInfo.current_ENGSTATE));
+			cards.add(copy(FITS_HeaderInfo.current_TELSTATE));
+			cards.add(copy(FITS_HeaderInfo.current_TCSSTATE));
+			cards.add(copy(FITS_HeaderInfo.current_PWRESTRT));
+			cards.add(copy(FITS_HeaderInfo.current_PWSHUTDN));
+
+			cards.add(copy(FITS_HeaderInfo.current_AZDMD));
+			cards.add(copy(FITS_HeaderInfo.current_AZPOS));
+			cards.add(copy(FITS_HeaderInfo.current_AZSTAT));
+
+			cards.add(copy(FITS_HeaderInfo.current_ALTDMD));
+			cards.add(copy(FITS_HeaderInfo.current_ALTPOS));
+			cards.add(copy(FITS_HeaderInfo.current_ALTSTAT));
+			cards.add(copy(FITS_HeaderInfo.current_AIRMASS));
+
+			cards.add(copy(FITS_HeaderInfo.current_ROTDMD));
+			cards.add(copy(FITS_HeaderInfo.current_ROTPOS));
+			cards.add(copy(FITS_HeaderInfo.current_ROTMODE));
+			cards.add(copy(FITS_HeaderInfo.current_ROTSKYPA));
+			cards.add(copy(FITS_HeaderInfo.current_ROTSTAT));
+
+			cards.add(copy(FITS_HeaderInfo.current_ENC1DMD));
+			cards.add(copy(FITS_HeaderInfo.current_ENC1POS));
+			cards.add(copy(FITS_HeaderInfo.current_ENC1STAT));
+
+			cards.add(copy(FITS_HeaderInfo.current_ENC2DMD));
+			cards.add(copy(FITS_HeaderInfo.current_ENC2POS));
+			cards.add(copy(FITS_HeaderInfo.current_ENC2STAT));
+
+			cards.add(copy(FITS_HeaderInfo.current_FOLDDMD));
+			cards.add(copy(FITS_HeaderInfo.current_FOLDPOS));
+			cards.add(copy(FITS_HeaderInfo.current_FOLDSTAT));
+
+			cards.add(copy(FITS_HeaderInfo.current_PMCDMD));
+			cards.add(copy(FITS_HeaderInfo.current_PMCPOS));
+			cards.add(copy(FITS_HeaderInfo.current_PMCSTAT));
+
+			cards.add(copy(FITS_HeaderInfo.current_FOCDMD));
+			cards.add(copy(FITS_HeaderInfo.current_TELFOCUS));
+			cards.add(copy(FITS_HeaderInfo.current_DFOCUS));
+			cards.add(copy(FITS_HeaderInfo.current_FOCSTAT));
+			cards.add(copy(FITS_HeaderInfo.current_MIRSYSST));
+
+			cards.add(copy(FITS_HeaderInfo.current_WMSSTAT));
+			cards.add(copy(FITS_HeaderInfo.current_WMSRAIN));
+			cards.add(copy(FITS_HeaderInfo.current_WMSMOIST));
+
+			cards.add(copy(FITS_HeaderInfo.current_TEMPTUBE));
+
+			cards.add(copy(FITS_HeaderInfo.current_WMOILTMP));
+			cards.add(copy(FITS_HeaderInfo.current_WMSPMT));
+			cards.add(copy(FITS_HeaderInfo.current_WMFOCTMP));
+			cards.add(copy(FITS_HeaderInfo.current_WMAGBTMP));
+
+			cards.add(copy(FITS_HeaderInfo.current_WMSTEMP));
+			cards.add(copy(FITS_HeaderInfo.current_WMSDEWPT));
+
+			cards.add(copy(FITS_HeaderInfo.current_WINDSPEE));
+			cards.add(copy(FITS_HeaderInfo.current_WMSPRES));
+			cards.add(copy(FITS_HeaderInfo.current_WMSHUMID));
+			cards.add(copy(FITS_HeaderInfo.current_WINDDIR));
+			cards.add(copy(FITS_HeaderInfo.current_CLOUD));
+
+			cards.add(copy(FITS_HeaderInfo.current_REFPRES));
+			cards.add(copy(FITS_HeaderInfo.current_REFTEMP));
+			cards.add(copy(FITS_HeaderInfo.current_REFHUMID));
+
+			cards.add(copy(FITS_HeaderInfo.current_AUTOGUID));
+			cards.add(copy(FITS_HeaderInfo.current_AGSTATE));
+			cards.add(copy(FITS_HeaderInfo.current_AGMODE));
+			cards.add(copy(FITS_HeaderInfo.current_AGGMAG));
+			cards.add(copy(FITS_HeaderInfo.current_AGFWHM));
+			cards.add(copy(FITS_HeaderInfo.current_AGMIRDMD));
+			cards.add(copy(FITS_HeaderInfo.current_AGMIRPOS));
+			cards.add(copy(FITS_HeaderInfo.current_AGMIRST));
+			cards.add(copy(FITS_HeaderInfo.current_AGFOCDMD));
+			cards.add(copy(FITS_HeaderInfo.current_AGFOCUS));
+			cards.add(copy(FITS_HeaderInfo.current_AGFOCST));
+			cards.add(copy(FITS_HeaderInfo.current_AGFILDMD));
+			cards.add(copy(FITS_HeaderInfo.current_AGFILPOS));
+			cards.add(copy(FITS_HeaderInfo.current_AGFILST));
+
+			// Sky.
+			cards.add(copy(FITS_HeaderInfo.current_SCHEDSEE));
+			cards.add(copy(FITS_HeaderInfo.current_SCHEDPHT));
+			cards.add(copy(FITS_HeaderInfo.current_SCHEDSKY));
+			cards.add(copy(FITS_HeaderInfo.current_ESTSEE));
+
+			// Moon.
+			cards.add(copy(FITS_HeaderInfo.current_MOONFRAC));
+			cards.add(copy(FITS_HeaderInfo.current_MOONDIST));
+			cards.add(copy(FITS_HeaderInfo.current_MOONALT));
+
+			// Sun
+			cards.add(copy(FITS_HeaderInfo.current_SUNALT));
+
+			// Misc
+			cards.add(copyOrUnknown(FITS_HeaderInfo.current_ACQIMG));
+			cards.add(copy(FITS_HeaderInfo.current_ACQMODE));
+			cards.add(copy(FITS_HeaderInfo.current_ACQXPIX));
+			cards.add(copy(FITS_HeaderInfo.current_ACQYPIX));
+			cards.add(copy(FITS_HeaderInfo.current_ACQINST));
+
+			cards.add(copy(FITS_HeaderInfo.current_BFOCCTRL));
+		}
+		return Collections.unmodifiableList(cards);
+	}
+
+	/** @return A copy of the card. */
+	private static FitsHeaderCardImage copy(FitsHeaderCardImage card) {
+		return new FitsHeaderCardImage(card.getKeyword(), card.getValue(), card.getComment(), card.getUnits(), card
+				.getOrderNumber());
+	}
+
+	/** @return A copy of the card with its value set to UNKNOWN if not set. */
+	private static FitsHeaderCardImage copyOrUnknown(FitsHeaderCardImage card) {
+		FitsHeaderCardImage copy = copy(card);
+		if (copy.getValue() == null)
+			copy.setValue("UNKNOWN");
+		return copy;
+	}
+
+}
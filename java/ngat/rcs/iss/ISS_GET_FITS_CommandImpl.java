@@ -76,229 +76,25 @@ public class ISS_GET_FITS_CommandImpl extends ISS_CommandImpl {
 
 		// ### START NEW FORMAT
 
+		long requestTime = System.currentTimeMillis();
 		((BasicTelescope)RCS_Controller.controller.getTelescope()).checkServices();
 		
 		// ### END NEW FORMAT
 
-		issLog.log(2, CLASS, "-", "processReceivedCommand", "All Requestors are running with timeout "
-				+ (STATUS_TIMEOUT / 1000) + " secs");
-
-		// Wait till all requests are in or timedout.
-		/*try {
-			c_State.waitFor(STATUS_TIMEOUT);
-			c_Source.waitFor(STATUS_TIMEOUT);
-			c_Astrometry.waitFor(STATUS_TIMEOUT);
-			c_Meteorology.waitFor(STATUS_TIMEOUT);
-			c_Time.waitFor(STATUS_TIMEOUT);
-			c_Mechanisms.waitFor(STATUS_TIMEOUT);
-			c_Autoguider.waitFor(STATUS_TIMEOUT);
-		} catch (InterruptedException ix) {
-			issLog.log(2, CLASS, "-", "processReceivedCommand", "Interrupted waiting for results");
-
-		}*/
-		
-		// wait for the status updates to propagate back to where they need to go...
-		// Basically, each TCS collator has to send a command, the received reply is parsed and handed to 
+		issLog.log(2, CLASS, "-", "processReceivedCommand", "Requested telescope status, waiting up to "
+				+ (STATUS_TIMEOUT / 1000) + " secs for any stale active segments");
+
+		// Each TCS collator has to send a command, the received reply is parsed and handed to 
 		// a waiting handler which update the telescope object which then propagates to StatusPool and thence to 
-		// the fits headers repository - this should probably register itslef for updates from scope ?
+		// the fits headers repository. We wait only while some segment the headers depend on is stale,
+		// segments which have not been updated recently (e.g. autoguider when not guiding) are not waited for.
 		// If they are not back in time then too bad we cant wait around
-		try {
-			Thread.sleep(STATUS_TIMEOUT);
-		} catch (InterruptedException ix) {
-			issLog.log(2, CLASS, "-", "processReceivedCommand", "Interrupted waiting for results");
-		}
+		List cards = FITS_HeaderSnapshotService.getInstance().getFreshHeaders(requestTime, STATUS_TIMEOUT);
 		
-		issLog.log(2, CLASS, "-", "processReceivedCommand", "All status results are back or timed out");
+		issLog.log(2, CLASS, "-", "processReceivedCommand", "Active status segments are fresh or timed out");
 
 		// Get the Fits info from the local data and TCS-Status.
-		list.add(FITS_HeaderInfo.current_TELESCOP);
-		// Planetarium, Robotic, Eng, Manual
-		list.add(FITS_HeaderInfo.current_TELMODE);
-
-		// Identity.
-		if (FITS_HeaderInfo.current_TAGID.getValue() == null)
-			FITS_HeaderInfo.current_TAGID.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_TAGID);
-
-		if (FITS_HeaderInfo.current_USERID.getValue() == null)
-			FITS_HeaderInfo.current_USERID.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_USERID);
-
-		if (FITS_HeaderInfo.current_PROGID.getValue() == null)
-			FITS_HeaderInfo.current_PROGID.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_PROGID);
-
-		if (FITS_HeaderInfo.current_PROPID.getValue() == null)
-			FITS_HeaderInfo.current_PROPID.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_PROPID);
-
-		if (FITS_HeaderInfo.current_GROUPID.getValue() == null)
-			FITS_HeaderInfo.current_GROUPID.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_GROUPID);
-
-		if (FITS_HeaderInfo.current_OBSID.getValue() == null)
-			FITS_HeaderInfo.current_OBSID.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_OBSID);
-
-		list.add(FITS_HeaderInfo.current_GRPTIMNG);
-		list.add(FITS_HeaderInfo.current_GRPUID);
-		list.add(FITS_HeaderInfo.current_GRPMONP);
-		list.add(FITS_HeaderInfo.current_GRPNUMOB);
-		list.add(FITS_HeaderInfo.current_GRPSEECO);
-		//list.add(FITS_HeaderInfo.current_GRPLUNCO);
-		//list.add(FITS_HeaderInfo.current_GRPMLDCO);
-		//list.add(FITS_HeaderInfo.current_GRPSOLCO);
-		list.add(FITS_HeaderInfo.current_GRPSKYCO);
-		list.add(FITS_HeaderInfo.current_GRPEXTCO);
-		list.add(FITS_HeaderInfo.current_GRPAIRCO);
-		list.add(FITS_HeaderInfo.current_GRPMINHA);
-		list.add(FITS_HeaderInfo.current_GRPMAXHA);
-		
-		list.add(FITS_HeaderInfo.current_GRPEDATE);
-		list.add(FITS_HeaderInfo.current_GRPNOMEX);
-		list.add(FITS_HeaderInfo.current_USRDEFOC);
-		
-		// This is used for data compression. get AMATEUR from TAG ?
-		//list.add(FITS_HeaderInfo.current_COMPRESS);
-
-		list.add(FITS_HeaderInfo.current_LATITUDE);
-		list.add(FITS_HeaderInfo.current_LONGITUD);
-
-		// Source
-		list.add(FITS_HeaderInfo.current_RA);
-		list.add(FITS_HeaderInfo.current_DEC);
-		// list.add(FITS_HeaderInfo.current_APP_RA);
-		// list.add(FITS_HeaderInfo.current_APP_DEC);
-		list.add(FITS_HeaderInfo.current_RADECSYS);
-		list.add(FITS_HeaderInfo.current_EQUINOX);
-		list.add(FITS_HeaderInfo.current_LST);
-		// These are from the source.
-		list.add(FITS_HeaderInfo.current_CAT_RA);
-		list.add(FITS_HeaderInfo.current_CAT_DEC);
-		list.add(FITS_HeaderInfo.current_CAT_EQUI);
-		list.add(FITS_HeaderInfo.current_CAT_EPOC);
-		list.add(FITS_HeaderInfo.current_CAT_NAME);
-		list.add(FITS_HeaderInfo.current_OBJECT);
-		list.add(FITS_HeaderInfo.current_SRCTYPE);
-		// Some of these apply to Fixed sources others to moving.
-		list.add(FITS_HeaderInfo.current_PM_RA);
-		list.add(FITS_HeaderInfo.current_PM_DEC);
-		list.add(FITS_HeaderInfo.current_PARALLAX);
-		list.add(FITS_HeaderInfo.current_RADVEL);
-		list.add(FITS_HeaderInfo.current_RATRACK);
-		list.add(FITS_HeaderInfo.current_DECTRACK);
-
-		list.add(FITS_HeaderInfo.current_NETSTATE);
-		list.add(FITS_HeaderInfo.current_ENGSTATE);
-		list.add(FITS_HeaderInfo.current_TELSTATE);
-		list.add(FITS_HeaderInfo.current_TCSSTATE);
-		list.add(FITS_HeaderInfo.current_PWRESTRT);
-		list.add(FITS_HeaderInfo.current_PWSHUTDN);
-
-		list.add(FITS_HeaderInfo.current_AZDMD);
-		list.add(FITS_HeaderInfo.current_AZPOS);
-		list.add(FITS_HeaderInfo.current_AZSTAT);
-
-		list.add(FITS_HeaderInfo.current_ALTDMD);
-		list.add(FITS_HeaderInfo.current_ALTPOS);
-		list.add(FITS_HeaderInfo.current_ALTSTAT);
-		list.add(FITS_HeaderInfo.current_AIRMASS);
-
-		list.add(FITS_HeaderInfo.current_ROTDMD);
-		list.add(FITS_HeaderInfo.current_ROTPOS);
-		list.add(FITS_HeaderInfo.current_ROTMODE);
-		list.add(FITS_HeaderInfo.current_ROTSKYPA);
-		list.add(FITS_HeaderInfo.current_ROTSTAT);
-
-		list.add(FITS_HeaderInfo.current_ENC1DMD);
-		list.add(FITS_HeaderInfo.current_ENC1POS);
-		list.add(FITS_HeaderInfo.current_ENC1STAT);
-
-		list.add(FITS_HeaderInfo.current_ENC2DMD);
-		list.add(FITS_HeaderInfo.current_ENC2POS);
-		list.add(FITS_HeaderInfo.current_ENC2STAT);
-
-		list.add(FITS_HeaderInfo.current_FOLDDMD);
-		list.add(FITS_HeaderInfo.current_FOLDPOS);
-		list.add(FITS_HeaderInfo.current_FOLDSTAT);
-
-		list.add(FITS_HeaderInfo.current_PMCDMD);
-		list.add(FITS_HeaderInfo.current_PMCPOS);
-		list.add(FITS_HeaderInfo.current_PMCSTAT);
-
-		list.add(FITS_HeaderInfo.current_FOCDMD);
-		list.add(FITS_HeaderInfo.current_TELFOCUS);
-		list.add(FITS_HeaderInfo.current_DFOCUS);
-		list.add(FITS_HeaderInfo.current_FOCSTAT);
-		list.add(FITS_HeaderInfo.current_MIRSYSST);
-
-		list.add(FITS_HeaderInfo.current_WMSSTAT);
-		list.add(FITS_HeaderInfo.current_WMSRAIN);
-		list.add(FITS_HeaderInfo.current_WMSMOIST);
-
-		list.add(FITS_HeaderInfo.current_TEMPTUBE);
-
-		list.add(FITS_HeaderInfo.current_WMOILTMP);
-		list.add(FITS_HeaderInfo.current_WMSPMT);
-		list.add(FITS_HeaderInfo.current_WMFOCTMP);
-		list.add(FITS_HeaderInfo.current_WMAGBTMP);
-
-		list.add(FITS_HeaderInfo.current_WMSTEMP);
-		list.add(FITS_HeaderInfo.current_WMSDEWPT);
-
-		list.add(FITS_HeaderInfo.current_WINDSPEE);
-		list.add(FITS_HeaderInfo.current_WMSPRES);
-		list.add(FITS_HeaderInfo.current_WMSHUMID);
-		list.add(FITS_HeaderInfo.current_WINDDIR);
-		list.add(FITS_HeaderInfo.current_CLOUD);
-
-		list.add(FITS_HeaderInfo.current_REFPRES);
-
-		list.add(FITS_HeaderInfo.current_REFTEMP);
-
-		list.add(FITS_HeaderInfo.current_REFHUMID);
-
-		list.add(FITS_HeaderInfo.current_AUTOGUID);
-		list.add(FITS_HeaderInfo.current_AGSTATE);
-		list.add(FITS_HeaderInfo.current_AGMODE);
-		list.add(FITS_HeaderInfo.current_AGGMAG);
-		list.add(FITS_HeaderInfo.current_AGFWHM);
-		list.add(FITS_HeaderInfo.current_AGMIRDMD);
-		list.add(FITS_HeaderInfo.current_AGMIRPOS);
-		list.add(FITS_HeaderInfo.current_AGMIRST);
-		list.add(FITS_HeaderInfo.current_AGFOCDMD);
-		list.add(FITS_HeaderInfo.current_AGFOCUS);
-		list.add(FITS_HeaderInfo.current_AGFOCST);
-		list.add(FITS_HeaderInfo.current_AGFILDMD);
-		list.add(FITS_HeaderInfo.current_AGFILPOS);
-		list.add(FITS_HeaderInfo.current_AGFILST);
-
-		// Sky.
-		list.add(FITS_HeaderInfo.current_SCHEDSEE);
-		list.add(FITS_HeaderInfo.current_SCHEDPHT);
-		list.add(FITS_HeaderInfo.current_SCHEDSKY);
-		list.add(FITS_HeaderInfo.current_ESTSEE);
-
-		// Moon.
-		//list.add(FITS_HeaderInfo.current_MOONSTAT);
-		list.add(FITS_HeaderInfo.current_MOONFRAC);
-		list.add(FITS_HeaderInfo.current_MOONDIST);
-		list.add(FITS_HeaderInfo.current_MOONALT);
-
-		// Sun
-		list.add(FITS_HeaderInfo.current_SUNALT);
-
-		// Misc
-		if (FITS_HeaderInfo.current_ACQIMG.getValue() == null)
-			FITS_HeaderInfo.current_ACQIMG.setValue("UNKNOWN");
-		list.add(FITS_HeaderInfo.current_ACQIMG);
-
-		list.add(FITS_HeaderInfo.current_ACQMODE);
-		list.add(FITS_HeaderInfo.current_ACQXPIX);
-		list.add(FITS_HeaderInfo.current_ACQYPIX);
-		list.add(FITS_HeaderInfo.current_ACQINST);
-
-		list.add(FITS_HeaderInfo.current_BFOCCTRL);
+		list.addAll(cards);
 						
 		// issLog.log(2, CLASS, "-", "processReceivedCommand",
 		// "FITS Headers set to: "
@@ -852,7 +852,7 @@ public class OperationsManager extends ControlThread implements TaskManager, Con
 		mca.setTimeLimit(ton - System.currentTimeMillis());
 		mca.setTimeConstrained(true);
 
-		(new TaskWorker(mca.getName(), mca)).beginJob();
+		TaskWorker.execute(mca);
 		// TODO notify mode change
 		notifyOpsListenersModeChange((currentModeController != null ? currentModeController.getAgentId() : null),
 				mca.getAgentId());
@@ -965,7 +965,7 @@ public class OperationsManager extends ControlThread implements TaskManager, Con
 		// System.err.println("OPS::Initialize: "+task.getName());
 		task.init();
 		// System.err.println("OPS::Starting: "+task.getName());
-		(new TaskWorker(task.getName(), task)).beginJob();
+		TaskWorker.execute(task);
 	}
 
 	private void disposeTask(Task task) {
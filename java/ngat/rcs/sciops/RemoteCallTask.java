@@ -246,7 +246,7 @@ public abstract class RemoteCallTask implements Task {
 
 		// may need to test if worker has died here ?
 		if (worker != null)
-			worker.interrupt();
+			worker.interruptTask(this);
 	}
 
 	/**
@@ -0,0 +1,261 @@
+/**
+ *
+ */
+package ngat.rcs.scm.collation;
+
+import java.util.Vector;
+
+/**
+ * Bounded, time-ordered history of seeing samples held in parallel primitive
+ * arrays arranged as a ring. Once full the oldest sample is overwritten. A
+ * "since" lookup is a binary search and returns a View onto the ring rather
+ * than a copy, so repeated polling costs the same however long the night has
+ * run.
+ *
+ * @author eng
+ *
+ */
+public class SeeingHistory {
+
+	/** Default number of samples held. */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	private long[] time;
+
+	private double[] raw;
+
+	private double[] corrected;
+
+	private double[] predicted;
+
+	private double[] elevation;
+
+	private double[] azimuth;
+
+	private double[] wavelength;
+
+	private boolean[] standard;
+
+	private String[] source;
+
+	private String[] targetName;
+
+	/** Number of samples ever added, the sequence number of the next sample. */
+	private volatile long added;
+
+	/** Create a SeeingHistory with the default capacity. */
+	public SeeingHistory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            Maximum number of samples held.
+	 */
+	public SeeingHistory(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Seeing history capacity must be at least 1: " + capacity);
+		time = new long[capacity];
+		raw = new double[capacity];
+		corrected = new double[capacity];
+		predicted = new double[capacity];
+		elevation = new double[capacity];
+		azimuth = new double[capacity];
+		wavelength = new double[capacity];
+		standard = new boolean[capacity];
+		source = new String[capacity];
+		targetName = new String[capacity];
+	}
+
+	/** @return The maximum number of samples held. */
+	public int getCapacity() {
+		return time.length;
+	}
+
+	/** @return The number of samples held. */
+	public synchronized int size() {
+		return (int) Math.min(added, time.length);
+	}
+
+	/**
+	 * Add a sample. Samples are expected in time order, a sample stamped earlier
+	 * than the newest is indexed at the newest sample's time.
+	 */
+	public synchronized void add(long t, double rawSeeing, double correctedSeeing, double prediction, double alt,
+			double azm, double wav, boolean std, String src, String target) {
+		if (added > 0) {
+			long latest = time[slot(added - 1)];
+			if (t < latest)
+				t = latest;
+		}
+		int slot = slot(added);
+		time[slot] = t;
+		raw[slot] = rawSeeing;
+		corrected[slot] = correctedSeeing;
+		predicted[slot] = prediction;
+		elevation[slot] = alt;
+		azimuth[slot] = azm;
+		wavelength[slot] = wav;
+		standard[slot] = std;
+		source[slot] = src;
+		targetName[slot] = target;
+		added++;
+	}
+
+	/**
+	 * @param since
+	 *            A time.
+	 * @return A view of the samples timed after the specified time.
+	 */
+	public synchronized View getSince(long since) {
+		long first = Math.max(0, added - time.length);
+		long lo = first;
+		long hi = added;
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			if (time[slot(mid)] <= since)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return new View(lo, added);
+	}
+
+	private int slot(long sequence) {
+		return (int) (sequence % time.length);
+	}
+
+	/**
+	 * A read-only window onto a run of samples in the ring. No data is copied
+	 * when the view is created. A view remains readable until the ring has
+	 * wrapped over its oldest sample, which at the default capacity is many
+	 * nights of samples. Reads take the history's lock, so a sample is never
+	 * seen half written.
+	 */
+	public class View {
+
+		/** Sequence number of the first sample. */
+		private long start;
+
+		/** Sequence number following the last sample. */
+		private long end;
+
+		private View(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/** @return The number of samples in the view. */
+		public int size() {
+			return (int) (end - start);
+		}
+
+		/** @return True if the ring has not yet overwritten any of the view. */
+		public boolean isValid() {
+			synchronized (SeeingHistory.this) {
+				return start >= added - time.length;
+			}
+		}
+
+		public long getTime(int i) {
+			synchronized (SeeingHistory.this) {
+				return time[check(i)];
+			}
+		}
+
+		public double getRawSeeing(int i) {
+			synchronized (SeeingHistory.this) {
+				return raw[check(i)];
+			}
+		}
+
+		public double getCorrectedSeeing(int i) {
+			synchronized (SeeingHistory.this) {
+				return corrected[check(i)];
+			}
+		}
+
+		public double getPrediction(int i) {
+			synchronized (SeeingHistory.this) {
+				return predicted[check(i)];
+			}
+		}
+
+		public double getElevation(int i) {
+			synchronized (SeeingHistory.this) {
+				return elevation[check(i)];
+			}
+		}
+
+		public double getAzimuth(int i) {
+			synchronized (SeeingHistory.this) {
+				return azimuth[check(i)];
+			}
+		}
+
+		public double getWavelength(int i) {
+			synchronized (SeeingHistory.this) {
+				return wavelength[check(i)];
+			}
+		}
+
+		public boolean isStandard(int i) {
+			synchronized (SeeingHistory.this) {
+				return standard[check(i)];
+			}
+		}
+
+		public String getSource(int i) {
+			synchronized (SeeingHistory.this) {
+				return source[check(i)];
+			}
+		}
+
+		public String getTargetName(int i) {
+			synchronized (SeeingHistory.this) {
+				return targetName[check(i)];
+			}
+		}
+
+		/**
+		 * Create SeeingStatus entries for the samples, e.g. to send to a client.
+		 * The samples are copied under the history's lock in one pass.
+		 *
+		 * @return The samples, oldest first.
+		 */
+		public Vector<SeeingStatus> toStatusList() {
+			Vector<SeeingStatus> list = new Vector<SeeingStatus>(size());
+			synchronized (SeeingHistory.this) {
+				for (int i = 0; i < size(); i++) {
+					int slot = check(i);
+					SeeingStatus status = new SeeingStatus();
+					status.setTimeStamp(time[slot]);
+					status.setRawSeeing(raw[slot]);
+					status.setCorrectedSeeing(corrected[slot]);
+					status.setPrediction(predicted[slot]);
+					status.setElevation(elevation[slot]);
+					status.setAzimuth(azimuth[slot]);
+					status.setWavelength(wavelength[slot]);
+					status.setStandard(standard[slot]);
+					status.setSource(source[slot]);
+					status.setTargetName(targetName[slot]);
+					list.add(status);
+				}
+			}
+			return list;
+		}
+
+		/**
+		 * @return The ring slot of the i-th sample in the view. Called with the
+		 *         history's lock held.
+		 */
+		private int check(int i) {
+			if (i < 0 || i >= size())
+				throw new IndexOutOfBoundsException("Seeing sample " + i + " of " + size());
+			if (!isValid())
+				throw new IllegalStateException("Seeing samples have been overwritten");
+			return slot(start + i);
+		}
+	}
+
+}
@@ -3,6 +3,8 @@
  */
 package ngat.rcs.scm.collation;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Vector;
 
 import ngat.util.SerializableStatusCategory;
@@ -16,22 +18,45 @@ import ngat.util.StatusCategory;
  */
 public class SeeingHistoryStatus implements SerializableStatusCategory {
 
+	/** Pinned to the value before the view was added, to stay compatible with clients. */
+	private static final long serialVersionUID = -5689361259847978018L;
+
 	/** Historic list of statii.*/
 	private Vector<SeeingStatus> history;
 	
+	/** View onto the provider's seeing history, expanded into history on demand. */
+	private transient SeeingHistory.View view;
 
 
 	public SeeingHistoryStatus(Vector<SeeingStatus> history) {
 		this.history = history;
 	}
 
-
+	public SeeingHistoryStatus(SeeingHistory.View view) {
+		this.view = view;
+	}
 	
 	
-	public Vector<SeeingStatus> getHistory() {
+	/**
+	 * @return A read-only view of the samples without copying them, or null if
+	 *         this status was created from a list.
+	 */
+	public SeeingHistory.View getView() {
+		return view;
+	}
+	
+	public synchronized Vector<SeeingStatus> getHistory() {
+		if (history == null && view != null)
+			history = view.toStatusList();
 		return history;
 	}
 
+	/** Expand the view before sending, the ring does not travel. */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getHistory();
+		out.defaultWriteObject();
+	}
+
 
 
 
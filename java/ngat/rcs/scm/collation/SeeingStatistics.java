@@ -0,0 +1,139 @@
+/**
+ *
+ */
+package ngat.rcs.scm.collation;
+
+/**
+ * Running statistics of seeing over one night. Samples are counted into a
+ * fixed histogram as they arrive so the median and other percentiles can be
+ * read at any time without sorting the night's samples. Percentiles are
+ * accurate to the bin width; samples beyond the histogram range are counted in
+ * the last bin.
+ *
+ * @author eng
+ *
+ */
+public class SeeingStatistics {
+
+	/** Default histogram bin width (arcsec). */
+	public static final double DEFAULT_BIN_WIDTH = 0.01;
+
+	/** Default upper limit (arcsec) of the histogram. */
+	public static final double DEFAULT_RANGE = 10.0;
+
+	/** Start time of the night these statistics cover. */
+	private long nightStart;
+
+	private double binWidth;
+
+	private int[] bins;
+
+	private int count;
+
+	private double sum;
+
+	private double min = Double.NaN;
+
+	private double max = Double.NaN;
+
+	/**
+	 * @param nightStart
+	 *            Start time of the night these statistics cover.
+	 */
+	public SeeingStatistics(long nightStart) {
+		this(nightStart, DEFAULT_BIN_WIDTH, DEFAULT_RANGE);
+	}
+
+	/**
+	 * @param nightStart
+	 *            Start time of the night these statistics cover.
+	 * @param binWidth
+	 *            Histogram bin width (arcsec).
+	 * @param range
+	 *            Upper limit (arcsec) of the histogram.
+	 */
+	public SeeingStatistics(long nightStart, double binWidth, double range) {
+		this.nightStart = nightStart;
+		this.binWidth = binWidth;
+		bins = new int[Math.max(1, (int) Math.ceil(range / binWidth))];
+	}
+
+	/** @return Start time of the night these statistics cover. */
+	public long getNightStart() {
+		return nightStart;
+	}
+
+	/**
+	 * Count a seeing sample. Negative and NaN values (no measurement) are
+	 * ignored.
+	 *
+	 * @param seeing
+	 *            The seeing (arcsec).
+	 */
+	public synchronized void add(double seeing) {
+		if (Double.isNaN(seeing) || seeing < 0.0)
+			return;
+		int bin = Math.min(bins.length - 1, (int) (seeing / binWidth));
+		bins[bin]++;
+		if (count == 0 || seeing < min)
+			min = seeing;
+		if (count == 0 || seeing > max)
+			max = seeing;
+		sum += seeing;
+		count++;
+	}
+
+	/** @return The number of samples counted. */
+	public synchronized int getCount() {
+		return count;
+	}
+
+	/** @return The mean seeing or NaN if no samples. */
+	public synchronized double getMean() {
+		return (count == 0 ? Double.NaN : sum / count);
+	}
+
+	/** @return The best seeing or NaN if no samples. */
+	public synchronized double getMin() {
+		return min;
+	}
+
+	/** @return The worst seeing or NaN if no samples. */
+	public synchronized double getMax() {
+		return max;
+	}
+
+	/** @return The median seeing or NaN if no samples. */
+	public double getMedian() {
+		return getPercentile(50.0);
+	}
+
+	/**
+	 * @param percent
+	 *            The percentile wanted (0-100).
+	 * @return The seeing below which the specified percentage of samples fell,
+	 *         or NaN if no samples.
+	 */
+	public synchronized double getPercentile(double percent) {
+		if (count == 0)
+			return Double.NaN;
+		double rank = Math.max(1.0, Math.ceil(percent / 100.0 * count));
+		int cumulative = 0;
+		for (int i = 0; i < bins.length; i++) {
+			cumulative += bins[i];
+			if (cumulative >= rank) {
+				// centre of the bin, clamped to the observed range
+				double value = (i + 0.5) * binWidth;
+				return Math.max(min, Math.min(max, value));
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("SeeingStatistics: n=%d, mean=%.2f, median=%.2f, min=%.2f, max=%.2f", count,
+				getMean(), getMedian(), min, max);
+	}
+
+}
@@ -137,9 +137,11 @@ public class Sensors {
 	    
 	    // /** @return The latest measured wind speed.*/
 	    public void sample() {
+		TCS_Status.Meteorology meteorology =
+		    (TCS_Status.Meteorology) StatusPool.getSegment(StatusPool.METEOROLOGY_UPDATE_EVENT).getSegment();
 		// dr = StatusPool.getDouble("METEO", "WIND_SPEED");
-		dr   = StatusPool.latest().meteorology.windSpeed;
-		time = StatusPool.latest().meteorology.timeStamp;
+		dr   = meteorology.windSpeed;
+		time = meteorology.timeStamp;
 		//System.err.println("Readout WindSpeed at: "+time);
 	    }
 	};
@@ -148,8 +150,10 @@ public class Sensors {
 	   
 	    // /** @return The latest measured wind direction.*/
 	    public void sample() {
-		dr   = StatusPool.latest().meteorology.windDirn;
-		time = StatusPool.latest().meteorology.timeStamp;
+		TCS_Status.Meteorology meteorology =
+		    (TCS_Status.Meteorology) StatusPool.getSegment(StatusPool.METEOROLOGY_UPDATE_EVENT).getSegment();
+		dr   = meteorology.windDirn;
+		time = meteorology.timeStamp;
 		//System.err.println("Readout WindDirn at: "+time);
 	    }
 	};
@@ -158,8 +162,10 @@ public class Sensors {
 	
 	    // /** @return The latest measured autoguider fwhm.*/
 	    public void sample() {
-		dr   = StatusPool.latest().autoguider.fwhm;
-		time = StatusPool.latest().autoguider.timeStamp;
+		TCS_Status.Autoguider autoguider =
+		    (TCS_Status.Autoguider) StatusPool.getSegment(StatusPool.AUTOGUIDER_UPDATE_EVENT).getSegment();
+		dr   = autoguider.fwhm;
+		time = autoguider.timeStamp;
 		//System.err.println("Readout Ag-Seeing at:"+time);
 	    }
 	};
@@ -168,8 +174,10 @@ public class Sensors {
 	    
 	    //  /** @return The latest rain status.*/
 	    public void sample() {
-		ir   = StatusPool.latest().meteorology.rainState;
-		time = StatusPool.latest().meteorology.timeStamp;
+		TCS_Status.Meteorology meteorology =
+		    (TCS_Status.Meteorology) StatusPool.getSegment(StatusPool.METEOROLOGY_UPDATE_EVENT).getSegment();
+		ir   = meteorology.rainState;
+		time = meteorology.timeStamp;
 		//System.err.println("Readout Rain at: "+time);
 	    }
 	};
@@ -179,8 +187,10 @@ public class Sensors {
 	    //  /** @return The latest time to Azimuth limit.
 
 	    public void sample() {
-		dr   = StatusPool.latest().limits.timeToAzLimit;
-		time = StatusPool.latest().limits.timeStamp;
+		TCS_Status.Limits limits =
+		    (TCS_Status.Limits) StatusPool.getSegment(StatusPool.LIMITS_UPDATE_EVENT).getSegment();
+		dr   = limits.timeToAzLimit;
+		time = limits.timeStamp;
 		//System.err.println("Readout Az Limits at: "+time);
 	    }
 	};
@@ -190,8 +200,10 @@ public class Sensors {
 	    //  /** @return The latest time to Altitude limit.
 
 	    public void sample() {
-		dr   = StatusPool.latest().limits.timeToAltLimit;
-		time = StatusPool.latest().limits.timeStamp;
+		TCS_Status.Limits limits =
+		    (TCS_Status.Limits) StatusPool.getSegment(StatusPool.LIMITS_UPDATE_EVENT).getSegment();
+		dr   = limits.timeToAltLimit;
+		time = limits.timeStamp;
 		//System.err.println("Readout Alt Limits at: "+time);
 	    }
 	};
@@ -201,8 +213,10 @@ public class Sensors {
 	    //  /** @return The latest time to Cass Rotator limit.
 	    
 	    public void sample() {
-		dr   = StatusPool.latest().limits.timeToRotLimit;
-		time = StatusPool.latest().limits.timeStamp;
+		TCS_Status.Limits limits =
+		    (TCS_Status.Limits) StatusPool.getSegment(StatusPool.LIMITS_UPDATE_EVENT).getSegment();
+		dr   = limits.timeToRotLimit;
+		time = limits.timeStamp;
 		//System.err.println("Readout Rot Limits at: "+time);
 	    }
 	};
@@ -212,8 +226,10 @@ public class Sensors {
 	    //  /** @return The latest Azimuth node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.azStatus;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.azStatus;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 	
@@ -222,8 +238,10 @@ public class Sensors {
 	    //  /** @return The latest Altitude node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.altStatus;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.altStatus;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 
@@ -232,8 +250,10 @@ public class Sensors {
 	    //  /** @return The latest Cass Rotator node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.rotStatus;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.rotStatus;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 
@@ -242,8 +262,10 @@ public class Sensors {
 	    //  /** @return The latest Focus  node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.secMirrorStatus;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.secMirrorStatus;
+		time = mechanisms.timeStamp;		
 	    }
 	};
     
@@ -252,8 +274,10 @@ public class Sensors {
 	    //  /** @return The latest Primary Mirror Cover  node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.primMirrorCoverStatus;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.primMirrorCoverStatus;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 
@@ -262,8 +286,10 @@ public class Sensors {
 	    //  /** @return The latest Fold Mirror node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.foldMirrorStatus;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.foldMirrorStatus;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 
@@ -272,8 +298,10 @@ public class Sensors {
 	    //  /** @return The latest Enclosure (1) node state.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.encShutter1Status;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.encShutter1Status;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 	
@@ -282,8 +310,10 @@ public class Sensors {
 	    //  /** @return The latest Enclosure Position.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.encShutter1Pos;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.encShutter1Pos;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 
@@ -293,8 +323,10 @@ public class Sensors {
 	    //  /** @return The latest Enclosure Position.
 	    
 	    public void sample() {
-		ir   = StatusPool.latest().mechanisms.primMirrorCoverPos;
-		time = StatusPool.latest().mechanisms.timeStamp;		
+		TCS_Status.Mechanisms mechanisms =
+		    (TCS_Status.Mechanisms) StatusPool.getSegment(StatusPool.MECHANISMS_UPDATE_EVENT).getSegment();
+		ir   = mechanisms.primMirrorCoverPos;
+		time = mechanisms.timeStamp;		
 	    }
 	};
 	
@@ -305,8 +337,10 @@ public class Sensors {
 	    //  /** @return The latest network state. */
 	    
 		public void sample() {
-		    ir   = StatusPool.latest().network.networkState;
-		    time = StatusPool.latest().network.timeStamp;
+		    TCS_Status.Network network =
+		        (TCS_Status.Network) StatusPool.getSegment(StatusPool.NETWORK_UPDATE_EVENT).getSegment();
+		    ir   = network.networkState;
+		    time = network.timeStamp;
 		    //System.err.println("NSS-Sample() - Produced NetState "+TCS_Status.codeString(ir)+" at: "+new Date(time));
 		}
 	    };
@@ -314,10 +348,12 @@ public class Sensors {
 	powerStateSensor = new PoolSensor("SS_POWER", true) {
 
 	    public void sample() {
-		ir   = (StatusPool.latest().state.systemShutdownFlag ? TCS_Status.POWER_STATE_SHUTDOWN :
-			(StatusPool.latest().state.systemRestartFlag ? TCS_Status.POWER_STATE_RESTART :
+		TCS_Status.State state =
+		    (TCS_Status.State) StatusPool.getSegment(StatusPool.STATE_UPDATE_EVENT).getSegment();
+		ir   = (state.systemShutdownFlag ? TCS_Status.POWER_STATE_SHUTDOWN :
+			(state.systemRestartFlag ? TCS_Status.POWER_STATE_RESTART :
 			 TCS_Status.POWER_STATE_OKAY));
-		time = StatusPool.latest().state.timeStamp;		
+		time = state.timeStamp;		
 	    }
 	};
 
@@ -325,24 +361,30 @@ public class Sensors {
 
 	systemStateSensor = new PoolSensor("SS_SYSTEM", true) {
 	    public void sample() {
-		ir   = StatusPool.latest().state.telescopeState;
-		time = StatusPool.latest().state.timeStamp;		
+		TCS_Status.State state =
+		    (TCS_Status.State) StatusPool.getSegment(StatusPool.STATE_UPDATE_EVENT).getSegment();
+		ir   = state.telescopeState;
+		time = state.timeStamp;		
 	    }
 	};
 	
 	networkControlStateSensor = new PoolSensor("SS_NET_CONTROL", true) {
 
 	    public void sample() {
-		ir   = StatusPool.latest().state.networkControlState;
-		time = StatusPool.latest().state.timeStamp;		
+		TCS_Status.State state =
+		    (TCS_Status.State) StatusPool.getSegment(StatusPool.STATE_UPDATE_EVENT).getSegment();
+		ir   = state.networkControlState;
+		time = state.timeStamp;		
 	    }
 	};
 	
 	engineeringOverrideStateSensor = new PoolSensor("SS_ENG_CONTROL", true) {
 
 	    public void sample() {
-		ir   = StatusPool.latest().state.engineeringOverrideState;
-		time = StatusPool.latest().state.timeStamp;		
+		TCS_Status.State state =
+		    (TCS_Status.State) StatusPool.getSegment(StatusPool.STATE_UPDATE_EVENT).getSegment();
+		ir   = state.engineeringOverrideState;
+		time = state.timeStamp;		
 	    }
 	};
 	
@@ -4,7 +4,6 @@
 package ngat.rcs.scm.collation;
 
 import java.rmi.RemoteException;
-import java.util.Vector;
 
 import ngat.ems.SkyModel;
 import ngat.ems.SkyModelUpdateListener;
@@ -16,17 +15,34 @@ import ngat.util.StatusProvider;
  *
  */
 public class SkyModelProvider implements SkyModelUpdateListener {
+
+	/** Offset (millis) from UT midnight to the start of a night, i.e. noon UT. */
+	public static final long NIGHT_START_OFFSET = 12 * 3600 * 1000L;
+
+	private static final long DAY = 24 * 3600 * 1000L;
 	
 	private SkyModel skyModel;
 	
-	private Vector<SeeingStatus> fullHistory;
+	private SeeingHistory fullHistory;
+
+	/** Statistics of corrected seeing for the current night. */
+	private volatile SeeingStatistics nightStatistics;
 
 	/**
 	 * 
 	 */
 	public SkyModelProvider(SkyModel skyModel) {
+		this(skyModel, SeeingHistory.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param skyModel
+	 * @param capacity
+	 *            Maximum number of seeing samples to hold.
+	 */
+	public SkyModelProvider(SkyModel skyModel, int capacity) {
 		this.skyModel =skyModel;
-		fullHistory = new Vector<SeeingStatus>();
+		fullHistory = new SeeingHistory(capacity);
 	}
 
 	public void extinctionUpdated(long time, double ext) throws RemoteException {	
@@ -37,21 +53,17 @@ public class SkyModelProvider implements SkyModelUpdateListener {
 	public void seeingUpdated(long time, double raw, double corrected, double prediction, double alt, double azm, double wav, boolean standard, String source, String targetName) throws RemoteException {
 		System.err.println("SkyProvider:updated seeing: r="+raw+",c="+corrected+", adding to history.");
 		
-		// create new status entry for this sample...
-		SeeingStatus status = new SeeingStatus();
-		status.setCorrectedSeeing(corrected);
-		status.setRawSeeing(raw);
-		status.setTimeStamp(time);
-		double mprediction = skyModel.getSeeing(700.0, 0.5*Math.PI, 0.0, time);
-		status.setPrediction(prediction);
-		status.setElevation(alt);
-		status.setAzimuth(azm);
-		status.setWavelength(wav);
-		status.setStandard(standard);
-		status.setSource(source);
-		status.setTargetName(targetName);
-		
-		fullHistory.add(status);
+		fullHistory.add(time, raw, corrected, prediction, alt, azm, wav, standard, source, targetName);
+
+		// start new statistics at the start of each night
+		long nightStart = getNightStart(time);
+		SeeingStatistics stats = nightStatistics;
+		if (stats == null || stats.getNightStart() < nightStart) {
+			stats = new SeeingStatistics(nightStart);
+			nightStatistics = stats;
+		}
+		if (stats.getNightStart() == nightStart)
+			stats.add(corrected);
 		
 	}
 
@@ -59,20 +71,33 @@ public class SkyModelProvider implements SkyModelUpdateListener {
 		long now = System.currentTimeMillis();
 		System.err.printf("SkyProvider:status requested since: %tF %tT (%6d ago) : \n",time, time, (now-time)/1000);
 		
-		// fill an array..
-		Vector<SeeingStatus> recentHistory = new Vector<SeeingStatus>();
-		
-		// count any samples at samp.t > time
-		for (int i = 0; i < fullHistory.size(); i++) {
-			SeeingStatus seeing = fullHistory.get(i);
-			if (seeing.getTimeStamp() > time)
-				recentHistory.add(seeing);
-		}
-		
-		SeeingHistoryStatus history = new SeeingHistoryStatus(recentHistory);
-		return history;
+		return new SeeingHistoryStatus(fullHistory.getSince(time));
 	}
 
+	/**
+	 * @param time
+	 *            A time.
+	 * @return A read-only view of the seeing samples after the specified time.
+	 */
+	public SeeingHistory.View getSeeingSince(long time) {
+		return fullHistory.getSince(time);
+	}
 
+	/**
+	 * @return Statistics of corrected seeing for the current night, or null if
+	 *         there have been no samples yet.
+	 */
+	public SeeingStatistics getNightStatistics() {
+		return nightStatistics;
+	}
+
+	/**
+	 * @param time
+	 *            A time.
+	 * @return The start of the night containing the specified time.
+	 */
+	public static long getNightStart(long time) {
+		return ((time - NIGHT_START_OFFSET) / DAY) * DAY + NIGHT_START_OFFSET;
+	}
 
 }
@@ -0,0 +1,219 @@
+package ngat.rcs.scm.collation;
+
+/**
+ * A bounded time-indexed history of the numeric fields of one TCS_Status
+ * segment. Samples are held in primitive ring buffers, one column per field
+ * plus a column of sample times, so recording a sample allocates nothing and
+ * the oldest sample is overwritten once the history is full. Sample times
+ * never decrease, which allows lookups by time to use a binary search.
+ *
+ * @author eng
+ *
+ */
+public class StatusHistory {
+
+	/** Names of the value columns. */
+	private final String[] columnNames;
+
+	/** Sample times. */
+	private final long[] times;
+
+	/** Sample values, indexed by column then slot. */
+	private final double[][] values;
+
+	/** Slot the next sample will be written to. */
+	private int head;
+
+	/** Number of samples held. */
+	private int size;
+
+	/**
+	 * @param columnNames
+	 *            Names of the value columns.
+	 * @param capacity
+	 *            The maximum number of samples to hold.
+	 */
+	public StatusHistory(String[] columnNames, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("History capacity must be at least 1: " + capacity);
+		this.columnNames = (String[]) columnNames.clone();
+		times = new long[capacity];
+		values = new double[columnNames.length][capacity];
+	}
+
+	/** @return The names of the value columns. */
+	public String[] getColumnNames() {
+		return (String[]) columnNames.clone();
+	}
+
+	/**
+	 * @param name
+	 *            The name of a column.
+	 * @return The index of the named column or -1 if there is no such column.
+	 */
+	public int getColumn(String name) {
+		for (int i = 0; i < columnNames.length; i++) {
+			if (columnNames[i].equals(name))
+				return i;
+		}
+		return -1;
+	}
+
+	/** @return The maximum number of samples held. */
+	public int getCapacity() {
+		return times.length;
+	}
+
+	/** @return The number of samples currently held. */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	/** @return The time of the oldest sample held or -1 if empty. */
+	public synchronized long getEarliestTime() {
+		return (size == 0 ? -1L : times[slot(0)]);
+	}
+
+	/** @return The time of the newest sample held or -1 if empty. */
+	public synchronized long getLatestTime() {
+		return (size == 0 ? -1L : times[slot(size - 1)]);
+	}
+
+	/**
+	 * Record a sample. If the time is earlier than the newest sample already
+	 * held (e.g. after a clock step) it is recorded at the newest time instead.
+	 *
+	 * @param time
+	 *            The sample time.
+	 * @param row
+	 *            The sample values, one per column.
+	 */
+	public synchronized void record(long time, double[] row) {
+		if (size > 0) {
+			long latest = times[slot(size - 1)];
+			if (time < latest)
+				time = latest;
+		}
+		times[head] = time;
+		for (int i = 0; i < values.length; i++)
+			values[i][head] = row[i];
+		head = (head + 1) % times.length;
+		if (size < times.length)
+			size++;
+	}
+
+	/**
+	 * @param column
+	 *            The column index.
+	 * @param time
+	 *            The time of interest.
+	 * @return The value of the most recent sample at or before the specified
+	 *         time or NaN if there is no such sample.
+	 */
+	public synchronized double valueAt(int column, long time) {
+		int index = indexAtOrBefore(time);
+		if (index < 0)
+			return Double.NaN;
+		return values[column][slot(index)];
+	}
+
+	/**
+	 * @param column
+	 *            The column index.
+	 * @param time
+	 *            The time of interest.
+	 * @return The value at the specified time interpolated linearly between
+	 *         the samples either side of it. Returns NaN if the time is before
+	 *         the oldest sample and the newest value if after the newest
+	 *         sample.
+	 */
+	public synchronized double interpolate(int column, long time) {
+		int index = indexAtOrBefore(time);
+		if (index < 0)
+			return Double.NaN;
+		int before = slot(index);
+		if (index == size - 1 || times[before] == time)
+			return values[column][before];
+		int after = slot(index + 1);
+		double f = (double) (time - times[before]) / (double) (times[after] - times[before]);
+		return values[column][before] + f * (values[column][after] - values[column][before]);
+	}
+
+	/**
+	 * @param column
+	 *            The column index.
+	 * @param t1
+	 *            Start of the time range (inclusive).
+	 * @param t2
+	 *            End of the time range (inclusive).
+	 * @return The samples of the column between the specified times, oldest
+	 *         first.
+	 */
+	public synchronized Series range(int column, long t1, long t2) {
+		int first = indexAtOrBefore(t1 - 1) + 1;
+		int last = indexAtOrBefore(t2);
+		int count = Math.max(0, last - first + 1);
+		long[] rtimes = new long[count];
+		double[] rvalues = new double[count];
+		for (int i = 0; i < count; i++) {
+			int slot = slot(first + i);
+			rtimes[i] = times[slot];
+			rvalues[i] = values[column][slot];
+		}
+		return new Series(rtimes, rvalues);
+	}
+
+	/**
+	 * @return The index (0 = oldest) of the newest sample at or before the
+	 *         specified time or -1 if there is no such sample.
+	 */
+	private int indexAtOrBefore(long time) {
+		int lo = 0;
+		int hi = size - 1;
+		int found = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (times[slot(mid)] <= time) {
+				found = mid;
+				lo = mid + 1;
+			} else
+				hi = mid - 1;
+		}
+		return found;
+	}
+
+	/** @return The ring slot holding the sample at index (0 = oldest). */
+	private int slot(int index) {
+		int slot = head - size + index;
+		return (slot < 0 ? slot + times.length : slot);
+	}
+
+	/** A copy of the samples of one column over a time range. */
+	public static class Series {
+
+		private final long[] times;
+
+		private final double[] values;
+
+		Series(long[] times, double[] values) {
+			this.times = times;
+			this.values = values;
+		}
+
+		/** @return The number of samples in the series. */
+		public int getSize() {
+			return times.length;
+		}
+
+		/** @return The time of the i-th sample. */
+		public long getTime(int i) {
+			return times[i];
+		}
+
+		/** @return The value of the i-th sample. */
+		public double getValue(int i) {
+			return values[i];
+		}
+	}
+
+}
@@ -39,6 +39,8 @@ import ngat.util.logging.*;
 
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Acts as the globally accessable resource for obtaining the TCS status
@@ -46,6 +48,14 @@ import java.util.*;
  * value) any Observers of the specified segment are notified. Each segment has
  * an update time associated. <br>
  * <br>
+ * Each segment is held as an immutable versioned snapshot. Writers copy the
+ * latest snapshot, apply the update and publish the copy as the next version
+ * under a per-segment lock, readers of a segment never lock and never see a
+ * partially applied update. Each publication also replaces the composite
+ * TCS_Status returned by latest() with a new one sharing the published
+ * segments, so a composite once handed out never changes.
+ * <br>
+ * <br>
  * $IdS
  */
 public class StatusPool extends Observable implements TelescopeStatusUpdateListener, MeteorologyStatusUpdateListener {
@@ -128,33 +138,118 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 */
 	public static final int NETWORK_UPDATE_EVENT = 12;
 
-	/** The internal storage structure. */
-	private static TCS_Status status;
+	/** Number of segments (i.e. of update codes). */
+	public static final int SEGMENT_COUNT = 13;
+
+	/**
+	 * The latest published snapshot of each segment, indexed by update code.
+	 * Snapshots are replaced, never modified.
+	 */
+	private static final AtomicReferenceArray segments = new AtomicReferenceArray(SEGMENT_COUNT);
+
+	/**
+	 * The composite TCS_Status handed out by latest(). It refers to the latest
+	 * published segments and is replaced, never modified.
+	 */
+	private static final AtomicReference composite = new AtomicReference();
+
+	/**
+	 * Per-segment write locks - only writers of the same segment serialize,
+	 * readers never lock.
+	 */
+	private static final Object[] writeLocks = new Object[SEGMENT_COUNT];
 
 	/** The singleton instance of StatusPool. */
 	private static StatusPool instance = null;
 
 	private static Map cats = new HashMap();
 
-	protected Vector[] observers;
+	/** Observers for each update code. */
+	protected List[] observers;
+
+	/** Segment listeners for each update code. */
+	protected List[] segmentListeners;
+
+	/** Default number of samples of history held per segment. */
+	public static final int DEFAULT_HISTORY_SIZE = 3600;
+
+	/** Names of the fields recorded in each segment's history. */
+	private static final String[][] HISTORY_COLUMNS = new String[SEGMENT_COUNT][];
+
+	/**
+	 * History of each segment, indexed by update code - null for segments
+	 * with no numeric fields of interest.
+	 */
+	private static volatile StatusHistory[] histories = new StatusHistory[SEGMENT_COUNT];
+
+	/** Scratch rows for recording history, used under the write locks. */
+	private static final double[][] historyRows = new double[SEGMENT_COUNT][];
 
 	protected static Logger logger = null;
 
+	static {
+		HISTORY_COLUMNS[ASTROMETRY_UPDATE_EVENT] = new String[] { "airmass", "refractionPressure",
+				"refractionTemperature", "refractionHumidity", "refractionWavelength", "agwavelength" };
+		HISTORY_COLUMNS[AUTOGUIDER_UPDATE_EVENT] = new String[] { "fwhm", "guideStarMagnitude", "agStatus", "agMode",
+				"agMirrorPos", "agFocusPos", "agFilterPos" };
+		HISTORY_COLUMNS[MECHANISMS_UPDATE_EVENT] = new String[] { "azDemand", "azPos", "azStatus", "altDemand",
+				"altPos", "altStatus", "rotDemand", "rotPos", "rotStatus", "rotMode", "rotSkyAngle",
+				"secMirrorDemand", "secMirrorPos", "secMirrorStatus", "focusOffset", "encShutter1Pos",
+				"encShutter2Pos", "primMirrorCoverPos" };
+		HISTORY_COLUMNS[METEOROLOGY_UPDATE_EVENT] = new String[] { "extTemperature", "humidity", "pressure",
+				"windSpeed", "windDirn", "dewPointTemperature", "lightLevel", "moistureFraction", "rainState",
+				"wmsStatus", "serrurierTrussTemperature", "oilTemperature", "primMirrorTemperature",
+				"secMirrorTemperature", "agBoxTemperature" };
+		HISTORY_COLUMNS[SOURCE_UPDATE_EVENT] = new String[] { "srcRa", "srcDec", "srcActRa", "srcActDec" };
+		HISTORY_COLUMNS[STATE_UPDATE_EVENT] = new String[] { "telescopeState", "tcsState", "networkControlState",
+				"engineeringOverrideState" };
+		HISTORY_COLUMNS[TIME_UPDATE_EVENT] = new String[] { "mjd", "ut1", "lst" };
+
+
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			writeLocks[i] = new Object();
+			if (HISTORY_COLUMNS[i] != null) {
+				histories[i] = new StatusHistory(HISTORY_COLUMNS[i], DEFAULT_HISTORY_SIZE);
+				historyRows[i] = new double[HISTORY_COLUMNS[i].length];
+			}
+			segments.set(i, new StatusSegmentSnapshot(i, 0L, now, createSegment(i)));
+		}
+		TCS_Status initial = new TCS_Status();
+		for (int i = 0; i < SEGMENT_COUNT; i++)
+			setSegment(initial, i, ((StatusSegmentSnapshot) segments.get(i)).getSegment());
+		composite.set(initial);
+	}
+
 	/** Private constructor for singleton instance. */
 	private StatusPool() {
 		super();
-		status = new TCS_Status();
-		observers = new Vector[13];
-		for (int i = 0; i < 13; i++) {
-			observers[i] = new Vector();
+		observers = new List[SEGMENT_COUNT];
+		segmentListeners = new List[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			observers[i] = new CopyOnWriteArrayList();
+			segmentListeners[i] = new CopyOnWriteArrayList();
 		}
 	}
 
-	/** Static initializer for singleton. */
+	/**
+	 * Static initializer for singleton.
+	 * 
+	 * @param maxSize
+	 *            The number of samples of history to hold for each segment.
+	 */
 	public static void initialize(int maxSize) {
 		if (instance == null)
 			instance = new StatusPool();
 		logger = LogManager.getLogger("STATUS");
+		if (maxSize != DEFAULT_HISTORY_SIZE && maxSize > 0) {
+			StatusHistory[] resized = new StatusHistory[SEGMENT_COUNT];
+			for (int i = 0; i < SEGMENT_COUNT; i++) {
+				if (HISTORY_COLUMNS[i] != null)
+					resized[i] = new StatusHistory(HISTORY_COLUMNS[i], maxSize);
+			}
+			histories = resized;
+		}
 	}
 
 	/** @return The singleton instance or null if not defined. */
@@ -162,93 +257,477 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 		return instance;
 	}
 
-	/** @return The latest (i.e. most recently deposited) TCS_Status. */
+	/**
+	 * Returns the latest (i.e. most recently deposited) TCS_Status. The
+	 * returned object and its segments are shared between callers and must be
+	 * treated as read-only. They are never modified - later updates replace
+	 * them, so call latest() again (or getSegment()) to see newer status
+	 * rather than holding on to the result.
+	 * 
+	 * @return The latest TCS_Status.
+	 */
 	public static TCS_Status latest() {
-		return status;
+		return (TCS_Status) composite.get();
 	}
 
-	/** @return The last but n deposited TCS_Status. ## DEPRECIATED ## */
+	/**
+	 * @return A copy of the latest TCS_Status - whole status copies are not
+	 *         retained.
+	 * @deprecated Use getHistory(), valueAt(), interpolate() or range() to
+	 *             find the state at an earlier time.
+	 */
 	public static TCS_Status lastBut(int n) {
-		return (status.copy());
+		return (latest().copy());
 	}
 
-	/** @return The size of the underlying storage structure. */
+	/** @return The number of samples of history held for each segment. */
 	public static int getSize() {
-		return 1;
+		StatusHistory history = histories[MECHANISMS_UPDATE_EVENT];
+		return history.getCapacity();
+	}
+
+	/**
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 * @return The history of the segment or null if no history is kept for
+	 *         the segment.
+	 */
+	public static StatusHistory getHistory(int updateCode) {
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
+			return null;
+		return histories[updateCode];
+	}
+
+	/**
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 * @param field
+	 *            The name of the segment field.
+	 * @param time
+	 *            The time of interest.
+	 * @return The value of the field as it was at the specified time or NaN if
+	 *         the field's history does not go back that far.
+	 */
+	public static double valueAt(int updateCode, String field, long time) {
+		StatusHistory history = getHistory(updateCode);
+		int column = (history == null ? -1 : history.getColumn(field));
+		if (column < 0)
+			throw new IllegalArgumentException("No history for field: " + field + " of update code: " + updateCode);
+		return history.valueAt(column, time);
+	}
+
+	/**
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 * @param field
+	 *            The name of the segment field.
+	 * @param time
+	 *            The time of interest.
+	 * @return The value of the field at the specified time interpolated
+	 *         between the updates either side of it.
+	 */
+	public static double interpolate(int updateCode, String field, long time) {
+		StatusHistory history = getHistory(updateCode);
+		int column = (history == null ? -1 : history.getColumn(field));
+		if (column < 0)
+			throw new IllegalArgumentException("No history for field: " + field + " of update code: " + updateCode);
+		return history.interpolate(column, time);
+	}
+
+	/**
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 * @param field
+	 *            The name of the segment field.
+	 * @param t1
+	 *            Start of the time range.
+	 * @param t2
+	 *            End of the time range.
+	 * @return The updates to the field between the specified times.
+	 */
+	public static StatusHistory.Series range(int updateCode, String field, long t1, long t2) {
+		StatusHistory history = getHistory(updateCode);
+		int column = (history == null ? -1 : history.getColumn(field));
+		if (column < 0)
+			throw new IllegalArgumentException("No history for field: " + field + " of update code: " + updateCode);
+		return history.range(column, t1, t2);
 	}
 
 	/**
-	 * Insert a TCS_Status.
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 * @return The latest published snapshot of the segment or null if the
+	 *         code is not valid.
+	 */
+	public static StatusSegmentSnapshot getSegment(int updateCode) {
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
+			return null;
+		return (StatusSegmentSnapshot) segments.get(updateCode);
+	}
+
+	/**
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 * @return The version of the latest published snapshot of the segment or
+	 *         -1 if the code is not valid. Versions start at zero and increase
+	 *         by one with each update.
+	 */
+	public static long getVersion(int updateCode) {
+		StatusSegmentSnapshot snapshot = getSegment(updateCode);
+		return (snapshot == null ? -1L : snapshot.getVersion());
+	}
+
+	/**
+	 * Insert a TCS_Status segment. The update is copied into a new version of
+	 * the relevant segment which is then published - the update object itself
+	 * is not retained by the pool.
 	 * 
 	 * @param update
 	 *            The TCS_Status.Segment to insert.
 	 */
-	public static synchronized void insert(TCS_Status.Segment update) {
+	public static void insert(TCS_Status.Segment update) {
 		// The current status needs updating using the relevant parts of the
 		// recieved status.
 		// But note that the times for the diferent parts will be unsynched.
 
-		int updateCode = -1;
-
-		// Store it for now.
-		logger.log(1, "StatusPool", "", "insert", "Updating with a : " + update.getClass().getName() + ", Content:"
-				+ update.toString());
-
-		if (update instanceof TCS_Status.Astrometry) {
-			updateCode = ASTROMETRY_UPDATE_EVENT;
-			insertAstrometry((TCS_Status.Astrometry) update);
-		} else if (update instanceof TCS_Status.Autoguider) {
-			updateCode = AUTOGUIDER_UPDATE_EVENT;
-			insertAutoguider((TCS_Status.Autoguider) update);
-		} else if (update instanceof TCS_Status.Calibrate) {
-			updateCode = CALIBRATE_UPDATE_EVENT;
-			insertCalibrate((TCS_Status.Calibrate) update);
-		} else if (update instanceof TCS_Status.FocalStation) {
-			updateCode = FOCAL_STATION_UPDATE_EVENT;
-			insertFocus((TCS_Status.FocalStation) update);
-		} else if (update instanceof TCS_Status.Limits) {
-			// System.err.println("StatusPool::Received LIMITS segment");
-			updateCode = LIMITS_UPDATE_EVENT;
-			insertLimits((TCS_Status.Limits) update);
-		} else if (update instanceof TCS_Status.Mechanisms) {
-			updateCode = MECHANISMS_UPDATE_EVENT;
-			insertMechanisms((TCS_Status.Mechanisms) update);
-		} else if (update instanceof TCS_Status.Meteorology) {
-			// System.err.println("Tested OK as a MetSegment.");
-			updateCode = METEOROLOGY_UPDATE_EVENT;
-			insertMeteorology((TCS_Status.Meteorology) update);
-		} else if (update instanceof TCS_Status.SourceBlock) {
-			updateCode = SOURCE_UPDATE_EVENT;
-			insertSource((TCS_Status.SourceBlock) update);
-		} else if (update instanceof TCS_Status.Services) {
-			updateCode = SERVICES_UPDATE_EVENT;
-			insertState((TCS_Status.State) update);
-		} else if (update instanceof TCS_Status.State) {
-			updateCode = STATE_UPDATE_EVENT;
-			insertState((TCS_Status.State) update);
-		} else if (update instanceof TCS_Status.Time) {
-			updateCode = TIME_UPDATE_EVENT;
-			insertTime((TCS_Status.Time) update);
-		} else if (update instanceof TCS_Status.Version) {
-			updateCode = VERSION_UPDATE_EVENT;
-			insertVersion((TCS_Status.Version) update);
-		} else if (update instanceof TCS_Status.Network) {
-			updateCode = NETWORK_UPDATE_EVENT;
-			insertNetwork((TCS_Status.Network) update);
-		} else
+		int updateCode = updateCodeOf(update);
+		if (updateCode < 0)
 			return;
-		// instance.status = (TCS_Status)(status.copy());
 
-		// long s = System.currentTimeMillis();
+		StatusSegmentSnapshot snapshot = null;
+		synchronized (writeLocks[updateCode]) {
+			TCS_Status.Segment working = createSegment(updateCode);
+			copySegment(updateCode, update, working);
+			snapshot = publish(updateCode, working);
+		}
+
+		logger.log(3, "StatusPool", "", "insert", "Updated with a : " + update.getClass().getName() + ", version: "
+				+ snapshot.getVersion());
+
 		// ## WE SEND THE SEGMENT ONLY ALSO TEMP set the timestamp here also
 		// ######!!!!!
 		update.timeStamp = System.currentTimeMillis();
-		// System.err.println("Notifing Observers: "+updateCode);
-		instance.notifyObservers(updateCode, update);
+		instance.notifyObservers(updateCode, snapshot);
 
-		// System.err.println("Notified Observers: "+updateCode);
-		// long t = System.currentTimeMillis() - s;
+	}
 
+	/**
+	 * @return The update code for the class of segment or -1 if the segment
+	 *         is not recognized.
+	 */
+	private static int updateCodeOf(TCS_Status.Segment update) {
+		if (update instanceof TCS_Status.Astrometry)
+			return ASTROMETRY_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Autoguider)
+			return AUTOGUIDER_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Calibrate)
+			return CALIBRATE_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.FocalStation)
+			return FOCAL_STATION_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Limits)
+			return LIMITS_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Mechanisms)
+			return MECHANISMS_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Meteorology)
+			return METEOROLOGY_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.SourceBlock)
+			return SOURCE_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Services)
+			return SERVICES_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.State)
+			return STATE_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Time)
+			return TIME_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Version)
+			return VERSION_UPDATE_EVENT;
+		else if (update instanceof TCS_Status.Network)
+			return NETWORK_UPDATE_EVENT;
+		return -1;
+	}
+
+	/** @return A new empty segment of the type identified by the update code. */
+	private static TCS_Status.Segment createSegment(int updateCode) {
+		switch (updateCode) {
+		case ASTROMETRY_UPDATE_EVENT:
+			return new TCS_Status.Astrometry();
+		case AUTOGUIDER_UPDATE_EVENT:
+			return new TCS_Status.Autoguider();
+		case CALIBRATE_UPDATE_EVENT:
+			return new TCS_Status.Calibrate();
+		case FOCAL_STATION_UPDATE_EVENT:
+			return new TCS_Status.FocalStation();
+		case LIMITS_UPDATE_EVENT:
+			return new TCS_Status.Limits();
+		case MECHANISMS_UPDATE_EVENT:
+			return new TCS_Status.Mechanisms();
+		case METEOROLOGY_UPDATE_EVENT:
+			return new TCS_Status.Meteorology();
+		case SOURCE_UPDATE_EVENT:
+			return new TCS_Status.SourceBlock();
+		case SERVICES_UPDATE_EVENT:
+			return new TCS_Status.Services();
+		case STATE_UPDATE_EVENT:
+			return new TCS_Status.State();
+		case TIME_UPDATE_EVENT:
+			return new TCS_Status.Time();
+		case VERSION_UPDATE_EVENT:
+			return new TCS_Status.Version();
+		case NETWORK_UPDATE_EVENT:
+			return new TCS_Status.Network();
+		}
+		throw new IllegalArgumentException("Unknown update code: " + updateCode);
+	}
+
+	/** @return The segment of a TCS_Status identified by the update code. */
+	private static TCS_Status.Segment segmentOf(TCS_Status status, int updateCode) {
+		switch (updateCode) {
+		case ASTROMETRY_UPDATE_EVENT:
+			return status.astrometry;
+		case AUTOGUIDER_UPDATE_EVENT:
+			return status.autoguider;
+		case CALIBRATE_UPDATE_EVENT:
+			return status.calibrate;
+		case FOCAL_STATION_UPDATE_EVENT:
+			return status.focalStation;
+		case LIMITS_UPDATE_EVENT:
+			return status.limits;
+		case MECHANISMS_UPDATE_EVENT:
+			return status.mechanisms;
+		case METEOROLOGY_UPDATE_EVENT:
+			return status.meteorology;
+		case SOURCE_UPDATE_EVENT:
+			return status.source;
+		case SERVICES_UPDATE_EVENT:
+			return status.services;
+		case STATE_UPDATE_EVENT:
+			return status.state;
+		case TIME_UPDATE_EVENT:
+			return status.time;
+		case VERSION_UPDATE_EVENT:
+			return status.version;
+		case NETWORK_UPDATE_EVENT:
+			return status.network;
+		}
+		throw new IllegalArgumentException("Unknown update code: " + updateCode);
+	}
+
+	/** Set the segment of a TCS_Status identified by the update code. */
+	private static void setSegment(TCS_Status status, int updateCode, TCS_Status.Segment segment) {
+		switch (updateCode) {
+		case ASTROMETRY_UPDATE_EVENT:
+			status.astrometry = (TCS_Status.Astrometry) segment;
+			break;
+		case AUTOGUIDER_UPDATE_EVENT:
+			status.autoguider = (TCS_Status.Autoguider) segment;
+			break;
+		case CALIBRATE_UPDATE_EVENT:
+			status.calibrate = (TCS_Status.Calibrate) segment;
+			break;
+		case FOCAL_STATION_UPDATE_EVENT:
+			status.focalStation = (TCS_Status.FocalStation) segment;
+			break;
+		case LIMITS_UPDATE_EVENT:
+			status.limits = (TCS_Status.Limits) segment;
+			break;
+		case MECHANISMS_UPDATE_EVENT:
+			status.mechanisms = (TCS_Status.Mechanisms) segment;
+			break;
+		case METEOROLOGY_UPDATE_EVENT:
+			status.meteorology = (TCS_Status.Meteorology) segment;
+			break;
+		case SOURCE_UPDATE_EVENT:
+			status.source = (TCS_Status.SourceBlock) segment;
+			break;
+		case SERVICES_UPDATE_EVENT:
+			status.services = (TCS_Status.Services) segment;
+			break;
+		case STATE_UPDATE_EVENT:
+			status.state = (TCS_Status.State) segment;
+			break;
+		case TIME_UPDATE_EVENT:
+			status.time = (TCS_Status.Time) segment;
+			break;
+		case VERSION_UPDATE_EVENT:
+			status.version = (TCS_Status.Version) segment;
+			break;
+		case NETWORK_UPDATE_EVENT:
+			status.network = (TCS_Status.Network) segment;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown update code: " + updateCode);
+		}
+	}
+
+	/** Copy the content of one segment into another of the same type. */
+	private static void copySegment(int updateCode, TCS_Status.Segment from, TCS_Status.Segment to) {
+		switch (updateCode) {
+		case ASTROMETRY_UPDATE_EVENT:
+			copyAstrometry((TCS_Status.Astrometry) from, (TCS_Status.Astrometry) to);
+			break;
+		case AUTOGUIDER_UPDATE_EVENT:
+			copyAutoguider((TCS_Status.Autoguider) from, (TCS_Status.Autoguider) to);
+			break;
+		case CALIBRATE_UPDATE_EVENT:
+			copyCalibrate((TCS_Status.Calibrate) from, (TCS_Status.Calibrate) to);
+			break;
+		case FOCAL_STATION_UPDATE_EVENT:
+			copyFocalStation((TCS_Status.FocalStation) from, (TCS_Status.FocalStation) to);
+			break;
+		case LIMITS_UPDATE_EVENT:
+			copyLimits((TCS_Status.Limits) from, (TCS_Status.Limits) to);
+			break;
+		case MECHANISMS_UPDATE_EVENT:
+			copyMechanisms((TCS_Status.Mechanisms) from, (TCS_Status.Mechanisms) to);
+			break;
+		case METEOROLOGY_UPDATE_EVENT:
+			copyMeteorology((TCS_Status.Meteorology) from, (TCS_Status.Meteorology) to);
+			break;
+		case SOURCE_UPDATE_EVENT:
+			copySource((TCS_Status.SourceBlock) from, (TCS_Status.SourceBlock) to);
+			break;
+		case SERVICES_UPDATE_EVENT:
+			copyServices((TCS_Status.Services) from, (TCS_Status.Services) to);
+			break;
+		case STATE_UPDATE_EVENT:
+			copyState((TCS_Status.State) from, (TCS_Status.State) to);
+			break;
+		case TIME_UPDATE_EVENT:
+			copyTime((TCS_Status.Time) from, (TCS_Status.Time) to);
+			break;
+		case VERSION_UPDATE_EVENT:
+			copyVersion((TCS_Status.Version) from, (TCS_Status.Version) to);
+			break;
+		case NETWORK_UPDATE_EVENT:
+			copyNetwork((TCS_Status.Network) from, (TCS_Status.Network) to);
+			break;
+		}
+	}
+
+	/**
+	 * Create a private working copy of the latest version of a segment for a
+	 * writer to modify before publishing. Must be called holding the
+	 * segment's write lock.
+	 */
+	private static TCS_Status.Segment workingCopy(int updateCode) {
+		TCS_Status.Segment working = createSegment(updateCode);
+		copySegment(updateCode, ((StatusSegmentSnapshot) segments.get(updateCode)).getSegment(), working);
+		return working;
+	}
+
+	/**
+	 * Publish a new version of a segment and a new composite status holding
+	 * it. Must be called holding the segment's write lock. The segment must
+	 * not be modified afterwards.
+	 */
+	private static StatusSegmentSnapshot publish(int updateCode, TCS_Status.Segment segment) {
+		StatusSegmentSnapshot previous = (StatusSegmentSnapshot) segments.get(updateCode);
+		StatusSegmentSnapshot snapshot = new StatusSegmentSnapshot(updateCode, previous.getVersion() + 1, System
+				.currentTimeMillis(), segment);
+		segments.set(updateCode, snapshot);
+		// writers of other segments may publish concurrently - retry until
+		// the composite we replace is still the latest.
+		while (true) {
+			TCS_Status current = (TCS_Status) composite.get();
+			TCS_Status next = new TCS_Status();
+			for (int i = 0; i < SEGMENT_COUNT; i++)
+				setSegment(next, i, (i == updateCode ? segment : segmentOf(current, i)));
+			if (composite.compareAndSet(current, next))
+				break;
+		}
+		StatusHistory history = histories[updateCode];
+		if (history != null) {
+			double[] row = historyRows[updateCode];
+			extractHistory(updateCode, segment, row);
+			history.record(snapshot.getPublishTime(), row);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Extract the fields recorded in a segment's history, in the order of
+	 * HISTORY_COLUMNS.
+	 */
+	private static void extractHistory(int updateCode, TCS_Status.Segment segment, double[] row) {
+		switch (updateCode) {
+		case ASTROMETRY_UPDATE_EVENT:
+			TCS_Status.Astrometry astrometry = (TCS_Status.Astrometry) segment;
+			row[0] = astrometry.airmass;
+			row[1] = astrometry.refractionPressure;
+			row[2] = astrometry.refractionTemperature;
+			row[3] = astrometry.refractionHumidity;
+			row[4] = astrometry.refractionWavelength;
+			row[5] = astrometry.agwavelength;
+			break;
+		case AUTOGUIDER_UPDATE_EVENT:
+			TCS_Status.Autoguider autoguider = (TCS_Status.Autoguider) segment;
+			row[0] = autoguider.fwhm;
+			row[1] = autoguider.guideStarMagnitude;
+			row[2] = autoguider.agStatus;
+			row[3] = autoguider.agMode;
+			row[4] = autoguider.agMirrorPos;
+			row[5] = autoguider.agFocusPos;
+			row[6] = autoguider.agFilterPos;
+			break;
+		case MECHANISMS_UPDATE_EVENT:
+			TCS_Status.Mechanisms mechanisms = (TCS_Status.Mechanisms) segment;
+			row[0] = mechanisms.azDemand;
+			row[1] = mechanisms.azPos;
+			row[2] = mechanisms.azStatus;
+			row[3] = mechanisms.altDemand;
+			row[4] = mechanisms.altPos;
+			row[5] = mechanisms.altStatus;
+			row[6] = mechanisms.rotDemand;
+			row[7] = mechanisms.rotPos;
+			row[8] = mechanisms.rotStatus;
+			row[9] = mechanisms.rotMode;
+			row[10] = mechanisms.rotSkyAngle;
+			row[11] = mechanisms.secMirrorDemand;
+			row[12] = mechanisms.secMirrorPos;
+			row[13] = mechanisms.secMirrorStatus;
+			row[14] = mechanisms.focusOffset;
+			row[15] = mechanisms.encShutter1Pos;
+			row[16] = mechanisms.encShutter2Pos;
+			row[17] = mechanisms.primMirrorCoverPos;
+			break;
+		case METEOROLOGY_UPDATE_EVENT:
+			TCS_Status.Meteorology meteorology = (TCS_Status.Meteorology) segment;
+			row[0] = meteorology.extTemperature;
+			row[1] = meteorology.humidity;
+			row[2] = meteorology.pressure;
+			row[3] = meteorology.windSpeed;
+			row[4] = meteorology.windDirn;
+			row[5] = meteorology.dewPointTemperature;
+			row[6] = meteorology.lightLevel;
+			row[7] = meteorology.moistureFraction;
+			row[8] = meteorology.rainState;
+			row[9] = meteorology.wmsStatus;
+			row[10] = meteorology.serrurierTrussTemperature;
+			row[11] = meteorology.oilTemperature;
+			row[12] = meteorology.primMirrorTemperature;
+			row[13] = meteorology.secMirrorTemperature;
+			row[14] = meteorology.agBoxTemperature;
+			break;
+		case SOURCE_UPDATE_EVENT:
+			TCS_Status.SourceBlock source = (TCS_Status.SourceBlock) segment;
+			row[0] = source.srcRa;
+			row[1] = source.srcDec;
+			row[2] = source.srcActRa;
+			row[3] = source.srcActDec;
+			break;
+		case STATE_UPDATE_EVENT:
+			TCS_Status.State state = (TCS_Status.State) segment;
+			row[0] = state.telescopeState;
+			row[1] = state.tcsState;
+			row[2] = state.networkControlState;
+			row[3] = state.engineeringOverrideState;
+			break;
+		case TIME_UPDATE_EVENT:
+			TCS_Status.Time time = (TCS_Status.Time) segment;
+			row[0] = time.mjd;
+			row[1] = time.ut1;
+			row[2] = time.lst;
+			break;
+		}
 	}
 
 	/**
@@ -265,6 +744,38 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 		// log("There are now: "+instance.countObservers(updateCode)+" Observers:");
 	}
 
+	/**
+	 * Registers a listener to receive each new version of the specified
+	 * segment. If the listener is already registered for the segment this call
+	 * has no effect.
+	 * 
+	 * @param listener
+	 *            The listener to register.
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 */
+	public static void register(StatusSegmentListener listener, int updateCode) {
+		logger.log(1, "StatusPool", "", "register", "Registered SegmentListener: " + listener + " for update-code: "
+				+ updateCode);
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
+			return; // silently.
+		((CopyOnWriteArrayList) instance.segmentListeners[updateCode]).addIfAbsent(listener);
+	}
+
+	/**
+	 * De-registers a listener from the specified segment.
+	 * 
+	 * @param listener
+	 *            The listener to de-register.
+	 * @param updateCode
+	 *            The update code identifying the segment.
+	 */
+	public static void unregister(StatusSegmentListener listener, int updateCode) {
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
+			return; // silently.
+		instance.segmentListeners[updateCode].remove(listener);
+	}
+
 	/**
 	 * De-registers the specified object with the singleton as an Observer. If
 	 * the object is not registered the effect is not specified in the
@@ -302,11 +813,9 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 *            The update code to register against.
 	 */
 	protected void addObserver(Observer observer, int updateCode) {
-		if (updateCode < 0 || updateCode > 12)
-			return; // silently.
-		if (observers[updateCode].contains(observer))
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
 			return; // silently.
-		observers[updateCode].add(observer);
+		((CopyOnWriteArrayList) observers[updateCode]).addIfAbsent(observer);
 	}
 
 	/**
@@ -321,7 +830,7 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 *            The update code to remove registration from.
 	 */
 	protected void deleteObserver(Observer observer, int updateCode) {
-		if (updateCode < 0 || updateCode > 12)
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
 			return; // silently.
 		if (!(observers[updateCode].contains(observer)))
 			return; // silently.
@@ -338,7 +847,7 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 *            The update code to remove ALL registration from.
 	 */
 	protected void deleteObservers(int updateCode) {
-		if (updateCode < 0 || updateCode > 12)
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
 			return; // silently.
 		if ((observers[updateCode].isEmpty()))
 			return; // silently.
@@ -353,26 +862,40 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 *            The update code to count Observers for.
 	 */
 	protected int countObservers(int updateCode) {
-		if (updateCode < 0 || updateCode > 12)
+		if (updateCode < 0 || updateCode >= SEGMENT_COUNT)
 			return 0;
 		return observers[updateCode].size();
 	}
 
 	/**
-	 * Passes the notification of an update to any registered Observers. Note:
-	 * That the full TCS_Status is passed as the argument, not just the updated
-	 * segment.
+	 * Passes the notification of an update to any registered Observers and
+	 * segment listeners. Note: That the full TCS_Status is passed to Observers
+	 * as the argument, not just the updated segment. Segment listeners receive
+	 * the snapshot and are notified against the snapshot's own update code.
 	 * 
 	 * @param updateCode
 	 *            The update code for which Observers are to be notified.
+	 * @param snapshot
+	 *            The newly published segment.
 	 */
-	protected void notifyObservers(int updateCode, TCS_Status.Segment update) {
+	protected void notifyObservers(int updateCode, StatusSegmentSnapshot snapshot) {
 		Iterator notificants = observers[updateCode].iterator();
-		while (notificants.hasNext()) {
-			Observer observer = (Observer) notificants.next();
-			logger.log(1, "StatusPool", "", "notifyObservers", "About to notify: " + observer);
-			// #### Returns the full works - CLONED.
-			observer.update(this, latest());
+		if (notificants.hasNext()) {
+			TCS_Status status = latest();
+			while (notificants.hasNext()) {
+				Observer observer = (Observer) notificants.next();
+				logger.log(3, "StatusPool", "", "notifyObservers", "About to notify: " + observer);
+				observer.update(this, status);
+			}
+		}
+		Iterator listeners = segmentListeners[snapshot.getUpdateCode()].iterator();
+		while (listeners.hasNext()) {
+			StatusSegmentListener listener = (StatusSegmentListener) listeners.next();
+			try {
+				listener.segmentUpdated(snapshot);
+			} catch (Exception e) {
+				logger.log(1, "StatusPool", "", "notifyObservers", "Listener: " + listener + " failed: " + e);
+			}
 		}
 	}
 
@@ -385,7 +908,7 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 */
 	protected int countRegistrations(Observer observer) {
 		int count = 0;
-		for (int i = 0; i < 12; i++) {
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
 			if (observers[i].contains(observer))
 				count++;
 		}
@@ -402,250 +925,230 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 	 *            The Observer to de-register.
 	 */
 	protected void removeRegistrations(Observer observer) {
-		for (int i = 0; i < 12; i++) {
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
 			deleteObserver(observer, i);
 		}
 	}
 
-	private static void insertAstrometry(TCS_Status.Astrometry update) {
-		// System.err.println("StatusPool::Inserting the ASTRO stuff");
-		status.astrometry.timeStamp = update.timeStamp;
-
-		status.astrometry.refractionPressure = update.refractionPressure;
-		status.astrometry.refractionTemperature = update.refractionTemperature;
-		status.astrometry.refractionHumidity = update.refractionHumidity;
-		status.astrometry.refractionWavelength = update.refractionWavelength;
-		status.astrometry.ut1_utc = update.ut1_utc;
-		status.astrometry.tdt_utc = update.tdt_utc;
-		status.astrometry.polarMotion_X = update.polarMotion_X;
-		status.astrometry.polarMotion_Y = update.polarMotion_Y;
-		status.astrometry.airmass = update.airmass;
-		status.astrometry.agwavelength = update.agwavelength;
+	private static void copyAstrometry(TCS_Status.Astrometry from, TCS_Status.Astrometry to) {
+		to.timeStamp = from.timeStamp;
+
+		to.refractionPressure = from.refractionPressure;
+		to.refractionTemperature = from.refractionTemperature;
+		to.refractionHumidity = from.refractionHumidity;
+		to.refractionWavelength = from.refractionWavelength;
+		to.ut1_utc = from.ut1_utc;
+		to.tdt_utc = from.tdt_utc;
+		to.polarMotion_X = from.polarMotion_X;
+		to.polarMotion_Y = from.polarMotion_Y;
+		to.airmass = from.airmass;
+		to.agwavelength = from.agwavelength;
 	}
 
-	private static void insertAutoguider(TCS_Status.Autoguider update) {
-		// System.err.println("StatusPool::Inserting AUTOGUIDER update: "+update);
-		status.autoguider.timeStamp = update.timeStamp;
+	private static void copyAutoguider(TCS_Status.Autoguider from, TCS_Status.Autoguider to) {
+		to.timeStamp = from.timeStamp;
 
-		status.autoguider.agSelected = update.agSelected;
-		status.autoguider.agStatus = update.agStatus;
-		status.autoguider.agSwState = update.agSwState;
+		to.agSelected = from.agSelected;
+		to.agStatus = from.agStatus;
+		to.agSwState = from.agSwState;
 
-		status.autoguider.agMode = update.agMode;
-		status.autoguider.guideStarMagnitude = update.guideStarMagnitude;
-		status.autoguider.fwhm = update.fwhm;
+		to.agMode = from.agMode;
+		to.guideStarMagnitude = from.guideStarMagnitude;
+		to.fwhm = from.fwhm;
 
-		status.autoguider.agMirrorDemand = update.agMirrorDemand;
-		status.autoguider.agMirrorPos = update.agMirrorPos;
-		status.autoguider.agMirrorStatus = update.agMirrorStatus;
+		to.agMirrorDemand = from.agMirrorDemand;
+		to.agMirrorPos = from.agMirrorPos;
+		to.agMirrorStatus = from.agMirrorStatus;
 
-		status.autoguider.agFocusDemand = update.agFocusDemand;
-		status.autoguider.agFocusPos = update.agFocusPos;
-		status.autoguider.agFocusStatus = update.agFocusStatus;
+		to.agFocusDemand = from.agFocusDemand;
+		to.agFocusPos = from.agFocusPos;
+		to.agFocusStatus = from.agFocusStatus;
 
-		status.autoguider.agFilterDemand = update.agFilterDemand;
-		status.autoguider.agFilterPos = update.agFilterPos;
-		status.autoguider.agFilterStatus = update.agFilterStatus;
+		to.agFilterDemand = from.agFilterDemand;
+		to.agFilterPos = from.agFilterPos;
+		to.agFilterStatus = from.agFilterStatus;
 	}
 
-	private static void insertCalibrate(TCS_Status.Calibrate update) {
-		// System.err.println("StatusPool::Inserting the CAL stuff");
-		status.calibrate.timeStamp = update.timeStamp;
+	private static void copyCalibrate(TCS_Status.Calibrate from, TCS_Status.Calibrate to) {
+		to.timeStamp = from.timeStamp;
 
-		status.calibrate.defAzError = update.defAzError;
-		status.calibrate.defAltError = update.defAltError;
-		status.calibrate.defCollError = update.defCollError;
+		to.defAzError = from.defAzError;
+		to.defAltError = from.defAltError;
+		to.defCollError = from.defCollError;
 
-		status.calibrate.currAzError = update.currAzError;
-		status.calibrate.currAltError = update.currAltError;
-		status.calibrate.currCollError = update.currCollError;
+		to.currAzError = from.currAzError;
+		to.currAltError = from.currAltError;
+		to.currCollError = from.currCollError;
 
-		status.calibrate.lastAzError = update.lastAzError;
-		status.calibrate.lastAzRms = update.lastAzRms;
-		status.calibrate.lastAltError = update.lastAltError;
-		status.calibrate.lastAltRms = update.lastAltRms;
-		status.calibrate.lastCollError = update.lastCollError;
-		status.calibrate.lastCollRms = update.lastCollRms;
+		to.lastAzError = from.lastAzError;
+		to.lastAzRms = from.lastAzRms;
+		to.lastAltError = from.lastAltError;
+		to.lastAltRms = from.lastAltRms;
+		to.lastCollError = from.lastCollError;
+		to.lastCollRms = from.lastCollRms;
 
-		status.calibrate.lastSkyRms = update.lastSkyRms;
+		to.lastSkyRms = from.lastSkyRms;
 	}
 
-	private static void insertFocus(TCS_Status.FocalStation update) {
-		// System.err.println("StatusPool::Inserting the FOCUS stuff");
-		status.focalStation.timeStamp = update.timeStamp;
+	private static void copyFocalStation(TCS_Status.FocalStation from, TCS_Status.FocalStation to) {
+		to.timeStamp = from.timeStamp;
 
-		status.focalStation.station = update.station;
-		status.focalStation.instr = update.instr;
-		status.focalStation.ag = update.ag;
+		to.station = from.station;
+		to.instr = from.instr;
+		to.ag = from.ag;
 	}
 
-	private static void insertLimits(TCS_Status.Limits update) {
+	private static void copyLimits(TCS_Status.Limits from, TCS_Status.Limits to) {
 
-		status.limits.timeStamp = update.timeStamp;
+		to.timeStamp = from.timeStamp;
 
-		status.limits.azPosLimit = update.azPosLimit;
-		status.limits.azNegLimit = update.azNegLimit;
-		// System.err.println("StatusPool::Inserting the LIMIT data: "+
-		// status.limits.azPosLimit+" - "+status.limits.azNegLimit);
-		status.limits.altPosLimit = update.altPosLimit;
-		status.limits.altNegLimit = update.altNegLimit;
+		to.azPosLimit = from.azPosLimit;
+		to.azNegLimit = from.azNegLimit;
+		to.altPosLimit = from.altPosLimit;
+		to.altNegLimit = from.altNegLimit;
 
-		status.limits.rotPosLimit = update.rotPosLimit;
-		status.limits.rotNegLimit = update.rotNegLimit;
+		to.rotPosLimit = from.rotPosLimit;
+		to.rotNegLimit = from.rotNegLimit;
 
-		status.limits.timeToAzLimit = update.timeToAzLimit;
-		status.limits.azLimitSense = update.azLimitSense;
+		to.timeToAzLimit = from.timeToAzLimit;
+		to.azLimitSense = from.azLimitSense;
 
-		status.limits.timeToAltLimit = update.timeToAltLimit;
-		status.limits.altLimitSense = update.altLimitSense;
+		to.timeToAltLimit = from.timeToAltLimit;
+		to.altLimitSense = from.altLimitSense;
 
-		status.limits.timeToRotLimit = update.timeToRotLimit;
-		status.limits.rotLimitSense = update.rotLimitSense;
+		to.timeToRotLimit = from.timeToRotLimit;
+		to.rotLimitSense = from.rotLimitSense;
 	}
 
-	private static void insertMechanisms(TCS_Status.Mechanisms update) {
-		System.err.println("StatusPool::Inserting the MECH stuff");
-		status.mechanisms.timeStamp = update.timeStamp;
-
-		status.mechanisms.azName = update.azName;
-		status.mechanisms.azDemand = update.azDemand;
-		status.mechanisms.azPos = update.azPos;
-		status.mechanisms.azStatus = update.azStatus;
-
-		status.mechanisms.altName = update.altName;
-		status.mechanisms.altDemand = update.altDemand;
-		status.mechanisms.altPos = update.altPos;
-		status.mechanisms.altStatus = update.altStatus;
-
-		status.mechanisms.rotName = update.rotName;
-		status.mechanisms.rotDemand = update.rotDemand;
-		status.mechanisms.rotPos = update.rotPos;
-		status.mechanisms.rotMode = update.rotMode;
-		status.mechanisms.rotSkyAngle = update.rotSkyAngle;
-		status.mechanisms.rotStatus = update.rotStatus;
-
-		status.mechanisms.encShutter1Name = update.encShutter1Name;
-		status.mechanisms.encShutter1Demand = update.encShutter1Demand;
-		status.mechanisms.encShutter1Pos = update.encShutter1Pos;
-		status.mechanisms.encShutter1Status = update.encShutter1Status;
-
-		status.mechanisms.encShutter2Name = update.encShutter2Name;
-		status.mechanisms.encShutter2Demand = update.encShutter2Demand;
-		status.mechanisms.encShutter2Pos = update.encShutter2Pos;
-		status.mechanisms.encShutter2Status = update.encShutter2Status;
-
-		status.mechanisms.foldMirrorName = update.foldMirrorName;
-		status.mechanisms.foldMirrorDemand = update.foldMirrorDemand;
-		status.mechanisms.foldMirrorPos = update.foldMirrorPos;
-		status.mechanisms.foldMirrorStatus = update.foldMirrorStatus;
-
-		status.mechanisms.primMirrorName = update.primMirrorName;
-		status.mechanisms.primMirrorCoverDemand = update.primMirrorCoverDemand;
-		status.mechanisms.primMirrorCoverPos = update.primMirrorCoverPos;
-		status.mechanisms.primMirrorCoverStatus = update.primMirrorCoverStatus;
-
-		status.mechanisms.secMirrorName = update.secMirrorName;
-		status.mechanisms.secMirrorDemand = update.secMirrorDemand;
-		status.mechanisms.secMirrorPos = update.secMirrorPos;
-		System.err.println("StatusPool:: Received mechanism sec mirror pos update: "+status.mechanisms.secMirrorPos);
-		status.mechanisms.focusOffset = update.focusOffset;
-		System.err.println("StatusPool:: Received mechanism focus offset update: "+status.mechanisms.focusOffset);
-		status.mechanisms.secMirrorStatus = update.secMirrorStatus;
-
-		status.mechanisms.primMirrorSysName = update.primMirrorSysName;
-		status.mechanisms.primMirrorSysStatus = update.primMirrorSysStatus;
+	private static void copyMechanisms(TCS_Status.Mechanisms from, TCS_Status.Mechanisms to) {
+		to.timeStamp = from.timeStamp;
+
+		to.azName = from.azName;
+		to.azDemand = from.azDemand;
+		to.azPos = from.azPos;
+		to.azStatus = from.azStatus;
+
+		to.altName = from.altName;
+		to.altDemand = from.altDemand;
+		to.altPos = from.altPos;
+		to.altStatus = from.altStatus;
+
+		to.rotName = from.rotName;
+		to.rotDemand = from.rotDemand;
+		to.rotPos = from.rotPos;
+		to.rotMode = from.rotMode;
+		to.rotSkyAngle = from.rotSkyAngle;
+		to.rotStatus = from.rotStatus;
+
+		to.encShutter1Name = from.encShutter1Name;
+		to.encShutter1Demand = from.encShutter1Demand;
+		to.encShutter1Pos = from.encShutter1Pos;
+		to.encShutter1Status = from.encShutter1Status;
+
+		to.encShutter2Name = from.encShutter2Name;
+		to.encShutter2Demand = from.encShutter2Demand;
+		to.encShutter2Pos = from.encShutter2Pos;
+		to.encShutter2Status = from.encShutter2Status;
+
+		to.foldMirrorName = from.foldMirrorName;
+		to.foldMirrorDemand = from.foldMirrorDemand;
+		to.foldMirrorPos = from.foldMirrorPos;
+		to.foldMirrorStatus = from.foldMirrorStatus;
+
+		to.primMirrorName = from.primMirrorName;
+		to.primMirrorCoverDemand = from.primMirrorCoverDemand;
+		to.primMirrorCoverPos = from.primMirrorCoverPos;
+		to.primMirrorCoverStatus = from.primMirrorCoverStatus;
+
+		to.secMirrorName = from.secMirrorName;
+		to.secMirrorDemand = from.secMirrorDemand;
+		to.secMirrorPos = from.secMirrorPos;
+		to.focusOffset = from.focusOffset;
+		to.secMirrorStatus = from.secMirrorStatus;
+
+		to.primMirrorSysName = from.primMirrorSysName;
+		to.primMirrorSysStatus = from.primMirrorSysStatus;
 	}
 
-	private static void insertMeteorology(TCS_Status.Meteorology update) {
-		// System.err.println("StatusPool::Inserting the WEATHER stuff");
+	private static void copyMeteorology(TCS_Status.Meteorology from, TCS_Status.Meteorology to) {
 
-		status.meteorology.timeStamp = update.timeStamp;
+		to.timeStamp = from.timeStamp;
 
-		status.meteorology.wmsStatus = update.wmsStatus;
-		status.meteorology.rainState = update.rainState;
-		status.meteorology.moistureFraction = update.moistureFraction;
-		status.meteorology.extTemperature = update.extTemperature;
-		status.meteorology.serrurierTrussTemperature = update.serrurierTrussTemperature;
-		status.meteorology.oilTemperature = update.oilTemperature;
-		status.meteorology.primMirrorTemperature = update.primMirrorTemperature;
-		status.meteorology.secMirrorTemperature = update.secMirrorTemperature;
-		status.meteorology.dewPointTemperature = update.dewPointTemperature;
+		to.wmsStatus = from.wmsStatus;
+		to.rainState = from.rainState;
+		to.moistureFraction = from.moistureFraction;
+		to.extTemperature = from.extTemperature;
+		to.serrurierTrussTemperature = from.serrurierTrussTemperature;
+		to.oilTemperature = from.oilTemperature;
+		to.primMirrorTemperature = from.primMirrorTemperature;
+		to.secMirrorTemperature = from.secMirrorTemperature;
+		to.dewPointTemperature = from.dewPointTemperature;
 
-		status.meteorology.windSpeed = update.windSpeed;
-		status.meteorology.windDirn = update.windDirn;
-		status.meteorology.agBoxTemperature = update.agBoxTemperature;
+		to.windSpeed = from.windSpeed;
+		to.windDirn = from.windDirn;
+		to.agBoxTemperature = from.agBoxTemperature;
 
-		status.meteorology.pressure = update.pressure;
-		status.meteorology.humidity = update.humidity;
-		status.meteorology.lightLevel = update.lightLevel;
+		to.pressure = from.pressure;
+		to.humidity = from.humidity;
+		to.lightLevel = from.lightLevel;
 
 	}
 
-	private static void insertSource(TCS_Status.SourceBlock update) {
-		// System.err.println("StatusPool::Inserting a SOURCE update");
-		status.source.timeStamp = update.timeStamp;
+	private static void copySource(TCS_Status.SourceBlock from, TCS_Status.SourceBlock to) {
+		to.timeStamp = from.timeStamp;
 
-		status.source.srcName = update.srcName;
-		status.source.srcRa = update.srcRa;
-		status.source.srcDec = update.srcDec;
-		// System.err.println("StatusPool:: Received source update: RA: "+
-		// status.source.srcRa+" rads, Dec: "+
-		// status.source.srcDec+" rads");
+		to.srcName = from.srcName;
+		to.srcRa = from.srcRa;
+		to.srcDec = from.srcDec;
 
-		status.source.srcEquinox = update.srcEquinox;
-		status.source.srcEpoch = update.srcEpoch;
-		status.source.srcNsTrackRA = update.srcNsTrackRA;
-		status.source.srcNsTrackDec = update.srcNsTrackDec;
-		status.source.srcPmRA = update.srcPmRA;
-		status.source.srcPmDec = update.srcPmDec;
-		status.source.srcParallax = update.srcParallax;
-		status.source.srcRadialVelocity = update.srcRadialVelocity;
-		status.source.srcActRa = update.srcActRa;
-		status.source.srcActDec = update.srcActDec;
+		to.srcEquinox = from.srcEquinox;
+		to.srcEpoch = from.srcEpoch;
+		to.srcNsTrackRA = from.srcNsTrackRA;
+		to.srcNsTrackDec = from.srcNsTrackDec;
+		to.srcPmRA = from.srcPmRA;
+		to.srcPmDec = from.srcPmDec;
+		to.srcParallax = from.srcParallax;
+		to.srcRadialVelocity = from.srcRadialVelocity;
+		to.srcActRa = from.srcActRa;
+		to.srcActDec = from.srcActDec;
 
 	}
 
-	private static void insertServices(TCS_Status.Services update) {
-		// System.err.println("StatusPool::Inserting the SERVICES stuff");
-		status.services.timeStamp = update.timeStamp;
+	private static void copyServices(TCS_Status.Services from, TCS_Status.Services to) {
+		to.timeStamp = from.timeStamp;
 
-		status.services.powerState = update.powerState;
+		to.powerState = from.powerState;
 	}
 
-	private static void insertState(TCS_Status.State update) {
-		// System.err.println("StatusPool::Inserting the STATE stuff");
-		status.state.timeStamp = update.timeStamp;
+	private static void copyState(TCS_Status.State from, TCS_Status.State to) {
+		to.timeStamp = from.timeStamp;
 
-		status.state.networkControlState = update.networkControlState;
-		status.state.engineeringOverrideState = update.engineeringOverrideState;
-		status.state.telescopeState = update.telescopeState;
-		status.state.tcsState = update.tcsState;
-		status.state.systemRestartFlag = update.systemRestartFlag;
-		status.state.systemShutdownFlag = update.systemShutdownFlag;
+		to.networkControlState = from.networkControlState;
+		to.engineeringOverrideState = from.engineeringOverrideState;
+		to.telescopeState = from.telescopeState;
+		to.tcsState = from.tcsState;
+		to.systemRestartFlag = from.systemRestartFlag;
+		to.systemShutdownFlag = from.systemShutdownFlag;
 	}
 
-	private static void insertTime(TCS_Status.Time update) {
-		// System.err.println("StatusPool::Inserting the TIME stuff");
-		status.time.timeStamp = update.timeStamp;
+	private static void copyTime(TCS_Status.Time from, TCS_Status.Time to) {
+		to.timeStamp = from.timeStamp;
 
-		status.time.mjd = update.mjd;
-		status.time.ut1 = update.ut1;
-		status.time.lst = update.lst;
+		to.mjd = from.mjd;
+		to.ut1 = from.ut1;
+		to.lst = from.lst;
 	}
 
-	private static void insertVersion(TCS_Status.Version update) {
-		// System.err.println("StatusPool::Inserting the VERSION stuff");
-		status.version.timeStamp = update.timeStamp;
+	private static void copyVersion(TCS_Status.Version from, TCS_Status.Version to) {
+		to.timeStamp = from.timeStamp;
 
-		status.version.tcsVersion = update.tcsVersion;
+		to.tcsVersion = from.tcsVersion;
 	}
 
-	private static void insertNetwork(TCS_Status.Network update) {
-		// System.err.println("StatusPool::Inserting the NETWORK info:"+
-		// "\n"+update.toString());
-		status.network.timeStamp = update.timeStamp;
+	private static void copyNetwork(TCS_Status.Network from, TCS_Status.Network to) {
+		to.timeStamp = from.timeStamp;
 
-		status.network.networkState = update.networkState;
+		to.networkState = from.networkState;
 	}
 
 	/** get an individual status segment. */
@@ -678,29 +1181,41 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 		if (telstatus instanceof PrimaryAxisStatus) {
 			PrimaryAxisStatus axis = (PrimaryAxisStatus) telstatus;
 			String axisName = axis.getMechanismName();
-			if (axisName.equals("AZM")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.azDemand = axis.getDemandPosition();
-				StatusPool.latest().mechanisms.azPos = axis.getCurrentPosition();
-				StatusPool.latest().mechanisms.azStatus = axis.getMechanismState();
-			} else if (axisName.equals("ALT")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.altDemand = axis.getDemandPosition();
-				StatusPool.latest().mechanisms.altPos = axis.getCurrentPosition();
-				StatusPool.latest().mechanisms.altStatus = axis.getMechanismState();
+			StatusSegmentSnapshot snapshot = getSegment(MECHANISMS_UPDATE_EVENT);
+			synchronized (writeLocks[MECHANISMS_UPDATE_EVENT]) {
+				if (axisName.equals("AZM")) {
+					TCS_Status.Mechanisms mechanisms = (TCS_Status.Mechanisms) workingCopy(MECHANISMS_UPDATE_EVENT);
+					mechanisms.timeStamp = telstatus.getStatusTimeStamp();
+					mechanisms.azDemand = axis.getDemandPosition();
+					mechanisms.azPos = axis.getCurrentPosition();
+					mechanisms.azStatus = axis.getMechanismState();
+					snapshot = publish(MECHANISMS_UPDATE_EVENT, mechanisms);
+				} else if (axisName.equals("ALT")) {
+					TCS_Status.Mechanisms mechanisms = (TCS_Status.Mechanisms) workingCopy(MECHANISMS_UPDATE_EVENT);
+					mechanisms.timeStamp = telstatus.getStatusTimeStamp();
+					mechanisms.altDemand = axis.getDemandPosition();
+					mechanisms.altPos = axis.getCurrentPosition();
+					mechanisms.altStatus = axis.getMechanismState();
+					snapshot = publish(MECHANISMS_UPDATE_EVENT, mechanisms);
+				}
 			}
-			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, this.status.mechanisms);
+			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, snapshot);
 		}
 
 		if (telstatus instanceof RotatorAxisStatus) {
 			RotatorAxisStatus rotator = (RotatorAxisStatus) telstatus;
-			StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-			StatusPool.latest().mechanisms.rotDemand = rotator.getDemandPosition();
-			StatusPool.latest().mechanisms.rotPos = rotator.getCurrentPosition();
-			StatusPool.latest().mechanisms.rotStatus = rotator.getMechanismState();
-			StatusPool.latest().mechanisms.rotSkyAngle = rotator.getSkyAngle();
-			StatusPool.latest().mechanisms.rotMode = rotator.getRotatorMode();
-			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, this.status.mechanisms);
+			StatusSegmentSnapshot snapshot = null;
+			synchronized (writeLocks[MECHANISMS_UPDATE_EVENT]) {
+				TCS_Status.Mechanisms mechanisms = (TCS_Status.Mechanisms) workingCopy(MECHANISMS_UPDATE_EVENT);
+				mechanisms.timeStamp = telstatus.getStatusTimeStamp();
+				mechanisms.rotDemand = rotator.getDemandPosition();
+				mechanisms.rotPos = rotator.getCurrentPosition();
+				mechanisms.rotStatus = rotator.getMechanismState();
+				mechanisms.rotSkyAngle = rotator.getSkyAngle();
+				mechanisms.rotMode = rotator.getRotatorMode();
+				snapshot = publish(MECHANISMS_UPDATE_EVENT, mechanisms);
+			}
+			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, snapshot);
 		}
 		if (telstatus instanceof FocusStatus) {
 			FocusStatus focusStatus = (FocusStatus) telstatus;
@@ -710,21 +1225,31 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 				return;
 			
 			if (focusName.equals("SMF")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.secMirrorDemand = focusStatus.getDemandPosition();
-				StatusPool.latest().mechanisms.secMirrorPos = focusStatus.getCurrentPosition();
-				System.err.println("StatusPool::telescopeStatusUpdate:SMF:sec mirror pos: "+focusStatus.getCurrentPosition());
-				StatusPool.latest().mechanisms.secMirrorStatus = focusStatus.getMechanismState();
-				StatusPool.latest().mechanisms.focusOffset = focusStatus.getFocusOffset();
-				System.err.println("StatusPool::telescopeStatusUpdate:SMF:focus offset: "+focusStatus.getFocusOffset());
-				instance.notifyObservers(MECHANISMS_UPDATE_EVENT, this.status.mechanisms);
+				StatusSegmentSnapshot snapshot = null;
+				synchronized (writeLocks[MECHANISMS_UPDATE_EVENT]) {
+					TCS_Status.Mechanisms mechanisms = (TCS_Status.Mechanisms) workingCopy(MECHANISMS_UPDATE_EVENT);
+					mechanisms.timeStamp = telstatus.getStatusTimeStamp();
+					mechanisms.secMirrorDemand = focusStatus.getDemandPosition();
+					mechanisms.secMirrorPos = focusStatus.getCurrentPosition();
+					mechanisms.secMirrorStatus = focusStatus.getMechanismState();
+					mechanisms.focusOffset = focusStatus.getFocusOffset();
+					snapshot = publish(MECHANISMS_UPDATE_EVENT, mechanisms);
+				}
+				logger.log(3, "StatusPool", "", "telescopeStatusUpdate", "SMF: sec mirror pos: "
+						+ focusStatus.getCurrentPosition() + ", focus offset: " + focusStatus.getFocusOffset());
+				instance.notifyObservers(MECHANISMS_UPDATE_EVENT, snapshot);
 			} else if
 				(focusName.equals("AGF")) {
-				StatusPool.latest().autoguider.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().autoguider.agFocusDemand = focusStatus.getDemandPosition();
-				StatusPool.latest().autoguider.agFocusPos = focusStatus.getCurrentPosition();
-				StatusPool.latest().autoguider.agFocusStatus = focusStatus.getMechanismState();
-				instance.notifyObservers(FOCAL_STATION_UPDATE_EVENT, this.status.focalStation);
+				StatusSegmentSnapshot snapshot = null;
+				synchronized (writeLocks[AUTOGUIDER_UPDATE_EVENT]) {
+					TCS_Status.Autoguider autoguider = (TCS_Status.Autoguider) workingCopy(AUTOGUIDER_UPDATE_EVENT);
+					autoguider.timeStamp = telstatus.getStatusTimeStamp();
+					autoguider.agFocusDemand = focusStatus.getDemandPosition();
+					autoguider.agFocusPos = focusStatus.getCurrentPosition();
+					autoguider.agFocusStatus = focusStatus.getMechanismState();
+					snapshot = publish(AUTOGUIDER_UPDATE_EVENT, autoguider);
+				}
+				instance.notifyObservers(FOCAL_STATION_UPDATE_EVENT, snapshot);
 			}
 			
 		}
@@ -737,106 +1262,144 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 			String auxMechName = aux.getMechanismName();
 			if (auxMechName == null) 
 				return;
-			if (auxMechName.equals("AGD")) {
-				StatusPool.latest().autoguider.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().autoguider.agMirrorDemand = aux.getDemandPosition();
-				StatusPool.latest().autoguider.agMirrorPos = aux.getCurrentPosition();
-				StatusPool.latest().autoguider.agMirrorStatus = aux.getMechanismState();
-			} else if
-				(auxMechName.equals("AGI")) {
-				StatusPool.latest().autoguider.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().autoguider.agFilterDemand = aux.getDemandPosition();
-				StatusPool.latest().autoguider.agFilterPos = aux.getCurrentPosition();
-				StatusPool.latest().autoguider.agFilterStatus = aux.getMechanismState();
-			} else if
-				(auxMechName.equals("PMC")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.primMirrorCoverDemand = aux.getDemandPosition();
-				StatusPool.latest().mechanisms.primMirrorCoverPos = aux.getCurrentPosition();
-				StatusPool.latest().mechanisms.primMirrorCoverStatus = aux.getMechanismState();
-			} else if
-				(auxMechName.equals("PMS")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.primMirrorSysStatus = aux.getMechanismState();
-				
-			} else if 
-				(auxMechName.equals("EN1")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.encShutter1Demand = aux.getDemandPosition();
-				StatusPool.latest().mechanisms.encShutter1Pos = aux.getCurrentPosition();
-				StatusPool.latest().mechanisms.encShutter1Status = aux.getMechanismState();
-			} else if 
-				(auxMechName.equals("EN2")) {
-				StatusPool.latest().mechanisms.timeStamp = telstatus.getStatusTimeStamp();
-				StatusPool.latest().mechanisms.encShutter2Demand = aux.getDemandPosition();
-				StatusPool.latest().mechanisms.encShutter2Pos = aux.getCurrentPosition();
-				StatusPool.latest().mechanisms.encShutter2Status = aux.getMechanismState();
+			StatusSegmentSnapshot snapshot = null;
+			if (auxMechName.equals("AGD") || auxMechName.equals("AGI")) {
+				synchronized (writeLocks[AUTOGUIDER_UPDATE_EVENT]) {
+					TCS_Status.Autoguider autoguider = (TCS_Status.Autoguider) workingCopy(AUTOGUIDER_UPDATE_EVENT);
+					autoguider.timeStamp = telstatus.getStatusTimeStamp();
+					if (auxMechName.equals("AGD")) {
+						autoguider.agMirrorDemand = aux.getDemandPosition();
+						autoguider.agMirrorPos = aux.getCurrentPosition();
+						autoguider.agMirrorStatus = aux.getMechanismState();
+					} else {
+						autoguider.agFilterDemand = aux.getDemandPosition();
+						autoguider.agFilterPos = aux.getCurrentPosition();
+						autoguider.agFilterStatus = aux.getMechanismState();
+					}
+					snapshot = publish(AUTOGUIDER_UPDATE_EVENT, autoguider);
+				}
+			} else {
+				synchronized (writeLocks[MECHANISMS_UPDATE_EVENT]) {
+					TCS_Status.Mechanisms mechanisms = (TCS_Status.Mechanisms) workingCopy(MECHANISMS_UPDATE_EVENT);
+					boolean changed = true;
+					if
+						(auxMechName.equals("PMC")) {
+						mechanisms.primMirrorCoverDemand = aux.getDemandPosition();
+						mechanisms.primMirrorCoverPos = aux.getCurrentPosition();
+						mechanisms.primMirrorCoverStatus = aux.getMechanismState();
+					} else if
+						(auxMechName.equals("PMS")) {
+						mechanisms.primMirrorSysStatus = aux.getMechanismState();
+						
+					} else if 
+						(auxMechName.equals("EN1")) {
+						mechanisms.encShutter1Demand = aux.getDemandPosition();
+						mechanisms.encShutter1Pos = aux.getCurrentPosition();
+						mechanisms.encShutter1Status = aux.getMechanismState();
+					} else if 
+						(auxMechName.equals("EN2")) {
+						mechanisms.encShutter2Demand = aux.getDemandPosition();
+						mechanisms.encShutter2Pos = aux.getCurrentPosition();
+						mechanisms.encShutter2Status = aux.getMechanismState();
+					} else
+						changed = false;
+					if (changed) {
+						mechanisms.timeStamp = telstatus.getStatusTimeStamp();
+						snapshot = publish(MECHANISMS_UPDATE_EVENT, mechanisms);
+					} else
+						snapshot = getSegment(MECHANISMS_UPDATE_EVENT);
+				}
 			}
-			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, this.status.mechanisms);
+			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, snapshot);
 		}
 		
 		if (telstatus instanceof AutoguiderStatus) {
 			
-			AutoguiderStatus autoguider = (AutoguiderStatus)telstatus;
-			StatusPool.latest().autoguider.timeStamp = telstatus.getStatusTimeStamp();
-			StatusPool.latest().autoguider.agMode = autoguider.getGuideMode();
-			StatusPool.latest().autoguider.agStatus = autoguider.getGuideState();
-			StatusPool.latest().autoguider.agSwState = autoguider.getSoftwareState();
-			StatusPool.latest().autoguider.fwhm = autoguider.getGuideFwhm();
-			StatusPool.latest().autoguider.guideStarMagnitude = autoguider.getGuideStarMagnitude();
-			instance.notifyObservers(AUTOGUIDER_UPDATE_EVENT, this.status.autoguider);
+			AutoguiderStatus ags = (AutoguiderStatus)telstatus;
+			StatusSegmentSnapshot snapshot = null;
+			synchronized (writeLocks[AUTOGUIDER_UPDATE_EVENT]) {
+				TCS_Status.Autoguider autoguider = (TCS_Status.Autoguider) workingCopy(AUTOGUIDER_UPDATE_EVENT);
+				autoguider.timeStamp = telstatus.getStatusTimeStamp();
+				autoguider.agMode = ags.getGuideMode();
+				autoguider.agStatus = ags.getGuideState();
+				autoguider.agSwState = ags.getSoftwareState();
+				autoguider.fwhm = ags.getGuideFwhm();
+				autoguider.guideStarMagnitude = ags.getGuideStarMagnitude();
+				snapshot = publish(AUTOGUIDER_UPDATE_EVENT, autoguider);
+			}
+			instance.notifyObservers(AUTOGUIDER_UPDATE_EVENT, snapshot);
 		}
 		
 		if (telstatus instanceof TelescopeControlSystemStatus) {
 			TelescopeControlSystemStatus telstate = (TelescopeControlSystemStatus)telstatus;
-			StatusPool.latest().state.timeStamp = telstatus.getStatusTimeStamp();
-			StatusPool.latest().state.telescopeState = telstate.getTelescopeSystemState();
-			StatusPool.latest().state.tcsState = telstate.getTelescopeControlSystemState();
-			StatusPool.latest().state.engineeringOverrideState = telstate.getTelescopeEngineeringControlState();
-			StatusPool.latest().state.networkControlState = telstate.getTelescopeNetworkControlState();
-			instance.notifyObservers(STATE_UPDATE_EVENT, this.status.state);		
+			StatusSegmentSnapshot snapshot = null;
+			synchronized (writeLocks[STATE_UPDATE_EVENT]) {
+				TCS_Status.State state = (TCS_Status.State) workingCopy(STATE_UPDATE_EVENT);
+				state.timeStamp = telstatus.getStatusTimeStamp();
+				state.telescopeState = telstate.getTelescopeSystemState();
+				state.tcsState = telstate.getTelescopeControlSystemState();
+				state.engineeringOverrideState = telstate.getTelescopeEngineeringControlState();
+				state.networkControlState = telstate.getTelescopeNetworkControlState();
+				snapshot = publish(STATE_UPDATE_EVENT, state);
+			}
+			instance.notifyObservers(STATE_UPDATE_EVENT, snapshot);		
 		}
 		
 		if (telstatus instanceof TelescopeEnvironmentStatus) {
 			TelescopeEnvironmentStatus env = (TelescopeEnvironmentStatus)telstatus;
-			StatusPool.latest().meteorology.timeStamp = telstatus.getStatusTimeStamp();
-			StatusPool.latest().meteorology.agBoxTemperature = env.getAgBoxTemperature();
-			StatusPool.latest().meteorology.primMirrorTemperature = env.getPrimaryMirrorTemperature();
-			StatusPool.latest().meteorology.secMirrorTemperature = env.getSecondaryMirrorTemperature();
-			StatusPool.latest().meteorology.serrurierTrussTemperature = env.getTrussTemperature();
-			StatusPool.latest().meteorology.oilTemperature = env.getOilTemperature();
-			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, this.status.meteorology);
+			StatusSegmentSnapshot snapshot = null;
+			synchronized (writeLocks[METEOROLOGY_UPDATE_EVENT]) {
+				TCS_Status.Meteorology meteorology = (TCS_Status.Meteorology) workingCopy(METEOROLOGY_UPDATE_EVENT);
+				meteorology.timeStamp = telstatus.getStatusTimeStamp();
+				meteorology.agBoxTemperature = env.getAgBoxTemperature();
+				meteorology.primMirrorTemperature = env.getPrimaryMirrorTemperature();
+				meteorology.secMirrorTemperature = env.getSecondaryMirrorTemperature();
+				meteorology.serrurierTrussTemperature = env.getTrussTemperature();
+				meteorology.oilTemperature = env.getOilTemperature();
+				snapshot = publish(METEOROLOGY_UPDATE_EVENT, meteorology);
+			}
+			instance.notifyObservers(MECHANISMS_UPDATE_EVENT, snapshot);
 		}
 
 		if (telstatus instanceof SourceData) {
 		    SourceData srcData = (SourceData)telstatus;
-		    StatusPool.latest().source.timeStamp = telstatus.getStatusTimeStamp();
-		    //System.err.println("StatusPool: telstatus:SourceData: "+srcData);
-		    StatusPool.latest().source.srcName = srcData.srcName;
-		    StatusPool.latest().source.srcRa = srcData.srcRa;
-		    StatusPool.latest().source.srcDec = srcData.srcDec;
-		    StatusPool.latest().source.srcEquinox = srcData.srcEquinox;
-		    StatusPool.latest().source.srcEpoch = srcData.srcEpoch;
-		    StatusPool.latest().source.srcPmRA = srcData.srcPmRA;
-		    StatusPool.latest().source.srcPmDec = srcData.srcPmDec;
-		    StatusPool.latest().source.srcNsTrackRA = srcData.srcNsTrackRA;
-		    StatusPool.latest().source.srcNsTrackDec = srcData.srcNsTrackDec;
-		    StatusPool.latest().source.srcParallax = srcData.srcParallax;
-		    StatusPool.latest().source.srcRadialVelocity = srcData.srcRadialVelocity;
-		    StatusPool.latest().source.srcActRa = srcData.srcActRa;
-		    StatusPool.latest().source.srcActDec = srcData.srcActDec;
-		    instance.notifyObservers(SOURCE_UPDATE_EVENT, this.status.source);
+		    StatusSegmentSnapshot snapshot = null;
+		    synchronized (writeLocks[SOURCE_UPDATE_EVENT]) {
+			TCS_Status.SourceBlock source = (TCS_Status.SourceBlock) workingCopy(SOURCE_UPDATE_EVENT);
+			source.timeStamp = telstatus.getStatusTimeStamp();
+			//System.err.println("StatusPool: telstatus:SourceData: "+srcData);
+			source.srcName = srcData.srcName;
+			source.srcRa = srcData.srcRa;
+			source.srcDec = srcData.srcDec;
+			source.srcEquinox = srcData.srcEquinox;
+			source.srcEpoch = srcData.srcEpoch;
+			source.srcPmRA = srcData.srcPmRA;
+			source.srcPmDec = srcData.srcPmDec;
+			source.srcNsTrackRA = srcData.srcNsTrackRA;
+			source.srcNsTrackDec = srcData.srcNsTrackDec;
+			source.srcParallax = srcData.srcParallax;
+			source.srcRadialVelocity = srcData.srcRadialVelocity;
+			source.srcActRa = srcData.srcActRa;
+			source.srcActDec = srcData.srcActDec;
+			snapshot = publish(SOURCE_UPDATE_EVENT, source);
+		    }
+		    instance.notifyObservers(SOURCE_UPDATE_EVENT, snapshot);
 
 		}
 
 		if (telstatus instanceof TimeData) {
                     TimeData timeData = (TimeData)telstatus;
-                    StatusPool.latest().time.timeStamp = telstatus.getStatusTimeStamp();
-                    //System.err.println("StatusPool: telstatus:TimeData: "+timeData);
-                    StatusPool.latest().time.mjd = timeData.mjd;
-		    StatusPool.latest().time.lst = timeData.lst;
-		    StatusPool.latest().time.ut1 = timeData.ut1;
-		    instance.notifyObservers(TIME_UPDATE_EVENT, this.status.time);
+                    StatusSegmentSnapshot snapshot = null;
+                    synchronized (writeLocks[TIME_UPDATE_EVENT]) {
+			TCS_Status.Time time = (TCS_Status.Time) workingCopy(TIME_UPDATE_EVENT);
+			time.timeStamp = telstatus.getStatusTimeStamp();
+			//System.err.println("StatusPool: telstatus:TimeData: "+timeData);
+			time.mjd = timeData.mjd;
+			time.lst = timeData.lst;
+			time.ut1 = timeData.ut1;
+			snapshot = publish(TIME_UPDATE_EVENT, time);
+                    }
+		    instance.notifyObservers(TIME_UPDATE_EVENT, snapshot);
 
 		}
 		
@@ -844,20 +1407,25 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 			
 			AstrometryData ad = (AstrometryData) telstatus;
 			//System.err.println("StatusPool: telstatus:Astro: "+ad.airmass);
-			StatusPool.latest().astrometry.timeStamp = telstatus.getStatusTimeStamp();
-			StatusPool.latest().astrometry.airmass = ad.airmass;
-			StatusPool.latest().astrometry.refractionHumidity = ad.refractionHumidity;
-			StatusPool.latest().astrometry.refractionPressure = ad.refractionPressure;
-			StatusPool.latest().astrometry.refractionTemperature = ad.refractionTemperature;
-			StatusPool.latest().astrometry.refractionWavelength = ad.refractionWavelength;
-			StatusPool.latest().astrometry.agwavelength = ad.agwavelength;
+			StatusSegmentSnapshot snapshot = null;
+			synchronized (writeLocks[ASTROMETRY_UPDATE_EVENT]) {
+				TCS_Status.Astrometry astrometry = (TCS_Status.Astrometry) workingCopy(ASTROMETRY_UPDATE_EVENT);
+				astrometry.timeStamp = telstatus.getStatusTimeStamp();
+				astrometry.airmass = ad.airmass;
+				astrometry.refractionHumidity = ad.refractionHumidity;
+				astrometry.refractionPressure = ad.refractionPressure;
+				astrometry.refractionTemperature = ad.refractionTemperature;
+				astrometry.refractionWavelength = ad.refractionWavelength;
+				astrometry.agwavelength = ad.agwavelength;
+				snapshot = publish(ASTROMETRY_UPDATE_EVENT, astrometry);
+			}
 			
-			instance.notifyObservers(ASTROMETRY_UPDATE_EVENT, this.status.astrometry);
+			instance.notifyObservers(ASTROMETRY_UPDATE_EVENT, snapshot);
 			
 		}
 		
 		} catch (Exception e) {
-		    e.printStackTrace();
+		    logger.log(1, "StatusPool", "", "telescopeStatusUpdate", "Failed to apply update: " + e);
 		    // lets not allow this to fail and get knoecked off listener list..
 		}
 	}
@@ -868,27 +1436,33 @@ public class StatusPool extends Observable implements TelescopeStatusUpdateListe
 		//System.err.println("StatusPool::meteoStatusUpdate: " + mstatus.getClass().getName());
 		if (mstatus instanceof WmsStatus) {
 			WmsStatus wms = (WmsStatus) mstatus;
-			StatusPool.latest().meteorology.timeStamp = mstatus.getStatusTimeStamp();
-			StatusPool.latest().meteorology.dewPointTemperature = wms.getDewPointTemperature();
-			StatusPool.latest().meteorology.extTemperature = wms.getExtTemperature();
-			StatusPool.latest().meteorology.humidity = wms.getHumidity();
-			StatusPool.latest().meteorology.lightLevel = wms.getLightLevel();
-			StatusPool.latest().meteorology.moistureFraction = wms.getMoistureFraction();
-			StatusPool.latest().meteorology.pressure = wms.getPressure();
-			StatusPool.latest().meteorology.rainState = wms.getRainState();
-			StatusPool.latest().meteorology.windDirn = wms.getWindDirn();
-			StatusPool.latest().meteorology.windSpeed = wms.getWindSpeed();
-			StatusPool.latest().meteorology.wmsStatus = wms.getWmsStatus();
-			System.err.println("StatusPool::Updated all meteo parameters, forwarding to observers...");
-			instance.notifyObservers(METEOROLOGY_UPDATE_EVENT, this.status.meteorology);		
+			StatusSegmentSnapshot snapshot = null;
+			synchronized (writeLocks[METEOROLOGY_UPDATE_EVENT]) {
+				TCS_Status.Meteorology meteorology = (TCS_Status.Meteorology) workingCopy(METEOROLOGY_UPDATE_EVENT);
+				meteorology.timeStamp = mstatus.getStatusTimeStamp();
+				meteorology.dewPointTemperature = wms.getDewPointTemperature();
+				meteorology.extTemperature = wms.getExtTemperature();
+				meteorology.humidity = wms.getHumidity();
+				meteorology.lightLevel = wms.getLightLevel();
+				meteorology.moistureFraction = wms.getMoistureFraction();
+				meteorology.pressure = wms.getPressure();
+				meteorology.rainState = wms.getRainState();
+				meteorology.windDirn = wms.getWindDirn();
+				meteorology.windSpeed = wms.getWindSpeed();
+				meteorology.wmsStatus = wms.getWmsStatus();
+				snapshot = publish(METEOROLOGY_UPDATE_EVENT, meteorology);
+			}
+			logger.log(3, "StatusPool", "", "meteorologyStatusUpdate",
+					"Updated all meteo parameters, forwarding to observers...");
+			instance.notifyObservers(METEOROLOGY_UPDATE_EVENT, snapshot);		
 		}
 	    } catch (Exception e) {
-		e.printStackTrace();
+		logger.log(1, "StatusPool", "", "meteorologyStatusUpdate", "Failed to apply update: " + e);
 	    }
 	}
 
 	public void telescopeNetworkFailure(long time, String message) throws RemoteException {	
-		System.err.println("StatusPool::telescopeNetworkFailure: " + message);
+		logger.log(1, "StatusPool", "", "telescopeNetworkFailure", message);
 	}
 }
 
@@ -22,7 +22,9 @@ package ngat.rcs.scm.collation;
 import ngat.util.*;
 import ngat.message.RCS_TCS.*;
 
-/** TEMP. A StatusProvider wrapper round TCS_Status cats.
+/** TEMP. A StatusProvider wrapper round TCS_Status cats. Created with an
+ * update code it returns the latest published version of that segment of the
+ * StatusPool each time it is asked.
  *
  * <dl>	
  * <dt><b>RCS:</b>
@@ -38,11 +40,25 @@ public class StatusPoolProvider implements StatusProvider {
 
     TCS_Status.Segment status;
 
+    /** StatusPool update code of the segment, or -1 for a fixed segment.*/
+    int updateCode = -1;
+
     public StatusPoolProvider(TCS_Status.Segment status) {
     	this.status = status;
     }
 
-    public StatusCategory getStatus() { return status; }
+    /** @param updateCode The StatusPool update code of the segment to provide.*/
+    public StatusPoolProvider(int updateCode) {
+    	if (StatusPool.getSegment(updateCode) == null)
+    	    throw new IllegalArgumentException("Unknown update code: " + updateCode);
+    	this.updateCode = updateCode;
+    }
+
+    public StatusCategory getStatus() {
+    	if (updateCode >= 0)
+    	    return StatusPool.getSegment(updateCode).getSegment();
+    	return status;
+    }
 
 }
 
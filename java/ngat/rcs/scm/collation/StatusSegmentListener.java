@@ -0,0 +1,20 @@
+package ngat.rcs.scm.collation;
+
+/**
+ * Receives notification from the StatusPool when a TCS_Status segment the
+ * listener has registered for is updated.
+ * 
+ * @author eng
+ * 
+ */
+public interface StatusSegmentListener {
+
+	/**
+	 * Notification that a new version of a segment has been published.
+	 * 
+	 * @param snapshot
+	 *            The newly published segment.
+	 */
+	public void segmentUpdated(StatusSegmentSnapshot snapshot);
+
+}
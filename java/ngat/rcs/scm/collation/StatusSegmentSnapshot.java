@@ -0,0 +1,77 @@
+package ngat.rcs.scm.collation;
+
+import ngat.message.RCS_TCS.TCS_Status;
+
+/**
+ * An immutable published version of one TCS_Status segment held by the
+ * StatusPool. The segment object is a private copy owned by the pool and is
+ * never modified after publication - holders must not modify it either.
+ * 
+ * @author eng
+ * 
+ */
+public class StatusSegmentSnapshot {
+
+	/** The StatusPool update code identifying the segment. */
+	private final int updateCode;
+
+	/** Version number - increases by one each time the segment is updated. */
+	private final long version;
+
+	/** Time the snapshot was published (local clock). */
+	private final long publishTime;
+
+	/** The segment content. */
+	private final TCS_Status.Segment segment;
+
+	/**
+	 * @param updateCode
+	 *            The StatusPool update code identifying the segment.
+	 * @param version
+	 *            Version number.
+	 * @param publishTime
+	 *            Time the snapshot was published.
+	 * @param segment
+	 *            The segment content.
+	 */
+	public StatusSegmentSnapshot(int updateCode, long version, long publishTime, TCS_Status.Segment segment) {
+		this.updateCode = updateCode;
+		this.version = version;
+		this.publishTime = publishTime;
+		this.segment = segment;
+	}
+
+	/**
+	 * @return the update code identifying the segment
+	 */
+	public int getUpdateCode() {
+		return updateCode;
+	}
+
+	/**
+	 * @return the version number
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the time the snapshot was published
+	 */
+	public long getPublishTime() {
+		return publishTime;
+	}
+
+	/**
+	 * @return the segment content - must not be modified
+	 */
+	public TCS_Status.Segment getSegment() {
+		return segment;
+	}
+
+	@Override
+	public String toString() {
+		return "StatusSegmentSnapshot: code=" + updateCode + ", v=" + version + ", " + segment.getClass().getName();
+	}
+
+}
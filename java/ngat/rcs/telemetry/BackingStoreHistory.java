@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package ngat.rcs.telemetry;
+
+import java.util.List;
+import java.util.Vector;
+
+import ngat.net.telemetry.SecondaryCache;
+import ngat.net.telemetry.StatusCategory;
+import ngat.util.logging.LogGenerator;
+
+/**
+ * Answers history requests for the archive gateways which move status older
+ * than an age limit from their in-memory archive to a backing store.
+ * 
+ * @author eng
+ * 
+ */
+public class BackingStoreHistory {
+
+	private BackingStoreHistory() {
+	}
+
+	/**
+	 * Collect the status between t1 and t2. Anything older than the age limit
+	 * will have been moved to the backing store, so it is read from there
+	 * first when the range reaches that far back, followed by whatever the
+	 * archive holds. A failure to read the backing store is logged and only
+	 * the archive's items are returned.
+	 * 
+	 * @param archive
+	 *            The gateway's in-memory archive.
+	 * @param backingStore
+	 *            The backing store or null if there is none.
+	 * @param backingStoreAgeLimit
+	 *            Age (millis) beyond which status is in the backing store.
+	 * @param t1
+	 *            Start of the range.
+	 * @param t2
+	 *            End of the range.
+	 * @param slogger
+	 *            The gateway's logger.
+	 * @return The status in the range, oldest first.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<T> range(SegmentedStatusArchive<T> archive,
+			SecondaryCache backingStore, long backingStoreAgeLimit, long t1, long t2, LogGenerator slogger) {
+		List<T> list = new Vector<T>();
+
+		if (backingStore != null && t1 < System.currentTimeMillis() - backingStoreAgeLimit) {
+			try {
+				List<StatusCategory> stored = backingStore.retrieveStatus(t1, t2);
+				for (int is = 0; stored != null && is < stored.size(); is++)
+					list.add((T) stored.get(is));
+			} catch (Exception e) {
+				slogger.create().info().level(2).msg("Unable to retrieve from backing store: " + e).send();
+			}
+		}
+
+		list.addAll(archive.range(t1, t2));
+		return list;
+	}
+
+}
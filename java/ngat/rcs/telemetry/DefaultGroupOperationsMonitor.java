@@ -6,7 +6,6 @@ package ngat.rcs.telemetry;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.List;
-import java.util.Vector;
 
 import ngat.phase2.IExecutionFailureContext;
 import ngat.rcs.ops.OperationsEventListener;
@@ -24,11 +23,17 @@ import ngat.util.logging.Logger;
  */
 public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implements GroupOperationsMonitor, OperationsMonitor {
 
-	List<GroupOperationsListener> listeners;
-	List<OperationsEventListener> oelisteners;
-	List<MonitorEvent> events;
-	
-	Runnable r;
+	/** Default age (millis) of events to keep in the journal. Default to 7 days. */
+	public static final long DEFAULT_RETENTION_PERIOD = 7 * 24 * 3600 * 1000L;
+
+	/** Journal of selection and completion events.*/
+	GroupEventJournal journal;
+
+	/** Delivers journal events to listeners.*/
+	MonitorThread mt;
+
+	/** Age (millis) of events to keep in the journal.*/
+	private long retentionPeriod = DEFAULT_RETENTION_PERIOD;
 	
 	/** Logger. */
 	private LogGenerator slogger;
@@ -38,16 +43,14 @@ public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implement
 	 */
 	public DefaultGroupOperationsMonitor() throws RemoteException {
 		super();
-		listeners = new Vector<GroupOperationsListener>();
-		oelisteners = new Vector<OperationsEventListener>();
-		events = new Vector<MonitorEvent>();
+		journal = new GroupEventJournal();
 		
 		Logger alogger = LogManager.getLogger("OPS"); // probably should be
 		// RCS.Telem
 		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
 				.srcCompId("GOM");
 		
-		MonitorThread mt = new MonitorThread(events, listeners, oelisteners);
+		mt = new MonitorThread(journal);
 		mt.start();
 	}
 
@@ -55,9 +58,8 @@ public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implement
 	 * @see ngat.rcs.telemetry.GroupOperationsMonitor#addGroupOperationsListener(ngat.rcs.telemetry.GroupOperationsListener)
 	 */
 	public void addGroupOperationsListener(GroupOperationsListener l) throws RemoteException {
-		if (listeners.contains(l))
+		if (!mt.addGroupOperationsListener(l))
 			return;
-		listeners.add(l);		
 		slogger.create().info().level(2).msg("Add group listener: "+l).send();
 	}
 
@@ -65,9 +67,7 @@ public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implement
 	 * @see ngat.rcs.telemetry.GroupOperationsMonitor#removeGroupOperationsListener(ngat.rcs.telemetry.GroupOperationsListener)
 	 */
 	public void removeGroupOperationsListener(GroupOperationsListener l) throws RemoteException {
-		if (! listeners.contains(l))
-			return;
-		listeners.remove(l);
+		mt.removeGroupOperationsListener(l);
 	}
 
 	public void notifyListenersGroupSelected(GroupItem groupß) {
@@ -76,7 +76,7 @@ public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implement
 		
 		SelectionEvent sev = new SelectionEvent(groupß);
 		sev.setTime(System.currentTimeMillis());
-		events.add(sev);
+		append(sev);
 		/*Iterator<GroupOperationsListener> il = statusListeners.iterator();
 		while (il.hasNext()) {
 			GroupOperationsListener l = (GroupOperationsListener)il.next();
@@ -101,7 +101,7 @@ public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implement
 		
 		CompletionEvent cev = new CompletionEvent( group, error);
 		cev.setTime(System.currentTimeMillis()); // True ??
-		events.add(cev);
+		append(cev);
 		/*Iterator<GroupOperationsListener> il = statusListeners.iterator();
 		while (il.hasNext()) {
 			GroupOperationsListener l = (GroupOperationsListener)il.next();
@@ -121,19 +121,48 @@ public class DefaultGroupOperationsMonitor extends UnicastRemoteObject implement
 	}
 
 	public void addOperationsEventListener(OperationsEventListener l) throws RemoteException {
-		if (oelisteners.contains(l))
+		if (!mt.addOperationsEventListener(l))
 			return;
-		oelisteners.add(l);	
 		slogger.create().info().level(2).msg("Add Operations listener: "+l).send();
 	}
 
 	public void removeOperationsEventListener(OperationsEventListener l) throws RemoteException {
-		if (! oelisteners.contains(l))
+		if (!mt.removeOperationsEventListener(l))
 			return;
-		oelisteners.remove(l);
 		slogger.create().info().level(2).msg("Remove Operations listener: "+l).send();
 	}
 	
+	/* (non-Javadoc)
+	 * @see ngat.rcs.telemetry.GroupOperationsMonitor#getGroupOperationsHistory(long, long)
+	 */
+	public List<MonitorEvent> getGroupOperationsHistory(long t1, long t2) throws RemoteException {
+		slogger.create().info().level(2)
+			.msg(String.format("Request for group events from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
+		return journal.range(t1, t2);
+	}
+
+	/**
+	 * @return the journal of selection and completion events
+	 */
+	public GroupEventJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * @param retentionPeriod age (millis) of events to keep in the journal
+	 */
+	public void setRetentionPeriod(long retentionPeriod) {
+		this.retentionPeriod = retentionPeriod;
+	}
+
+	/** Add an event to the journal, discard aged events and wake the despatcher.*/
+	private void append(MonitorEvent event) {
+		long sequence = journal.append(event);
+		if (sequence % GroupEventJournal.CHUNK_SIZE == 0)
+			journal.trimBefore(event.getTime() - retentionPeriod);
+		mt.wakeup();
+	}
+
 	//public void notifyListenerGroupUpdate(GroupItem group, ExposureInfo
 	
 }
@@ -0,0 +1,212 @@
+/**
+ *
+ */
+package ngat.rcs.telemetry;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only, time-ordered journal of group monitor events. Appends never
+ * lock: an append claims the next sequence number and index time with a single
+ * compare-and-set, then publishes the event into a fixed-size chunk. Readers
+ * keep their own cursor (a sequence number) and read forward from it, so any
+ * number of readers can consume the journal at their own pace. Index times
+ * never decrease along the sequence, so time range queries are a binary
+ * search.
+ * <p>
+ * Old events are discarded a whole chunk at a time by trimBefore().
+ *
+ * @author eng
+ *
+ */
+public class GroupEventJournal {
+
+	/** Number of events per chunk. */
+	public static final int CHUNK_SIZE = 256;
+
+	/** Sequence number and index time of the newest event claimed. */
+	private AtomicReference<Tail> tail;
+
+	/** Chunks (AtomicReferenceArray of MonitorEvent) by chunk number, null once trimmed. */
+	private AtomicReference<Object[]> directory;
+
+	/** Sequence number of the oldest event held. */
+	private volatile long firstSequence;
+
+	/** Create an empty GroupEventJournal. */
+	public GroupEventJournal() {
+		tail = new AtomicReference<Tail>(new Tail(0L, Long.MIN_VALUE));
+		directory = new AtomicReference<Object[]>(new Object[16]);
+	}
+
+	/**
+	 * Append an event. If the event's time is earlier than the newest event
+	 * its time is advanced to match, to keep the journal in time order.
+	 *
+	 * @param event
+	 *            The event.
+	 * @return The event's sequence number.
+	 */
+	public long append(MonitorEvent event) {
+		Tail claimed;
+		while (true) {
+			Tail current = tail.get();
+			claimed = new Tail(current.sequence + 1, Math.max(event.getTime(), current.time));
+			if (tail.compareAndSet(current, claimed))
+				break;
+		}
+		long sequence = claimed.sequence - 1;
+		event.setTime(claimed.time);
+		chunk(sequence / CHUNK_SIZE, true).set((int) (sequence % CHUNK_SIZE), event);
+		return sequence;
+	}
+
+	/** @return The sequence number the next event appended will receive. */
+	public long getNextSequence() {
+		return tail.get().sequence;
+	}
+
+	/** @return The sequence number of the oldest event held. */
+	public long getFirstSequence() {
+		return firstSequence;
+	}
+
+	/**
+	 * @param sequence
+	 *            A sequence number.
+	 * @return The event with the specified sequence number, or null if it has
+	 *         been trimmed or not yet published.
+	 */
+	public MonitorEvent get(long sequence) {
+		if (sequence < firstSequence || sequence >= getNextSequence())
+			return null;
+		AtomicReferenceArray<MonitorEvent> chunk = chunk(sequence / CHUNK_SIZE, false);
+		return (chunk == null ? null : chunk.get((int) (sequence % CHUNK_SIZE)));
+	}
+
+	/**
+	 * Read events forward from a cursor. Reading stops at the first event not
+	 * yet published. If the cursor is older than the oldest event held,
+	 * reading starts from the oldest event.
+	 *
+	 * @param cursor
+	 *            The sequence number of the first event wanted.
+	 * @param out
+	 *            The list to add the events to.
+	 * @return The new cursor, the sequence number following the last event
+	 *         read.
+	 */
+	public long read(long cursor, List<MonitorEvent> out) {
+		long sequence = Math.max(cursor, firstSequence);
+		while (true) {
+			MonitorEvent event = get(sequence);
+			if (event == null)
+				break;
+			out.add(event);
+			sequence++;
+		}
+		return sequence;
+	}
+
+	/**
+	 * @param t1
+	 *            Start of the time range (inclusive).
+	 * @param t2
+	 *            End of the time range (inclusive).
+	 * @return The events between the specified times, oldest first.
+	 */
+	public List<MonitorEvent> range(long t1, long t2) {
+		List<MonitorEvent> list = new Vector<MonitorEvent>();
+		for (long sequence = firstAtOrAfter(t1);; sequence++) {
+			MonitorEvent event = get(sequence);
+			if (event == null || event.getTime() > t2)
+				break;
+			list.add(event);
+		}
+		return list;
+	}
+
+	/**
+	 * Discard whole chunks of events timed before the cutoff.
+	 *
+	 * @param cutoff
+	 *            Events timed before this may be discarded.
+	 * @return The number of events discarded.
+	 */
+	public long trimBefore(long cutoff) {
+		long keep = (firstAtOrAfter(cutoff) / CHUNK_SIZE) * CHUNK_SIZE;
+		long first = firstSequence;
+		if (keep <= first)
+			return 0L;
+		firstSequence = keep;
+		while (true) {
+			Object[] current = directory.get();
+			Object[] trimmed = (Object[]) current.clone();
+			for (long ic = first / CHUNK_SIZE; ic < keep / CHUNK_SIZE && ic < trimmed.length; ic++)
+				trimmed[(int) ic] = null;
+			if (directory.compareAndSet(current, trimmed))
+				break;
+		}
+		return keep - first;
+	}
+
+	/**
+	 * @return The sequence number of the first event timed at or after the
+	 *         specified time, or the next sequence number if none.
+	 */
+	private long firstAtOrAfter(long time) {
+		long lo = firstSequence;
+		long hi = getNextSequence();
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			MonitorEvent event = get(mid);
+			// an unpublished event is newer than everything before it
+			if (event != null && event.getTime() < time)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * @param index
+	 *            A chunk number.
+	 * @param create
+	 *            True to create the chunk if it does not exist.
+	 * @return The chunk, or null if it does not exist and create is false.
+	 */
+	private AtomicReferenceArray<MonitorEvent> chunk(long index, boolean create) {
+		while (true) {
+			Object[] current = directory.get();
+			if (index < current.length && current[(int) index] != null)
+				return (AtomicReferenceArray<MonitorEvent>) current[(int) index];
+			if (!create || index < firstSequence / CHUNK_SIZE)
+				return null;
+			int length = current.length;
+			while (length <= index)
+				length *= 2;
+			Object[] grown = new Object[length];
+			System.arraycopy(current, 0, grown, 0, current.length);
+			grown[(int) index] = new AtomicReferenceArray<MonitorEvent>(CHUNK_SIZE);
+			directory.compareAndSet(current, grown);
+		}
+	}
+
+	/** Immutable pair of the next sequence number and newest index time. */
+	private static class Tail {
+
+		final long sequence;
+
+		final long time;
+
+		Tail(long sequence, long time) {
+			this.sequence = sequence;
+			this.time = time;
+		}
+	}
+
+}
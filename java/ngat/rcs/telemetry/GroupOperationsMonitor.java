@@ -5,6 +5,7 @@ package ngat.rcs.telemetry;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  * @author eng
@@ -24,4 +25,12 @@ public interface GroupOperationsMonitor extends Remote {
 	 */
 	public void removeGroupOperationsListener(GroupOperationsListener l) throws RemoteException;
 	
+	/** Retrieve the group selection and completion events between two times.
+	 * @param t1 Start of the time range.
+	 * @param t2 End of the time range.
+	 * @return The SelectionEvents and CompletionEvents in the range, oldest first.
+	 * @throws RemoteException
+	 */
+	public List<MonitorEvent> getGroupOperationsHistory(long t1, long t2) throws RemoteException;
+	
 }
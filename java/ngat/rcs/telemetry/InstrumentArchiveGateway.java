@@ -19,30 +19,20 @@ import ngat.util.logging.LogManager;
 import ngat.util.logging.Logger;
 
 public class InstrumentArchiveGateway extends UnicastRemoteObject implements InstrumentStatusUpdateListener,
-									     InstrumentStatusProvider, InstrumentStatusArchive {
+									     InstrumentStatusProvider, InstrumentStatusArchive,
+									     StatusDeliveryControl<InstrumentStatusUpdateListener> {
 
     /** Logger. */
     private LogGenerator slogger;
 
-    /** A list of registered InstrumentStatusUpdateListeners. */
-    private List<InstrumentStatusUpdateListener> listeners;
-
-    /** A list of candidate InstrumentStatusUpdateListeners. */
-    private List<InstrumentStatusUpdateListener> addListeners;
-
-    /** A list of InstrumentStatusUpdateListeners to delete. */
-    private List<InstrumentStatusUpdateListener> deleteListeners;
+    /** Delivers status to registered InstrumentStatusUpdateListeners. */
+    private StatusDeliveryEngine<InstrumentStatusUpdateListener, InstrumentStatus> delivery;
 
     /** Instrument status source. */
     private InstrumentRegistry ireg;
 
-    private List<InstrumentStatus> archive;
+    private SegmentedStatusArchive<InstrumentStatus> archive;
 
-    /**
-     * Counts the number of archive entries which have been forwarded to current
-     * listeners.
-     */
-    private volatile int processedCount;
 
     // START TEMPLATE CODE
 	
@@ -79,26 +69,33 @@ public class InstrumentArchiveGateway extends UnicastRemoteObject implements Ins
 	slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
 	    .srcCompId("InstrumentGateway");
 
+	archive = new SegmentedStatusArchive<InstrumentStatus>();
+		
+	delivery = new StatusDeliveryEngine<InstrumentStatusUpdateListener, InstrumentStatus>("InstrumentGateway",
+			new StatusDeliveryEngine.Sender<InstrumentStatusUpdateListener, InstrumentStatus>() {
+				public void send(InstrumentStatusUpdateListener l, List<InstrumentStatus> items) throws Exception {
+					for (int is = 0; is < items.size(); is++)
+						l.instrumentStatusUpdated(items.get(is));
+				}
+
+				public Object getCoalesceKey(InstrumentStatus status) {
+					return status.getInstrument().getInstrumentName();
+				}
+			}, slogger);
+
+	// bind to the providers once the archive and delivery are ready
 	List insts = ireg.listInstruments();
 	for (int ii = 0; ii < insts.size(); ii++) {
 	    InstrumentDescriptor instId = (InstrumentDescriptor) insts.get(ii);
 	    InstrumentStatusProvider isp = ireg.getStatusProvider(instId);
 	    isp.addInstrumentStatusUpdateListener(this);
 	}
-
-	archive = new Vector<InstrumentStatus>();
-		
-	listeners = new Vector<InstrumentStatusUpdateListener>();
-	addListeners = new Vector<InstrumentStatusUpdateListener>();
-	deleteListeners = new Vector<InstrumentStatusUpdateListener>();
-
-	processedCount = 0;
     }
 
     public void addInstrumentStatusUpdateListener(InstrumentStatusUpdateListener l) throws RemoteException {
 
 	// ignore listener already registered
-	if (listeners.contains(l))
+	if (delivery.containsListener(l))
 	    return;
 
 	// note current time
@@ -109,7 +106,7 @@ public class InstrumentArchiveGateway extends UnicastRemoteObject implements Ins
 
 	// add new listener to new list
 	slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-	addListeners.add(l);
+	delivery.addListener(l);
     }
 
     public IInstrumentConfig getCurrentConfig() throws RemoteException {
@@ -186,75 +183,39 @@ public class InstrumentArchiveGateway extends UnicastRemoteObject implements Ins
 
     public void removeInstrumentStatusUpdateListener(InstrumentStatusUpdateListener l) throws RemoteException {
 
-	if (!listeners.contains(l))
+	if (!delivery.containsListener(l))
 	    return;
 
-	// add to kill list
 	slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-	deleteListeners.add(l);
+	delivery.removeListener(l);
 
     }
 
     public void instrumentStatusUpdated(InstrumentStatus status) throws RemoteException {
 	slogger.create().info().level(2).msg("Add status update: " + archive.size() + " to archive: " + status).send();
 	//status.setInstrumentName(instId.getInstrumentName());
-	archive.add(status);
+	archive.add(status.getStatusTimeStamp(), status);
+	delivery.publish(status);
 	//System.err.println("Status update for "+instId.getInstrumentName());
     }
 
     public List<InstrumentStatus> getInstrumentStatusHistory(long t1, long t2) throws RemoteException {
 	slogger.create().info().level(2)
 	    .msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
-	List<InstrumentStatus> list = new Vector<InstrumentStatus>();
-
-	for (int is = 0; is < archive.size(); is++) {
-	    InstrumentStatus status = archive.get(is);
-	    long time = status.getStatusTimeStamp();
-	    if (time >= t1 && time <= t2)
-		list.add(status);
-	}
+	List<InstrumentStatus> list = BackingStoreHistory.range(archive, backingStore, backingStoreAgeLimit, t1, t2, slogger);
 	slogger.create().info().level(2).msg("Returning " + list.size() + " entries").send();
 	return list;
     }
 
-    private void notifyListenersInstrumentStatusUpdate(InstrumentStatus status) {
-	// remove any kill items
-	if (!deleteListeners.isEmpty()) {
-	    for (int id = 0; id < deleteListeners.size(); id++) {
-		InstrumentStatusUpdateListener l = deleteListeners.get(id);
-		if (listeners.contains(l)) {
-		    listeners.remove(l);
-		    slogger.create().info().level(2).msg("Removing listener " + l).send();
-		}
-	    }
-	}
-
-	// add new listeners
-	if (!addListeners.isEmpty()) {
-	    for (int ia = 0; ia < addListeners.size(); ia++) {
-		InstrumentStatusUpdateListener l = addListeners.get(ia);
-		if (!listeners.contains(l)) {
-		    listeners.add(l);
-		    slogger.create().info().level(2).msg("Adding new listener " + l).send();
-		}
-	    }
-
-	}
-
-	// broadcast
-	for (int il = 0; il < listeners.size(); il++) {
-	    InstrumentStatusUpdateListener l = null;
-	    try {
-		l = listeners.get(il);
-		l.instrumentStatusUpdated(status);
-	    } catch (Exception e) {
-		if (l != null) {
-		    deleteListeners.add(l);
-		    slogger.create().info().level(2).msg("Adding unresponsive listener: " + l + " to kill list").send();
-		}
-	    }
-	}
+    public void addDeliveryListener(InstrumentStatusUpdateListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+	slogger.create().info().level(2).msg(
+	    "Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+	    .send();
+	delivery.register(l, latestOnly, maxLatency);
+    }
 
+    public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+	return delivery.getStatistics();
     }
 
     public void startProcessor() {
@@ -293,8 +254,6 @@ public class InstrumentArchiveGateway extends UnicastRemoteObject implements Ins
 	    // Cull aged items
 	    backingStoreCull();
 			
-	    // Process pending items		
-	    processPendingStatus();
 			
 	    ipcc++;
 	}
@@ -319,31 +278,21 @@ public class InstrumentArchiveGateway extends UnicastRemoteObject implements Ins
 		    .msg(String.format("Purge to backing store, items dated before: %tF %tT \n", 
 				       cutoffTime, cutoffTime)).send();
 					
-		int cullCount = 0;
-		// purge oldest data into backingStore.
-		for (int is = 0; is < processedCount; is++) {
-		    InstrumentStatus status = archive.get(is);
-					
-		    if (status.getStatusTimeStamp() < cutoffTime) {
-			cullCount++;
-			dumpList.add(status);
-		    }
-
-		}
+		// detach whole aged segments, oldest first
+		int cullCount = archive.cullBefore(cutoffTime, dumpList);
 
-		slogger.create().info().level(3)
-		    .msg("Checked "+processedCount+" entries, found "+cullCount+" aged items").send();
+		slogger.create().info().level(3).msg("Culled " + cullCount + " aged items").send();
 				
 		// push the culled data into the backing store
 		if (backingStore != null) {
 		    int ntb = 0;
 		    for (int is = 0; is < cullCount; is++) {
-			InstrumentStatus status = archive.get(is);
+			InstrumentStatus status = dumpList.get(is);
 			try {
 			    backingStore.storeStatus(status);
 			    ntb++;
 			} catch (Exception e) {
-			    e.printStackTrace();
+			    slogger.create().info().level(1).msg("Unable to store status: " + e).send();
 			}
 		    }
 		    slogger.create().info().level(3)
@@ -353,32 +302,15 @@ public class InstrumentArchiveGateway extends UnicastRemoteObject implements Ins
 			.msg("No backing store so culled items will be lost").send();
 		}
 
-		// chop the culled data out of the local cache	
-		archive.removeAll(dumpList);			
-				
-		processedCount -= cullCount;	
 		int ias = archive.size();
 		slogger.create().info().level(3)
-		    .msg("Removed aged entries from live cache, size now"+ias+", processing starts at: "+processedCount).send();
+		    .msg("Live cache size now: "+ias).send();
 			
 				
 	    }
 
 	}
 		
-	private void processPendingStatus() {
-	    int ias = archive.size();
-	    slogger.create().info().level(2).msg("Processing archived status from: " + processedCount + " to " + ias)
-		.send();
-
-	    for (int is = processedCount; is < ias; is++) {
-		InstrumentStatus status = archive.get(is);			
-		notifyListenersInstrumentStatusUpdate(status);
-	    }
-	    // we have processed all known archived status
-	    processedCount = ias;
-	}
-
 	@Override
 	    protected void shutdown() {
 	    // TODO Auto-generated method stub
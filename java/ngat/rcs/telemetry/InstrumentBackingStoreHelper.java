@@ -4,11 +4,8 @@
 package ngat.rcs.telemetry;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.Statement;
 import java.util.List;
-import java.util.Map;
 import java.util.Vector;
 
 import ngat.icm.InstrumentDescriptor;
@@ -18,19 +15,20 @@ import ngat.net.telemetry.MysqlBackingStore;
 import ngat.net.telemetry.StatusCategory;
 
 /**
+ * Stores instrument status in the telemetry database. Status is handed to an
+ * InstrumentStatusWriter which writes it in batched transactions on its own
+ * thread, so a slow database does not hold up the gateway. A write failure
+ * seen by the writer is thrown from the next call to storeStatus().
+ * 
  * @author eng
  *
  */
 public class InstrumentBackingStoreHelper extends MysqlBackingStore {
 
-	private static final String INSERT = "insert into instrument (time, instname, status, online, ref) values (?,?, ?, ?, ?)";
-	
-	private static final String INSERT2 = "insert into instref (ref, pkey, dvalue, ivalue) values (?, ?, ?, ?)";
-	
 	private InstrumentRegistry ireg;
 	
-	private PreparedStatement storeStatement;
-	private PreparedStatement storeStatement2;
+	/** Writes status to the database. Created once connected. */
+	private InstrumentStatusWriter writer;
 	
 	/**
 	 * @param mysqlUrl
@@ -41,13 +39,23 @@ public class InstrumentBackingStoreHelper extends MysqlBackingStore {
 	
 	}
 
-
+	/**
+	 * @return The writer, for its backlog and latency metrics, or null if not
+	 *         yet connected.
+	 */
+	public InstrumentStatusWriter getWriter() {
+		return writer;
+	}
 
 	@Override
 	protected void prepareStatements(Connection connection) throws Exception {
 
-		storeStatement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS);
-		storeStatement2 = connection.prepareStatement(INSERT2, Statement.RETURN_GENERATED_KEYS);
+		// may be called from the superclass constructor or on reconnect
+		if (writer == null) {
+			writer = new InstrumentStatusWriter(connection);
+			writer.start();
+		} else
+			writer.setConnection(connection);
 		
 	}
 
@@ -56,115 +64,13 @@ public class InstrumentBackingStoreHelper extends MysqlBackingStore {
 	 */
 	@Override
 	public void storeStatus(StatusCategory status) throws Exception {
-		InstrumentStatus istat = (InstrumentStatus)status;
-		
-		
-		
-		int iid = 0;
-		String iname = istat.getInstrument().getInstrumentName().toUpperCase();
-		if (iname.equals("RATCAM"))
-			iid = 1;
-		else if
-		(iname.equals("IO:O"))
-			iid = 2;
-		else if
-		(iname.equals("IO:THOR"))
-			iid = 3;
-		else if
-		(iname.equals("RINGO3"))
-			iid = 4;
-		else if
-		(iname.equals("RISE"))
-			iid = 5;
-		else if
-		(iname.equals("FRODO"))
-			iid = 6;
-		
-		storeStatement.setDouble(1, istat.getStatusTimeStamp()/1000.0);
-		storeStatement.setInt(2, iid);
-		storeStatement.setInt(3, (istat.isOnline() ? 1 : 0));
-		storeStatement.setInt(3, (istat.isFunctional() ? 1 : 0));
-		
-		storeStatement.executeUpdate();
-		
-		  int tid = -1;
-          ResultSet results = storeStatement.getGeneratedKeys();
-          while (results.next()) {
-              tid = results.getInt(1);
-              System.err.println("Record number: "+tid);
-          }
-          
-          Map statusMap = istat.getStatus();
-          
-          if (tid != -1) {
-        	  // add ref values
-        	  if (iname.equals("RATCAM")) {   			
-        		  storeStatement2.setInt(1, tid);
-        		  storeStatement2.setString(2, "temperature");
-        		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature")).doubleValue()); 	
-        		  storeStatement2.setInt(4, 0);
-        		  storeStatement2.executeUpdate();
-        	  } else if
-      		(iname.equals("IO:O")) {
-        		  storeStatement2.setInt(1, tid);
-        		  storeStatement2.setString(2, "temperature");
-        		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature")).doubleValue()); 	
-        		  storeStatement2.setInt(4, 0);
-        		  storeStatement2.executeUpdate();
-      		} else if
-      		(iname.equals("IO:THOR")) {
-      		  storeStatement2.setInt(1, tid);
-    		  storeStatement2.setString(2, "temperature");
-    		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature")).doubleValue()); 	
-    		  storeStatement2.setInt(4, 0);
-    		  storeStatement2.executeUpdate();
-      		} else if
-      		(iname.equals("RINGO3")) {
-      		  storeStatement2.setInt(1, tid);
-    		  storeStatement2.setString(2, "temperature.0.0");
-    		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature.0.0")).doubleValue()); 	
-    		  storeStatement2.setInt(4, 0);
-    		  storeStatement2.executeUpdate();
-    		  
-    		  storeStatement2.setInt(1, tid);
-    		  storeStatement2.setString(2, "temperature.1.0");
-    		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature.1.0")).doubleValue()); 	
-    		  storeStatement2.setInt(4, 0);
-    		  storeStatement2.executeUpdate();
-    		  
-    		  storeStatement2.setInt(1, tid);
-    		  storeStatement2.setString(2, "temperature.1.1");
-    		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature.1.1")).doubleValue()); 	
-    		  storeStatement2.setInt(4, 0);
-    		  storeStatement2.executeUpdate();
-    		  
-      		} else if
-      		(iname.equals("RISE")) {
-      		  storeStatement2.setInt(1, tid);
-    		  storeStatement2.setString(2, "temperature");
-    		  storeStatement2.setDouble(3,((Double)statusMap.get("Temperature")).doubleValue()); 	
-    		  storeStatement2.setInt(4, 0);
-    		  storeStatement2.executeUpdate();
-      		} else if
-      		(iname.equals("FRODO")) {
-      			 storeStatement2.setInt(1, tid);
-       		  storeStatement2.setString(2, "red.temperature");
-       		  storeStatement2.setDouble(3,((Double)statusMap.get("red.Temperature")).doubleValue()); 	
-       		  storeStatement2.setInt(4, 0);
-       		  storeStatement2.executeUpdate();
-       		  
-       		  storeStatement2.setInt(1, tid);
-       		  storeStatement2.setString(2, "blue.temperature");
-       		  storeStatement2.setDouble(3,((Double)statusMap.get("blue.Temperature")).doubleValue()); 	
-       		  storeStatement2.setInt(4, 0);
-       		  storeStatement2.executeUpdate();
-      			
-      		}
-      		
-        	  
-          }
-
-						
+		if (writer == null)
+			throw new Exception("Not connected to backing store");
+		// report a failure seen by the writer thread so the caller can reconnect.
+		Exception failure = writer.takeFailure();
+		if (failure != null)
+			throw new Exception("Backing store write failed: " + failure, failure);
+		writer.offer((InstrumentStatus) status);
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,386 @@
+/**
+ *
+ */
+package ngat.rcs.telemetry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import ngat.icm.InstrumentStatus;
+import ngat.util.logging.LogGenerator;
+import ngat.util.logging.LogManager;
+import ngat.util.logging.Logger;
+
+/**
+ * Writes instrument status to the telemetry database behind the caller's
+ * back. Status is queued by offer(), which never blocks, and a writer thread
+ * drains the queue in batches. Each batch is written in a single transaction:
+ * the instrument rows as one JDBC batch and then their instref rows as a
+ * second. If the queue fills because the database is slow or unreachable the
+ * oldest status is dropped.
+ * <p>
+ * A failed batch is logged by the writer thread and held as the pending
+ * failure until collected by takeFailure(), so the caller can report it or
+ * reconnect, e.g. by throwing from storeStatus().
+ *
+ * @author eng
+ *
+ */
+public class InstrumentStatusWriter implements Runnable {
+
+	/** Default maximum number of statuses queued. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 5000;
+
+	/** Default maximum number of statuses written per transaction. */
+	public static final int DEFAULT_MAX_BATCH = 100;
+
+	private static final String INSERT = "insert into instrument (time, instname, status, online, ref) values (?, ?, ?, ?, ?)";
+
+	private static final String INSERT2 = "insert into instref (ref, pkey, dvalue, ivalue) values (?, ?, ?, ?)";
+
+	/** Database ids of the instruments, keyed by upper case name. */
+	private static final Map<String, Integer> INSTRUMENT_IDS = new HashMap<String, Integer>();
+
+	/**
+	 * Referenced values stored for each instrument, keyed by upper case name.
+	 * Each entry is a pair {status map key, instref pkey}.
+	 */
+	private static final Map<String, String[][]> REF_KEYS = new HashMap<String, String[][]>();
+
+	static {
+		addInstrument("RATCAM", 1, new String[] { "Temperature" });
+		addInstrument("IO:O", 2, new String[] { "Temperature" });
+		addInstrument("IO:THOR", 3, new String[] { "Temperature" });
+		addInstrument("RINGO3", 4, new String[] { "Temperature.0.0", "Temperature.1.0", "Temperature.1.1" });
+		addInstrument("RISE", 5, new String[] { "Temperature" });
+		addInstrument("FRODO", 6, new String[] { "red.Temperature", "blue.Temperature" });
+	}
+
+	private static void addInstrument(String name, int id, String[] statusKeys) {
+		INSTRUMENT_IDS.put(name, new Integer(id));
+		String[][] keys = new String[statusKeys.length][];
+		for (int i = 0; i < statusKeys.length; i++)
+			keys[i] = new String[] { statusKeys[i], statusKeys[i].toLowerCase() };
+		REF_KEYS.put(name, keys);
+	}
+
+	/** The database connection. */
+	private volatile Connection connection;
+
+	/** Maximum number of statuses queued. */
+	private int queueCapacity;
+
+	/** Maximum number of statuses written per transaction. */
+	private int maxBatch;
+
+	/** Statuses waiting to be written. */
+	private LinkedList<InstrumentStatus> queue;
+
+	/** Writer thread. */
+	private Thread writer;
+
+	/** True once the writer has been closed. */
+	private volatile boolean closed;
+
+	/** Largest backlog seen. */
+	private volatile int maxBacklog;
+
+	/** Counts statuses written. */
+	private volatile long writtenCount;
+
+	/** Counts statuses dropped because the queue was full. */
+	private volatile long droppedCount;
+
+	/** Counts statuses lost because their batch failed. */
+	private volatile long failedCount;
+
+	/** Counts batches written. */
+	private volatile long flushCount;
+
+	/** Total time (millis) spent writing batches. */
+	private volatile long totalFlushTime;
+
+	/** The most recent failure not yet collected by takeFailure(). */
+	private volatile Exception failure;
+
+	/** Logger. */
+	private LogGenerator slogger;
+
+	/** Time (millis) taken to write the last batch. */
+	private volatile long lastFlushLatency;
+
+	/** Longest time (millis) taken to write a batch. */
+	private volatile long maxFlushLatency;
+
+	/**
+	 * Create an InstrumentStatusWriter with default queue capacity and batch
+	 * size.
+	 *
+	 * @param connection
+	 *            The database connection.
+	 */
+	public InstrumentStatusWriter(Connection connection) {
+		this(connection, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+	}
+
+	/**
+	 * @param connection
+	 *            The database connection.
+	 * @param queueCapacity
+	 *            Maximum number of statuses queued.
+	 * @param maxBatch
+	 *            Maximum number of statuses written per transaction.
+	 */
+	public InstrumentStatusWriter(Connection connection, int queueCapacity, int maxBatch) {
+		this.connection = connection;
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.maxBatch = Math.max(1, maxBatch);
+		queue = new LinkedList<InstrumentStatus>();
+		writer = new Thread(this, "InstrumentStatusWriter");
+		writer.setDaemon(true);
+
+		Logger alogger = LogManager.getLogger("ICM"); // probably should be
+		// RCS.Telem
+		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
+				.srcCompId("InstrumentStatusWriter");
+	}
+
+	/**
+	 * @param name
+	 *            An instrument name.
+	 * @return The instrument's database id or 0 if it is not known.
+	 */
+	public static int getInstrumentId(String name) {
+		Integer id = INSTRUMENT_IDS.get(name.toUpperCase());
+		return (id == null ? 0 : id.intValue());
+	}
+
+	/**
+	 * @param connection
+	 *            The connection to use from the next batch, e.g. after a
+	 *            reconnect.
+	 */
+	public void setConnection(Connection connection) {
+		this.connection = connection;
+	}
+
+	/** Start the writer thread. */
+	public void start() {
+		writer.start();
+	}
+
+	/**
+	 * Queue a status for writing, dropping the oldest queued status if full.
+	 * Never blocks on the database.
+	 *
+	 * @param status
+	 *            The status.
+	 */
+	public void offer(InstrumentStatus status) {
+		synchronized (queue) {
+			if (closed)
+				return;
+			if (queue.size() >= queueCapacity) {
+				queue.removeFirst();
+				droppedCount++;
+			}
+			queue.addLast(status);
+			if (queue.size() > maxBacklog)
+				maxBacklog = queue.size();
+			queue.notifyAll();
+		}
+	}
+
+	/** Stop the writer after it has written any queued status. */
+	public void close() {
+		synchronized (queue) {
+			closed = true;
+			queue.notifyAll();
+		}
+	}
+
+	/** @return The number of statuses waiting to be written. */
+	public int getBacklog() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	/** @return The largest backlog seen. */
+	public int getMaxBacklog() {
+		return maxBacklog;
+	}
+
+	/** @return The number of statuses written. */
+	public long getWrittenCount() {
+		return writtenCount;
+	}
+
+	/** @return The number of statuses dropped because the queue was full. */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/** @return The number of statuses lost because their batch failed. */
+	public long getFailedCount() {
+		return failedCount;
+	}
+
+	/**
+	 * Collect the failure of the most recent failed batch, if any, since the
+	 * last call. A batch which succeeds afterwards clears it.
+	 *
+	 * @return The failure or null if there is none to report.
+	 */
+	public synchronized Exception takeFailure() {
+		Exception e = failure;
+		failure = null;
+		return e;
+	}
+
+	/** @return The number of batches written. */
+	public long getFlushCount() {
+		return flushCount;
+	}
+
+	/** @return The time (millis) taken to write the last batch. */
+	public long getLastFlushLatency() {
+		return lastFlushLatency;
+	}
+
+	/** @return The longest time (millis) taken to write a batch. */
+	public long getMaxFlushLatency() {
+		return maxFlushLatency;
+	}
+
+	/** @return The mean time (millis) taken to write a batch. */
+	public double getMeanFlushLatency() {
+		long count = flushCount;
+		return (count == 0 ? 0.0 : (double) totalFlushTime / (double) count);
+	}
+
+	public void run() {
+		List<InstrumentStatus> batch = new Vector<InstrumentStatus>();
+		while (true) {
+			synchronized (queue) {
+				while (queue.isEmpty() && !closed) {
+					try {
+						queue.wait();
+					} catch (InterruptedException ix) {
+					}
+				}
+				if (queue.isEmpty())
+					return;
+				while (!queue.isEmpty() && batch.size() < maxBatch)
+					batch.add(queue.removeFirst());
+			}
+			flush(batch);
+			batch.clear();
+		}
+	}
+
+	/** Write a batch of statuses in one transaction. */
+	private void flush(List<InstrumentStatus> batch) {
+		long start = System.currentTimeMillis();
+		Connection c = connection;
+		try {
+			boolean autoCommit = c.getAutoCommit();
+			c.setAutoCommit(false);
+			try {
+				write(c, batch);
+				c.commit();
+				writtenCount += batch.size();
+				failed(null);
+			} catch (Exception e) {
+				failedCount += batch.size();
+				slogger.create().info().level(1).msg("Failed to write batch of " + batch.size() + ": " + e).send();
+				failed(e);
+				try {
+					c.rollback();
+				} catch (SQLException sx) {
+					slogger.create().info().level(1).msg("Rollback failed: " + sx).send();
+				}
+			} finally {
+				c.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException sx) {
+			failedCount += batch.size();
+			slogger.create().info().level(1).msg("Connection unusable, lost batch of " + batch.size() + ": " + sx)
+					.send();
+			failed(sx);
+		}
+		long latency = System.currentTimeMillis() - start;
+		lastFlushLatency = latency;
+		if (latency > maxFlushLatency)
+			maxFlushLatency = latency;
+		totalFlushTime += latency;
+		flushCount++;
+	}
+
+	/** Record the outcome of a batch, null if it succeeded. */
+	private synchronized void failed(Exception e) {
+		failure = e;
+	}
+
+	/** Insert the instrument rows then their instref rows. */
+	private void write(Connection c, List<InstrumentStatus> batch) throws Exception {
+		PreparedStatement insert = c.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS);
+		PreparedStatement insert2 = c.prepareStatement(INSERT2);
+		try {
+			String[] names = new String[batch.size()];
+			for (int i = 0; i < batch.size(); i++) {
+				InstrumentStatus istat = batch.get(i);
+				names[i] = istat.getInstrument().getInstrumentName().toUpperCase();
+				insert.setDouble(1, istat.getStatusTimeStamp() / 1000.0);
+				insert.setInt(2, getInstrumentId(names[i]));
+				insert.setInt(3, (istat.isFunctional() ? 1 : 0));
+				insert.setInt(4, (istat.isOnline() ? 1 : 0));
+				insert.setInt(5, 0);
+				insert.addBatch();
+			}
+			insert.executeBatch();
+
+			int[] refs = new int[batch.size()];
+			int nref = 0;
+			ResultSet keys = insert.getGeneratedKeys();
+			while (keys.next() && nref < refs.length)
+				refs[nref++] = keys.getInt(1);
+			keys.close();
+			if (nref != refs.length)
+				throw new SQLException("Expected " + refs.length + " generated keys but got " + nref);
+
+			int nvalues = 0;
+			for (int i = 0; i < batch.size(); i++) {
+				String[][] refKeys = REF_KEYS.get(names[i]);
+				Map statusMap = batch.get(i).getStatus();
+				if (refKeys == null || statusMap == null)
+					continue;
+				for (int k = 0; k < refKeys.length; k++) {
+					Object value = statusMap.get(refKeys[k][0]);
+					if (!(value instanceof Number))
+						continue;
+					insert2.setInt(1, refs[i]);
+					insert2.setString(2, refKeys[k][1]);
+					insert2.setDouble(3, ((Number) value).doubleValue());
+					insert2.setInt(4, 0);
+					insert2.addBatch();
+					nvalues++;
+				}
+			}
+			if (nvalues > 0)
+				insert2.executeBatch();
+		} finally {
+			insert.close();
+			insert2.close();
+		}
+	}
+
+}
@@ -0,0 +1,575 @@
+/**
+ *
+ */
+package ngat.rcs.telemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import ngat.net.telemetry.SecondaryCache;
+import ngat.net.telemetry.StatusCategory;
+import ngat.util.logging.LogGenerator;
+import ngat.util.logging.LogManager;
+import ngat.util.logging.Logger;
+
+/**
+ * A SecondaryCache which appends status to a sequence of fixed-size,
+ * memory-mapped segment files. When the current segment is full it is forced
+ * to disk and a new one started. Segments lying wholly outside the retention
+ * period are deleted.
+ * <p>
+ * Each record is framed as a 4 byte payload length and an 8 byte timestamp
+ * followed by the payload, the status in Java serialized form. Each segment
+ * keeps a sparse in-memory index holding the offset and the running maximum
+ * timestamp of every INDEX_INTERVAL-th record. A range read binary searches
+ * that index and then decodes records straight from the mapped pages. Status
+ * is expected to be stored roughly in time order, as the archive gateways cull
+ * oldest first.
+ * <p>
+ * Existing segments in the directory are re-opened and re-indexed on startup,
+ * so history survives a restart. A segment which cannot be opened (e.g. one
+ * which is corrupt or truncated) is logged and renamed with a .bad suffix so
+ * it is not tried again, the rest of the store is still usable. Likewise a
+ * record which cannot be decoded (e.g. of a class whose serialVersionUID has
+ * changed since it was stored) is counted and skipped by range reads.
+ * <p>
+ * A store may be opened read-only, e.g. to replay the segments of a running
+ * system. The segment files are then mapped read-only and are never created,
+ * renamed, deleted or written.
+ *
+ * @author eng
+ *
+ */
+public class MappedSegmentBackingStore implements SecondaryCache {
+
+	/** Default segment size (bytes). */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/** Default retention period, 7 days. */
+	public static final long DEFAULT_RETENTION_PERIOD = 7 * 24 * 3600 * 1000L;
+
+	/** Number of records between sparse index entries. */
+	public static final int INDEX_INTERVAL = 32;
+
+	/** Identifies a segment file. */
+	private static final int MAGIC = 0x52435353;
+
+	/** Size of the segment header: magic, then the segment number. */
+	private static final int HEADER_SIZE = 16;
+
+	/** Size of a record's frame: payload length and timestamp. */
+	private static final int FRAME_SIZE = 12;
+
+	/** Filename suffix for segment files. */
+	private static final String SUFFIX = ".seg";
+
+	/** Suffix appended to segment files which cannot be opened. */
+	private static final String BAD_SUFFIX = ".bad";
+
+	/** Logger. */
+	private LogGenerator slogger;
+
+	/** Directory holding the segment files. */
+	private File dir;
+
+	/** Prefix for segment filenames. */
+	private String prefix;
+
+	/** Size of new segments (bytes). */
+	private int segmentSize;
+
+	/** Maximum age (millis) of data to keep. */
+	private volatile long retentionPeriod;
+
+	/** True if the segment files are only read. */
+	private boolean readOnly;
+
+	/** Segments, oldest first. The last is the current (writable) segment. */
+	private List<Segment> segments;
+
+	/** Number of the next segment to create. */
+	private long nextSegmentNumber;
+
+	/** Counts records stored. */
+	private long storedCount;
+
+	/** Counts segments deleted by age. */
+	private long deletedSegmentCount;
+
+	/** Counts records skipped by range reads because they could not be decoded. */
+	private long unreadableCount;
+
+	/**
+	 * Create a MappedSegmentBackingStore with default segment size and
+	 * retention.
+	 *
+	 * @param dir
+	 *            Directory to hold the segment files.
+	 * @param prefix
+	 *            Prefix for segment filenames.
+	 */
+	public MappedSegmentBackingStore(File dir, String prefix) throws Exception {
+		this(dir, prefix, DEFAULT_SEGMENT_SIZE, DEFAULT_RETENTION_PERIOD);
+	}
+
+	/**
+	 * Create a MappedSegmentBackingStore, re-opening any existing segments.
+	 *
+	 * @param dir
+	 *            Directory to hold the segment files.
+	 * @param prefix
+	 *            Prefix for segment filenames.
+	 * @param segmentSize
+	 *            Size of new segments (bytes).
+	 * @param retentionPeriod
+	 *            Maximum age (millis) of data to keep.
+	 * @throws IOException
+	 *             If the directory cannot be created or written.
+	 */
+	public MappedSegmentBackingStore(File dir, String prefix, int segmentSize, long retentionPeriod)
+			throws Exception {
+		this(dir, prefix, segmentSize, retentionPeriod, false);
+	}
+
+	/**
+	 * Create a MappedSegmentBackingStore, re-opening any existing segments.
+	 *
+	 * @param dir
+	 *            Directory to hold the segment files.
+	 * @param prefix
+	 *            Prefix for segment filenames.
+	 * @param segmentSize
+	 *            Size of new segments (bytes).
+	 * @param retentionPeriod
+	 *            Maximum age (millis) of data to keep.
+	 * @param readOnly
+	 *            True to only read the existing segments.
+	 * @throws IOException
+	 *             If the directory cannot be created or written, or if
+	 *             read-only, does not exist.
+	 */
+	public MappedSegmentBackingStore(File dir, final String prefix, int segmentSize, long retentionPeriod,
+			boolean readOnly) throws Exception {
+		this.dir = dir;
+		this.prefix = prefix;
+		this.segmentSize = segmentSize;
+		this.retentionPeriod = retentionPeriod;
+		this.readOnly = readOnly;
+		segments = new Vector<Segment>();
+
+		Logger alogger = LogManager.getLogger("OPS"); // probably should be
+		// RCS.Telem
+		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
+				.srcCompId(prefix);
+
+		if (readOnly) {
+			if (!dir.isDirectory() || !dir.canRead())
+				throw new IOException("Backing store directory is not readable: " + dir);
+		} else {
+			if (!dir.exists() && !dir.mkdirs())
+				throw new IOException("Unable to create backing store directory: " + dir);
+			if (!dir.isDirectory() || !dir.canWrite())
+				throw new IOException("Backing store directory is not writable: " + dir);
+		}
+
+		File[] files = dir.listFiles(new FileFilter() {
+			public boolean accept(File f) {
+				return f.getName().startsWith(prefix + ".") && f.getName().endsWith(SUFFIX);
+			}
+		});
+		List<Segment> existing = new Vector<Segment>();
+		for (int i = 0; i < files.length; i++) {
+			try {
+				existing.add(Segment.open(files[i], readOnly));
+			} catch (Exception e) {
+				if (readOnly) {
+					slogger.create().info().level(1).msg("Skipping unreadable segment: " + files[i] + ": " + e)
+							.send();
+					continue;
+				}
+				File bad = new File(dir, files[i].getName() + BAD_SUFFIX);
+				boolean renamed = files[i].renameTo(bad);
+				slogger.create().info().level(1).msg(
+						"Skipping unreadable segment: " + files[i] + ": " + e
+								+ (renamed ? ", renamed to: " + bad.getName() : ", unable to rename")).send();
+			}
+		}
+		Segment[] sorted = existing.toArray(new Segment[existing.size()]);
+		Arrays.sort(sorted);
+		for (int i = 0; i < sorted.length; i++) {
+			segments.add(sorted[i]);
+			nextSegmentNumber = sorted[i].number + 1;
+		}
+	}
+
+	/**
+	 * @return the retention period (millis)
+	 */
+	public long getRetentionPeriod() {
+		return retentionPeriod;
+	}
+
+	/**
+	 * @param retentionPeriod
+	 *            the retention period (millis) to set
+	 */
+	public void setRetentionPeriod(long retentionPeriod) {
+		this.retentionPeriod = retentionPeriod;
+	}
+
+	/** @return True if the segment files are only read. */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/** @return The number of segment files currently held. */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/** @return The number of records stored since startup. */
+	public synchronized long getStoredCount() {
+		return storedCount;
+	}
+
+	/** @return The number of undecodable records skipped by range reads since startup. */
+	public synchronized long getUnreadableCount() {
+		return unreadableCount;
+	}
+
+	/** @return The number of segments deleted by age since startup. */
+	public synchronized long getDeletedSegmentCount() {
+		return deletedSegmentCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ngat.net.telemetry.SecondaryCache#storeStatus(ngat.net.telemetry.StatusCategory)
+	 */
+	public synchronized void storeStatus(StatusCategory status) throws Exception {
+		if (readOnly)
+			throw new IOException("Backing store is read-only: " + dir + "/" + prefix);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(status);
+		out.close();
+		byte[] payload = bytes.toByteArray();
+
+		Segment current = (segments.isEmpty() ? null : segments.get(segments.size() - 1));
+		if (current == null || !current.hasRoom(payload.length)) {
+			if (current != null)
+				current.seal();
+			compact(System.currentTimeMillis());
+			int size = Math.max(segmentSize, HEADER_SIZE + FRAME_SIZE + payload.length + 4);
+			current = Segment.create(new File(dir, prefix + "." + nextSegmentNumber + SUFFIX), nextSegmentNumber,
+					size);
+			nextSegmentNumber++;
+			segments.add(current);
+		}
+		current.append(status.getStatusTimeStamp(), payload);
+		storedCount++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ngat.net.telemetry.SecondaryCache#retrieveStatus(long, long)
+	 */
+	public synchronized List<StatusCategory> retrieveStatus(long t1, long t2) throws Exception {
+		List<StatusCategory> list = new Vector<StatusCategory>();
+		long oldest = System.currentTimeMillis() - retentionPeriod;
+		t1 = Math.max(t1, oldest);
+		for (int i = 0; i < segments.size(); i++) {
+			Segment segment = segments.get(i);
+			if (segment.count == 0 || segment.maxTime < t1 || segment.minTime > t2)
+				continue;
+			Exception failure = segment.read(t1, t2, list);
+			if (failure != null) {
+				// one message only, the same records fail on every read
+				if (unreadableCount == 0)
+					slogger.create().info().level(1).msg(
+							"Skipping undecodable record(s) in: " + segment.file + ": " + failure).send();
+				unreadableCount += segment.unreadable;
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Delete segments whose newest record is older than the retention period.
+	 * The current segment is never deleted, nor are the segments of a
+	 * read-only store.
+	 *
+	 * @param now
+	 *            The current time.
+	 * @return The number of segments deleted.
+	 */
+	public synchronized int compact(long now) {
+		if (readOnly)
+			return 0;
+		long cutoff = now - retentionPeriod;
+		int deleted = 0;
+		while (segments.size() > 1 && segments.get(0).maxTime < cutoff) {
+			Segment segment = segments.remove(0);
+			segment.delete();
+			deleted++;
+		}
+		deletedSegmentCount += deleted;
+		return deleted;
+	}
+
+	/** Force any outstanding writes to disk. */
+	public synchronized void flush() {
+		if (!segments.isEmpty())
+			segments.get(segments.size() - 1).buffer.force();
+	}
+
+	/** Force outstanding writes and release the segment files. */
+	public synchronized void close() throws IOException {
+		for (int i = 0; i < segments.size(); i++)
+			segments.get(i).close();
+		segments.clear();
+	}
+
+	/** A single mapped segment file and its sparse index. */
+	private static class Segment implements Comparable<Segment> {
+
+		/** The segment file. */
+		File file;
+
+		/** Segment number, orders segments. */
+		long number;
+
+		/** File access. */
+		RandomAccessFile raf;
+
+		/** The mapped file. */
+		MappedByteBuffer buffer;
+
+		/** Offset at which the next record will be written. */
+		int writePos;
+
+		/** Number of records. */
+		int count;
+
+		/** Earliest record timestamp. */
+		long minTime = Long.MAX_VALUE;
+
+		/** Latest record timestamp. */
+		long maxTime = Long.MIN_VALUE;
+
+		/** Offsets of every INDEX_INTERVAL-th record. */
+		int[] indexOffsets = new int[16];
+
+		/** Running maximum timestamp at each indexed record. */
+		long[] indexTimes = new long[16];
+
+		/** Number of index entries. */
+		int indexSize;
+
+		/** Number of records the last read() could not decode. */
+		int unreadable;
+
+		private Segment(File file, long number, RandomAccessFile raf, MappedByteBuffer buffer) {
+			this.file = file;
+			this.number = number;
+			this.raf = raf;
+			this.buffer = buffer;
+			writePos = HEADER_SIZE;
+		}
+
+		/** Create a new segment file of the specified size. */
+		static Segment create(File file, long number, int size) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.setLength(size);
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(0, MAGIC);
+			buffer.putLong(4, number);
+			return new Segment(file, number, raf, buffer);
+		}
+
+		/** Re-open an existing segment file, read-only or not, and rebuild its index. */
+		static Segment open(File file, boolean readOnly) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
+			if (raf.length() < HEADER_SIZE) {
+				raf.close();
+				throw new IOException("Truncated backing store segment: " + file);
+			}
+			MappedByteBuffer buffer = raf.getChannel().map(
+					readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, raf.length());
+			if (buffer.getInt(0) != MAGIC) {
+				raf.close();
+				throw new IOException("Not a backing store segment: " + file);
+			}
+			Segment segment = new Segment(file, buffer.getLong(4), raf, buffer);
+			int pos = HEADER_SIZE;
+			while (pos + FRAME_SIZE <= buffer.capacity()) {
+				int length = buffer.getInt(pos);
+				if (length <= 0 || pos + FRAME_SIZE + length > buffer.capacity())
+					break;
+				segment.indexRecord(pos, buffer.getLong(pos + 4));
+				pos += FRAME_SIZE + length;
+			}
+			segment.writePos = pos;
+			return segment;
+		}
+
+		/** @return True if a payload of the specified length will fit. */
+		boolean hasRoom(int length) {
+			// leave room for a zero terminator
+			return writePos + FRAME_SIZE + length + 4 <= buffer.capacity();
+		}
+
+		/** Append a record. */
+		void append(long time, byte[] payload) {
+			int pos = writePos;
+			buffer.putLong(pos + 4, time);
+			ByteBuffer dup = buffer.duplicate();
+			dup.position(pos + FRAME_SIZE);
+			dup.put(payload);
+			// write the length last so a partial record is never seen as complete
+			buffer.putInt(pos, payload.length);
+			writePos = pos + FRAME_SIZE + payload.length;
+			indexRecord(pos, time);
+		}
+
+		/** Note a record in the counters and sparse index. */
+		private void indexRecord(int pos, long time) {
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+			if (count % INDEX_INTERVAL == 0) {
+				if (indexSize == indexOffsets.length) {
+					int[] offsets = new int[indexSize * 2];
+					long[] times = new long[indexSize * 2];
+					System.arraycopy(indexOffsets, 0, offsets, 0, indexSize);
+					System.arraycopy(indexTimes, 0, times, 0, indexSize);
+					indexOffsets = offsets;
+					indexTimes = times;
+				}
+				indexOffsets[indexSize] = pos;
+				indexTimes[indexSize] = maxTime;
+				indexSize++;
+			}
+			count++;
+		}
+
+		/**
+		 * Decode the records timed between t1 and t2 into the list. A record
+		 * which cannot be decoded is skipped and counted in unreadable.
+		 *
+		 * @return The first decoding failure or null if there was none.
+		 */
+		Exception read(long t1, long t2, List<StatusCategory> list) {
+			unreadable = 0;
+			Exception failure = null;
+			// last index entry whose running maximum is before t1 - no
+			// earlier record can be in range.
+			int lo = 0;
+			int hi = indexSize - 1;
+			int start = 0;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (indexTimes[mid] < t1) {
+					start = mid;
+					lo = mid + 1;
+				} else
+					hi = mid - 1;
+			}
+
+			ByteBuffer view = buffer.duplicate();
+			int pos = indexOffsets[start];
+			long runningMax = Long.MIN_VALUE;
+			while (pos < writePos) {
+				int length = view.getInt(pos);
+				long time = view.getLong(pos + 4);
+				runningMax = Math.max(runningMax, time);
+				if (runningMax > t2)
+					break;
+				if (time >= t1) {
+					view.limit(pos + FRAME_SIZE + length);
+					view.position(pos + FRAME_SIZE);
+					try {
+						ObjectInputStream in = new ObjectInputStream(new BufferInputStream(view));
+						list.add((StatusCategory) in.readObject());
+					} catch (Exception e) {
+						if (failure == null)
+							failure = e;
+						unreadable++;
+					}
+					view.limit(view.capacity());
+				}
+				pos += FRAME_SIZE + length;
+			}
+			return failure;
+		}
+
+		/** Force the segment to disk - it will not be written again. */
+		void seal() {
+			buffer.force();
+		}
+
+		void close() throws IOException {
+			buffer.force();
+			raf.close();
+		}
+
+		void delete() {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			// the mapping is released when the buffer is collected
+			buffer = null;
+			file.delete();
+		}
+
+		public int compareTo(Segment other) {
+			return (number < other.number ? -1 : (number == other.number ? 0 : 1));
+		}
+
+	}
+
+	/** Reads from a ByteBuffer between its position and limit. */
+	private static class BufferInputStream extends InputStream {
+
+		private ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return (buffer.hasRemaining() ? buffer.get() & 0xff : -1);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+}
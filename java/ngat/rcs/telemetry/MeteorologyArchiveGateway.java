@@ -8,11 +8,13 @@ import java.rmi.server.UnicastRemoteObject;
 import java.util.List;
 import java.util.Vector;
 
+import ngat.ems.CloudStatus;
+import ngat.ems.DustStatus;
 import ngat.ems.MeteorologyStatus;
 import ngat.ems.MeteorologyStatusArchive;
 import ngat.ems.MeteorologyStatusProvider;
 import ngat.ems.MeteorologyStatusUpdateListener;
-import ngat.util.ControlThread;
+import ngat.ems.WmsStatus;
 import ngat.util.logging.LogGenerator;
 import ngat.util.logging.LogManager;
 import ngat.util.logging.Logger;
@@ -22,29 +24,35 @@ import ngat.util.logging.Logger;
  *
  */
 public class MeteorologyArchiveGateway extends UnicastRemoteObject implements MeteorologyStatusUpdateListener,
-		MeteorologyStatusProvider, MeteorologyStatusArchive {
+		MeteorologyStatusProvider, MeteorologyStatusArchive, StatusRollupArchive,
+		StatusDeliveryControl<MeteorologyStatusUpdateListener> {
+
+	/** Fields held in the rollup. */
+	public static final String[] ROLLUP_COLUMNS = new String[] { "wind.speed", "wind.direction", "humidity",
+			"ext.temperature", "dewpoint.temperature", "pressure", "light.level", "moisture.fraction",
+			"cloud.sky.minus.ambient", "dust" };
+
+	/** Rollup fields which are angles (degrees). */
+	public static final String[] ANGULAR_COLUMNS = new String[] { "wind.direction" };
 
     private int bcscount = 0;
 
 	/** Logger. */
 	private LogGenerator slogger;
 
-	/** A list of registered MeteorologyStatusUpdateListeners. */
-	private List<MeteorologyStatusUpdateListener> listeners;
-
-	/** A list of candidate MeteorologyStatusUpdateListeners. */
-	private List<MeteorologyStatusUpdateListener> addListeners;
-
-	/** A list of MeteorologyStatusUpdateListeners to delete. */
-	private List<MeteorologyStatusUpdateListener> deleteListeners;
+	/** Delivers status to registered MeteorologyStatusUpdateListeners. */
+	private StatusDeliveryEngine<MeteorologyStatusUpdateListener, MeteorologyStatus> delivery;
 
 	/** Meteorology status source. */
 	private MeteorologyStatusProvider tsp;
 
 	private List<MeteorologyStatus> archive;
-	
-	/** Counts the number of archive entries which have been forwarded to current listeners.*/
-	private int processedCount;
+
+	/** Downsampled history for long-range queries. */
+	private StatusRollup rollup;
+
+	/** Answers rollup requests. */
+	private StatusRollupSupport rollupSupport;
 
 	/**
 	 * Create a MeteorologyArchiveGateway.
@@ -61,21 +69,31 @@ public class MeteorologyArchiveGateway extends UnicastRemoteObject implements Me
 					.srcCompClass(this.getClass().getSimpleName())
 					.srcCompId("EMS_Gateway");
 
-		tsp.addMeteorologyStatusUpdateListener(this);
 		
 		archive = new Vector<MeteorologyStatus>();
+		rollup = new StatusRollup(ROLLUP_COLUMNS, ANGULAR_COLUMNS);
+		rollupSupport = new StatusRollupSupport(rollup, slogger);
 		
-		listeners = new Vector<MeteorologyStatusUpdateListener>();
-		addListeners = new Vector<MeteorologyStatusUpdateListener>();
-		deleteListeners = new Vector<MeteorologyStatusUpdateListener>();
-		
-		processedCount = 0;
+		delivery = new StatusDeliveryEngine<MeteorologyStatusUpdateListener, MeteorologyStatus>("EMS_Gateway",
+				new StatusDeliveryEngine.Sender<MeteorologyStatusUpdateListener, MeteorologyStatus>() {
+					public void send(MeteorologyStatusUpdateListener l, List<MeteorologyStatus> items) throws Exception {
+						for (int is = 0; is < items.size(); is++)
+							l.meteorologyStatusUpdate(items.get(is));
+					}
+
+					public Object getCoalesceKey(MeteorologyStatus status) {
+						return status.getClass();
+					}
+				}, slogger);
+
+		// bind to the provider once the archive and delivery are ready
+		tsp.addMeteorologyStatusUpdateListener(this);
 	}
 
 	public void addMeteorologyStatusUpdateListener(MeteorologyStatusUpdateListener l) throws RemoteException {
 
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -86,18 +104,17 @@ public class MeteorologyArchiveGateway extends UnicastRemoteObject implements Me
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 
 	}
 
 	public void removeMeteorologyStatusUpdateListener(MeteorologyStatusUpdateListener l) throws RemoteException {
 
- 		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
 	}
 
 	public void meteorologyStatusUpdate(MeteorologyStatus status) throws RemoteException {
@@ -109,6 +126,8 @@ public class MeteorologyArchiveGateway extends UnicastRemoteObject implements Me
 				       status))
 		    .send();
 		archive.add(status);
+		addToRollup(status);
+		delivery.publish(status);
 
 		// every 5th BCS input we dump all data out
 		/*if (status instanceof CloudStatus) {
@@ -136,48 +155,17 @@ public class MeteorologyArchiveGateway extends UnicastRemoteObject implements Me
 		
 	}
     
-	private void notifyListenersMeteorologyStatusUpdate(MeteorologyStatus status) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				MeteorologyStatusUpdateListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
-
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				MeteorologyStatusUpdateListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
-
-		}
-
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			MeteorologyStatusUpdateListener l = null;
-			try {
-				l = listeners.get(il);
-				l.meteorologyStatusUpdate(status);
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2)
-						.msg("Adding unresponsive listener: " + l + " to kill list")
-						.send();
-				}
-			}
-		}
+	public void addDeliveryListener(MeteorologyStatusUpdateListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
 
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
 	}
-	
+
 	public List<MeteorologyStatus> getMeteorologyStatusHistory(long t1, long t2) throws RemoteException {
 		slogger.create().info().level(2)
 			.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1,t1,t2,t2))
@@ -203,54 +191,43 @@ public class MeteorologyArchiveGateway extends UnicastRemoteObject implements Me
 		return list;
 	}
 
-	public void startProcessor() {
-		ProcessorThread pt = new ProcessorThread(5000L);
-		pt.start();
+	public String[] getRollupColumns() throws RemoteException {
+		return rollupSupport.getRollupColumns();
 	}
-	
-	private class ProcessorThread extends ControlThread {
-
-		private long interval;
-
-		/**
-		 * @param interval
-		 */
-		public ProcessorThread(long interval) {
-			super("ECM_G_PT", true);
-			this.interval = interval;
-		}
-
-		@Override
-		protected void initialise() {
-			// TODO Auto-generated method stub
 
-		}
-
-		@Override
-		protected void mainTask() {
-					try {Thread.sleep(interval); } catch (InterruptedException ix) {}	
-				// loop thro pending statii
-				int ias = archive.size();		
-				slogger.create().info().level(2)
-				.msg("Processing archived status from: "+processedCount+" to "+ias).send();
-			
-				for (int is = processedCount; is < ias; is++) {
-					MeteorologyStatus status = archive.get(is);				
-					notifyListenersMeteorologyStatusUpdate(status);
-				}
-				// we have processed all known archived status
-				processedCount = ias;
-		}
+	public long[] getRollupResolutions() throws RemoteException {
+		return rollupSupport.getRollupResolutions();
+	}
 
-		@Override
-		protected void shutdown() {
-			// TODO Auto-generated method stub
+	public RollupSeries getStatusRollup(String[] columns, long t1, long t2, int maxPoints) throws RemoteException {
+		return rollupSupport.getStatusRollup(columns, t1, t2, maxPoints);
+	}
 
-		}
+	public RollupSeries getStatusRollupAtResolution(String[] columns, long t1, long t2, long resolution)
+			throws RemoteException {
+		return rollupSupport.getStatusRollupAtResolution(columns, t1, t2, resolution);
+	}
 
+	/** Extract the rollup fields from a status. */
+	private void addToRollup(MeteorologyStatus status) {
+		double[] row = rollup.createRow();
+		if (status instanceof WmsStatus) {
+			WmsStatus wms = (WmsStatus) status;
+			row[0] = wms.getWindSpeed();
+			row[1] = wms.getWindDirn();
+			row[2] = wms.getHumidity();
+			row[3] = wms.getExtTemperature();
+			row[4] = wms.getDewPointTemperature();
+			row[5] = wms.getPressure();
+			row[6] = wms.getLightLevel();
+			row[7] = wms.getMoistureFraction();
+		} else if (status instanceof CloudStatus) {
+			row[8] = ((CloudStatus) status).getSkyMinusAmb();
+		} else if (status instanceof DustStatus) {
+			row[9] = ((DustStatus) status).getDust();
+		} else
+			return;
+		rollup.add(status.getStatusTimeStamp(), row);
 	}
 
-	
-	
-	
 }
@@ -3,11 +3,13 @@
  */
 package ngat.rcs.telemetry;
 
+import java.io.Serializable;
+
 /**
  * @author eng
  *
  */
-public class MonitorEvent {
+public class MonitorEvent implements Serializable {
 
 	long time;
 
@@ -5,33 +5,92 @@ package ngat.rcs.telemetry;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
 
 import ngat.phase2.IExecutionFailureContext;
 import ngat.rcs.ops.GroupCompletedEvent;
 import ngat.rcs.ops.GroupSelectedEvent;
+import ngat.rcs.ops.OperationsEvent;
 import ngat.rcs.ops.OperationsEventListener;
 import ngat.sms.GroupItem;
 
-/** Monitors the GOM event list.
+/** Delivers events from the GOM event journal. Each listener has its own cursor
+ * into the journal so a slow or failing listener does not hold back the others
+ * and events are never removed just because they have been delivered.
  * @author eng
  *
  */
 public class MonitorThread extends Thread {
 
-	List <MonitorEvent> events;
+	/** Longest time to sleep between checks of the journal.*/
+	private static final long MAX_SLEEP = 5000L;
 
-	List<GroupOperationsListener> listeners;
+	GroupEventJournal journal;
+
+	/** Cursors of the GroupOperationsListeners.*/
+	List<Cursor> listeners;
 	
-	List<OperationsEventListener> oelisteners;
+	/** Cursors of the OperationsEventListeners.*/
+	List<Cursor> oelisteners;
 	
 	/**
-	 * @param events
+	 * @param journal The journal to deliver events from.
 	 */
-	public MonitorThread(List<MonitorEvent> events, List<GroupOperationsListener> listeners, List<OperationsEventListener> oelisteners) {
+	public MonitorThread(GroupEventJournal journal) {
 		super("GOMEventDespatcher");
-		this.events = events;
-		this.listeners = listeners;
-		this.oelisteners = oelisteners;
+		setDaemon(true);
+		this.journal = journal;
+		listeners = new CopyOnWriteArrayList<Cursor>();
+		oelisteners = new CopyOnWriteArrayList<Cursor>();
+	}
+
+	/** Add a GroupOperationsListener, it will receive events appended from now on.
+	 * @return False if the listener was already registered.
+	 */
+	public boolean addGroupOperationsListener(GroupOperationsListener l) {
+		return addCursor(listeners, l);
+	}
+
+	/** @return False if the listener was not registered.*/
+	public boolean removeGroupOperationsListener(GroupOperationsListener l) {
+		return removeCursor(listeners, l);
+	}
+
+	/** Add an OperationsEventListener, it will receive events appended from now on.
+	 * @return False if the listener was already registered.
+	 */
+	public boolean addOperationsEventListener(OperationsEventListener l) {
+		return addCursor(oelisteners, l);
+	}
+
+	/** @return False if the listener was not registered.*/
+	public boolean removeOperationsEventListener(OperationsEventListener l) {
+		return removeCursor(oelisteners, l);
+	}
+
+	/** Wake the thread to deliver newly appended events.*/
+	public void wakeup() {
+		LockSupport.unpark(this);
+	}
+
+	private synchronized boolean addCursor(List<Cursor> cursors, Object l) {
+		for (int i = 0; i < cursors.size(); i++) {
+			if (cursors.get(i).listener.equals(l))
+				return false;
+		}
+		cursors.add(new Cursor(l, journal.getNextSequence()));
+		return true;
+	}
+
+	private synchronized boolean removeCursor(List<Cursor> cursors, Object l) {
+		for (int i = 0; i < cursors.size(); i++) {
+			Cursor cursor = cursors.get(i);
+			if (cursor.listener.equals(l))
+				return cursors.remove(cursor);
+		}
+		return false;
 	}
 	
 	@Override
@@ -39,91 +98,82 @@ public class MonitorThread extends Thread {
 		
 		System.err.println("GOMEventDespatcher:: Starting...");
 		
+		List<MonitorEvent> events = new Vector<MonitorEvent>();
 		while (true) {
 			
-			try {Thread.sleep(5000L);} catch (InterruptedException ix) {}
-			
-			while(!events.isEmpty()) {
-				
-				System.err.println("GOMEventDespatcher:: Check event list..."+events.size()+" events");
-				
-				// ----------------------------------------------------------------------------
-				// TODO NEED TO TRANSLATE MON_EVENTS INTO OPS_EVENTS TO DESPATCH TO OPSGATEWAY
-				// ----------------------------------------------------------------------------
-				
-				MonitorEvent mev = events.remove(0);
-				System.err.println("GOMEventDespatcher:: Process event: "+mev);
-				if (mev instanceof SelectionEvent) {
-					GroupItem group = ((SelectionEvent)mev).getGroup();
-					Iterator<GroupOperationsListener> il = listeners.iterator();
-					while (il.hasNext()) {
-						GroupOperationsListener l = il.next();
-					
-						try {
-							System.err.println("GOMEventDespatcher:: Notify listener: "+l);
-							l.groupSelected(group);	
-							
-						} catch (Exception e) {
-							il.remove();
-							System.err.println("GOMEventDespatcher::Removed unresponsive listener: "+l);
-							e.printStackTrace();
-						}
+			LockSupport.parkNanos(MAX_SLEEP * 1000000L);
 
-					}
-					
-					// Translate into OperationsEvent
-					GroupSelectedEvent gse = new GroupSelectedEvent(mev.getTime(), ((SelectionEvent) mev).getGroup());
-					for (int i = 0; i < oelisteners.size(); i++) {
-						OperationsEventListener oel = oelisteners.get(i);
-						try {
-							System.err.println("GOMEventDespatcher:: Notify OElistener : "+oel.getClass().getSimpleName()+" "+gse);
-							oel.operationsEventNotification(gse);					
-						} catch (Exception e) {							
-							e.printStackTrace();
-						}
-						
-					}
-					
-				} else if
-				(mev instanceof CompletionEvent) {
-					GroupItem group = ((CompletionEvent)mev).getGroup();
-					IExecutionFailureContext error = ((CompletionEvent)mev).getError();
-					Iterator<GroupOperationsListener> il = listeners.iterator();
-					while (il.hasNext()) {
-						GroupOperationsListener l = il.next();
-					
-						try {
-							System.err.println("GOMEventDespatcher:: Notify listener: "+l);						
+			Iterator<Cursor> il = listeners.iterator();
+			while (il.hasNext()) {
+				Cursor cursor = il.next();
+				events.clear();
+				long next = journal.read(cursor.position, events);
+				GroupOperationsListener l = (GroupOperationsListener) cursor.listener;
+				try {
+					for (int i = 0; i < events.size(); i++) {
+						MonitorEvent mev = events.get(i);
+						System.err.println("GOMEventDespatcher:: Notify listener: " + l + " of " + mev);
+						if (mev instanceof SelectionEvent) {
+							l.groupSelected(((SelectionEvent) mev).getGroup());
+						} else if (mev instanceof CompletionEvent) {
+							GroupItem group = ((CompletionEvent) mev).getGroup();
+							IExecutionFailureContext error = ((CompletionEvent) mev).getError();
 							l.groupCompleted(group, error);
-						} catch (Exception e) {
-							il.remove();
-							System.err.println("GOMEventDespatcher::Removed unresponsive listener: "+l);
-							e.printStackTrace();
 						}
-
 					}
-					
-					// Translate into OperationsEvent
-					GroupCompletedEvent gce = new GroupCompletedEvent(mev.getTime(), ((CompletionEvent) mev).getGroup(), ((CompletionEvent) mev).getError());
-					for (int i = 0; i < oelisteners.size(); i++) {
-						OperationsEventListener oel = oelisteners.get(i);
-						try {
-							System.err.println("GOMEventDespatcher:: Notify OElistener: "+oel.getClass().getSimpleName()+" "+gce);
-							oel.operationsEventNotification(gce);					
-						} catch (Exception e) {							
-							e.printStackTrace();
-						}
-						
+					cursor.position = next;
+				} catch (Exception e) {
+					removeGroupOperationsListener(l);
+					System.err.println("GOMEventDespatcher::Removed unresponsive listener: "+l);
+					e.printStackTrace();
+				}
+			}
+
+			// Translate into OperationsEvents
+			Iterator<Cursor> iol = oelisteners.iterator();
+			while (iol.hasNext()) {
+				Cursor cursor = iol.next();
+				events.clear();
+				cursor.position = journal.read(cursor.position, events);
+				OperationsEventListener oel = (OperationsEventListener) cursor.listener;
+				for (int i = 0; i < events.size(); i++) {
+					OperationsEvent oev = translate(events.get(i));
+					if (oev == null)
+						continue;
+					try {
+						System.err.println("GOMEventDespatcher:: Notify OElistener : "+oel.getClass().getSimpleName()+" "+oev);
+						oel.operationsEventNotification(oev);					
+					} catch (Exception e) {							
+						e.printStackTrace();
 					}
-					
-					
 				}
-				
-				System.err.println("GOMEventDespatcher:: Finished processing events");
-				
-			} // next event
+			}
 						
 		}			
 	}
+
+	/** @return The OperationsEvent corresponding to a monitor event or null if none.*/
+	private OperationsEvent translate(MonitorEvent mev) {
+		if (mev instanceof SelectionEvent)
+			return new GroupSelectedEvent(mev.getTime(), ((SelectionEvent) mev).getGroup());
+		if (mev instanceof CompletionEvent)
+			return new GroupCompletedEvent(mev.getTime(), ((CompletionEvent) mev).getGroup(), 
+						       ((CompletionEvent) mev).getError());
+		return null;
+	}
+
+	/** A listener and its position in the journal.*/
+	private static class Cursor {
+
+		Object listener;
+
+		/** Sequence number of the next event to deliver.*/
+		volatile long position;
+
+		Cursor(Object listener, long position) {
+			this.listener = listener;
+			this.position = position;
+		}
+	}
 	
 }
@@ -24,21 +24,15 @@ import ngat.util.logging.Logger;
  * 
  */
 public class OperationsArchiveGateway extends UnicastRemoteObject implements OperationsMonitor, OperationsArchive,
-		OperationsEventListener {
+		OperationsEventListener, StatusDeliveryControl<OperationsEventListener> {
 
 	/** Logger. */
 	private LogGenerator slogger;
 
-	/** A list of registered OperationsEventListeners. */
-	private List<OperationsEventListener> listeners;
+	/** Delivers status to registered OperationsEventListeners. */
+	private StatusDeliveryEngine<OperationsEventListener, OperationsEvent> delivery;
 
-	/** A list of candidate OperationsEventListeners. */
-	private List<OperationsEventListener> addListeners;
-
-	/** A list of OperationsEventListeners to delete. */
-	private List<OperationsEventListener> deleteListeners;
-
-	private List<OperationsEvent> archive;
+	private SegmentedStatusArchive<OperationsEvent> archive;
 
 	/** Monitor to register with for OperationsEvents.*/
 	private OperationsMonitor opsMonitor;
@@ -46,11 +40,6 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 	/** Monitor to register with for Group OperationsEvents.*/
 	private OperationsMonitor grpOpsMonitor;
 
-	/**
-	 * Counts the number of archive entries which have been forwarded to current
-	 * listeners.
-	 */
-	private volatile int processedCount;
 
 	// START TEMPLATE CODE
 
@@ -88,17 +77,25 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
 				.srcCompId("OperationsGateway");
 
-		// bind the 2 raw providers
-		opsMonitor.addOperationsEventListener(this);
-		grpOpsMonitor.addOperationsEventListener(this);
 		
-		archive = new Vector<OperationsEvent>();
+		archive = new SegmentedStatusArchive<OperationsEvent>();
 
-		listeners = new Vector<OperationsEventListener>();
-		addListeners = new Vector<OperationsEventListener>();
-		deleteListeners = new Vector<OperationsEventListener>();
+		delivery = new StatusDeliveryEngine<OperationsEventListener, OperationsEvent>("OperationsGateway",
+				new StatusDeliveryEngine.Sender<OperationsEventListener, OperationsEvent>() {
+					public void send(OperationsEventListener l, List<OperationsEvent> items) throws Exception {
+						for (int is = 0; is < items.size(); is++)
+							l.operationsEventNotification(items.get(is));
+					}
 
-		processedCount = 0;
+					public Object getCoalesceKey(OperationsEvent status) {
+						// every event matters, never merge
+						return null;
+					}
+				}, slogger);
+
+		// bind the 2 raw providers
+		opsMonitor.addOperationsEventListener(this);
+		grpOpsMonitor.addOperationsEventListener(this);
 	}
 	
 	
@@ -175,49 +172,6 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 
 
 
-	private void notifyListenersEventUpdate(OperationsEvent event) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				OperationsEventListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
-		deleteListeners.clear();
-
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				OperationsEventListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
-
-		}
-		addListeners.clear();
-
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			OperationsEventListener l = null;
-			try {
-				l = listeners.get(il);
-				l.operationsEventNotification(event);
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2)
-							.msg("Adding unresponsive listener: " + l + " to kill list due to: " + e).send();
-				}
-			}
-		}
-
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -228,7 +182,8 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 	public void operationsEventNotification(OperationsEvent event) throws RemoteException {
 
 		slogger.create().info().level(2).msg("Add event: " + archive.size() + " to archive: " + event).send();
-		archive.add(event);
+		archive.add(event.getStatusTimeStamp(), event);
+		delivery.publish(event);
 	}
 
 	/*
@@ -240,14 +195,7 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 		slogger.create().info().level(2)
 				.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
 
-		List<OperationsEvent> list = new Vector<OperationsEvent>();
-
-		for (int is = 0; is < archive.size(); is++) {
-			OperationsEvent event = archive.get(is);
-			long time = event.getStatusTimeStamp();
-			if (time >= t1 && time <= t2)
-				list.add(event);
-		}
+		List<OperationsEvent> list = BackingStoreHistory.range(archive, backingStore, backingStoreAgeLimit, t1, t2, slogger);
 		slogger.create().info().level(2).msg("Returning " + list.size() + " entries").send();
 		return list;
 	}
@@ -262,7 +210,7 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 	public void addOperationsEventListener(OperationsEventListener l) throws RemoteException {
 
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -273,7 +221,7 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 
 	}
 
@@ -285,12 +233,22 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 	 * .tmm.OperationsEventListener)
 	 */
 	public void removeOperationsEventListener(OperationsEventListener l) throws RemoteException {
-		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
+	}
+
+	public void addDeliveryListener(OperationsEventListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
+
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
 	}
 
 	public void startProcessor() {
@@ -331,9 +289,6 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 			// Cull aged items
 			backingStoreCull();
 
-			// Process pending items
-			processPendingStatus();
-
 			ipcc++;
 
 		}
@@ -361,26 +316,16 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 						.msg(String.format("Purge to backing store, items dated before: %tF %tT \n", cutoffTime,
 								cutoffTime)).send();
 
-				int cullCount = 0;
-				// purge oldest data into backingStore.
-				for (int is = 0; is < processedCount; is++) {
-					OperationsEvent status = archive.get(is);
-
-					if (status.getStatusTimeStamp() < cutoffTime) {
-						cullCount++;
-						dumpList.add(status);
-					}
-
-				}
+				// detach whole aged segments, oldest first
+				int cullCount = archive.cullBefore(cutoffTime, dumpList);
 
-				slogger.create().info().level(3)
-						.msg("Checked " + processedCount + " entries, found " + cullCount + " aged items").send();
+				slogger.create().info().level(3).msg("Culled " + cullCount + " aged items").send();
 
 				// push the culled data into the backing store
 				if (backingStore != null) {
 					int ntb = 0;
 					for (int is = 0; is < cullCount; is++) {
-						OperationsEvent status = archive.get(is);
+						OperationsEvent status = dumpList.get(is);
 						try {
 							backingStore.storeStatus(status);
 							ntb++;
@@ -394,35 +339,16 @@ public class OperationsArchiveGateway extends UnicastRemoteObject implements Ope
 					slogger.create().info().level(3).msg("No backing store so culled items will be lost").send();
 				}
 
-				// chop the culled data out of the local cache
-				archive.removeAll(dumpList);
-
-				processedCount -= cullCount;
 				int ias = archive.size();
 				slogger.create()
 						.info()
 						.level(3)
-						.msg("Removed aged entries from live cache, size now" + ias + ", processing starts at: "
-								+ processedCount).send();
+						.msg("Live cache size now: " + ias).send();
 
 			}
 
 		}
 
-		private void processPendingStatus() {
-			// loop thro pending events
-			int ias = archive.size();
-			slogger.create().info().level(2).msg("Processing archived status from: " + processedCount + " to " + ias)
-					.send();
-
-			for (int is = processedCount; is < ias; is++) {
-				OperationsEvent event = archive.get(is);
-				notifyListenersEventUpdate(event);
-			}
-			// we have processed all known archived status
-			processedCount = ias;
-		}
-
 		@Override
 		protected void shutdown() {
 			// TODO Auto-generated method stub
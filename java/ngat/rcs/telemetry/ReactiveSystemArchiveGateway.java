@@ -28,29 +28,19 @@ import ngat.util.logging.Logger;
  *
  */
 public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
-		implements ReactiveSystemMonitor, ReactiveSystemArchive, ReactiveSystemUpdateListener {
+		implements ReactiveSystemMonitor, ReactiveSystemArchive, ReactiveSystemUpdateListener,
+		StatusDeliveryControl<ReactiveSystemUpdateListener> {
 
 	/** Logger. */
 	private LogGenerator slogger;
 
 	private ReactiveSystemMonitor monitor;
 	
-	/** A list of registered OperationsEventListeners. */
-	private List<ReactiveSystemUpdateListener> listeners;
+	/** Delivers status to registered ReactiveSystemUpdateListeners. */
+	private StatusDeliveryEngine<ReactiveSystemUpdateListener, ReactiveEvent> delivery;
 
-	/** A list of candidate OperationsEventListeners. */
-	private List<ReactiveSystemUpdateListener> addListeners;
-
-	/** A list of OperationsEventListeners to delete. */
-	private List<ReactiveSystemUpdateListener> deleteListeners;
-
-	private List<ReactiveEvent> archive;
+	private SegmentedStatusArchive<ReactiveEvent> archive;
 	
-	/**
-	 * Counts the number of archive entries which have been forwarded to current
-	 * listeners.
-	 */
-	private volatile int processedCount;
 
 	// START TEMPLATE CODE
 
@@ -89,13 +79,38 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 				.srcCompId("OperationsGateway");
 
 		monitor.addReactiveSystemUpdateListener(this);
-		archive = new Vector<ReactiveEvent>();
-
-		listeners = new Vector<ReactiveSystemUpdateListener>();
-		addListeners = new Vector<ReactiveSystemUpdateListener>();
-		deleteListeners = new Vector<ReactiveSystemUpdateListener>();
+		archive = new SegmentedStatusArchive<ReactiveEvent>();
+
+		delivery = new StatusDeliveryEngine<ReactiveSystemUpdateListener, ReactiveEvent>("ReactiveSystemGateway",
+				new StatusDeliveryEngine.Sender<ReactiveSystemUpdateListener, ReactiveEvent>() {
+					public void send(ReactiveSystemUpdateListener l, List<ReactiveEvent> items) throws Exception {
+						for (int is = 0; is < items.size(); is++) {
+							ReactiveEvent event = items.get(is);
+							if (event instanceof FilterUpdateEvent) {
+								FilterUpdateEvent fev = (FilterUpdateEvent) event;
+								l.filterUpdated(fev.getFilterName(), fev.getStatusTimeStamp(), fev.getSensorInput(),
+										fev.getFilterOutput());
+							} else if (event instanceof CriterionUpdateEvent) {
+								CriterionUpdateEvent cev = (CriterionUpdateEvent) event;
+								l.criterionUpdated(cev.getCriterionName(), cev.getStatusTimeStamp(), cev.isCriterionOutput());
+							} else if (event instanceof RuleUpdateEvent) {
+								RuleUpdateEvent rev = (RuleUpdateEvent) event;
+								l.ruleUpdated(rev.getRuleName(), rev.getStatusTimeStamp(), rev.isRuleTriggered());
+							}
+						}
+					}
 
-		processedCount = 0;
+					public Object getCoalesceKey(ReactiveEvent status) {
+						// latest output of each filter, criterion and rule
+						if (status instanceof FilterUpdateEvent)
+							return "F:" + ((FilterUpdateEvent) status).getFilterName();
+						if (status instanceof CriterionUpdateEvent)
+							return "C:" + ((CriterionUpdateEvent) status).getCriterionName();
+						if (status instanceof RuleUpdateEvent)
+							return "R:" + ((RuleUpdateEvent) status).getRuleName();
+						return null;
+					}
+				}, slogger);
 		
 	}
 	
@@ -171,61 +186,6 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 	}
 
 
-	private void notifyListenersEventUpdate(ReactiveEvent event) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				ReactiveSystemUpdateListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
-		deleteListeners.clear();
-
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				ReactiveSystemUpdateListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
-
-		}
-		addListeners.clear();
-
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			ReactiveSystemUpdateListener l = null;
-			try {
-				l = listeners.get(il);
-				if (event instanceof FilterUpdateEvent) {
-					FilterUpdateEvent fev = (FilterUpdateEvent)event;
-					l.filterUpdated(fev.getFilterName(), fev.getStatusTimeStamp(), fev.getSensorInput(), fev.getFilterOutput());
-				} else if
-				(event instanceof CriterionUpdateEvent) {
-					CriterionUpdateEvent cev = (CriterionUpdateEvent) event;
-					l.criterionUpdated(cev.getCriterionName(), cev.getStatusTimeStamp(), cev.isCriterionOutput());
-				} else if
-				(event instanceof RuleUpdateEvent) {
-					RuleUpdateEvent rev = (RuleUpdateEvent) event;
-					l.ruleUpdated(rev.getRuleName(), rev.getStatusTimeStamp(), rev.isRuleTriggered());
-				}
-			
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2)
-							.msg("Adding unresponsive listener: " + l + " to kill list due to: " + e).send();
-				}
-			}
-		}
-
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -235,14 +195,7 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 		slogger.create().info().level(2)
 				.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
 
-		List<ReactiveEvent> list = new Vector<ReactiveEvent>();
-
-		for (int is = 0; is < archive.size(); is++) {
-			ReactiveEvent event = archive.get(is);
-			long time = event.getStatusTimeStamp();
-			if (time >= t1 && time <= t2)
-				list.add(event);
-		}
+		List<ReactiveEvent> list = BackingStoreHistory.range(archive, backingStore, backingStoreAgeLimit, t1, t2, slogger);
 		slogger.create().info().level(2).msg("Returning " + list.size() + " entries").send();
 		return list;
 	}
@@ -257,7 +210,7 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 	public void addReactiveSystemUpdateListener(ReactiveSystemUpdateListener l) throws RemoteException {
 
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -268,7 +221,7 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 
 	}
 
@@ -280,12 +233,11 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 	 * .tmm.OperationsEventListener)
 	 */
 	public void removeReactiveSystemUpdateListener(ReactiveSystemUpdateListener l) throws RemoteException {
-		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
 	}
 
 	
@@ -295,25 +247,39 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 	public void filterUpdated(String filterName, long time, Number updateValue,
 			Number filterOutputValue) throws RemoteException {
 	    FilterUpdateEvent fev = new FilterUpdateEvent(time, filterName, updateValue, filterOutputValue);
-	    archive.add(fev);
+	    archive.add(fev.getStatusTimeStamp(), fev);
+	    delivery.publish(fev);
 		
 	}
 
 	public void criterionUpdated(String critName, long time,
 			boolean critOutputValue) throws RemoteException {
 	    CriterionUpdateEvent cev = new CriterionUpdateEvent(time, critName, critOutputValue);
-	    archive.add(cev);
+	    archive.add(cev.getStatusTimeStamp(), cev);
+	    delivery.publish(cev);
 		
 	}
 
 	public void ruleUpdated(String ruleName, long time, boolean ruleOutputValue)
 			throws RemoteException {
 	    RuleUpdateEvent rev = new RuleUpdateEvent(time, ruleName, ruleOutputValue);
-	    archive.add(rev);
+	    archive.add(rev.getStatusTimeStamp(), rev);
+	    delivery.publish(rev);
 		
 	}
 
 
+	public void addDeliveryListener(ReactiveSystemUpdateListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
+
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
+	}
+
 	public void startProcessor() {
 		ProcessorThread pt = new ProcessorThread(5000L);
 		pt.start();
@@ -352,8 +318,6 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 			// Cull aged items
 			backingStoreCull();
 
-			// Process pending items
-			processPendingStatus();
 
 			ipcc++;
 
@@ -382,26 +346,16 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 						.msg(String.format("Purge to backing store, items dated before: %tF %tT \n", cutoffTime,
 								cutoffTime)).send();
 
-				int cullCount = 0;
-				// purge oldest data into backingStore.
-				for (int is = 0; is < processedCount; is++) {
-					ReactiveEvent status = archive.get(is);
+				// detach whole aged segments, oldest first
+				int cullCount = archive.cullBefore(cutoffTime, dumpList);
 
-					if (status.getStatusTimeStamp() < cutoffTime) {
-						cullCount++;
-						dumpList.add(status);
-					}
-
-				}
-
-				slogger.create().info().level(3)
-						.msg("Checked " + processedCount + " entries, found " + cullCount + " aged items").send();
+				slogger.create().info().level(3).msg("Culled " + cullCount + " aged items").send();
 
 				// push the culled data into the backing store
 				if (backingStore != null) {
 					int ntb = 0;
 					for (int is = 0; is < cullCount; is++) {
-						ReactiveEvent status = archive.get(is);
+						ReactiveEvent status = dumpList.get(is);
 						try {
 							backingStore.storeStatus(status);
 							ntb++;
@@ -415,35 +369,16 @@ public class ReactiveSystemArchiveGateway extends UnicastRemoteObject
 					slogger.create().info().level(3).msg("No backing store so culled items will be lost").send();
 				}
 
-				// chop the culled data out of the local cache
-				archive.removeAll(dumpList);
-
-				processedCount -= cullCount;
 				int ias = archive.size();
 				slogger.create()
 						.info()
 						.level(3)
-						.msg("Removed aged entries from live cache, size now" + ias + ", processing starts at: "
-								+ processedCount).send();
+						.msg("Live cache size now: " + ias).send();
 
 			}
 
 		}
 
-		private void processPendingStatus() {
-			// loop thro pending events
-			int ias = archive.size();
-			slogger.create().info().level(2).msg("Processing archived status from: " + processedCount + " to " + ias)
-					.send();
-
-			for (int is = processedCount; is < ias; is++) {
-				ReactiveEvent event = archive.get(is);
-				notifyListenersEventUpdate(event);
-			}
-			// we have processed all known archived status
-			processedCount = ias;
-		}
-
 		@Override
 		protected void shutdown() {
 			// TODO Auto-generated method stub
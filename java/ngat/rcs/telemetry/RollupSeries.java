@@ -0,0 +1,105 @@
+package ngat.rcs.telemetry;
+
+import java.io.Serializable;
+
+/**
+ * A run of rollup buckets for some status fields over a time range, as
+ * returned to a client. Values are held in primitive arrays indexed by column
+ * then bucket, so a series of a few hundred buckets is a few kilobytes on the
+ * wire however many raw samples it summarises.
+ *
+ * @author eng
+ *
+ */
+public class RollupSeries implements Serializable {
+
+	/** Names of the fields. */
+	String[] columns;
+
+	/** Bucket width (millis). */
+	long resolution;
+
+	/** Bucket start times. */
+	long[] times;
+
+	/** Samples per bucket, by column. */
+	int[][] counts;
+
+	double[][] min;
+
+	double[][] max;
+
+	double[][] mean;
+
+	double[][] last;
+
+	RollupSeries(String[] columns, long resolution, int size) {
+		this.columns = columns;
+		this.resolution = resolution;
+		times = new long[size];
+		counts = new int[columns.length][size];
+		min = new double[columns.length][size];
+		max = new double[columns.length][size];
+		mean = new double[columns.length][size];
+		last = new double[columns.length][size];
+	}
+
+	/** @return The names of the fields. */
+	public String[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @param name
+	 *            The name of a field.
+	 * @return The index of the named field or -1 if it is not in the series.
+	 */
+	public int getColumn(String name) {
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].equals(name))
+				return i;
+		}
+		return -1;
+	}
+
+	/** @return The bucket width (millis). */
+	public long getResolution() {
+		return resolution;
+	}
+
+	/** @return The number of buckets. */
+	public int getSize() {
+		return times.length;
+	}
+
+	/** @return The start time of the i-th bucket. */
+	public long getTime(int i) {
+		return times[i];
+	}
+
+	/** @return The number of samples of the column in the i-th bucket. */
+	public int getCount(int column, int i) {
+		return counts[column][i];
+	}
+
+	/** @return The minimum of the column in the i-th bucket, NaN if none. */
+	public double getMin(int column, int i) {
+		return min[column][i];
+	}
+
+	/** @return The maximum of the column in the i-th bucket, NaN if none. */
+	public double getMax(int column, int i) {
+		return max[column][i];
+	}
+
+	/** @return The mean of the column in the i-th bucket, NaN if none. */
+	public double getMean(int column, int i) {
+		return mean[column][i];
+	}
+
+	/** @return The last value of the column in the i-th bucket, NaN if none. */
+	public double getLast(int column, int i) {
+		return last[column][i];
+	}
+
+}
@@ -0,0 +1,183 @@
+package ngat.rcs.telemetry;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * A time-ordered archive of status items held as a chain of fixed-size
+ * segments. Items are appended to the newest segment and culling drops whole
+ * segments from the head, so neither adding nor culling depends on the size of
+ * the archive and a writer never waits for more than a few pointer updates.
+ * <p>
+ * A segment is only dropped once its newest item has aged, so up to one
+ * segment's worth of aged items may be kept beyond the cutoff. Range lookups
+ * filter by time and are not affected.
+ * <p>
+ * As in StatusRingArchive, index times never decrease: an item stamped earlier
+ * than the newest item is indexed at the newest item's time.
+ *
+ * @author eng
+ *
+ */
+public class SegmentedStatusArchive<T> {
+
+	/** Default number of items per segment. */
+	public static final int DEFAULT_SEGMENT_SIZE = 256;
+
+	/** Segments, oldest first. */
+	private LinkedList<Segment> segments;
+
+	/** Number of items per segment. */
+	private int segmentSize;
+
+	/** Number of items held. */
+	private int size;
+
+	/** Index time of the newest item. */
+	private long latestTime = Long.MIN_VALUE;
+
+	/** Create a SegmentedStatusArchive with the default segment size. */
+	public SegmentedStatusArchive() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param segmentSize
+	 *            Number of items per segment.
+	 */
+	public SegmentedStatusArchive(int segmentSize) {
+		if (segmentSize < 1)
+			throw new IllegalArgumentException("Segment size must be at least 1: " + segmentSize);
+		this.segmentSize = segmentSize;
+		segments = new LinkedList<Segment>();
+	}
+
+	/** @return The number of items held. */
+	public synchronized int size() {
+		return size;
+	}
+
+	/** @return The number of segments held. */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Append an item.
+	 *
+	 * @param time
+	 *            The item's time.
+	 * @param item
+	 *            The item.
+	 */
+	public synchronized void add(long time, T item) {
+		if (time < latestTime)
+			time = latestTime;
+		latestTime = time;
+		Segment tail = (segments.isEmpty() ? null : segments.getLast());
+		if (tail == null || tail.count == segmentSize) {
+			tail = new Segment(segmentSize);
+			segments.addLast(tail);
+		}
+		tail.items[tail.count] = item;
+		tail.times[tail.count] = time;
+		tail.count++;
+		size++;
+	}
+
+	/**
+	 * @param t1
+	 *            Start of the time range (inclusive).
+	 * @param t2
+	 *            End of the time range (inclusive).
+	 * @return The items between the specified times, oldest first.
+	 */
+	public synchronized List<T> range(long t1, long t2) {
+		List<T> list = new Vector<T>();
+		Iterator<Segment> it = segments.iterator();
+		while (it.hasNext()) {
+			Segment segment = it.next();
+			if (segment.times[segment.count - 1] < t1)
+				continue;
+			if (segment.times[0] > t2)
+				break;
+			for (int i = segment.firstIndexAtOrAfter(t1); i < segment.count; i++) {
+				if (segment.times[i] > t2)
+					break;
+				list.add((T) segment.items[i]);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Drop the segments whose items are all timed before the cutoff. The
+	 * segments are detached while holding the lock and their items copied out
+	 * after releasing it.
+	 *
+	 * @param cutoff
+	 *            Segments whose newest item is timed before this are dropped.
+	 * @param out
+	 *            If not null the dropped items are added to this list, oldest
+	 *            first.
+	 * @return The number of items dropped.
+	 */
+	public int cullBefore(long cutoff, List<? super T> out) {
+		List<Segment> dropped = new Vector<Segment>();
+		int count = 0;
+		synchronized (this) {
+			while (!segments.isEmpty()) {
+				Segment head = segments.getFirst();
+				if (head.times[head.count - 1] >= cutoff)
+					break;
+				segments.removeFirst();
+				dropped.add(head);
+				count += head.count;
+			}
+			size -= count;
+		}
+		if (out != null) {
+			for (int is = 0; is < dropped.size(); is++) {
+				Segment segment = dropped.get(is);
+				for (int i = 0; i < segment.count; i++)
+					out.add((T) segment.items[i]);
+			}
+		}
+		return count;
+	}
+
+	/** A fixed-size block of items. */
+	private static class Segment {
+
+		/** Items. */
+		Object[] items;
+
+		/** Index times of the items, parallel to items. */
+		long[] times;
+
+		/** Number of items written. */
+		int count;
+
+		Segment(int segmentSize) {
+			items = new Object[segmentSize];
+			times = new long[segmentSize];
+		}
+
+		/** @return The index of the first item timed at or after time. */
+		int firstIndexAtOrAfter(long time) {
+			int lo = 0;
+			int hi = count;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (times[mid] < time)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import ngat.ems.SkyModelMonitor;
 import ngat.ems.SkyModelSeeingUpdate;
 import ngat.ems.SkyModelUpdate;
 import ngat.ems.SkyModelUpdateListener;
+import ngat.net.telemetry.SecondaryCache;
 import ngat.util.ControlThread;
 import ngat.util.logging.LogGenerator;
 import ngat.util.logging.LogManager;
@@ -24,29 +25,50 @@ import ngat.util.logging.Logger;
  * 
  */
 public class SkyModelArchiveGateway extends UnicastRemoteObject implements SkyModelMonitor, SkyModelUpdateListener,
-		SkyModelArchive {
+		SkyModelArchive, StatusRollupArchive,
+		StatusDeliveryControl<SkyModelUpdateListener> {
+
+	/** Fields held in the rollup. */
+	public static final String[] ROLLUP_COLUMNS = new String[] { "seeing.raw", "seeing.corrected",
+			"seeing.predicted", "extinction" };
 
 	/** Logger. */
 	private LogGenerator slogger;
 
-	/** A list of registered SkyModlUpdateListeners. */
-	private List<SkyModelUpdateListener> listeners;
+	/** Delivers updates to registered SkyModelUpdateListeners. */
+	private StatusDeliveryEngine<SkyModelUpdateListener, SkyModelUpdate> delivery;
 
-	/** A list of candidate SkyModelUpdateListeners. */
-	private List<SkyModelUpdateListener> addListeners;
+	private SkyModelMonitor sky;
 
-	/** A list of SkyModlUpdateListeners to delete. */
-	private List<SkyModelUpdateListener> deleteListeners;
+	private SegmentedStatusArchive<SkyModelUpdate> archive;
 
-	private SkyModelMonitor sky;
+	/** Downsampled history for long-range queries. */
+	private StatusRollup rollup;
+
+	/** Answers rollup requests. */
+	private StatusRollupSupport rollupSupport;
+
+	// START TEMPLATE CODE
 
-	private List<SkyModelUpdate> archive;
+	/** Processor cycle interval. Default to 10 sec. */
+	private long processInterval = 10 * 1000L;
+
+	/** How often do we check for culling. Default to 30 minutes. */
+	private long cullInterval = 30 * 60 * 1000L;
+
+	/** Age of oldest data to keep in local cache. Default to 1 hour. */
+	private long backingStoreAgeLimit = 60 * 60 * 1000L;
 
 	/**
-	 * Counts the number of archive entries which have been forwarded to current
-	 * listeners.
+	 * How often relative to process sweep do we check for culling. Default to
+	 * every 10 sweeps.
 	 */
-	private int processedCount;
+	private int cullSweepIndicator = 10;
+
+	/** the secondary cache. */
+	private SecondaryCache backingStore;
+
+	// END TEMPLATE CODE
 
 	public SkyModelArchiveGateway(SkyModelMonitor sky) throws RemoteException {
 		super();
@@ -56,15 +78,96 @@ public class SkyModelArchiveGateway extends UnicastRemoteObject implements SkyMo
 		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
 				.srcCompId("EMS_Gateway");
 
+
+		archive = new SegmentedStatusArchive<SkyModelUpdate>();
+		rollup = new StatusRollup(ROLLUP_COLUMNS);
+		rollupSupport = new StatusRollupSupport(rollup, slogger);
+
+		delivery = new StatusDeliveryEngine<SkyModelUpdateListener, SkyModelUpdate>("EMS_Gateway",
+				new StatusDeliveryEngine.Sender<SkyModelUpdateListener, SkyModelUpdate>() {
+					public void send(SkyModelUpdateListener l, List<SkyModelUpdate> items) throws Exception {
+						for (int is = 0; is < items.size(); is++) {
+							SkyModelUpdate status = items.get(is);
+							if (status instanceof SkyModelSeeingUpdate) {
+								SkyModelSeeingUpdate seeing = (SkyModelSeeingUpdate) status;
+								l.seeingUpdated(seeing.getStatusTimeStamp(), seeing.getRawSeeing(),
+										seeing.getCorrectedSeeing(), seeing.getPredictedSeeing(),
+										seeing.getElevation(), seeing.getAzimuth(), seeing.getWavelength(),
+										seeing.isStandard(), seeing.getSource(), seeing.getTargetName());
+							} else if (status instanceof SkyModelExtinctionUpdate) {
+								SkyModelExtinctionUpdate photom = (SkyModelExtinctionUpdate) status;
+								l.extinctionUpdated(photom.getStatusTimeStamp(), photom.getExtinction());
+							}
+						}
+					}
+
+					public Object getCoalesceKey(SkyModelUpdate status) {
+						return status.getClass();
+					}
+				}, slogger);
+
+		// bind to the provider once the archive and delivery are ready
 		sky.addSkyModelUpdateListener(this);
+	}
+
+	/**
+	 * @return the processInterval
+	 */
+	public long getProcessInterval() {
+		return processInterval;
+	}
+
+	/**
+	 * @param processInterval
+	 *            the processInterval to set
+	 */
+	public void setProcessInterval(long processInterval) {
+		this.processInterval = processInterval;
+	}
 
-		archive = new Vector<SkyModelUpdate>();
+	/**
+	 * @return the cullInterval
+	 */
+	public long getCullInterval() {
+		return cullInterval;
+	}
+
+	/**
+	 * @param cullInterval
+	 *            the cullInterval to set
+	 */
+	public void setCullInterval(long cullInterval) {
+		this.cullInterval = cullInterval;
+	}
+
+	/**
+	 * @return the backingStoreAgeLimit
+	 */
+	public long getBackingStoreAgeLimit() {
+		return backingStoreAgeLimit;
+	}
+
+	/**
+	 * @param backingStoreAgeLimit
+	 *            the backingStoreAgeLimit to set
+	 */
+	public void setBackingStoreAgeLimit(long backingStoreAgeLimit) {
+		this.backingStoreAgeLimit = backingStoreAgeLimit;
+	}
 
-		listeners = new Vector<SkyModelUpdateListener>();
-		addListeners = new Vector<SkyModelUpdateListener>();
-		deleteListeners = new Vector<SkyModelUpdateListener>();
+	/**
+	 * @return the backingStore
+	 */
+	public SecondaryCache getBackingStore() {
+		return backingStore;
+	}
 
-		processedCount = 0;
+	/**
+	 * @param backingStore
+	 *            the backingStore to set
+	 */
+	public void setBackingStore(SecondaryCache backingStore) {
+		this.backingStore = backingStore;
 	}
 
 	public void seeingUpdated(long time, double rawSeeing, double correctedSeeing, double prediction, double alt,
@@ -76,18 +179,28 @@ public class SkyModelArchiveGateway extends UnicastRemoteObject implements SkyMo
 		status.setWavelength(wav);
 		status.setTargetName(targetName);
 		slogger.create().info().level(2).msg("Add status update: " + archive.size() + " to archive: " + status).send();
-		archive.add(status);
+		archive.add(time, status);
+		double[] row = rollup.createRow();
+		row[0] = rawSeeing;
+		row[1] = correctedSeeing;
+		row[2] = prediction;
+		rollup.add(time, row);
+		delivery.publish(status);
 	}
 
 	public void extinctionUpdated(long time, double ext) throws RemoteException {
 		SkyModelExtinctionUpdate status = new SkyModelExtinctionUpdate(time, ext);
 		slogger.create().info().level(2).msg("Add status update: " + archive.size() + " to archive: " + status).send();
-		archive.add(status);
+		archive.add(time, status);
+		double[] row = rollup.createRow();
+		row[3] = ext;
+		rollup.add(time, row);
+		delivery.publish(status);
 	}
 
 	public void addSkyModelUpdateListener(SkyModelUpdateListener l) throws RemoteException {
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -98,104 +211,76 @@ public class SkyModelArchiveGateway extends UnicastRemoteObject implements SkyMo
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 	}
 
 	public void removeSkyModelUpdateListener(SkyModelUpdateListener l) throws RemoteException {
-		// TODO Auto-generated method stub
-		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
 	}
 
 	public List<SkyModelUpdate> getSkyModelHistory(long t1, long t2) throws RemoteException {
 		slogger.create().info().level(2)
 				.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
-		List<SkyModelUpdate> list = new Vector<SkyModelUpdate>();
-
-		for (int is = 0; is < archive.size(); is++) {
-			SkyModelUpdate status = archive.get(is);
-			long time = status.getStatusTimeStamp();
-			if (time >= t1 && time <= t2)
-				list.add(status);
-		}
+		List<SkyModelUpdate> list = BackingStoreHistory.range(archive, backingStore, backingStoreAgeLimit, t1, t2,
+				slogger);
 		slogger.create().info().level(2).msg("Returning " + list.size() + " entries").send();
 		return list;
 	}
 
-	private void notifyListenersSkyModelUpdate(SkyModelUpdate status) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				SkyModelUpdateListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
+	public void addDeliveryListener(SkyModelUpdateListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
 
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				SkyModelUpdateListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
+	}
 
-		}
+	public String[] getRollupColumns() throws RemoteException {
+		return rollupSupport.getRollupColumns();
+	}
 
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			SkyModelUpdateListener l = null;
-			try {
-				l = listeners.get(il);
-				if (status instanceof SkyModelSeeingUpdate) {
-					SkyModelSeeingUpdate seeing = (SkyModelSeeingUpdate) status;
-					l.seeingUpdated(seeing.getStatusTimeStamp(), seeing.getRawSeeing(), seeing.getCorrectedSeeing(),
-							seeing.getPredictedSeeing(), seeing.getElevation(), seeing.getAzimuth(),
-							seeing.getWavelength(), seeing.isStandard(), seeing.getSource(), seeing.getTargetName());
-				} else if (status instanceof SkyModelExtinctionUpdate) {
-					SkyModelExtinctionUpdate photom = (SkyModelExtinctionUpdate) status;
-					l.extinctionUpdated(photom.getStatusTimeStamp(), photom.getExtinction());
-				}
+	public long[] getRollupResolutions() throws RemoteException {
+		return rollupSupport.getRollupResolutions();
+	}
 
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2).msg("Adding unresponsive listener: " + l + " to kill list").send();
-				}
-			}
-		}
+	public RollupSeries getStatusRollup(String[] columns, long t1, long t2, int maxPoints) throws RemoteException {
+		return rollupSupport.getStatusRollup(columns, t1, t2, maxPoints);
+	}
 
+	public RollupSeries getStatusRollupAtResolution(String[] columns, long t1, long t2, long resolution)
+			throws RemoteException {
+		return rollupSupport.getStatusRollupAtResolution(columns, t1, t2, resolution);
 	}
 
 	public void startProcessor() {
-		ProcessorThread pt = new ProcessorThread(5000L);
+		ProcessorThread pt = new ProcessorThread(processInterval);
 		pt.start();
 	}
 
 	private class ProcessorThread extends ControlThread {
 
+		/** Count cycles. */
+		private int ipcc = 0;
+
 		private long interval;
 
 		/**
 		 * @param interval
 		 */
 		public ProcessorThread(long interval) {
-			super("EMS_G_PT", true);
+			super("EMS_SKY_G_PT", true);
 			this.interval = interval;
 		}
 
 		@Override
 		protected void initialise() {
-			// TODO Auto-generated method stub
-
 		}
 
 		@Override
@@ -204,25 +289,65 @@ public class SkyModelArchiveGateway extends UnicastRemoteObject implements SkyMo
 				Thread.sleep(interval);
 			} catch (InterruptedException ix) {
 			}
-			// loop thro pending statii
-			int ias = archive.size();
-			slogger.create().info().level(2).msg("Processing archived status from: " + processedCount + " to " + ias)
-					.send();
-
-			for (int is = processedCount; is < ias; is++) {
-				SkyModelUpdate status = archive.get(is);
-				notifyListenersSkyModelUpdate(status);
+
+			slogger.create().info().level(3).msg("Processor sweep: " + ipcc).send();
+
+			// Cull aged items
+			backingStoreCull();
+
+			ipcc++;
+		}
+
+		private void backingStoreCull() {
+
+			// check backing store every so often ci/pi OR 10 whichever is
+			// larger
+			double ratio = (double) cullInterval / (double) processInterval;
+			if (Double.isNaN(ratio) || Double.isInfinite(ratio))
+				cullSweepIndicator = 10;
+			else
+				cullSweepIndicator = Math.max(10, (int) (Math.floor(ratio + 1.0)));
+
+			if (ipcc % cullSweepIndicator == 0) {
+
+				List<SkyModelUpdate> dumpList = new Vector<SkyModelUpdate>();
+
+				long cutoffTime = System.currentTimeMillis() - backingStoreAgeLimit;
+				slogger.create().info().level(3)
+						.msg(String.format("Purge to backing store, items dated before: %tF %tT", cutoffTime,
+								cutoffTime)).send();
+
+				// detach whole aged segments, oldest first
+				int cullCount = archive.cullBefore(cutoffTime, dumpList);
+
+				slogger.create().info().level(3).msg("Culled " + cullCount + " aged items").send();
+
+				// push the culled data into the backing store
+				if (backingStore != null) {
+					int ntb = 0;
+					for (int is = 0; is < cullCount; is++) {
+						try {
+							backingStore.storeStatus(dumpList.get(is));
+							ntb++;
+						} catch (Exception e) {
+							slogger.create().info().level(2).msg("Unable to store in backing store: " + e).send();
+						}
+					}
+					slogger.create().info().level(3)
+							.msg("Successfully dumped " + ntb + " of " + cullCount + " items to backing store").send();
+				} else {
+					slogger.create().info().level(3).msg("No backing store so culled items will be lost").send();
+				}
+
+				slogger.create().info().level(3).msg("Live cache size now: " + archive.size()).send();
 			}
-			// we have processed all known archived status
-			processedCount = ias;
 		}
 
 		@Override
 		protected void shutdown() {
-			// TODO Auto-generated method stub
-
 		}
 
 	}
 
+
 }
@@ -25,31 +25,21 @@ import ngat.util.logging.Logger;
  *
  */
 public class StateModelArchiveGateway extends UnicastRemoteObject implements
-		StateChangeListener, StateModelMonitor, StateModelArchive {
+		StateChangeListener, StateModelMonitor, StateModelArchive,
+		StatusDeliveryControl<StateChangeListener> {
 
 
 	/** Logger. */
 	private LogGenerator slogger;
 
-	/** A list of registered OperationsEventListeners. */
-	private List<StateChangeListener> listeners;
+	/** Delivers status to registered StateChangeListeners. */
+	private StatusDeliveryEngine<StateChangeListener, StateModelEvent> delivery;
 
-	/** A list of candidate OperationsEventListeners. */
-	private List<StateChangeListener> addListeners;
-
-	/** A list of OperationsEventListeners to delete. */
-	private List<StateChangeListener> deleteListeners;
-
-	private List<StateModelEvent> archive;
+	private SegmentedStatusArchive<StateModelEvent> archive;
 
 	/** Monitor to register with for StateModelEvents.*/
 	private StateModelMonitor stateModelMonitor;
 	
-	/**
-	 * Counts the number of archive entries which have been forwarded to current
-	 * listeners.
-	 */
-	private volatile int processedCount;
 
 	// START TEMPLATE CODE
 
@@ -87,18 +77,29 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 				.srcCompId("SMGateway");
 
 	
-		archive = new Vector<StateModelEvent>();
+		archive = new SegmentedStatusArchive<StateModelEvent>();
+
+		delivery = new StatusDeliveryEngine<StateChangeListener, StateModelEvent>("StateModelGateway",
+				new StatusDeliveryEngine.Sender<StateChangeListener, StateModelEvent>() {
+					public void send(StateChangeListener l, List<StateModelEvent> items) throws Exception {
+						for (int is = 0; is < items.size(); is++) {
+							StateModelEvent event = items.get(is);
+							if (event instanceof StateChangedEvent) {
+								StateChangedEvent sce = (StateChangedEvent) event;
+								l.stateChanged(sce.getOldState(), sce.getNewState());
+							}
+						}
+					}
 
-		listeners = new Vector<StateChangeListener>();
-		addListeners = new Vector<StateChangeListener>();
-		deleteListeners = new Vector<StateChangeListener>();
+					public Object getCoalesceKey(StateModelEvent status) {
+						// only the current state matters to a display
+						return status.getClass();
+					}
+				}, slogger);
 
 		// bind the raw provider after we have set up our listeners and archives,
 		// as sm calls stateChanged as soon as we bind ....
 		stateModelMonitor.addStateChangeListener(this);
-		
-		
-		processedCount = 0;
 	}
 	
 	
@@ -175,54 +176,6 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 
 
 
-	private void notifyListenersEventUpdate(StateModelEvent event) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				StateChangeListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
-		deleteListeners.clear();
-
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				StateChangeListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
-
-		}
-		addListeners.clear();
-
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			StateChangeListener l = null;
-			try {
-				l = listeners.get(il);
-				// what sort of event is this one ????????
-				if (event instanceof StateChangedEvent) {
-					StateChangedEvent sce = (StateChangedEvent)event;
-					l.stateChanged(sce.getOldState(), sce.getNewState());						
-				}
-						
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2)
-							.msg("Adding unresponsive listener: " + l + " to kill list due to: " + e).send();
-				}
-			}
-		}
-
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -236,7 +189,8 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 		sce.setOldState(oldState);
 		sce.setNewState(newState);
 		slogger.create().info().level(2).msg("Add event: " + archive.size() + " to archive: " + sce).send();
-		archive.add(sce);
+		archive.add(sce.getStatusTimeStamp(), sce);
+		delivery.publish(sce);
 	}
 
 	/*
@@ -248,14 +202,7 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 		slogger.create().info().level(2)
 				.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
 
-		List<StateModelEvent> list = new Vector<StateModelEvent>();
-
-		for (int is = 0; is < archive.size(); is++) {
-			StateModelEvent event = archive.get(is);
-			long time = event.getStatusTimeStamp();
-			if (time >= t1 && time <= t2)
-				list.add(event);
-		}
+		List<StateModelEvent> list = BackingStoreHistory.range(archive, backingStore, backingStoreAgeLimit, t1, t2, slogger);
 		slogger.create().info().level(2).msg("Returning " + list.size() + " entries").send();
 		return list;
 	}
@@ -270,7 +217,7 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 	public void addStateChangeListener(StateChangeListener l) throws RemoteException {
 
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -281,7 +228,7 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 
 	}
 
@@ -293,12 +240,22 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 	 * .tmm.OperationsEventListener)
 	 */
 	public void removeStateChangeListener(StateChangeListener l) throws RemoteException {
-		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
+	}
+
+	public void addDeliveryListener(StateChangeListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
+
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
 	}
 
 	public void startProcessor() {
@@ -339,9 +296,6 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 			// Cull aged items
 			backingStoreCull();
 
-			// Process pending items
-			processPendingStatus();
-
 			ipcc++;
 
 		}
@@ -369,26 +323,16 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 						.msg(String.format("Purge to backing store, items dated before: %tF %tT \n", cutoffTime,
 								cutoffTime)).send();
 
-				int cullCount = 0;
-				// purge oldest data into backingStore.
-				for (int is = 0; is < processedCount; is++) {
-					StateModelEvent status = archive.get(is);
-
-					if (status.getStatusTimeStamp() < cutoffTime) {
-						cullCount++;
-						dumpList.add(status);
-					}
-
-				}
+				// detach whole aged segments, oldest first
+				int cullCount = archive.cullBefore(cutoffTime, dumpList);
 
-				slogger.create().info().level(3)
-						.msg("Checked " + processedCount + " entries, found " + cullCount + " aged items").send();
+				slogger.create().info().level(3).msg("Culled " + cullCount + " aged items").send();
 
 				// push the culled data into the backing store
 				if (backingStore != null) {
 					int ntb = 0;
 					for (int is = 0; is < cullCount; is++) {
-						StateModelEvent status = archive.get(is);
+						StateModelEvent status = dumpList.get(is);
 						try {
 							backingStore.storeStatus(status);
 							ntb++;
@@ -402,35 +346,16 @@ public class StateModelArchiveGateway extends UnicastRemoteObject implements
 					slogger.create().info().level(3).msg("No backing store so culled items will be lost").send();
 				}
 
-				// chop the culled data out of the local cache
-				archive.removeAll(dumpList);
-
-				processedCount -= cullCount;
 				int ias = archive.size();
 				slogger.create()
 						.info()
 						.level(3)
-						.msg("Removed aged entries from live cache, size now" + ias + ", processing starts at: "
-								+ processedCount).send();
+						.msg("Live cache size now: " + ias).send();
 
 			}
 
 		}
 
-		private void processPendingStatus() {
-			// loop thro pending events
-			int ias = archive.size();
-			slogger.create().info().level(2).msg("Processing archived status from: " + processedCount + " to " + ias)
-					.send();
-
-			for (int is = processedCount; is < ias; is++) {
-				StateModelEvent event = archive.get(is);
-				notifyListenersEventUpdate(event);
-			}
-			// we have processed all known archived status
-			processedCount = ias;
-		}
-
 		@Override
 		protected void shutdown() {
 			// TODO Auto-generated method stub
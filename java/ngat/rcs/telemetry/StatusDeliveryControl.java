@@ -0,0 +1,37 @@
+package ngat.rcs.telemetry;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Lets a client choose how an archive gateway delivers status to its listener
+ * and see how delivery to each listener is going.
+ *
+ * @author eng
+ *
+ */
+public interface StatusDeliveryControl<L> extends Remote {
+
+	/**
+	 * Register a listener, or change how an already registered listener is
+	 * sent status.
+	 *
+	 * @param listener
+	 *            The listener.
+	 * @param latestOnly
+	 *            True to send only the latest value of each kind of status
+	 *            rather than every status, e.g. for a slow remote display.
+	 * @param maxLatency
+	 *            Minimum spacing (millis) of sends in latest-value-only mode.
+	 * @throws RemoteException
+	 */
+	public void addDeliveryListener(L listener, boolean latestOnly, long maxLatency) throws RemoteException;
+
+	/**
+	 * @return The health of delivery to each registered listener.
+	 * @throws RemoteException
+	 */
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException;
+
+}
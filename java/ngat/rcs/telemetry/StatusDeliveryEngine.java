@@ -0,0 +1,564 @@
+package ngat.rcs.telemetry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ngat.util.logging.LogGenerator;
+
+/**
+ * Pushes the status published by an archive gateway out to its listeners. Each
+ * listener has its own feed: a bounded send queue and a sender thread, so a
+ * slow or dead listener only holds up itself. A status is handed to every feed
+ * as soon as it is published.
+ * <p>
+ * A feed runs in one of two modes:
+ * <ul>
+ * <li>queued - every status is sent, in order. If the queue fills the oldest
+ * status is dropped.
+ * <li>latest value only - a status replaces any unsent status with the same
+ * coalesce key, and sends are spaced at least maxLatency apart. A slow remote
+ * display then gets the current picture rather than a growing backlog, and no
+ * status is held back for more than maxLatency beyond the previous send.
+ * </ul>
+ * A listener is dropped after a number of consecutive failed sends rather
+ * than on the first. Gateways let clients choose the mode and see the
+ * statistics through StatusDeliveryControl.
+ *
+ * @author eng
+ *
+ */
+public class StatusDeliveryEngine<L, T> {
+
+	/** Default maximum number of statuses queued per listener. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+	/** Default maximum number of statuses per send. */
+	public static final int DEFAULT_MAX_BATCH = 50;
+
+	/** Default number of consecutive failed sends before a listener is dropped. */
+	public static final int DEFAULT_MAX_FAILURES = 3;
+
+	/** Default minimum spacing (millis) of sends to latest-value-only listeners. */
+	public static final long DEFAULT_MAX_LATENCY = 1000L;
+
+	/** Sends status to a listener. */
+	public interface Sender<L, T> {
+
+		/**
+		 * Send statuses to a listener, in order.
+		 *
+		 * @param listener
+		 *            The listener.
+		 * @param items
+		 *            The statuses, at least one.
+		 * @throws Exception
+		 *             If the listener could not be reached.
+		 */
+		public void send(L listener, List<T> items) throws Exception;
+
+		/**
+		 * @param item
+		 *            A status.
+		 * @return A key such that a later status with an equal key supersedes
+		 *         this one, or null if the status must not be merged.
+		 */
+		public Object getCoalesceKey(T item);
+
+	}
+
+	/** Name for sender threads and log messages. */
+	private String name;
+
+	/** Logger. */
+	private LogGenerator slogger;
+
+	/** Sends status to listeners. */
+	private Sender<L, T> sender;
+
+	/** Maximum number of statuses queued per listener. */
+	private int queueCapacity;
+
+	/** Maximum number of statuses per send. */
+	private int maxBatch;
+
+	/** Consecutive failed sends before a listener is dropped. */
+	private volatile int maxFailures = DEFAULT_MAX_FAILURES;
+
+	/** Feeds, keyed by listener. */
+	private Map<L, Feed> feeds;
+
+	/**
+	 * Create a StatusDeliveryEngine with default queue capacity and batch size.
+	 *
+	 * @param name
+	 *            Name for sender threads and log messages.
+	 * @param sender
+	 *            Sends status to listeners.
+	 * @param slogger
+	 *            Logger.
+	 */
+	public StatusDeliveryEngine(String name, Sender<L, T> sender, LogGenerator slogger) {
+		this(name, sender, slogger, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+	}
+
+	/**
+	 * @param name
+	 *            Name for sender threads and log messages.
+	 * @param sender
+	 *            Sends status to listeners.
+	 * @param slogger
+	 *            Logger.
+	 * @param queueCapacity
+	 *            Maximum number of statuses queued per listener.
+	 * @param maxBatch
+	 *            Maximum number of statuses per send.
+	 */
+	public StatusDeliveryEngine(String name, Sender<L, T> sender, LogGenerator slogger, int queueCapacity,
+			int maxBatch) {
+		this.name = name;
+		this.sender = sender;
+		this.slogger = slogger;
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.maxBatch = Math.max(1, maxBatch);
+		feeds = new ConcurrentHashMap<L, Feed>();
+	}
+
+	/**
+	 * @param maxFailures
+	 *            Consecutive failed sends before a listener is dropped.
+	 */
+	public void setMaxFailures(int maxFailures) {
+		this.maxFailures = Math.max(1, maxFailures);
+	}
+
+	/**
+	 * Add a listener which is sent every status.
+	 *
+	 * @param l
+	 *            The listener.
+	 * @return False if the listener was already registered.
+	 */
+	public boolean addListener(L l) {
+		return addListener(l, false, 0L);
+	}
+
+	/**
+	 * Add a listener.
+	 *
+	 * @param l
+	 *            The listener.
+	 * @param latestOnly
+	 *            True to merge statuses the listener has not yet been sent.
+	 * @param maxLatency
+	 *            Minimum spacing (millis) of sends in latest-value-only mode.
+	 * @return False if the listener was already registered.
+	 */
+	public boolean addListener(L l, boolean latestOnly, long maxLatency) {
+		Feed feed = new Feed(l, latestOnly, maxLatency);
+		synchronized (feeds) {
+			if (feeds.containsKey(l))
+				return false;
+			feeds.put(l, feed);
+		}
+		feed.start();
+		slogger.create().info().level(2).msg(name + ": Adding new listener " + l).send();
+		return true;
+	}
+
+	/**
+	 * Add a listener, or switch it to the specified mode if it is already
+	 * registered.
+	 *
+	 * @param l
+	 *            The listener.
+	 * @param latestOnly
+	 *            True to merge statuses the listener has not yet been sent.
+	 * @param maxLatency
+	 *            Minimum spacing (millis) of sends in latest-value-only mode.
+	 */
+	public void register(L l, boolean latestOnly, long maxLatency) {
+		if (!addListener(l, latestOnly, maxLatency))
+			setLatestOnly(l, latestOnly, maxLatency);
+	}
+
+	/**
+	 * Switch a listener between queued and latest-value-only modes.
+	 *
+	 * @param l
+	 *            The listener.
+	 * @param latestOnly
+	 *            True to merge statuses the listener has not yet been sent.
+	 * @param maxLatency
+	 *            Minimum spacing (millis) of sends in latest-value-only mode.
+	 */
+	public void setLatestOnly(L l, boolean latestOnly, long maxLatency) {
+		Feed feed = feeds.get(l);
+		if (feed != null)
+			feed.setMode(latestOnly, maxLatency);
+	}
+
+	/**
+	 * Remove a listener, discarding anything not yet sent to it.
+	 *
+	 * @param l
+	 *            The listener.
+	 * @return False if the listener was not registered.
+	 */
+	public boolean removeListener(L l) {
+		Feed feed = feeds.remove(l);
+		if (feed == null)
+			return false;
+		feed.close();
+		slogger.create().info().level(2).msg(name + ": Removing listener " + l).send();
+		return true;
+	}
+
+	/**
+	 * @param l
+	 *            A listener.
+	 * @return True if the listener is registered.
+	 */
+	public boolean containsListener(L l) {
+		return feeds.containsKey(l);
+	}
+
+	/** @return The number of registered listeners. */
+	public int getListenerCount() {
+		return feeds.size();
+	}
+
+	/**
+	 * Hand a status to every listener's feed. Never blocks on a listener.
+	 *
+	 * @param item
+	 *            The status.
+	 */
+	public void publish(T item) {
+		long now = System.currentTimeMillis();
+		Iterator<Feed> it = feeds.values().iterator();
+		while (it.hasNext())
+			it.next().offer(item, now);
+	}
+
+	/** @return A snapshot of the health of each listener's feed. */
+	public List<ListenerStatistics> getStatistics() {
+		List<ListenerStatistics> list = new Vector<ListenerStatistics>();
+		Iterator<Feed> it = feeds.values().iterator();
+		while (it.hasNext())
+			list.add(it.next().getStatistics());
+		return list;
+	}
+
+	/** A status waiting to be sent, and when it was published. */
+	private class Entry {
+
+		T item;
+
+		long publishTime;
+
+		Entry(T item, long publishTime) {
+			this.item = item;
+			this.publishTime = publishTime;
+		}
+	}
+
+	/** Delivers status to a single listener on its own thread. */
+	private class Feed implements Runnable {
+
+		/** The listener. */
+		private L listener;
+
+		/** True to merge unsent statuses with the same key. */
+		private boolean latestOnly;
+
+		/** Minimum spacing (millis) of sends in latest-value-only mode. */
+		private long maxLatency;
+
+		/** Statuses waiting to be sent, keyed for merging. */
+		private LinkedHashMap<Object, Entry> pending;
+
+		/** Sender thread. */
+		private Thread thread;
+
+		/** True once the feed has been closed. */
+		private volatile boolean closed;
+
+		/** Time of the last send. */
+		private long lastSendTime;
+
+		private volatile long delivered;
+
+		private volatile long dropped;
+
+		private volatile long coalesced;
+
+		private volatile long failed;
+
+		private volatile int consecutiveFailures;
+
+		private volatile long lastLatency;
+
+		private volatile long maxObservedLatency;
+
+		private volatile long totalSendTime;
+
+		private volatile long sends;
+
+		private volatile int maxQueueDepth;
+
+		Feed(L listener, boolean latestOnly, long maxLatency) {
+			this.listener = listener;
+			this.latestOnly = latestOnly;
+			this.maxLatency = Math.max(0L, maxLatency);
+			pending = new LinkedHashMap<Object, Entry>();
+			thread = new Thread(this, name + "Feed:" + listener);
+			thread.setDaemon(true);
+		}
+
+		void start() {
+			thread.start();
+		}
+
+		void setMode(boolean latestOnly, long maxLatency) {
+			synchronized (pending) {
+				this.latestOnly = latestOnly;
+				this.maxLatency = Math.max(0L, maxLatency);
+				pending.notifyAll();
+			}
+		}
+
+		/** Queue a status, merging or dropping the oldest as the mode requires. */
+		void offer(T item, long now) {
+			synchronized (pending) {
+				if (closed)
+					return;
+				Object key = (latestOnly ? sender.getCoalesceKey(item) : null);
+				if (key == null) {
+					// not mergeable, give it a key of its own
+					key = new Object();
+				} else if (pending.remove(key) != null)
+					coalesced++;
+				if (pending.size() >= queueCapacity) {
+					Iterator<Entry> it = pending.values().iterator();
+					it.next();
+					it.remove();
+					dropped++;
+				}
+				pending.put(key, new Entry(item, now));
+				if (pending.size() > maxQueueDepth)
+					maxQueueDepth = pending.size();
+				pending.notifyAll();
+			}
+		}
+
+		/** Stop delivery and discard anything not yet sent. */
+		void close() {
+			synchronized (pending) {
+				if (closed)
+					return;
+				closed = true;
+				dropped += pending.size();
+				pending.clear();
+				pending.notifyAll();
+			}
+		}
+
+		public void run() {
+			List<Entry> batch = new Vector<Entry>();
+			List<T> items = new Vector<T>();
+			while (true) {
+				synchronized (pending) {
+					while (!closed) {
+						try {
+							if (pending.isEmpty()) {
+								pending.wait();
+								continue;
+							}
+							long wait = (latestOnly ? lastSendTime + maxLatency - System.currentTimeMillis() : 0L);
+							if (wait <= 0L)
+								break;
+							pending.wait(wait);
+						} catch (InterruptedException ix) {
+						}
+					}
+					if (closed)
+						return;
+					Iterator<Entry> it = pending.values().iterator();
+					while (it.hasNext() && batch.size() < maxBatch) {
+						batch.add(it.next());
+						it.remove();
+					}
+				}
+				for (int i = 0; i < batch.size(); i++)
+					items.add(batch.get(i).item);
+				send(batch, items);
+				batch.clear();
+				items.clear();
+			}
+		}
+
+		private void send(List<Entry> batch, List<T> items) {
+			long start = System.currentTimeMillis();
+			Exception failure = null;
+			try {
+				sender.send(listener, items);
+			} catch (Exception e) {
+				failure = e;
+			}
+			lastSendTime = System.currentTimeMillis();
+			totalSendTime += (lastSendTime - start);
+			sends++;
+
+			if (failure != null) {
+				failed += items.size();
+				consecutiveFailures++;
+				slogger.create().info().level(2)
+						.msg(name + ": Send to listener: " + listener + " failed (" + consecutiveFailures
+								+ " in a row): " + failure).send();
+				if (consecutiveFailures >= maxFailures) {
+					slogger.create().info().level(2).msg(name + ": Dropping unresponsive listener: " + listener)
+							.send();
+					feeds.remove(listener);
+					close();
+				}
+				return;
+			}
+			consecutiveFailures = 0;
+			delivered += items.size();
+			lastLatency = lastSendTime - batch.get(0).publishTime;
+			if (lastLatency > maxObservedLatency)
+				maxObservedLatency = lastLatency;
+		}
+
+		ListenerStatistics getStatistics() {
+			int depth;
+			boolean mode;
+			synchronized (pending) {
+				depth = pending.size();
+				mode = latestOnly;
+			}
+			return new ListenerStatistics(String.valueOf(listener), mode, depth, maxQueueDepth, delivered, dropped,
+					coalesced, failed, consecutiveFailures, lastLatency, maxObservedLatency,
+					(sends == 0 ? 0.0 : (double) totalSendTime / (double) sends));
+		}
+	}
+
+	/** The health of a single listener's feed at some instant. */
+	public static class ListenerStatistics implements java.io.Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private String listener;
+
+		private boolean latestOnly;
+
+		private int queueDepth;
+
+		private int maxQueueDepth;
+
+		private long delivered;
+
+		private long dropped;
+
+		private long coalesced;
+
+		private long failed;
+
+		private int consecutiveFailures;
+
+		private long lastLatency;
+
+		private long maxLatency;
+
+		private double meanSendTime;
+
+		ListenerStatistics(String listener, boolean latestOnly, int queueDepth, int maxQueueDepth, long delivered,
+				long dropped, long coalesced, long failed, int consecutiveFailures, long lastLatency, long maxLatency,
+				double meanSendTime) {
+			this.listener = listener;
+			this.latestOnly = latestOnly;
+			this.queueDepth = queueDepth;
+			this.maxQueueDepth = maxQueueDepth;
+			this.delivered = delivered;
+			this.dropped = dropped;
+			this.coalesced = coalesced;
+			this.failed = failed;
+			this.consecutiveFailures = consecutiveFailures;
+			this.lastLatency = lastLatency;
+			this.maxLatency = maxLatency;
+			this.meanSendTime = meanSendTime;
+		}
+
+		/** @return A description of the listener. */
+		public String getListener() {
+			return listener;
+		}
+
+		/** @return True if the listener is in latest-value-only mode. */
+		public boolean isLatestOnly() {
+			return latestOnly;
+		}
+
+		/** @return The number of statuses waiting to be sent. */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		/** @return The largest number of statuses seen waiting. */
+		public int getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		/** @return The number of statuses sent. */
+		public long getDelivered() {
+			return delivered;
+		}
+
+		/** @return The number of statuses dropped because the queue was full. */
+		public long getDropped() {
+			return dropped;
+		}
+
+		/** @return The number of statuses superseded before they were sent. */
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		/** @return The number of statuses whose send failed. */
+		public long getFailed() {
+			return failed;
+		}
+
+		/** @return The number of sends which have failed since the last success. */
+		public int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		/** @return Time (millis) from publication to delivery of the last send. */
+		public long getLastLatency() {
+			return lastLatency;
+		}
+
+		/** @return Longest time (millis) from publication to delivery. */
+		public long getMaxLatency() {
+			return maxLatency;
+		}
+
+		/** @return Mean time (millis) taken by a send. */
+		public double getMeanSendTime() {
+			return meanSendTime;
+		}
+
+		@Override
+		public String toString() {
+			return "Listener: " + listener + (latestOnly ? " (latest)" : "") + " queue: " + queueDepth + "/"
+					+ maxQueueDepth + " delivered: " + delivered + " dropped: " + dropped + " coalesced: " + coalesced
+					+ " failed: " + failed + " latency: " + lastLatency + "/" + maxLatency + "ms";
+		}
+	}
+
+}
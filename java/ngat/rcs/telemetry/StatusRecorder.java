@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package ngat.rcs.telemetry;
+
+import java.rmi.RemoteException;
+
+import ngat.ems.MeteorologyStatus;
+import ngat.ems.MeteorologyStatusUpdateListener;
+import ngat.net.telemetry.SecondaryCache;
+import ngat.net.telemetry.StatusCategory;
+import ngat.tcm.TelescopeStatus;
+import ngat.tcm.TelescopeStatusUpdateListener;
+import ngat.util.logging.LogGenerator;
+import ngat.util.logging.LogManager;
+import ngat.util.logging.Logger;
+
+/**
+ * Records every telescope and meteorology status update in a backing store as
+ * it arrives, so that long periods can later be replayed through a reactive
+ * system (see ngat.rcs.ers.replay.ReplayEngine). The archive gateways only
+ * hold the last few hours of this status.
+ * 
+ * @author eng
+ * 
+ */
+public class StatusRecorder implements TelescopeStatusUpdateListener, MeteorologyStatusUpdateListener {
+
+	/** Logger. */
+	private LogGenerator slogger;
+
+	/** Store for telescope status, null to not record it. */
+	private SecondaryCache telescopeStore;
+
+	/** Store for meteorology status, null to not record it. */
+	private SecondaryCache meteorologyStore;
+
+	/** Counts status recorded. */
+	private volatile long recordedCount;
+
+	/** Counts status which could not be recorded. */
+	private volatile long failedCount;
+
+	/**
+	 * @param telescopeStore
+	 *            Store for telescope status, null to not record it.
+	 * @param meteorologyStore
+	 *            Store for meteorology status, null to not record it.
+	 */
+	public StatusRecorder(SecondaryCache telescopeStore, SecondaryCache meteorologyStore) {
+		this.telescopeStore = telescopeStore;
+		this.meteorologyStore = meteorologyStore;
+
+		Logger alogger = LogManager.getLogger("OPS"); // probably should be
+		// RCS.Telem
+		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
+				.srcCompId("StatusRecorder");
+	}
+
+	/** @return The number of status recorded. */
+	public long getRecordedCount() {
+		return recordedCount;
+	}
+
+	/** @return The number of status which could not be recorded. */
+	public long getFailedCount() {
+		return failedCount;
+	}
+
+	public void telescopeStatusUpdate(TelescopeStatus status) throws RemoteException {
+		record(telescopeStore, status);
+	}
+
+	public void telescopeNetworkFailure(long time, String message) throws RemoteException {
+		// nothing to record
+	}
+
+	public void meteorologyStatusUpdate(MeteorologyStatus status) throws RemoteException {
+		record(meteorologyStore, status);
+	}
+
+	/** Store a status, a failure is logged and never passed back to the provider. */
+	private synchronized void record(SecondaryCache store, StatusCategory status) {
+		if (store == null)
+			return;
+		try {
+			store.storeStatus(status);
+			recordedCount++;
+		} catch (Exception e) {
+			// one message per thousand failures, e.g. while the disk is full
+			if (failedCount % 1000 == 0)
+				slogger.create().info().level(1)
+						.msg("Unable to record status: " + status + ": " + e + ", failed so far: " + failedCount)
+						.send();
+			failedCount++;
+		}
+	}
+
+}
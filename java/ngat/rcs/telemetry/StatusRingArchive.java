@@ -0,0 +1,220 @@
+package ngat.rcs.telemetry;
+
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * A bounded, time-ordered archive of status items held in a ring. The archive
+ * holds at most a fixed number of items and, once culled, none older than the
+ * retention period, so its memory use does not grow with uptime. The oldest
+ * item is evicted when a new item arrives and the ring is full.
+ * <p>
+ * Every item is given a sequence number as it is added so a reader can tell
+ * how many items have been added and evicted between two looks.
+ * Index times never decrease (an item stamped earlier than the newest item is
+ * indexed at the newest item's time) so range lookups are a binary search
+ * followed by a scan of the k matching items.
+ *
+ * @author eng
+ *
+ */
+public class StatusRingArchive<T> {
+
+	/** Archived items. */
+	private Object[] items;
+
+	/** Index times of the items, parallel to items. */
+	private long[] times;
+
+	/** Slot the next item will be written to. */
+	private int head;
+
+	/** Number of items held. */
+	private int size;
+
+	/** Sequence number of the oldest item held. */
+	private long firstSequence;
+
+	/** Maximum age (millis) of items to keep when culling. */
+	private volatile long retentionPeriod;
+
+	/** Counts items evicted because the ring was full. */
+	private long evictedByCapacity;
+
+	/** Counts items evicted by age. */
+	private long evictedByAge;
+
+	/**
+	 * @param capacity
+	 *            Maximum number of items to hold.
+	 * @param retentionPeriod
+	 *            Maximum age (millis) of items to keep when culling.
+	 */
+	public StatusRingArchive(int capacity, long retentionPeriod) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Archive capacity must be at least 1: " + capacity);
+		items = new Object[capacity];
+		times = new long[capacity];
+		this.retentionPeriod = retentionPeriod;
+	}
+
+	/** @return The maximum number of items held. */
+	public int getCapacity() {
+		return items.length;
+	}
+
+	/** @return The retention period (millis). */
+	public long getRetentionPeriod() {
+		return retentionPeriod;
+	}
+
+	/**
+	 * @param retentionPeriod
+	 *            Maximum age (millis) of items to keep when culling.
+	 */
+	public void setRetentionPeriod(long retentionPeriod) {
+		this.retentionPeriod = retentionPeriod;
+	}
+
+	/** @return The number of items held. */
+	public synchronized int size() {
+		return size;
+	}
+
+	/** @return The sequence number the next item added will receive. */
+	public synchronized long getNextSequence() {
+		return firstSequence + size;
+	}
+
+	/** @return The sequence number of the oldest item held. */
+	public synchronized long getFirstSequence() {
+		return firstSequence;
+	}
+
+	/** @return The number of items evicted because the ring was full. */
+	public synchronized long getEvictedByCapacity() {
+		return evictedByCapacity;
+	}
+
+	/** @return The number of items evicted by age. */
+	public synchronized long getEvictedByAge() {
+		return evictedByAge;
+	}
+
+	/** @return The time of the oldest item held or -1 if empty. */
+	public synchronized long getEarliestTime() {
+		return (size == 0 ? -1L : times[slot(0)]);
+	}
+
+	/** @return The time of the newest item held or -1 if empty. */
+	public synchronized long getLatestTime() {
+		return (size == 0 ? -1L : times[slot(size - 1)]);
+	}
+
+	/**
+	 * Add an item, evicting the oldest item if the ring is full.
+	 *
+	 * @param time
+	 *            The item's time.
+	 * @param item
+	 *            The item.
+	 * @return The item's sequence number.
+	 */
+	public synchronized long add(long time, T item) {
+		if (size == items.length) {
+			evictOldest();
+			evictedByCapacity++;
+		}
+		if (size > 0) {
+			long latest = times[slot(size - 1)];
+			if (time < latest)
+				time = latest;
+		}
+		items[head] = item;
+		times[head] = time;
+		head = (head + 1) % items.length;
+		size++;
+		return firstSequence + size - 1;
+	}
+
+	/**
+	 * @param t1
+	 *            Start of the time range (inclusive).
+	 * @param t2
+	 *            End of the time range (inclusive).
+	 * @return The items between the specified times, oldest first.
+	 */
+	public synchronized List<T> range(long t1, long t2) {
+		List<T> list = new Vector<T>();
+		for (int i = firstIndexAtOrAfter(t1); i < size; i++) {
+			int slot = slot(i);
+			if (times[slot] > t2)
+				break;
+			list.add((T) items[slot]);
+		}
+		return list;
+	}
+
+	/**
+	 * Evict items older than the retention period.
+	 *
+	 * @param now
+	 *            The current time.
+	 * @return The number of items evicted.
+	 */
+	public int cull(long now) {
+		return cullBefore(now - retentionPeriod, null);
+	}
+
+	/**
+	 * Evict items timed before the cutoff.
+	 *
+	 * @param cutoff
+	 *            Items timed before this are evicted.
+	 * @param out
+	 *            If not null the evicted items are added to this list, oldest
+	 *            first.
+	 * @return The number of items evicted.
+	 */
+	public synchronized int cullBefore(long cutoff, List<? super T> out) {
+		int count = 0;
+		while (size > 0 && times[slot(0)] < cutoff) {
+			T item = (T) items[slot(0)];
+			evictOldest();
+			if (out != null)
+				out.add(item);
+			count++;
+		}
+		evictedByAge += count;
+		return count;
+	}
+
+	/** Remove the oldest item. */
+	private void evictOldest() {
+		int slot = slot(0);
+		items[slot] = null;
+		size--;
+		firstSequence++;
+	}
+
+	/** @return The index (0 = oldest) of the first item timed at or after time. */
+	private int firstIndexAtOrAfter(long time) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (times[slot(mid)] < time)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/** @return The ring slot holding the item at index (0 = oldest). */
+	private int slot(int index) {
+		int slot = head - size + index;
+		return (slot < 0 ? slot + items.length : slot);
+	}
+
+}
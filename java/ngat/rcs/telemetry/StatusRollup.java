@@ -0,0 +1,369 @@
+package ngat.rcs.telemetry;
+
+/**
+ * Downsampled history of a set of numeric status fields, held at several
+ * resolutions (tiers). Each tier is a ring of fixed-width time buckets. For
+ * each field a bucket keeps the min, max, sum, count and last value of the
+ * samples falling in it. A sample is merged into one bucket of every tier as
+ * it arrives, so a long-range query reads a few hundred buckets rather than
+ * every raw sample.
+ * <p>
+ * A sample's fields may be NaN where a status does not carry that field,
+ * e.g. a cloud sensor update in a meteorology rollup. Such fields are skipped.
+ * <p>
+ * Fields may be declared angular (degrees), e.g. wind direction. A linear
+ * mean of angles is wrong across north (359 and 1 would give 180), so an
+ * angular field's mean is the direction of the vector sum of its samples, in
+ * the range [0, 360), or NaN if they cancel out. Its min and max are
+ * reported as NaN as they have no useful meaning for a direction.
+ *
+ * @author eng
+ *
+ */
+public class StatusRollup {
+
+	/** Default bucket widths (millis): 10 sec, 1 min and 10 min. */
+	public static final long[] DEFAULT_WIDTHS = new long[] { 10 * 1000L, 60 * 1000L, 10 * 60 * 1000L };
+
+	/** Default bucket counts: 1 day, 7 days and 30 days. */
+	public static final int[] DEFAULT_CAPACITIES = new int[] { 8640, 10080, 4320 };
+
+	/** Names of the fields. */
+	private String[] columns;
+
+	/** True for each field which is an angle (degrees). */
+	private boolean[] angular;
+
+	/** Tiers, finest first. */
+	private Tier[] tiers;
+
+	/**
+	 * Create a StatusRollup with the default tiers.
+	 *
+	 * @param columns
+	 *            Names of the fields.
+	 */
+	public StatusRollup(String[] columns) {
+		this(columns, null, DEFAULT_WIDTHS, DEFAULT_CAPACITIES);
+	}
+
+	/**
+	 * Create a StatusRollup with the default tiers.
+	 *
+	 * @param columns
+	 *            Names of the fields.
+	 * @param angularColumns
+	 *            Names of the fields which are angles (degrees), or null.
+	 */
+	public StatusRollup(String[] columns, String[] angularColumns) {
+		this(columns, angularColumns, DEFAULT_WIDTHS, DEFAULT_CAPACITIES);
+	}
+
+	/**
+	 * @param columns
+	 *            Names of the fields.
+	 * @param widths
+	 *            Bucket width (millis) of each tier, finest first.
+	 * @param capacities
+	 *            Number of buckets held by each tier.
+	 */
+	public StatusRollup(String[] columns, long[] widths, int[] capacities) {
+		this(columns, null, widths, capacities);
+	}
+
+	/**
+	 * @param columns
+	 *            Names of the fields.
+	 * @param angularColumns
+	 *            Names of the fields which are angles (degrees), or null.
+	 * @param widths
+	 *            Bucket width (millis) of each tier, finest first.
+	 * @param capacities
+	 *            Number of buckets held by each tier.
+	 */
+	public StatusRollup(String[] columns, String[] angularColumns, long[] widths, int[] capacities) {
+		if (widths.length == 0 || widths.length != capacities.length)
+			throw new IllegalArgumentException("Need one capacity per tier width");
+		this.columns = (String[]) columns.clone();
+		angular = new boolean[columns.length];
+		if (angularColumns != null) {
+			int[] indices = select(angularColumns);
+			for (int i = 0; i < indices.length; i++)
+				angular[indices[i]] = true;
+		}
+		tiers = new Tier[widths.length];
+		for (int i = 0; i < widths.length; i++) {
+			if (i > 0 && widths[i] <= widths[i - 1])
+				throw new IllegalArgumentException("Tier widths must increase: " + widths[i]);
+			tiers[i] = new Tier(widths[i], capacities[i], columns.length);
+		}
+	}
+
+	/** @return The names of the fields. */
+	public String[] getColumns() {
+		return (String[]) columns.clone();
+	}
+
+	/** @return The bucket width (millis) of each tier, finest first. */
+	public long[] getResolutions() {
+		long[] widths = new long[tiers.length];
+		for (int i = 0; i < tiers.length; i++)
+			widths[i] = tiers[i].width;
+		return widths;
+	}
+
+	/**
+	 * Create a row for add(), with every field NaN.
+	 *
+	 * @return An empty row.
+	 */
+	public double[] createRow() {
+		double[] row = new double[columns.length];
+		java.util.Arrays.fill(row, Double.NaN);
+		return row;
+	}
+
+	/**
+	 * Merge a sample into every tier.
+	 *
+	 * @param time
+	 *            The sample time.
+	 * @param row
+	 *            The sample values, one per column, NaN if not present.
+	 */
+	public synchronized void add(long time, double[] row) {
+		for (int i = 0; i < tiers.length; i++)
+			tiers[i].add(time, row);
+	}
+
+	/**
+	 * Extract buckets from the finest tier whose bucket count over the range
+	 * does not exceed the point budget, preferring one which still holds the
+	 * start of the range.
+	 *
+	 * @param names
+	 *            The fields wanted, or null for all.
+	 * @param t1
+	 *            Start of the time range.
+	 * @param t2
+	 *            End of the time range.
+	 * @param maxPoints
+	 *            Maximum number of buckets wanted.
+	 * @return The buckets.
+	 */
+	public synchronized RollupSeries getRollup(String[] names, long t1, long t2, int maxPoints) {
+		Tier chosen = null;
+		for (int i = 0; i < tiers.length; i++) {
+			Tier tier = tiers[i];
+			if ((t2 - t1) / tier.width + 1 > maxPoints)
+				continue;
+			if (chosen == null)
+				chosen = tier;
+			if (tier.covers(t1)) {
+				chosen = tier;
+				break;
+			}
+		}
+		if (chosen == null)
+			chosen = tiers[tiers.length - 1];
+		return chosen.extract(select(names), t1, t2);
+	}
+
+	/**
+	 * Extract buckets from the finest tier whose buckets are at least as wide
+	 * as the specified resolution.
+	 *
+	 * @param names
+	 *            The fields wanted, or null for all.
+	 * @param t1
+	 *            Start of the time range.
+	 * @param t2
+	 *            End of the time range.
+	 * @param resolution
+	 *            Minimum bucket width (millis) wanted.
+	 * @return The buckets.
+	 */
+	public synchronized RollupSeries getRollupAtResolution(String[] names, long t1, long t2, long resolution) {
+		Tier chosen = tiers[tiers.length - 1];
+		for (int i = 0; i < tiers.length; i++) {
+			if (tiers[i].width >= resolution) {
+				chosen = tiers[i];
+				break;
+			}
+		}
+		return chosen.extract(select(names), t1, t2);
+	}
+
+	/** @return The indices of the named columns, all if names is null. */
+	private int[] select(String[] names) {
+		if (names == null) {
+			int[] all = new int[columns.length];
+			for (int i = 0; i < all.length; i++)
+				all[i] = i;
+			return all;
+		}
+		int[] indices = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			indices[i] = -1;
+			for (int j = 0; j < columns.length; j++) {
+				if (columns[j].equals(names[i]))
+					indices[i] = j;
+			}
+			if (indices[i] < 0)
+				throw new IllegalArgumentException("No such rollup column: " + names[i]);
+		}
+		return indices;
+	}
+
+	/**
+	 * @return The direction (degrees, [0, 360)) of the vector sum of some
+	 *         angles, or NaN if they cancel out.
+	 */
+	private static double meanAngle(double sinSum, double cosSum, int count) {
+		if (Math.abs(sinSum) < 1.0e-9 * count && Math.abs(cosSum) < 1.0e-9 * count)
+			return Double.NaN;
+		double mean = Math.toDegrees(Math.atan2(sinSum, cosSum));
+		if (mean < 0.0)
+			mean += 360.0;
+		// a tiny negative angle rounds up to 360
+		return (mean >= 360.0 ? 0.0 : mean);
+	}
+
+	/** A ring of fixed-width buckets. */
+	private class Tier {
+
+		/** Bucket width (millis). */
+		long width;
+
+		/** Start time of the bucket in each slot, or -1 if never used. */
+		long[] starts;
+
+		/** Number of the newest bucket seen. */
+		long newest = -1L;
+
+		/** Per column, per slot. */
+		int[][] counts;
+
+		double[][] min;
+
+		double[][] max;
+
+		/** Sum of the values, or of their sines for an angular column. */
+		double[][] sum;
+
+		/** Sum of the cosines for an angular column, else null. */
+		double[][] cosSum;
+
+		double[][] last;
+
+		Tier(long width, int capacity, int ncols) {
+			this.width = width;
+			starts = new long[capacity];
+			java.util.Arrays.fill(starts, -1L);
+			counts = new int[ncols][capacity];
+			min = new double[ncols][capacity];
+			max = new double[ncols][capacity];
+			sum = new double[ncols][capacity];
+			last = new double[ncols][capacity];
+			cosSum = new double[ncols][];
+			for (int c = 0; c < ncols; c++) {
+				if (angular[c])
+					cosSum[c] = new double[capacity];
+			}
+		}
+
+		/** @return True if the bucket containing the time is still held. */
+		boolean covers(long time) {
+			return newest >= 0 && time / width > newest - starts.length;
+		}
+
+		void add(long time, double[] row) {
+			long n = time / width;
+			int slot = (int) (n % starts.length);
+			long start = n * width;
+			if (starts[slot] != start) {
+				// slot holds a newer bucket - this sample is too old to keep
+				if (starts[slot] > start)
+					return;
+				starts[slot] = start;
+				for (int c = 0; c < counts.length; c++)
+					counts[c][slot] = 0;
+			}
+			if (n > newest)
+				newest = n;
+			for (int c = 0; c < counts.length; c++) {
+				double v = row[c];
+				if (Double.isNaN(v))
+					continue;
+				if (angular[c]) {
+					double a = Math.toRadians(v);
+					if (counts[c][slot] == 0) {
+						sum[c][slot] = Math.sin(a);
+						cosSum[c][slot] = Math.cos(a);
+					} else {
+						sum[c][slot] += Math.sin(a);
+						cosSum[c][slot] += Math.cos(a);
+					}
+				} else if (counts[c][slot] == 0) {
+					min[c][slot] = v;
+					max[c][slot] = v;
+					sum[c][slot] = v;
+				} else {
+					if (v < min[c][slot])
+						min[c][slot] = v;
+					if (v > max[c][slot])
+						max[c][slot] = v;
+					sum[c][slot] += v;
+				}
+				last[c][slot] = v;
+				counts[c][slot]++;
+			}
+		}
+
+		RollupSeries extract(int[] cols, long t1, long t2) {
+			// no bucket before time zero, whatever t1 and however young the tier
+			long first = Math.max(0L, Math.max(t1 / width, newest - starts.length + 1));
+			long end = Math.min(t2 / width, newest);
+			int size = 0;
+			for (long n = first; n <= end; n++) {
+				if (starts[(int) (n % starts.length)] == n * width)
+					size++;
+			}
+			String[] names = new String[cols.length];
+			for (int c = 0; c < cols.length; c++)
+				names[c] = columns[cols[c]];
+			RollupSeries series = new RollupSeries(names, width, size);
+			int k = 0;
+			for (long n = first; n <= end; n++) {
+				int slot = (int) (n % starts.length);
+				if (starts[slot] != n * width)
+					continue;
+				series.times[k] = starts[slot];
+				for (int c = 0; c < cols.length; c++) {
+					int col = cols[c];
+					int count = counts[col][slot];
+					series.counts[c][k] = count;
+					if (count == 0) {
+						series.min[c][k] = Double.NaN;
+						series.max[c][k] = Double.NaN;
+						series.mean[c][k] = Double.NaN;
+						series.last[c][k] = Double.NaN;
+					} else if (angular[col]) {
+						series.min[c][k] = Double.NaN;
+						series.max[c][k] = Double.NaN;
+						series.mean[c][k] = meanAngle(sum[col][slot], cosSum[col][slot], count);
+						series.last[c][k] = last[col][slot];
+					} else {
+						series.min[c][k] = min[col][slot];
+						series.max[c][k] = max[col][slot];
+						series.mean[c][k] = sum[col][slot] / count;
+						series.last[c][k] = last[col][slot];
+					}
+				}
+				k++;
+			}
+			return series;
+		}
+	}
+
+}
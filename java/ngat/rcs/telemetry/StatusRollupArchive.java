@@ -0,0 +1,51 @@
+package ngat.rcs.telemetry;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Provides downsampled history of a gateway's numeric status fields, for plots
+ * over long time ranges.
+ *
+ * @author eng
+ *
+ */
+public interface StatusRollupArchive extends Remote {
+
+	/** @return The names of the fields available. */
+	public String[] getRollupColumns() throws RemoteException;
+
+	/** @return The available bucket widths (millis), finest first. */
+	public long[] getRollupResolutions() throws RemoteException;
+
+	/**
+	 * @param columns
+	 *            The fields wanted, or null for all.
+	 * @param t1
+	 *            Start of the time range.
+	 * @param t2
+	 *            End of the time range.
+	 * @param maxPoints
+	 *            Maximum number of buckets wanted. The finest resolution
+	 *            within this budget is used.
+	 * @return The buckets.
+	 * @throws RemoteException
+	 */
+	public RollupSeries getStatusRollup(String[] columns, long t1, long t2, int maxPoints) throws RemoteException;
+
+	/**
+	 * @param columns
+	 *            The fields wanted, or null for all.
+	 * @param t1
+	 *            Start of the time range.
+	 * @param t2
+	 *            End of the time range.
+	 * @param resolution
+	 *            Minimum bucket width (millis) wanted.
+	 * @return The buckets.
+	 * @throws RemoteException
+	 */
+	public RollupSeries getStatusRollupAtResolution(String[] columns, long t1, long t2, long resolution)
+			throws RemoteException;
+
+}
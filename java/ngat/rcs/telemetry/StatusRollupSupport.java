@@ -0,0 +1,57 @@
+package ngat.rcs.telemetry;
+
+import java.rmi.RemoteException;
+
+import ngat.util.logging.LogGenerator;
+
+/**
+ * Answers StatusRollupArchive requests from a gateway's StatusRollup, logging
+ * each request. A gateway which provides a rollup delegates its
+ * StatusRollupArchive methods to one of these.
+ *
+ * @author eng
+ *
+ */
+public class StatusRollupSupport implements StatusRollupArchive {
+
+	/** The rollup to query. */
+	private StatusRollup rollup;
+
+	/** Logger. */
+	private LogGenerator slogger;
+
+	/**
+	 * @param rollup
+	 *            The rollup to query.
+	 * @param slogger
+	 *            The gateway's logger.
+	 */
+	public StatusRollupSupport(StatusRollup rollup, LogGenerator slogger) {
+		this.rollup = rollup;
+		this.slogger = slogger;
+	}
+
+	public String[] getRollupColumns() throws RemoteException {
+		return rollup.getColumns();
+	}
+
+	public long[] getRollupResolutions() throws RemoteException {
+		return rollup.getResolutions();
+	}
+
+	public RollupSeries getStatusRollup(String[] columns, long t1, long t2, int maxPoints) throws RemoteException {
+		slogger.create().info().level(2)
+				.msg(String.format("Request for rollup from: %tF %tT to %tF %tT in %d points", t1, t1, t2, t2, maxPoints))
+				.send();
+		return rollup.getRollup(columns, t1, t2, maxPoints);
+	}
+
+	public RollupSeries getStatusRollupAtResolution(String[] columns, long t1, long t2, long resolution)
+			throws RemoteException {
+		slogger.create().info().level(2)
+				.msg(String.format("Request for rollup from: %tF %tT to %tF %tT at %d ms", t1, t1, t2, t2, resolution))
+				.send();
+		return rollup.getRollupAtResolution(columns, t1, t2, resolution);
+	}
+
+}
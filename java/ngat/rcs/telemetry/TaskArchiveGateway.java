@@ -7,6 +7,7 @@ import java.util.Vector;
 
 import ngat.net.telemetry.SecondaryCache;
 import ngat.rcs.tms.TaskArchive;
+import ngat.rcs.tms.TaskLifecycleBatchListener;
 import ngat.rcs.tms.TaskLifecycleListener;
 import ngat.rcs.tms.TaskMonitor;
 import ngat.rcs.tms.events.TaskLifecycleEvent;
@@ -15,29 +16,19 @@ import ngat.util.logging.LogGenerator;
 import ngat.util.logging.LogManager;
 import ngat.util.logging.Logger;
 
-public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonitor, TaskArchive, TaskLifecycleListener {
+public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonitor, TaskArchive, TaskLifecycleBatchListener,
+		StatusDeliveryControl<TaskLifecycleListener> {
 
 	/** Logger. */
 	private LogGenerator slogger;
 
-	/** A list of registered TaskLifecycleEventListeners. */
-	private List<TaskLifecycleListener> listeners;
+	/** Delivers status to registered TaskLifecycleListeners. */
+	private StatusDeliveryEngine<TaskLifecycleListener, TaskLifecycleEvent> delivery;
 
-	/** A list of candidate TaskLifecycleEventListeners. */
-	private List<TaskLifecycleListener> addListeners;
-
-	/** A list of TaskLifecycleEventListeners to delete. */
-	private List<TaskLifecycleListener> deleteListeners;
-
-	private List<TaskLifecycleEvent> archive;
+	private SegmentedStatusArchive<TaskLifecycleEvent> archive;
 
 	private TaskMonitor tmon;
 	
-	/**
-	 * Counts the number of archive entries which have been forwarded to current
-	 * listeners.
-	 */
-	private volatile int processedCount;
 
 	// START TEMPLATE CODE
 	
@@ -67,15 +58,28 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
 				.srcCompId("TaskMonitorGateway");
 
-		tmon.addTaskEventListener(this);
 		
-		archive = new Vector<TaskLifecycleEvent>();
-
-		listeners = new Vector<TaskLifecycleListener>();
-		addListeners = new Vector<TaskLifecycleListener>();
-		deleteListeners = new Vector<TaskLifecycleListener>();
-
-		processedCount = 0;
+		archive = new SegmentedStatusArchive<TaskLifecycleEvent>();
+
+		delivery = new StatusDeliveryEngine<TaskLifecycleListener, TaskLifecycleEvent>("TaskMonitorGateway",
+				new StatusDeliveryEngine.Sender<TaskLifecycleListener, TaskLifecycleEvent>() {
+					public void send(TaskLifecycleListener l, List<TaskLifecycleEvent> items) throws Exception {
+						if (items.size() > 1 && l instanceof TaskLifecycleBatchListener) {
+							((TaskLifecycleBatchListener) l).taskLifecycleEventsNotification(items);
+							return;
+						}
+						for (int is = 0; is < items.size(); is++)
+							l.taskLifecycleEventNotification(items.get(is));
+					}
+
+					public Object getCoalesceKey(TaskLifecycleEvent status) {
+						// every event matters, never merge
+						return null;
+					}
+				}, slogger);
+
+		// bind to the provider once the archive and delivery are ready
+		tmon.addTaskEventListener(this);
 	}
 
 	
@@ -161,60 +165,11 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 
 
 
-	private void notifyListenersEventUpdate(TaskLifecycleEvent event) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				TaskLifecycleListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
-		deleteListeners.clear();
-
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				TaskLifecycleListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
-
-		}
-		addListeners.clear();
-
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			TaskLifecycleListener l = null;
-			try {
-				l = listeners.get(il);
-				l.taskLifecycleEventNotification(event);			
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2).msg("Adding unresponsive listener: " + l + " to kill list due to: "+e).send();
-				}
-			}
-		}
-
-	}
-
 	public List<TaskLifecycleEvent> getTaskLifecycleHistory(long t1, long t2) throws RemoteException {
 		slogger.create().info().level(2)
 				.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1, t1, t2, t2)).send();
 
-		List<TaskLifecycleEvent> list = new Vector<TaskLifecycleEvent>();
-
-		for (int is = 0; is < archive.size(); is++) {
-			TaskLifecycleEvent event = archive.get(is);
-			long time = event.getEventTimeStamp();
-			if (time >= t1 && time <= t2)
-				list.add(event);
-		}
+		List<TaskLifecycleEvent> list = BackingStoreHistory.range(archive, backingStore, backingStoreAgeLimit, t1, t2, slogger);
 		slogger.create().info().level(2).msg("Returning " + list.size() + " entries").send();
 		return list;
 	}
@@ -222,7 +177,7 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 	public void addTaskEventListener(TaskLifecycleListener l) throws RemoteException {
 
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -233,18 +188,28 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 
 	}
 
 	public void removeTaskEventListener(TaskLifecycleListener l) throws RemoteException {
 
-		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
+	}
+
+	public void addDeliveryListener(TaskLifecycleListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
+
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
 	}
 
 	public void startProcessor() {
@@ -282,8 +247,6 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 			    // Cull aged items
 			    backingStoreCull();
 					
-			    // Process pending items		
-			    processPendingStatus();
 					
 			    ipcc++;
 			
@@ -308,26 +271,16 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 			    .msg(String.format("Purge to backing store, items dated before: %tF %tT \n", 
 					       cutoffTime, cutoffTime)).send();
 						
-			int cullCount = 0;
-			// purge oldest data into backingStore.
-			for (int is = 0; is < processedCount; is++) {
-			    TaskLifecycleEvent  status = archive.get(is);
-						
-			    if (status.getEventTimeStamp() < cutoffTime) {
-				cullCount++;
-				dumpList.add(status);
-			    }
-
-			}
+			// detach whole aged segments, oldest first
+			int cullCount = archive.cullBefore(cutoffTime, dumpList);
 
-			slogger.create().info().level(3)
-			    .msg("Checked "+processedCount+" entries, found "+cullCount+" aged items").send();
+			slogger.create().info().level(3).msg("Culled " + cullCount + " aged items").send();
 					
 			// push the culled data into the backing store
 			if (backingStore != null) {
 			    int ntb = 0;
 			    for (int is = 0; is < cullCount; is++) {
-				TaskLifecycleEvent  status = archive.get(is);
+				TaskLifecycleEvent  status = dumpList.get(is);
 				try {
 				    backingStore.storeStatus(status);
 				    ntb++;
@@ -342,32 +295,15 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 				.msg("No backing store so culled items will be lost").send();
 			}
 
-			// chop the culled data out of the local cache	
-			archive.removeAll(dumpList);			
-					
-			processedCount -= cullCount;	
 			int ias = archive.size();
 			slogger.create().info().level(3)
-			    .msg("Removed aged entries from live cache, size now"+ias+", processing starts at: "+processedCount).send();
+			    .msg("Live cache size now: "+ias).send();
 				
 					
 		    }
 
 		}
 			
-		private void processPendingStatus() {
-		    int ias = archive.size();
-		    slogger.create().info().level(2).msg("Processing archived status from: " + processedCount + " to " + ias)
-			.send();
-
-		    for (int is = processedCount; is < ias; is++) {
-			TaskLifecycleEvent status = archive.get(is);			
-			notifyListenersEventUpdate(status);
-		    }
-		    // we have processed all known archived status
-		    processedCount = ias;
-		}
-
 		@Override
 		protected void shutdown() {
 			// TODO Auto-generated method stub
@@ -378,7 +314,17 @@ public class TaskArchiveGateway extends UnicastRemoteObject implements TaskMonit
 
 	public void taskLifecycleEventNotification(TaskLifecycleEvent event) throws RemoteException {		
 		slogger.create().info().level(2).msg("Add event: " + archive.size() + " to archive: " + event).send();
-		archive.add(event);
+		archive.add(event.getEventTimeStamp(), event);
+		delivery.publish(event);
+	}
+
+	public void taskLifecycleEventsNotification(List<TaskLifecycleEvent> events) throws RemoteException {
+		slogger.create().info().level(2).msg("Add " + events.size() + " events to archive: " + archive.size()).send();
+		for (int ie = 0; ie < events.size(); ie++) {
+			TaskLifecycleEvent event = events.get(ie);
+			archive.add(event.getEventTimeStamp(), event);
+			delivery.publish(event);
+		}
 	}
 
 }
\ No newline at end of file
@@ -6,8 +6,13 @@ package ngat.rcs.telemetry;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.List;
-import java.util.Vector;
 
+import ngat.tcm.AutoguiderStatus;
+import ngat.tcm.AuxilliaryMechanismStatus;
+import ngat.tcm.FocusStatus;
+import ngat.tcm.PrimaryAxisStatus;
+import ngat.tcm.RotatorAxisStatus;
+import ngat.tcm.TelescopeEnvironmentStatus;
 import ngat.tcm.TelescopeStatus;
 import ngat.tcm.TelescopeStatusArchive;
 import ngat.tcm.TelescopeStatusProvider;
@@ -22,34 +27,59 @@ import ngat.util.logging.Logger;
  * 
  */
 public class TelescopeArchiveGateway extends UnicastRemoteObject implements TelescopeStatusUpdateListener,
-		TelescopeStatusProvider, TelescopeStatusArchive {
+		TelescopeStatusProvider, TelescopeStatusArchive, StatusRollupArchive,
+		StatusDeliveryControl<TelescopeStatusUpdateListener> {
+
+	/** Fields held in the rollup. */
+	public static final String[] ROLLUP_COLUMNS = new String[] { "azimuth", "altitude", "rotator",
+			"rotator.skyangle", "focus", "primary.mirror.temperature", "secondary.mirror.temperature",
+			"truss.temperature", "oil.temperature", "agbox.temperature", "autoguider.fwhm", "autoguider.magnitude" };
 
 	/** Logger. */
 	private LogGenerator slogger;
 
-	/** A list of registered TelescopeStatusUpdateListeners. */
-	private List<TelescopeStatusUpdateListener> listeners;
-
-	/** A list of candidate TelescopeStatusUpdateListeners. */
-	private List<TelescopeStatusUpdateListener> addListeners;
-
-	/** A list of TelescopeStatusUpdateListeners to delete. */
-	private List<TelescopeStatusUpdateListener> deleteListeners;
+	/** Delivers status to registered TelescopeStatusUpdateListeners. */
+	private StatusDeliveryEngine<TelescopeStatusUpdateListener, TelescopeStatus> delivery;
 
 	/** Telescope status source. */
 	private TelescopeStatusProvider tsp;
 
-	private List<TelescopeStatus> archive;
-	
-	/** Counts the number of archive entries which have been forwarded to current listeners.*/
-	private int processedCount;
+	/** Default maximum number of status entries held in the archive. */
+	public static final int DEFAULT_ARCHIVE_CAPACITY = 100000;
+
+	/** Default retention period for archived status. Default to 1 hour. */
+	public static final long DEFAULT_RETENTION_PERIOD = 60 * 60 * 1000L;
+
+	private StatusRingArchive<TelescopeStatus> archive;
+
+	/** Downsampled history for long-range queries. */
+	private StatusRollup rollup;
 
+	/** Answers rollup requests. */
+	private StatusRollupSupport rollupSupport;
+	
 	/**
 	 * Create a TelescopeArchiveGateway.
 	 * 
 	 * @throws RemoteException
 	 */
 	public TelescopeArchiveGateway(TelescopeStatusProvider tsp) throws RemoteException {
+		this(tsp, DEFAULT_ARCHIVE_CAPACITY, DEFAULT_RETENTION_PERIOD);
+	}
+
+	/**
+	 * Create a TelescopeArchiveGateway.
+	 * 
+	 * @param tsp
+	 *            The status provider.
+	 * @param capacity
+	 *            Maximum number of status entries to hold.
+	 * @param retentionPeriod
+	 *            How long (millis) to keep archived status.
+	 * @throws RemoteException
+	 */
+	public TelescopeArchiveGateway(TelescopeStatusProvider tsp, int capacity, long retentionPeriod)
+			throws RemoteException {
 		super();
 		this.tsp = tsp;
 
@@ -58,21 +88,38 @@ public class TelescopeArchiveGateway extends UnicastRemoteObject implements Tele
 		slogger = alogger.generate().system("RCS").subSystem("Telemetry").srcCompClass(this.getClass().getSimpleName())
 				.srcCompId("TCM_Gateway");
 
-		tsp.addTelescopeStatusUpdateListener(this);
-		
-		archive = new Vector<TelescopeStatus>();
-		
-		listeners = new Vector<TelescopeStatusUpdateListener>();
-		addListeners = new Vector<TelescopeStatusUpdateListener>();
-		deleteListeners = new Vector<TelescopeStatusUpdateListener>();
+		archive = new StatusRingArchive<TelescopeStatus>(capacity, retentionPeriod);
+		rollup = new StatusRollup(ROLLUP_COLUMNS);
+		rollupSupport = new StatusRollupSupport(rollup, slogger);
+
 		
-		processedCount = 0;
+		delivery = new StatusDeliveryEngine<TelescopeStatusUpdateListener, TelescopeStatus>("TCM_Gateway",
+				new StatusDeliveryEngine.Sender<TelescopeStatusUpdateListener, TelescopeStatus>() {
+					public void send(TelescopeStatusUpdateListener l, List<TelescopeStatus> items) throws Exception {
+						for (int is = 0; is < items.size(); is++)
+							l.telescopeStatusUpdate(items.get(is));
+					}
+
+					public Object getCoalesceKey(TelescopeStatus status) {
+						// several mechanisms report using the same class
+						if (status instanceof PrimaryAxisStatus)
+							return "AXIS:" + ((PrimaryAxisStatus) status).getMechanismName();
+						if (status instanceof FocusStatus)
+							return "FOCUS:" + ((FocusStatus) status).getMechanismName();
+						if (status instanceof AuxilliaryMechanismStatus)
+							return "AUX:" + ((AuxilliaryMechanismStatus) status).getMechanismName();
+						return status.getClass();
+					}
+				}, slogger);
+
+		// bind to the provider once the archive and delivery are ready
+		tsp.addTelescopeStatusUpdateListener(this);
 	}
 
 	public void addTelescopeStatusUpdateListener(TelescopeStatusUpdateListener l) throws RemoteException {
 
 		// ignore listener already registered
-		if (listeners.contains(l))
+		if (delivery.containsListener(l))
 			return;
 
 		// note current time
@@ -83,81 +130,67 @@ public class TelescopeArchiveGateway extends UnicastRemoteObject implements Tele
 
 		// add new listener to new list
 		slogger.create().info().level(2).msg("Received request to add new listener: " + l).send();
-		addListeners.add(l);
+		delivery.addListener(l);
 
 	}
 
 	public void removeTelescopeStatusUpdateListener(TelescopeStatusUpdateListener l) throws RemoteException {
 
-		if (!listeners.contains(l))
+		if (!delivery.containsListener(l))
 			return;
 
-		// add to kill list
 		slogger.create().info().level(2).msg("Received request to remove listener: " + l).send();
-		deleteListeners.add(l);
+		delivery.removeListener(l);
 	}
 
 	public void telescopeStatusUpdate(TelescopeStatus status) throws RemoteException {
 		slogger.create().info().level(2)
 			.msg("Add status update: "+archive.size()+" to archive: "+status)
 			.send();
-		archive.add(status);
-	}
-
-	private void notifyListenersTelescopeStatusUpdate(TelescopeStatus status) {
-		// remove any kill items
-		if (!deleteListeners.isEmpty()) {
-			for (int id = 0; id < deleteListeners.size(); id++) {
-				TelescopeStatusUpdateListener l = deleteListeners.get(id);
-				if (listeners.contains(l)) {
-					listeners.remove(l);
-					slogger.create().info().level(2).msg("Removing listener " + l).send();
-				}
-			}
-		}
+		archive.add(status.getStatusTimeStamp(), status);
+		addToRollup(status);
+		delivery.publish(status);
+	}
 
-		// add new listeners
-		if (!addListeners.isEmpty()) {
-			for (int ia = 0; ia < addListeners.size(); ia++) {
-				TelescopeStatusUpdateListener l = addListeners.get(ia);
-				if (!listeners.contains(l)) {
-					listeners.add(l);
-					slogger.create().info().level(2).msg("Adding new listener " + l).send();
-				}
-			}
+	public void addDeliveryListener(TelescopeStatusUpdateListener l, boolean latestOnly, long maxLatency) throws RemoteException {
+		slogger.create().info().level(2).msg(
+			"Received request to add listener: " + l + (latestOnly ? ", latest value only every " + maxLatency + "ms" : ""))
+			.send();
+		delivery.register(l, latestOnly, maxLatency);
+	}
 
-		}
+	public List<StatusDeliveryEngine.ListenerStatistics> getDeliveryStatistics() throws RemoteException {
+		return delivery.getStatistics();
+	}
 
-		// broadcast
-		for (int il = 0; il < listeners.size(); il++) {
-			TelescopeStatusUpdateListener l = null;
-			try {
-				l = listeners.get(il);
-				l.telescopeStatusUpdate(status);
-			} catch (Exception e) {
-				if (l != null) {
-					deleteListeners.add(l);
-					slogger.create().info().level(2)
-						.msg("Adding unresponsive listener: " + l + " to kill list")
-						.send();
-				}
-			}
-		}
+	/**
+	 * @return the retention period (millis) for archived status
+	 */
+	public long getRetentionPeriod() {
+		return archive.getRetentionPeriod();
+	}
 
+	/**
+	 * @param retentionPeriod
+	 *            the retention period (millis) for archived status
+	 */
+	public void setRetentionPeriod(long retentionPeriod) {
+		archive.setRetentionPeriod(retentionPeriod);
 	}
-	
+
+	/**
+	 * @return the number of entries evicted from the archive, either because
+	 *         it was full or by age
+	 */
+	public long getEvictedCount() {
+		return archive.getEvictedByCapacity() + archive.getEvictedByAge();
+	}
+
 	public List<TelescopeStatus> getTelescopeStatusHistory(long t1, long t2) throws RemoteException {
 		slogger.create().info().level(2)
 			.msg(String.format("Request for archived data from: %tF %tT to %tF %tT", t1,t1,t2,t2))
 			.send();
-		List<TelescopeStatus> list = new Vector<TelescopeStatus>();
-		
-		for (int is = 0; is < archive.size(); is++) {
-			TelescopeStatus status = archive.get(is);
-			long time = status.getStatusTimeStamp();
-			if (time >= t1 && time <= t2)
-				list.add(status);
-		}
+		List<TelescopeStatus> list = archive.range(t1, t2);
 		slogger.create().info().level(2)
 			.msg("Returning "+list.size()+" entries")
 			.send();
@@ -190,17 +223,12 @@ public class TelescopeArchiveGateway extends UnicastRemoteObject implements Tele
 		@Override
 		protected void mainTask() {
 					try {Thread.sleep(interval); } catch (InterruptedException ix) {}	
-				// loop thro pending statii
-				int ias = archive.size();		
-				slogger.create().info().level(2)
-				.msg("Processing archived status from: "+processedCount+" to "+ias).send();
-			
-				for (int is = processedCount; is < ias; is++) {
-					TelescopeStatus status = archive.get(is);				
-					notifyListenersTelescopeStatusUpdate(status);
-				}
-				// we have processed all known archived status
-				processedCount = ias;
+				// drop aged status
+				int nc = archive.cull(System.currentTimeMillis());
+				if (nc > 0)
+					slogger.create().info().level(2)
+					.msg("Culled "+nc+" aged entries, archive size now "+archive.size()
+						+", evicted when full: "+archive.getEvictedByCapacity()).send();
 		}
 
 		@Override
@@ -221,4 +249,57 @@ public class TelescopeArchiveGateway extends UnicastRemoteObject implements Tele
 
 	
 	
+	public String[] getRollupColumns() throws RemoteException {
+		return rollupSupport.getRollupColumns();
+	}
+
+	public long[] getRollupResolutions() throws RemoteException {
+		return rollupSupport.getRollupResolutions();
+	}
+
+	public RollupSeries getStatusRollup(String[] columns, long t1, long t2, int maxPoints) throws RemoteException {
+		return rollupSupport.getStatusRollup(columns, t1, t2, maxPoints);
+	}
+
+	public RollupSeries getStatusRollupAtResolution(String[] columns, long t1, long t2, long resolution)
+			throws RemoteException {
+		return rollupSupport.getStatusRollupAtResolution(columns, t1, t2, resolution);
+	}
+
+	/** Extract the rollup fields from a status. */
+	private void addToRollup(TelescopeStatus status) {
+		double[] row = rollup.createRow();
+		if (status instanceof RotatorAxisStatus) {
+			RotatorAxisStatus rot = (RotatorAxisStatus) status;
+			row[2] = rot.getCurrentPosition();
+			row[3] = rot.getSkyAngle();
+		} else if (status instanceof PrimaryAxisStatus) {
+			PrimaryAxisStatus axis = (PrimaryAxisStatus) status;
+			if ("AZM".equals(axis.getMechanismName()))
+				row[0] = axis.getCurrentPosition();
+			else if ("ALT".equals(axis.getMechanismName()))
+				row[1] = axis.getCurrentPosition();
+			else
+				return;
+		} else if (status instanceof FocusStatus) {
+			FocusStatus focus = (FocusStatus) status;
+			if (!"SMF".equals(focus.getMechanismName()))
+				return;
+			row[4] = focus.getCurrentPosition();
+		} else if (status instanceof TelescopeEnvironmentStatus) {
+			TelescopeEnvironmentStatus env = (TelescopeEnvironmentStatus) status;
+			row[5] = env.getPrimaryMirrorTemperature();
+			row[6] = env.getSecondaryMirrorTemperature();
+			row[7] = env.getTrussTemperature();
+			row[8] = env.getOilTemperature();
+			row[9] = env.getAgBoxTemperature();
+		} else if (status instanceof AutoguiderStatus) {
+			AutoguiderStatus ag = (AutoguiderStatus) status;
+			row[10] = ag.getGuideFwhm();
+			row[11] = ag.getGuideStarMagnitude();
+		} else
+			return;
+		rollup.add(status.getStatusTimeStamp(), row);
+	}
+
 }
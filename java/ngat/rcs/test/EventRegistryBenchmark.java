@@ -0,0 +1,109 @@
+package ngat.rcs.test;
+
+import java.util.*;
+
+import ngat.rcs.emm.EventRegistry;
+import ngat.rcs.emm.EventSubscriber;
+
+/**
+ * Micro-benchmark for EventRegistry.findSubscribers(). Registers a large
+ * number of subscriptions then times repeated lookups against the prefix
+ * index and against an equivalent linear scan of the subscriptions.
+ *
+ * Usage: EventRegistryBenchmark [subscribers] [topics-per-subscriber] [lookups]
+ *
+ */
+public class EventRegistryBenchmark {
+
+	/**
+	 * Run the benchmark and print the mean cost of a lookup each way.
+	 *
+	 * @param args
+	 *            [subscribers] [topics-per-subscriber] [lookups], each
+	 *            optional.
+	 */
+	public static void main(String[] args) {
+
+		int nsubs = (args.length > 0 ? Integer.parseInt(args[0]) : 2000);
+		int ntopics = (args.length > 1 ? Integer.parseInt(args[1]) : 5);
+		int nlookups = (args.length > 2 ? Integer.parseInt(args[2]) : 100000);
+
+		String[] areas = new String[] { "alerts.weather", "alerts.axis", "alerts.network", "ops.mode", "tasks.done" };
+		Random random = new Random(1234L);
+
+		EventRegistry.getInstance();
+		Map subscriptions = new HashMap();
+		for (int i = 0; i < nsubs; i++) {
+			EventSubscriber s = new TestSubscriber("S" + i);
+			List topics = new Vector();
+			for (int j = 0; j < ntopics; j++) {
+				String topic = areas[random.nextInt(areas.length)] + "." + random.nextInt(50);
+				EventRegistry.subscribe(topic, s);
+				topics.add(topic);
+			}
+			subscriptions.put(s, topics);
+		}
+
+		String[] probes = new String[200];
+		for (int i = 0; i < probes.length; i++)
+			probes[i] = areas[random.nextInt(areas.length)] + "." + random.nextInt(50) + ".detail";
+
+		// warm up
+		for (int i = 0; i < nlookups / 10; i++) {
+			EventRegistry.findSubscribers(probes[i % probes.length]);
+			linearScan(subscriptions, probes[i % probes.length]);
+		}
+
+		long t0 = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < nlookups; i++)
+			found += EventRegistry.findSubscribers(probes[i % probes.length]).size();
+		long indexed = System.nanoTime() - t0;
+
+		t0 = System.nanoTime();
+		long scanned = 0;
+		for (int i = 0; i < nlookups; i++)
+			scanned += linearScan(subscriptions, probes[i % probes.length]).size();
+		long linear = System.nanoTime() - t0;
+
+		System.err.println("Subscriptions: " + (nsubs * ntopics) + " Lookups: " + nlookups);
+		System.err.println("Indexed: " + (indexed / nlookups) + " ns/lookup, matched " + found);
+		System.err.println("Linear:  " + (linear / nlookups) + " ns/lookup, matched " + scanned);
+
+	}
+
+	/** The pre-index lookup: scan every subscriber and topic. */
+	private static List linearScan(Map subscriptions, String topic) {
+		List results = new Vector();
+		Iterator it = subscriptions.keySet().iterator();
+		while (it.hasNext()) {
+			EventSubscriber subscriber = (EventSubscriber) it.next();
+			Iterator topics = ((List) subscriptions.get(subscriber)).iterator();
+			while (topics.hasNext()) {
+				if (topic.startsWith((String) topics.next())) {
+					results.add(subscriber);
+					break;
+				}
+			}
+		}
+		return results;
+	}
+
+	/** A subscriber which ignores its events, identified by name only. */
+	private static class TestSubscriber implements EventSubscriber {
+
+		private String id;
+
+		TestSubscriber(String id) {
+			this.id = id;
+		}
+
+		public void notifyEvent(String eventId, Object data) {
+		}
+
+		public String getSubscriberId() {
+			return id;
+		}
+	}
+
+}
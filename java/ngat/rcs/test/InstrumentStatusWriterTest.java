@@ -0,0 +1,280 @@
+/**
+ *
+ */
+package ngat.rcs.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import ngat.icm.InstrumentDescriptor;
+import ngat.icm.InstrumentStatus;
+import ngat.rcs.telemetry.InstrumentStatusWriter;
+
+/**
+ * Checks InstrumentStatusWriter against a fake JDBC connection which counts
+ * the rows it is given, so no database is needed: batching, referenced
+ * values, reporting a failed batch through takeFailure() and dropping the
+ * oldest status when the queue is full. Exits non-zero if any check fails.
+ * <p>
+ * java ngat.rcs.test.InstrumentStatusWriterTest
+ *
+ * @author eng
+ *
+ */
+public class InstrumentStatusWriterTest {
+
+	/** Number of failed checks. */
+	private static int failures;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		try {
+			testBatches();
+			testFailure();
+			testOverflow();
+		} catch (Exception e) {
+			e.printStackTrace();
+			failures++;
+		}
+
+		if (failures > 0) {
+			System.err.println("InstrumentStatusWriterTest: " + failures + " check(s) FAILED");
+			System.exit(1);
+		}
+		System.err.println("InstrumentStatusWriterTest: all checks passed");
+	}
+
+	/** Statuses are written in batches, with one instref row per temperature. */
+	private static void testBatches() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		InstrumentStatusWriter writer = new InstrumentStatusWriter(db.connection(), 1000, 10);
+		for (int i = 0; i < 25; i++)
+			writer.offer(createStatus(i % 2 == 0 ? "IO:O" : "RINGO3", i));
+		writer.start();
+		drain(writer);
+
+		check("batches: written", writer.getWrittenCount() == 25);
+		check("batches: failed", writer.getFailedCount() == 0);
+		check("batches: instrument rows", db.rows == 25);
+		// IO:O has one temperature, RINGO3 three.
+		check("batches: instref rows", db.refRows == 13 * 1 + 12 * 3);
+		check("batches: commits", db.commits == 3);
+		check("batches: no failure reported", writer.takeFailure() == null);
+	}
+
+	/** A failed batch is rolled back and reported once. */
+	private static void testFailure() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		db.fail = true;
+		InstrumentStatusWriter writer = new InstrumentStatusWriter(db.connection(), 1000, 10);
+		writer.start();
+		writer.offer(createStatus("IO:O", 0));
+		drain(writer);
+
+		check("failure: failed", writer.getFailedCount() == 1);
+		check("failure: written", writer.getWrittenCount() == 0);
+		check("failure: rolled back", db.rollbacks == 1);
+		check("failure: reported", writer.takeFailure() instanceof SQLException);
+		check("failure: reported once", writer.takeFailure() == null);
+
+		// a later good batch clears an uncollected failure.
+		writer.offer(createStatus("IO:O", 1));
+		drain(writer);
+		db.fail = false;
+		writer.offer(createStatus("IO:O", 2));
+		drain(writer);
+		check("failure: recovered", writer.getWrittenCount() == 1);
+		check("failure: cleared", writer.takeFailure() == null);
+	}
+
+	/** A full queue drops its oldest status. */
+	private static void testOverflow() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		InstrumentStatusWriter writer = new InstrumentStatusWriter(db.connection(), 5, 100);
+		for (int i = 0; i < 8; i++)
+			writer.offer(createStatus("RISE", i));
+		check("overflow: dropped", writer.getDroppedCount() == 3);
+		check("overflow: backlog", writer.getBacklog() == 5);
+		writer.start();
+		drain(writer);
+		check("overflow: written", writer.getWrittenCount() == 5);
+		check("overflow: oldest dropped", db.firstTime == 3 / 1000.0);
+	}
+
+	private static InstrumentStatus createStatus(String name, long time) {
+		TestStatus status = new TestStatus();
+		status.setStatusTimeStamp(time);
+		status.setInstrument(new InstrumentDescriptor(name));
+		status.setOnline(true);
+		status.setFunctional(true);
+		status.map.put("Temperature", new Double(-100.0));
+		status.map.put("Temperature.0.0", new Double(-20.0));
+		status.map.put("Temperature.1.0", new Double(-21.0));
+		status.map.put("Temperature.1.1", new Double(-22.0));
+		return status;
+	}
+
+	/** An InstrumentStatus with a fixed set of temperatures. */
+	private static class TestStatus extends InstrumentStatus {
+
+		Map map = new HashMap();
+
+		public Map getStatus() {
+			return map;
+		}
+	}
+
+	/** Wait for the writer to empty its queue and finish the last batch. */
+	private static void drain(InstrumentStatusWriter writer) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000L;
+		long flushes = -1;
+		while (System.currentTimeMillis() < deadline) {
+			if (writer.getBacklog() == 0 && writer.getFlushCount() == flushes)
+				return;
+			flushes = writer.getFlushCount();
+			Thread.sleep(100L);
+		}
+		throw new Exception("Writer did not drain");
+	}
+
+	private static void check(String name, boolean ok) {
+		if (!ok) {
+			System.err.println("FAIL: " + name);
+			failures++;
+		}
+	}
+
+	/**
+	 * Stands in for the telemetry database, counting the rows committed to
+	 * each table.
+	 */
+	private static class FakeDatabase implements InvocationHandler {
+
+		/** True to fail every executeBatch(). */
+		volatile boolean fail;
+
+		/** Rows committed. */
+		volatile int rows;
+
+		volatile int refRows;
+
+		volatile int commits;
+
+		volatile int rollbacks;
+
+		/** Time of the first instrument row committed. */
+		volatile double firstTime = -1.0;
+
+		/** Rows added since the last commit. */
+		private int pendingRows;
+
+		private int pendingRefRows;
+
+		private double pendingFirstTime = -1.0;
+
+		Connection connection() {
+			return (Connection) proxy(Connection.class, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("prepareStatement"))
+				return proxy(PreparedStatement.class, new Statement(((String) args[0]).indexOf("instref") >= 0));
+			if (name.equals("getAutoCommit"))
+				return Boolean.TRUE;
+			if (name.equals("commit")) {
+				commits++;
+				rows += pendingRows;
+				refRows += pendingRefRows;
+				if (firstTime < 0.0)
+					firstTime = pendingFirstTime;
+				discard();
+			} else if (name.equals("rollback")) {
+				rollbacks++;
+				discard();
+			}
+			return null;
+		}
+
+		private void discard() {
+			pendingRows = 0;
+			pendingRefRows = 0;
+			pendingFirstTime = -1.0;
+		}
+
+		/** A prepared insert into one of the tables. */
+		private class Statement implements InvocationHandler {
+
+			private boolean ref;
+
+			private int batched;
+
+			private int generated;
+
+			Statement(boolean ref) {
+				this.ref = ref;
+			}
+
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("setDouble") && !ref && ((Integer) args[0]).intValue() == 1 && pendingFirstTime < 0.0
+						&& batched == 0)
+					pendingFirstTime = ((Double) args[1]).doubleValue();
+				else if (name.equals("addBatch"))
+					batched++;
+				else if (name.equals("executeBatch")) {
+					if (fail)
+						throw new SQLException("Simulated failure");
+					if (ref)
+						pendingRefRows += batched;
+					else {
+						pendingRows += batched;
+						generated = batched;
+					}
+					int[] counts = new int[batched];
+					batched = 0;
+					return counts;
+				} else if (name.equals("getGeneratedKeys"))
+					return proxy(ResultSet.class, new Keys(generated));
+				return null;
+			}
+		}
+
+		/** Generated keys 1..n. */
+		private class Keys implements InvocationHandler {
+
+			private int count;
+
+			private int next;
+
+			Keys(int count) {
+				this.count = count;
+			}
+
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("next"))
+					return Boolean.valueOf(next++ < count);
+				if (name.equals("getInt"))
+					return new Integer(next);
+				return null;
+			}
+		}
+	}
+
+	private static Object proxy(Class type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(InstrumentStatusWriterTest.class.getClassLoader(), new Class[] { type },
+				handler);
+	}
+
+}
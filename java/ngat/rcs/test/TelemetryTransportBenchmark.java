@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package ngat.rcs.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import ngat.message.GUI_RCS.LogInfo;
+import ngat.rcs.control.BatchedTelemetrySender;
+import ngat.rcs.control.TelemetryReceiver;
+
+/**
+ * Benchmark for the batched telemetry transport. Sends log items through a
+ * BatchedTelemetrySender to a TelemetryReceiver on the local host and reports
+ * items per second and bytes per item, with the size of the same item sent
+ * one per datagram using plain serialization for comparison.
+ *
+ * Usage: TelemetryTransportBenchmark [items] [port] [datagram-size]
+ *
+ */
+public class TelemetryTransportBenchmark {
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		int nitems = (args.length > 0 ? Integer.parseInt(args[0]) : 100000);
+		int port = (args.length > 1 ? Integer.parseInt(args[1]) : 7777);
+		int size = (args.length > 2 ? Integer.parseInt(args[2]) : BatchedTelemetrySender.DEFAULT_MAX_DATAGRAM_SIZE);
+
+		try {
+			TelemetryReceiver receiver = new TelemetryReceiver(port, null);
+			receiver.start();
+
+			BatchedTelemetrySender sender = new BatchedTelemetrySender(null, "localhost", port, size,
+					BatchedTelemetrySender.DEFAULT_MAX_DELAY, nitems);
+			sender.start();
+
+			long t0 = System.currentTimeMillis();
+			for (int i = 0; i < nitems; i++) {
+				sender.publish("LOG", new LogInfo(System.currentTimeMillis(), "BENCH:" + (i % 10), "Sample message "
+						+ i));
+				// let the sender keep up rather than overflow its queue
+				if (i % 1000 == 999)
+					Thread.sleep(1L);
+			}
+			sender.close();
+
+			// wait for the receiver to go quiet
+			long last = -1L;
+			while (receiver.getItemsReceived() != last) {
+				last = receiver.getItemsReceived();
+				Thread.sleep(500L);
+			}
+			long elapsed = System.currentTimeMillis() - t0 - 500L;
+			receiver.close();
+
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(buffer);
+			oos.writeObject(new LogInfo(System.currentTimeMillis(), "BENCH:0", "Sample message 0"));
+			oos.close();
+
+			long received = receiver.getItemsReceived();
+			System.err.println("Sent: " + sender.getItemsSent() + " items in " + sender.getDatagramsSent()
+					+ " datagrams, dropped " + sender.getItemsDropped() + ", failed " + sender.getItemsFailed());
+			System.err.println("Received: " + received + " items in " + receiver.getDatagramsReceived()
+					+ " datagrams, lost " + receiver.getDatagramsLost() + " datagrams");
+			System.err.println("Rate: " + (elapsed > 0 ? (1000L * received / elapsed) : 0) + " items/s");
+			System.err.println("Batched: " + (received > 0 ? receiver.getBytesReceived() / received : 0)
+					+ " bytes/item, plain serialization: " + buffer.size() + " bytes/item");
+
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+	}
+
+}
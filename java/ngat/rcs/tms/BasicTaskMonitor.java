@@ -5,8 +5,13 @@ package ngat.rcs.tms;
 
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Vector;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import ngat.rcs.tms.events.TaskAbortedEvent;
 import ngat.rcs.tms.events.TaskCancelledEvent;
@@ -17,31 +22,64 @@ import ngat.rcs.tms.events.TaskLifecycleEvent;
 import ngat.rcs.tms.events.TaskStartedEvent;
 
 /**
+ * Distributes task lifecycle events to registered listeners. Each listener has
+ * its own bounded delivery queue and sender thread so a slow or hung listener
+ * only delays its own events. When a listener's queue is full the oldest
+ * queued event is dropped and counted. Listeners which implement
+ * TaskLifecycleBatchListener receive any backlog in a single call.
+ * 
  * @author eng
  * 
  */
 public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor {
 
-	private List<TaskLifecycleListener> liveListeners;
-	private List<TaskLifecycleListener> deadListeners;
-	private List<TaskLifecycleListener> newListeners;
+	/** Default maximum number of events queued for each listener. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
 
-	private List<TaskLifecycleEvent> events;
+	/** Default maximum number of events delivered in one batch. */
+	public static final int DEFAULT_MAX_BATCH = 50;
+
+	/** Delivery feeds, one per registered listener. */
+	private Map<TaskLifecycleListener, ListenerFeed> feeds;
+
+	/** Maximum number of events queued for each listener. */
+	private int queueCapacity;
+
+	/** Maximum number of events delivered in one batch. */
+	private int maxBatch;
+
+	/** True once the despatchers have been started. */
+	private volatile boolean started;
+
+	/** Counts events published. */
+	private AtomicLong publishedCount;
+
+	/** Counts events dropped from listeners' queues (including removed feeds). */
+	private volatile long droppedCount;
+
+	/** Counts events delivered to listeners (including removed feeds). */
+	private volatile long deliveredCount;
 
-	private EventDespatcher despatcher;
-	
 	/**
 	 * @throws RemoteException
 	 */
 	public BasicTaskMonitor() throws RemoteException {
-		super();
-		liveListeners = new Vector<TaskLifecycleListener>();
-		deadListeners = new Vector<TaskLifecycleListener>();
-		newListeners = new Vector<TaskLifecycleListener>();
+		this(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+	}
 
-		events = new Vector<TaskLifecycleEvent>();
-		
-		despatcher = new EventDespatcher();
+	/**
+	 * @param queueCapacity
+	 *            Maximum number of events queued for each listener.
+	 * @param maxBatch
+	 *            Maximum number of events delivered in one batch.
+	 * @throws RemoteException
+	 */
+	public BasicTaskMonitor(int queueCapacity, int maxBatch) throws RemoteException {
+		super();
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.maxBatch = Math.max(1, maxBatch);
+		feeds = new ConcurrentHashMap<TaskLifecycleListener, ListenerFeed>();
+		publishedCount = new AtomicLong();
 	}
 
 	/*
@@ -51,7 +89,14 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * TaskLifecycleListener)
 	 */
 	public void addTaskEventListener(TaskLifecycleListener l) throws RemoteException {
-		newListeners.add(l);
+		synchronized (feeds) {
+			if (feeds.containsKey(l))
+				return;
+			ListenerFeed feed = new ListenerFeed(l);
+			feeds.put(l, feed);
+			if (started)
+				feed.start();
+		}
 		//		System.err.println("BTM::addListener: " + l);
 	}
 
@@ -62,7 +107,12 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * TaskLifecycleListener)
 	 */
 	public void removeTaskEventListener(TaskLifecycleListener l) throws RemoteException {
-		deadListeners.add(l);
+		ListenerFeed feed = null;
+		synchronized (feeds) {
+			feed = feeds.remove(l);
+		}
+		if (feed != null)
+			feed.close();
 	}
 
 	/**
@@ -83,7 +133,7 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * @throws RemoteException
 	 */
 	public void notifyListenersTaskInitialized(TaskDescriptor t) throws RemoteException {
-		events.add(new TaskInitializedEvent(System.currentTimeMillis(), t));
+		publish(new TaskInitializedEvent(System.currentTimeMillis(), t));
 	}
 
 	/**
@@ -93,7 +143,7 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * @throws RemoteException
 	 */
 	public void notifyListenersTaskStarted(TaskDescriptor t) throws RemoteException {
-		events.add(new TaskStartedEvent(System.currentTimeMillis(), t));
+		publish(new TaskStartedEvent(System.currentTimeMillis(), t));
 	}
 
 	/**
@@ -103,7 +153,7 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * @throws RemoteException
 	 */
 	public void notifyListenersTaskCompleted(TaskDescriptor t) throws RemoteException {
-		events.add(new TaskCompletedEvent(System.currentTimeMillis(), t));
+		publish(new TaskCompletedEvent(System.currentTimeMillis(), t));
 	}
 
 	/**
@@ -114,7 +164,7 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * @throws RemoteException
 	 */
 	public void notifyListenersTaskFailed(TaskDescriptor t, ErrorIndicator error) throws RemoteException {
-		events.add(new TaskFailedEvent(System.currentTimeMillis(), t, error));
+		publish(new TaskFailedEvent(System.currentTimeMillis(), t, error));
 	}
 
 	/**
@@ -125,7 +175,7 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * @throws RemoteException
 	 */
 	public void notifyListenersTaskAborted(TaskDescriptor t, ErrorIndicator error) throws RemoteException {
-		events.add(new TaskAbortedEvent(System.currentTimeMillis(), t, error));
+		publish(new TaskAbortedEvent(System.currentTimeMillis(), t, error));
 	}
 	
 	/**
@@ -135,86 +185,198 @@ public class BasicTaskMonitor extends UnicastRemoteObject implements TaskMonitor
 	 * @throws RemoteException
 	 */
 	public void notifyListenersTaskCancelled(TaskDescriptor t) throws RemoteException {
-		events.add(new TaskCancelledEvent(System.currentTimeMillis(), t));	
+		publish(new TaskCancelledEvent(System.currentTimeMillis(), t));	
 	}
 	
+	/**
+	 * Start delivering events. Events published before this call are queued
+	 * for delivery.
+	 */
 	public void startEventDespatcher() {
-		if (! despatcher.isAlive())
-		despatcher.start();
+		synchronized (feeds) {
+			if (started)
+				return;
+			started = true;
+			Iterator<ListenerFeed> it = feeds.values().iterator();
+			while (it.hasNext())
+				it.next().start();
+		}
 	}
-	
+
+	/** @return The number of registered listeners. */
+	public int getListenerCount() {
+		return feeds.size();
+	}
+
+	/** @return The number of events published. */
+	public long getPublishedCount() {
+		return publishedCount.get();
+	}
+
+	/** @return The number of events delivered, summed over all listeners. */
+	public long getDeliveredCount() {
+		long count = deliveredCount;
+		Iterator<ListenerFeed> it = feeds.values().iterator();
+		while (it.hasNext())
+			count += it.next().delivered;
+		return count;
+	}
+
+	/**
+	 * @return The number of events dropped because a listener's queue was
+	 *         full, summed over all listeners.
+	 */
+	public long getDroppedCount() {
+		long count = droppedCount;
+		Iterator<ListenerFeed> it = feeds.values().iterator();
+		while (it.hasNext())
+			count += it.next().dropped;
+		return count;
+	}
+
+	/** @return The largest number of events currently queued for any listener. */
+	public int getMaxQueueDepth() {
+		int depth = 0;
+		Iterator<ListenerFeed> it = feeds.values().iterator();
+		while (it.hasNext())
+			depth = Math.max(depth, it.next().getQueueDepth());
+		return depth;
+	}
+
+	/** Queue an event for delivery to each registered listener. */
+	private void publish(TaskLifecycleEvent event) {
+		publishedCount.incrementAndGet();
+		Iterator<ListenerFeed> it = feeds.values().iterator();
+		while (it.hasNext())
+			it.next().offer(event);
+	}
+
+	/** Called by a feed whose listener has failed. */
+	private void feedFailed(ListenerFeed feed) {
+		synchronized (feeds) {
+			if (feeds.get(feed.listener) == feed)
+				feeds.remove(feed.listener);
+		}
+	}
+
 	/**
-	 * A thread to process the task events.
+	 * Delivers events to a single listener from a bounded queue.
 	 * 
 	 * @author eng
 	 * 
 	 */
-	private class EventDespatcher extends Thread {
+	private class ListenerFeed implements Runnable {
 
-		@Override
-		public void run() {
+		/** The listener. */
+		private TaskLifecycleListener listener;
 
-			while (true) {
+		/** Events waiting for delivery. */
+		private LinkedList<TaskLifecycleEvent> queue;
 
-				// despatch any events to all known statusListeners
-			    int ls = events.size();
-				for (int j = 0; j < events.size(); j++) {
-				    TaskLifecycleEvent e = events.get(j);
+		/** Sender thread. */
+		private Thread sender;
 
-				    //TaskLifecycleEvent e = events.remove(j);
-					TaskDescriptor t = e.getTask();
-					//		System.err.println("BTM:Despatcher:: Despatch event: " + e);
+		/** True once the feed has been closed. */
+		private volatile boolean closed;
 
-					// check the pending statusListeners list and add any new chaps
-					//System.err.println("BTM:Despatcher::Checking for new statusListeners...");
-					for (int i = 0; i < newListeners.size(); i++) {
-						TaskLifecycleListener l = newListeners.remove(i);
-						if (!liveListeners.contains(l)) {
-							liveListeners.add(l);
-							//	System.err.println("BTM:Despatcher::addListener: " + l);
-						}
-					}
-					// check the bad statusListeners list and take em out
-					//System.err.println("BTM:Despatcher::Checking for dead statusListeners...");
-					for (int i = 0; i < deadListeners.size(); i++) {
-						TaskLifecycleListener l = deadListeners.remove(i);
-						if (liveListeners.contains(l)) {
-							liveListeners.remove(l);
-							//System.err.println("BTM:Despatcher::removeListener: " + l);
-						}
-					}
+		/** Counts events delivered to the listener. */
+		private volatile long delivered;
 
-					//System.err.println("BTM:Despatcher::notifying upto: " + liveListeners.size() + " statusListeners");
+		/** Counts events dropped because the queue was full. */
+		private volatile long dropped;
 
-					TaskLifecycleListener l = null;
-					for (int i = 0; i < liveListeners.size(); i++) {
-						l = liveListeners.get(i);
+		ListenerFeed(TaskLifecycleListener listener) {
+			this.listener = listener;
+			queue = new LinkedList<TaskLifecycleEvent>();
+			sender = new Thread(this, "TaskMonitorFeed:" + listener);
+			sender.setDaemon(true);
+		}
 
-						try {
-							l.taskLifecycleEventNotification(e);
-						} catch (Exception ex) {
-							ex.printStackTrace();
-							//	System.err.println("BTM:Despatcher::record failed handler: " + l);
-							deadListeners.add(l);
-						}
-					} // next listener
+		void start() {
+			sender.start();
+		}
 
-				} // next event
+		/** Queue an event, dropping the oldest queued event if full. */
+		void offer(TaskLifecycleEvent event) {
+			synchronized (queue) {
+				if (closed)
+					return;
+				if (queue.size() >= queueCapacity) {
+					queue.removeFirst();
+					dropped++;
+				}
+				queue.addLast(event);
+				queue.notifyAll();
+			}
+		}
 
-				// remove the items from start of list
-				events.subList(0, ls).clear();
+		int getQueueDepth() {
+			synchronized (queue) {
+				return queue.size();
+			}
+		}
 
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException ix) {
+		/** Stop delivery and discard any queued events. */
+		void close() {
+			synchronized (queue) {
+				if (closed)
+					return;
+				closed = true;
+				dropped += queue.size();
+				queue.clear();
+				queue.notifyAll();
+			}
+			synchronized (BasicTaskMonitor.this) {
+				droppedCount += dropped;
+				deliveredCount += delivered;
+			}
+		}
+
+		public void run() {
+			List<TaskLifecycleEvent> batch = new ArrayList<TaskLifecycleEvent>(maxBatch);
+			while (!closed) {
+				batch.clear();
+				synchronized (queue) {
+					while (queue.isEmpty() && !closed) {
+						try {
+							queue.wait();
+						} catch (InterruptedException ix) {
+						}
+					}
+					while (!queue.isEmpty() && batch.size() < maxBatch)
+						batch.add(queue.removeFirst());
 				}
+				if (batch.isEmpty())
+					continue;
 
-			} // repeat forever
+				//		System.err.println("BTM:Despatcher:: Despatch " + batch.size() + " events to: " + listener);
+				int sent = 0;
+				try {
+					if (batch.size() > 1 && listener instanceof TaskLifecycleBatchListener) {
+						((TaskLifecycleBatchListener) listener)
+								.taskLifecycleEventsNotification(new ArrayList<TaskLifecycleEvent>(batch));
+						sent = batch.size();
+					} else {
+						while (sent < batch.size()) {
+							listener.taskLifecycleEventNotification(batch.get(sent));
+							sent++;
+						}
+					}
+					delivered += sent;
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					//	System.err.println("BTM:Despatcher::record failed handler: " + listener);
+					delivered += sent;
+					synchronized (queue) {
+						dropped += batch.size() - sent;
+					}
+					feedFailed(this);
+					close();
+				}
+			} // repeat until closed
 
 		} // run()
 
-	} // [despatcher]
-
-	
+	} // [feed]
 
 }
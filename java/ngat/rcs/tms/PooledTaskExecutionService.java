@@ -0,0 +1,204 @@
+/**
+ * 
+ */
+package ngat.rcs.tms;
+
+import java.util.*;
+
+import ngat.util.logging.*;
+
+/**
+ * A TaskExecutionService which reuses TaskWorker threads. A Task is handed to
+ * an idle worker if one is available, otherwise a new worker is created. When
+ * its Task completes a worker waits up to keepAlive for another one and is
+ * retained if fewer than maxIdle workers are already idle.
+ * <p>
+ * If maxThreads is set, Tasks submitted while that many workers are busy are
+ * queued until one becomes free. Managers hold their worker while waiting for
+ * their subtasks so maxThreads must comfortably exceed the depth of the task
+ * tree - the default (0) is unbounded.
+ * <p>
+ * Tasks must signal their worker with TaskWorker.interruptTask() rather than
+ * interrupt(), so that a late signal for a finished Task is discarded rather
+ * than delivered to the next Task the worker runs.
+ * 
+ * @author eng
+ * 
+ */
+public class PooledTaskExecutionService implements TaskExecutionService {
+
+	public static final String CLASS = "PooledTaskExecutionService";
+
+	/** Default number of idle workers to retain. */
+	public static final int DEFAULT_MAX_IDLE = 20;
+
+	/** Default time an idle worker waits for a new Task (millis). */
+	public static final long DEFAULT_KEEP_ALIVE = 60000L;
+
+	/** Maximum number of idle workers retained. */
+	private int maxIdle;
+
+	/** Time an idle worker waits for a new Task before exiting (millis). */
+	private long keepAlive;
+
+	/** Maximum number of workers, 0 for unbounded. */
+	private int maxThreads;
+
+	/** Tasks waiting for a worker. */
+	private LinkedList queue;
+
+	/** Number of worker threads alive. */
+	private int threadCount;
+
+	/** Number of workers waiting for a Task. */
+	private int idleCount;
+
+	/** Number of workers created. */
+	private long createdCount;
+
+	/** Number of Tasks started. */
+	private long executedCount;
+
+	private Logger taskLog;
+
+	/** Create a PooledTaskExecutionService with default settings. */
+	public PooledTaskExecutionService() {
+		this(DEFAULT_MAX_IDLE, DEFAULT_KEEP_ALIVE, 0);
+	}
+
+	/**
+	 * @param maxIdle
+	 *            Maximum number of idle workers retained.
+	 * @param keepAlive
+	 *            Time an idle worker waits for a new Task (millis).
+	 * @param maxThreads
+	 *            Maximum number of workers, 0 for unbounded.
+	 */
+	public PooledTaskExecutionService(int maxIdle, long keepAlive, int maxThreads) {
+		this.maxIdle = maxIdle;
+		this.keepAlive = keepAlive;
+		this.maxThreads = maxThreads;
+		queue = new LinkedList();
+		taskLog = LogManager.getLogger("TASK");
+	}
+
+	public void execute(Task task) {
+		boolean create = false;
+		synchronized (queue) {
+			queue.addLast(task);
+			executedCount++;
+			if (idleCount >= queue.size())
+				queue.notify();
+			else if (maxThreads <= 0 || threadCount < maxThreads) {
+				threadCount++;
+				createdCount++;
+				create = true;
+			}
+		}
+		if (create)
+			new PooledWorker().beginJob();
+	}
+
+	public int getQueuedCount() {
+		synchronized (queue) {
+			// tasks which have an idle worker about to take them are not queued
+			return Math.max(0, queue.size() - idleCount);
+		}
+	}
+
+	public int getThreadCount() {
+		synchronized (queue) {
+			return threadCount;
+		}
+	}
+
+	/** @return The number of workers waiting for a Task. */
+	public int getIdleCount() {
+		synchronized (queue) {
+			return idleCount;
+		}
+	}
+
+	/** @return The number of worker threads created so far. */
+	public long getCreatedCount() {
+		synchronized (queue) {
+			return createdCount;
+		}
+	}
+
+	/** @return The number of Tasks started so far. */
+	public long getExecutedCount() {
+		synchronized (queue) {
+			return executedCount;
+		}
+	}
+
+	/**
+	 * Wait for the next Task.
+	 * 
+	 * @return The next Task or null if none arrived within the keep-alive or
+	 *         there are already enough idle workers - the worker should then
+	 *         exit.
+	 */
+	private Task nextTask() {
+		synchronized (queue) {
+			if (queue.isEmpty()) {
+				if (idleCount >= maxIdle) {
+					threadCount--;
+					return null;
+				}
+				idleCount++;
+				long until = System.currentTimeMillis() + keepAlive;
+				try {
+					long wait = keepAlive;
+					while (queue.isEmpty() && wait > 0L) {
+						queue.wait(wait);
+						wait = until - System.currentTimeMillis();
+					}
+				} catch (InterruptedException ix) {
+					// not expected, Task interrupts are dropped between Tasks
+				} finally {
+					idleCount--;
+				}
+				if (queue.isEmpty()) {
+					threadCount--;
+					return null;
+				}
+			}
+			return (Task) queue.removeFirst();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PooledTaskExecutionService: maxIdle=" + maxIdle + ", keepAlive=" + keepAlive + ", maxThreads="
+				+ (maxThreads <= 0 ? "unbounded" : "" + maxThreads);
+	}
+
+	/** A TaskWorker which runs Tasks from the queue until it is no longer needed. */
+	private class PooledWorker extends TaskWorker {
+
+		PooledWorker() {
+			super(null, true);
+		}
+
+		@Override
+		protected void mainTask() {
+			task = nextTask();
+			if (task == null) {
+				terminate();
+				return;
+			}
+			try {
+				super.mainTask();
+			} catch (Throwable t) {
+				taskLog.log(1, CLASS, getName(), "main", "Worker " + getName() + " Task " + task.getName()
+						+ " threw: " + t);
+			} finally {
+				task = null;
+			}
+		}
+
+	}
+
+}
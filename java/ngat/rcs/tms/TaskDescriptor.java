@@ -11,6 +11,10 @@ import java.io.Serializable;
  */
 public class TaskDescriptor implements Serializable {
 
+	/** Fixed at the value computed for the class before idleTime was added, so
+	 * that peers either side of that change can still exchange descriptors.*/
+	private static final long serialVersionUID = 754949142891628724L;
+
 	private long id;
 	
 	private String name;
@@ -23,6 +27,9 @@ public class TaskDescriptor implements Serializable {
 
     private boolean isModal;
 
+    /** For managers, time spent with no subtask running (millis).*/
+    private long idleTime;
+
 	/** A unique UID for each task.*/
 	private static long uid = 0;
 	
@@ -121,6 +128,20 @@ public class TaskDescriptor implements Serializable {
         this.isModal = isModal;
     }
 
+    /**
+     * @return the time a manager spent with no subtask running (millis)
+     */
+    public long getIdleTime() {
+	return idleTime;
+    }
+
+    /**
+     * @param idleTime the time a manager spent with no subtask running (millis)
+     */
+    public void setIdleTime(long idleTime) {
+	this.idleTime = idleTime;
+    }
+
 
 
 	@Override
@@ -130,7 +151,8 @@ public class TaskDescriptor implements Serializable {
 		name+
 		" ["+uid+"] -> "+
 		typeName+
-		(description != null ? "("+description+")":"");
+		(description != null ? "("+description+")":"")+
+		(idleTime > 0L ? " idle="+idleTime+"ms":"");
 	}
     
 }
@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package ngat.rcs.tms;
+
+/**
+ * Starts Tasks on TaskWorker threads. Implementations decide whether each
+ * Task gets a new thread or an existing one is reused. Whichever is used the
+ * Task runs on a TaskWorker so that Task.getWorker() continues to work. Tasks
+ * wake their worker with TaskWorker.interruptTask(), which only interrupts the
+ * worker while that Task is still running on it.
+ * 
+ * @author eng
+ * 
+ */
+public interface TaskExecutionService {
+
+	/**
+	 * Start the (initialized) Task on a worker - calls perform() on the worker.
+	 * 
+	 * @param task
+	 *            The Task to execute.
+	 */
+	public void execute(Task task);
+
+	/** @return The number of Tasks waiting for a worker to become free. */
+	public int getQueuedCount();
+
+	/** @return The number of worker threads currently alive (busy or idle). */
+	public int getThreadCount();
+
+}
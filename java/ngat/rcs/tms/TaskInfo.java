@@ -119,9 +119,19 @@ public class TaskInfo implements Serializable {
 	/** Counts number of attempts to run. */
 	protected int runCount;
 
+	/** The TaskList which holds this TaskInfo - informed of state changes. */
+	protected transient TaskList owner;
+
+	/** Number of triggers which are not yet DONE or SKIPPED - kept by the owner. */
+	protected transient int unmetTriggers;
+
 	/** Sets the state of the Task. */
 	public void setState(int state) {
-		this.state = state;
+		TaskList list = owner;
+		if (list != null)
+			list.setState(this, state);
+		else
+			this.state = state;
 	}
 
 	/** Returns the state of the Task. */
@@ -0,0 +1,30 @@
+/**
+ *
+ */
+package ngat.rcs.tms;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+import ngat.rcs.tms.events.TaskLifecycleEvent;
+
+/**
+ * A TaskLifecycleListener which can accept several events in a single remote
+ * call. The TaskMonitor delivers any backlog of events to such listeners in
+ * batches rather than one call per event.
+ *
+ * @author eng
+ *
+ */
+public interface TaskLifecycleBatchListener extends TaskLifecycleListener {
+
+	/**
+	 * Notification of a batch of events, in the order they occurred.
+	 *
+	 * @param events
+	 *            The events.
+	 * @throws RemoteException
+	 */
+	public void taskLifecycleEventsNotification(List<TaskLifecycleEvent> events) throws RemoteException;
+
+}
@@ -22,13 +22,19 @@ package ngat.rcs.tms;
 import java.util.*;
 /**Class which is capable of delivering information about the current states 
  * of the Tasks managed by a TaskManager.
- * Note: As a rule when making calls to the actual implemented methods it 
- * would generally be wise to make a synchronization lock (locks) available
- * in order to avoid concurrent update problems. As a minimum the TaskList
- * implementation itself should be locked prior to making concurrent access.
+ * The methods which change or read the links, counters and ready set are
+ * synchronized on the TaskList, as are state changes made through a
+ * TaskInfo it holds, so they may be called from the abort and fail threads
+ * as well as the manager's own thread.
  * Tasks should be added to the Tasklist using the addTask(Task) method then
  * linked into the sequential / parallel dependancy using the methods
  * sequence(Task, Task), removeTrigger(Task, Task).
+ * <p>
+ * The links are held as a graph with a count of unfinished triggers per
+ * Task. State changes made via TaskInfo.setState() update the counts so the
+ * set of Tasks ready to run and the number finished are always available
+ * without walking the list. Links which would form a cycle are rejected
+ * when they are made.
  *
  * <dl>
  * <dt><b>RCS:</b>
@@ -46,15 +52,36 @@ public class TaskList {
 
     /** Internal Mapping.*/
     protected Map map;
+
+    /** Maps each Task to the List of Tasks it triggers.*/
+    protected Map successors;
+
+    /** Tasks which are PENDING with all their triggers DONE or SKIPPED.*/
+    protected Set ready;
+
+    /** Number of Tasks which have finished (DONE, FAILED, ABORTED, SKIPPED, CANCELLED).*/
+    protected int finishedCount;
+
+    /** Number of Tasks which are RUNNING or ABORTING.*/
+    protected int runningCount;
     
     /** Create a TaskList.*/
     public TaskList() {
-	map = new HashMap();
+	map        = new LinkedHashMap();
+	successors = new HashMap();
+	ready      = new LinkedHashSet();
     }
     
     /** Clear the TaskList of all Tasks.*/
-    public void clear() {
+    public synchronized void clear() {
+	Iterator it = map.values().iterator();
+	while (it.hasNext())
+	    ((TaskInfo)it.next()).owner = null;
 	map.clear();
+	successors.clear();
+	ready.clear();
+	finishedCount = 0;
+	runningCount  = 0;
     }
     
     /** Add a task to the list and set its info-state to PENDING.*/
@@ -62,22 +89,40 @@ public class TaskList {
 	addTask(task, TaskInfo.PENDING);
     }
     
-    /** Add a task to the list and set its info-state.*/
-    public void addTask(Task task, int initState) {
-	map.put(task, new TaskInfo(task, initState));
+    /** Add a task to the list and set its info-state. If the task is
+     * already in the list it is replaced and loses its own triggers but
+     * remains a trigger for the Tasks which depend on it, whose counts of
+     * unfinished triggers are updated for its new state.*/
+    public synchronized void addTask(Task task, int initState) {
+	TaskInfo old = (TaskInfo)map.get(task);
+	TaskInfo tinfo = new TaskInfo(task, initState);
+	tinfo.owner = this;
+	if (old != null) {
+	    old.owner = null;
+	    detachFromTriggers(old);
+	    map.put(task, tinfo);
+	    stateChanged(tinfo, old.getState(), initState);
+	    return;
+	}
+	map.put(task, tinfo);
+	count(initState, 1);
+	updateReady(tinfo);
     }
 
     /** Link t1 and t2 sequentially: 
      * - i.e t1 must complete or be skipped before t2 can start.
      * This is used to emulate <i>forking</i> components.
+     * @throws TaskSequenceException If either task is not in the list or
+     * the link would create a cycle.
      */
-    public void sequence(Task t1, Task t2) throws TaskSequenceException {
+    public synchronized void sequence(Task t1, Task t2) throws TaskSequenceException {
 	if ( ! map.containsKey(t1))
 	    throw new TaskSequenceException("Link from: "+t1.getName()+" Not in TaskList.");
 	if ( ! map.containsKey(t2))
 	     throw new TaskSequenceException("Link to: "+t2.getName()+" Not in TaskList.");
-	TaskInfo tinfo = (TaskInfo)map.get(t2);
-	tinfo.addTrigger(t1);
+	if (reaches(t2, t1))
+	    throw new TaskSequenceException("Cyclic link: "+t1.getName()+" -> "+t2.getName());
+	link(t1, t2);
     } 
     
 
@@ -85,20 +130,51 @@ public class TaskList {
      * - i.e. t1 is removed as a trigger for t2.
      * Returns silently if t1 is not a trigger for t2.
      */
-    public void unsequence(Task t1, Task t2) {
+    public synchronized void unsequence(Task t1, Task t2) {
 	if ( !map.containsKey(t2))
 	    return;
 	TaskInfo tinfo = (TaskInfo)map.get(t2);
 	// Returns silently if t1 is not a trigger for t2.
+	if (!tinfo.getTriggers().contains(t1))
+	    return;
 	tinfo.removeTrigger(t1);
+	List succ = (List)successors.get(t1);
+	if (succ != null)
+	    succ.remove(t2);
+	TaskInfo t1info = (TaskInfo)map.get(t1);
+	if (t1info != null && !isSatisfied(t1info.getState())) {
+	    tinfo.unmetTriggers--;
+	    updateReady(tinfo);
+	}
     }    
 
-    /** Remove a Task from the TaskList. No check is made whether this Task is
-     * a trigger for others or to its state - use carefully.
+    /** Remove a Task from the TaskList. No check is made to its state - use
+     * carefully. The Task is also removed as a trigger from any Tasks it
+     * triggers, which may then become free to run.
      * If task is not in the list returns silently.*/
-    public void removeTask(Task task) {
-	if (map.containsKey(task))
-	    map.remove(task);
+    public synchronized void removeTask(Task task) {
+	TaskInfo tinfo = (TaskInfo)map.remove(task);
+	if (tinfo == null)
+	    return;
+	tinfo.owner = null;
+	count(tinfo.getState(), -1);
+	ready.remove(task);
+	detachFromTriggers(tinfo);
+	// Re-check the Tasks which depended on it.
+	List succ = (List)successors.remove(task);
+	if (succ == null)
+	    return;
+	boolean unmet = !isSatisfied(tinfo.getState());
+	for (int i = 0; i < succ.size(); i++) {
+	    TaskInfo sinfo = (TaskInfo)map.get(succ.get(i));
+	    if (sinfo == null)
+		continue;
+	    sinfo.removeTrigger(task);
+	    if (unmet) {
+		sinfo.unmetTriggers--;
+		updateReady(sinfo);
+	    }
+	}
     }
   
     /** Insert a a new Task (t2) into the TaskList immediately before
@@ -108,28 +184,33 @@ public class TaskList {
      * @param t1 The Task to be preceded by t2.
      * @param t2 The Task to insert before t1.
      */
-    public void insertBefore(Task t1, Task t2)  throws TaskException {
+    public synchronized void insertBefore(Task t1, Task t2)  throws TaskException {
 	if ( ! map.containsKey(t1))
 	    throw new TaskSequenceException("Link to: "+t1.getName()+" Not in TaskList.");
 	if ( ! map.containsKey(t2))
 	    throw new TaskSequenceException("Link from: "+t2.getName()+" Not in TaskList.");
 	TaskInfo t1info = (TaskInfo)map.get(t1);
-	TaskInfo t2info = (TaskInfo)map.get(t2);
 
-	List triggers = t1info.getTriggers();
-	// Add all t1's triggers to t2.
-	// Watch for cyclic !
+	List triggers = new Vector(t1info.getTriggers());
+	// Check for cycles before changing anything.
+	if (t1 == t2 || reaches(t1, t2))
+	    throw new TaskException("Cyclic link: "+t2.getName());
 	for (int i = 0; i < triggers.size(); i++) {
 	    Task trig = (Task)triggers.get(i);
-	    if (trig == t2)
+	    if (trig == t2 || reaches(t2, trig))
 		throw new TaskException("Cyclic link: "+t2.getName());
-	    t2info.addTrigger(trig);
 	}
-	// Clear t1's triggers.
-	t1info.clearTriggers();
+
+	// Move all t1's triggers to t2.
+	for (int i = 0; i < triggers.size(); i++) {
+	    Task trig = (Task)triggers.get(i);
+	    unsequence(trig, t1);
+	    if (!((TaskInfo)map.get(t2)).getTriggers().contains(trig))
+		link(trig, t2);
+	}
 
 	// Add t2 as trigger for t1.
-	t1info.addTrigger(t2);
+	link(t2, t1);
 
     }
 
@@ -139,35 +220,18 @@ public class TaskList {
     /** Returns True only if the specified task is free to run:-
      * It must be PENDING, Any and All Triggers must be DONE or SKIPPED.
      */
-    public boolean canRun(Task task) {
-	if ( ! map.containsKey(task) )
-	    return false;
-	
-	TaskInfo tinfo     = (TaskInfo)map.get(task);
-	if (tinfo.getState() != TaskInfo.PENDING)
+    public synchronized boolean canRun(Task task) {
+	TaskInfo tinfo = (TaskInfo)map.get(task);
+	if (tinfo == null)
 	    return false;
-	List     triggers  = tinfo.getTriggers();
-	
-	if (triggers.isEmpty())
-	    return true;
-
-	for (int i = 0; i < triggers.size(); i++) {
-	    Task     trig     = (Task)triggers.get(i);
-	    TaskInfo triginfo = (TaskInfo)map.get(trig);
-	    if ( (triginfo.getState() != TaskInfo.DONE) &&
-		 (triginfo.getState() != TaskInfo.SKIPPED))
-		return false;
-	}
-	return true;
+	return (tinfo.getState() == TaskInfo.PENDING && tinfo.unmetTriggers == 0);
     }
 
     /** Returns the TaskInfo for specified Task.
      * If Task is not in list returns null.
      */
-    public TaskInfo getInfo(Task task) {
-	if (map.containsKey(task))
-	    return (TaskInfo)map.get(task);
-	return null;
+    public synchronized TaskInfo getInfo(Task task) {
+	return (TaskInfo)map.get(task);
     }
 	
 
@@ -178,6 +242,34 @@ public class TaskList {
     public Iterator listAllTasks() {
 	return map.keySet().iterator();
     } 
+
+    /** Returns a copy of the list of Tasks which are free to run, in the 
+     * order they were added. The states of these Tasks may be changed 
+     * while iterating the list.
+     */
+    public synchronized List listReadyTasks() {
+	return new Vector(ready);
+    }
+
+    /** @return The number of Tasks in the list.*/
+    public synchronized int getTaskCount() {
+	return map.size();
+    }
+
+    /** @return The number of Tasks which are DONE, FAILED, ABORTED, SKIPPED or CANCELLED.*/
+    public synchronized int getFinishedCount() {
+	return finishedCount;
+    }
+
+    /** @return The number of Tasks which are RUNNING or ABORTING.*/
+    public synchronized int getRunningCount() {
+	return runningCount;
+    }
+
+    /** @return True if every Task in the list has finished.*/
+    public synchronized boolean isFinished() {
+	return finishedCount == map.size();
+    }
    
     /** Override to skip the execution of the specified Task:
      * - This can be used to allow the TaskList to proceed even if a Task
@@ -185,10 +277,128 @@ public class TaskList {
      * of block() - it permits Tasks which would otherwise block the
      * execution from stopping it.
      */
-    public void skip(Task task) {
+    public synchronized void skip(Task task) {
 	if (map.containsKey(task)) 
 	    ((TaskInfo)map.get(task)).setState(TaskInfo.SKIPPED);	
     }
+
+    /** Called by a TaskInfo to change its state. If it belongs to this list
+     * the counters are updated and any Tasks it triggers are released or
+     * blocked, all under the list's lock.*/
+    synchronized void setState(TaskInfo tinfo, int newState) {
+	int oldState = tinfo.state;
+	tinfo.state = newState;
+	if (tinfo.owner == this && oldState != newState)
+	    stateChanged(tinfo, oldState, newState);
+    }
+
+    /** Updates the counters and releases or blocks any Tasks triggered by
+     * a Task whose state has changed - the caller holds the lock.*/
+    private void stateChanged(TaskInfo tinfo, int oldState, int newState) {
+	count(oldState, -1);
+	count(newState, 1);
+	boolean wasSatisfied = isSatisfied(oldState);
+	boolean nowSatisfied = isSatisfied(newState);
+	if (wasSatisfied != nowSatisfied) {
+	    List succ = (List)successors.get(tinfo.getTask());
+	    if (succ != null) {
+		for (int i = 0; i < succ.size(); i++) {
+		    TaskInfo sinfo = (TaskInfo)map.get(succ.get(i));
+		    if (sinfo == null)
+			continue;
+		    sinfo.unmetTriggers += (nowSatisfied ? -1 : 1);
+		    updateReady(sinfo);
+		}
+	    }
+	}
+	updateReady(tinfo);
+    }
+
+    /** Remove a Task from the successor lists of its own triggers.*/
+    private void detachFromTriggers(TaskInfo tinfo) {
+	Task task = tinfo.getTask();
+	List triggers = tinfo.getTriggers();
+	for (int i = 0; i < triggers.size(); i++) {
+	    List succ = (List)successors.get(triggers.get(i));
+	    if (succ != null)
+		succ.remove(task);
+	}
+    }
+
+    /** Make t1 a trigger of t2 - no checks.*/
+    private void link(Task t1, Task t2) {
+	TaskInfo t1info = (TaskInfo)map.get(t1);
+	TaskInfo t2info = (TaskInfo)map.get(t2);
+	t2info.addTrigger(t1);
+	List succ = (List)successors.get(t1);
+	if (succ == null) {
+	    succ = new Vector();
+	    successors.put(t1, succ);
+	}
+	succ.add(t2);
+	if (!isSatisfied(t1info.getState())) {
+	    t2info.unmetTriggers++;
+	    updateReady(t2info);
+	}
+    }
+
+    /** @return True if there is a path of links from 'from' to 'to'.*/
+    private boolean reaches(Task from, Task to) {
+	if (from == to)
+	    return true;
+	Set visited = new HashSet();
+	LinkedList stack = new LinkedList();
+	stack.add(from);
+	while (!stack.isEmpty()) {
+	    Object t = stack.removeLast();
+	    if (!visited.add(t))
+		continue;
+	    List succ = (List)successors.get(t);
+	    if (succ == null)
+		continue;
+	    for (int i = 0; i < succ.size(); i++) {
+		Object s = succ.get(i);
+		if (s == to)
+		    return true;
+		stack.add(s);
+	    }
+	}
+	return false;
+    }
+
+    /** Add or remove the Task from the ready set according to its state.*/
+    private void updateReady(TaskInfo tinfo) {
+	if (tinfo.getState() == TaskInfo.PENDING && tinfo.unmetTriggers == 0)
+	    ready.add(tinfo.getTask());
+	else
+	    ready.remove(tinfo.getTask());
+    }
+
+    /** Adjust the finished/running counters for a Task in the given state.*/
+    private void count(int state, int delta) {
+	if (isFinished(state))
+	    finishedCount += delta;
+	else if (state == TaskInfo.RUNNING || state == TaskInfo.ABORTING)
+	    runningCount += delta;
+    }
+
+    /** @return True if a Task in this state allows the Tasks it triggers to run.*/
+    private static boolean isSatisfied(int state) {
+	return (state == TaskInfo.DONE || state == TaskInfo.SKIPPED);
+    }
+
+    /** @return True if a Task in this state has finished.*/
+    private static boolean isFinished(int state) {
+	switch (state) {
+	case TaskInfo.DONE:
+	case TaskInfo.FAILED:
+	case TaskInfo.ABORTED:
+	case TaskInfo.SKIPPED:
+	case TaskInfo.CANCELLED:
+	    return true;
+	}
+	return false;
+    }
     
 }
 
@@ -36,8 +36,11 @@ import ngat.rcs.calib.*;
 import ngat.util.*;
 import ngat.util.logging.*;
 
+import java.util.*;
+
 /** A Thread for executing Tasks. All access to the Tasks are made via
- * their TaskMonitors.
+ * their TaskMonitors. Tasks should be started via execute() which hands
+ * them to the configured TaskExecutionService.
  *
  * <dl>
  * <dt><b>RCS:</b>
@@ -64,15 +67,75 @@ public class TaskWorker extends ControlThread {
     /** Task logging.*/
     protected Logger taskLog;
 
+    /** Workers currently executing a Task.*/
+    private static Set active = new HashSet();
+
+    /** The Task whose perform() or resume() is in progress on this worker, null
+     * between Tasks. Only that Task may interrupt the worker.*/
+    private Task running;
+
+    /** Guards running and the interrupt status between Tasks.*/
+    private final Object runLock = new Object();
+
+    /** The service used to start Tasks.*/
+    private static TaskExecutionService executionService = new ThreadPerTaskExecutionService();
+
     /** Create a TaskWorker with the specified name.
      * @param name The name/id for this Worker.*/
     public TaskWorker(String taskName, Task task) {
-	super("-(*XT-"+(threadNumber++)+"*)", false);
+	this(taskName, false);
+	this.task = task;
+    }
+
+    /** Create a TaskWorker with no Task - for use by worker pools.
+     * @param taskName The name/id for this Worker.
+     * @param permanent True if mainTask() should be called repeatedly.*/
+    protected TaskWorker(String taskName, boolean permanent) {
+	super("-(*XT-"+(threadNumber++)+"*)", permanent);
 	taskLog = LogManager.getLogger("TASK");
 	// E.g. Control/Startup_Tk-(*XT-213*)
-	this.task = task;
 	resuming = false;
     }
+
+    /** Set the service used to start Tasks.*/
+    public static void setExecutionService(TaskExecutionService service) {
+	executionService = service;
+    }
+
+    /** @return The service used to start Tasks.*/
+    public static TaskExecutionService getExecutionService() {
+	return executionService;
+    }
+
+    /** Start the (initialized) Task via the current TaskExecutionService.
+     * @param task The Task to execute.*/
+    public static void execute(Task task) {
+	executionService.execute(task);
+    }
+
+    /** @return The number of workers currently executing a Task.*/
+    public static int getRunningCount() {
+	synchronized (active) {
+	    return active.size();
+	}
+    }
+
+    /** @return The number of workers executing a Task which are currently 
+     * blocked or waiting (e.g. on a reply from a remote system).*/
+    public static int getBlockedCount() {
+	int blocked = 0;
+	synchronized (active) {
+	    Iterator it = active.iterator();
+	    while (it.hasNext()) {
+		Thread.State state = ((Thread)it.next()).getState();
+		if (state == Thread.State.BLOCKED ||
+		    state == Thread.State.WAITING ||
+		    state == Thread.State.TIMED_WAITING)
+		    blocked++;
+	    }
+	}
+	return blocked;
+    }
     
     /** Set up this Worker.*/
     @Override
@@ -84,12 +147,45 @@ public class TaskWorker extends ControlThread {
      * execute. */
     @Override
 	protected void mainTask() {
-	if (resuming) {
-	    taskLog.log(3, CLASS, getName(), "main", "Worker "+getName()+" Resuming task");
-	    task.resume();
-	} else {
-	    taskLog.log(3, CLASS, getName(), "main", "Worker "+getName()+" Beginning task: "+task.getName());
-	    task.perform();
+	synchronized (active) {
+	    active.add(this);
+	}
+	synchronized (runLock) {
+	    // drop any interrupt left over from before this Task started
+	    Thread.interrupted();
+	    running = task;
+	}
+	try {
+	    if (resuming) {
+		taskLog.log(3, CLASS, getName(), "main", "Worker "+getName()+" Resuming task");
+		task.resume();
+	    } else {
+		taskLog.log(3, CLASS, getName(), "main", "Worker "+getName()+" Beginning task: "+task.getName());
+		task.perform();
+	    }
+	} finally {
+	    synchronized (runLock) {
+		running = null;
+		Thread.interrupted();
+	    }
+	    synchronized (active) {
+		active.remove(this);
+	    }
+	}
+    }
+
+    /** Interrupt this worker on behalf of a Task - e.g. to wake it on completion,
+     * failure or abort. The interrupt is only delivered while that Task is still
+     * running on this worker, so a late signal for a finished Task cannot reach 
+     * whatever Task a pooled worker has taken on since.
+     * @param t The Task sending the interrupt.
+     * @return True if the worker was interrupted.*/
+    public boolean interruptTask(Task t) {
+	synchronized (runLock) {
+	    if (t == null || running != t)
+		return false;
+	    interrupt();
+	    return true;
 	}
     }
 
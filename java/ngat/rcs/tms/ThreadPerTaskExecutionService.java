@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package ngat.rcs.tms;
+
+/**
+ * The original TaskExecutionService - every Task gets a new TaskWorker thread
+ * which dies when the Task's perform() returns.
+ * 
+ * @author eng
+ * 
+ */
+public class ThreadPerTaskExecutionService implements TaskExecutionService {
+
+	public void execute(Task task) {
+		new TaskWorker(task.getName(), task).beginJob();
+	}
+
+	public int getQueuedCount() {
+		return 0;
+	}
+
+	public int getThreadCount() {
+		return TaskWorker.getRunningCount();
+	}
+
+	@Override
+	public String toString() {
+		return "ThreadPerTaskExecutionService";
+	}
+
+}
@@ -416,7 +416,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 
 		// may need to test if worker has died here ?
 		if (worker != null)
-			worker.interrupt();
+			worker.interruptTask(this);
 	}
 
 	/**
@@ -629,7 +629,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 				done = true;
 				onCompletion(response);
 				// manager.sigTaskDone(this);
-				worker.interrupt();
+				worker.interruptTask(this);
 			} else {
 				if (!aborted) {
 					synchronized (failLock) {
@@ -637,7 +637,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 						errorIndicator.setErrorCode(response.getErrorNum());
 						errorIndicator.setErrorString(response.getErrorString());
 						// manager.sigTaskFailed(this);
-						worker.interrupt();
+						worker.interruptTask(this);
 					}
 				}
 			}
@@ -658,7 +658,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 				errorIndicator.setErrorCode(CONNECT_ERROR);
 				errorIndicator.setErrorString("Connection failed: ");
 				// manager.sigTaskFailed(this);
-				worker.interrupt();
+				worker.interruptTask(this);
 			}
 		}
 	}
@@ -672,7 +672,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 				errorIndicator.setErrorCode(DESPATCH_ERROR);
 				errorIndicator.setErrorString("Send command failed: ");
 				// manager.sigTaskFailed(this);
-				worker.interrupt();
+				worker.interruptTask(this);
 			}
 		}
 	}
@@ -686,7 +686,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 				errorIndicator.setErrorCode(RESPONSE_ERROR);
 				errorIndicator.setErrorString("Response to command failed: ");
 				// manager.sigTaskFailed(this);
-				worker.interrupt();
+				worker.interruptTask(this);
 			}
 		}
 	}
@@ -704,7 +704,7 @@ public abstract class JMSMA_TaskImpl extends JMSMA_ClientImpl implements Task {
 				errorIndicator.setErrorCode(GENERAL_ERROR);
 				errorIndicator.setErrorString("General protocol exception from: " + source);
 				// manager.sigTaskFailed(this);
-				worker.interrupt();
+				worker.interruptTask(this);
 			}
 		}
 	}
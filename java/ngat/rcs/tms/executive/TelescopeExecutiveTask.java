@@ -102,7 +102,7 @@ public abstract class TelescopeExecutiveTask implements Task, TelescopeResponseH
 		// note we should be careful here as we may be reset and get the
 		// callback before we send !
 		if (worker != null)
-			worker.interrupt();
+			worker.interruptTask(this);
 	}
 
 	/** Returns true if this Task is allowed to be aborted - defaults to true. */
@@ -291,7 +291,7 @@ public abstract class TelescopeExecutiveTask implements Task, TelescopeResponseH
 		// TODO Auto-generated method stub
 		// interrupt the worker and set completion falg
 		done = true;
-		worker.interrupt();
+		worker.interruptTask(this);
 	}
 
 	/**
@@ -306,7 +306,7 @@ public abstract class TelescopeExecutiveTask implements Task, TelescopeResponseH
 		failed = true;
 		errorIndicator.setErrorCode(errorCode);
 		errorIndicator.setErrorString(errorMessage);
-		worker.interrupt();
+		worker.interruptTask(this);
 	}
 
 }
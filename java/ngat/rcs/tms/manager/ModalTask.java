@@ -253,7 +253,7 @@ public abstract class ModalTask extends ParallelTaskImpl implements
 		currentTask = subTask;
 		// taskList.addTask(subTask);
 		// worker.interrupt();
-		messageQueue.add(new TaskEvent(subTask, SUBTASK_ADDED));
+		postMessage(new TaskEvent(subTask, SUBTASK_ADDED));
 		// }
 		return true;
 	}
@@ -276,7 +276,7 @@ public abstract class ModalTask extends ParallelTaskImpl implements
 			currentTask = null;
 		// taskList.removeTask(subTask);
 		// worker.interrupt();
-		messageQueue.add(new TaskEvent(subTask, SUBTASK_REMOVE));
+		postMessage(new TaskEvent(subTask, SUBTASK_REMOVE));
 		// }
 	}
 
@@ -72,7 +72,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	/** Message code - signifies that a subtask should be removed. */
 	public static final int SUBTASK_REMOVE = 5;
 
-	/** Default interval for main exec loop to poll (millis). */
+	/** Default longest interval for main exec loop to wait for a signal (millis). */
 	public static final long DEFAULT_POLLING_INTERVAL = 3000L;
 
 	/** Default exit-on-completion status. */
@@ -114,9 +114,18 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	 */
 	protected List messageQueue;
 
-	/** Interval for main exec loop to poll (millis). */
+	/**
+	 * Longest interval the main exec loop will wait for a signal before
+	 * re-checking its state anyway (millis).
+	 */
 	protected static long pollingInterval;
 
+	/** Monitor on which the main exec loop waits for signals. */
+	protected Object wakeup;
+
+	/** Set when there is something for the main exec loop to look at. */
+	protected boolean signalled;
+
 	/** A Worker thread to execute this Task. */
 	protected TaskWorker worker;
 
@@ -216,6 +225,12 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	/** Time the run was started. */
 	protected long runStartTime;
 
+	/** Time since when no subtask has been running (or zero if one is). */
+	protected long idleSince;
+
+	/** Accumulated time with no subtask running (millis). */
+	protected long idleTime;
+
 	protected TaskDescriptor descriptor;
 	
 	/**
@@ -240,6 +255,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 		lock = new BooleanLock(false);
 		livelock = new Object();
 		suspendlock = new Object();
+		wakeup = new Object();
 
 		taskList = new TaskList();
 		messageQueue = new Vector();
@@ -358,7 +374,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	}
 
 	/**
-	 * Sets the main exec loop polling interval.
+	 * Sets the longest interval the main exec loop waits for a signal.
 	 * 
 	 * @param delay
 	 *            Polling interval (millis).
@@ -603,6 +619,8 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	 * <dt>Phase IV. (COMPLETION TEST).
 	 * <dd>Check for completion/failure/abort and signal to manager.
 	 * </dl>
+	 * Between cycles the loop waits until it is signalled by a subtask, an
+	 * abort or stop request, a new message or expiry of the time limit.
 	 */
 	public void perform() {
 		worker = (TaskWorker) Thread.currentThread();
@@ -624,6 +642,10 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 
 		boolean hit = false;
 
+		idleTime = 0L;
+		idleSince = System.currentTimeMillis();
+		signal();
+
 		// Loop until completion.
 		while (!isDone() && !isAborted() && !isFailed()) {
 
@@ -650,11 +672,11 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 				}
 			}
 
-			// Loop delay -
-			try {
-				Thread.sleep(pollingInterval);
-			} catch (InterruptedException ix) {
-			}
+			// Wait for something to happen.
+			long timeout = pollingInterval;
+			if (timeConstrained && (!hit))
+				timeout = Math.max(1L, Math.min(timeout, runStartTime + timeLimit + 1L - System.currentTimeMillis()));
+			awaitSignal(timeout);
 
 			// Phase 1.
 			taskLog.log(5, CLASS, name, "exec", "MTask: " + name + ": Starting Phase I.");
@@ -689,7 +711,8 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 			// Phase 2.
 			taskLog.log(5, CLASS, name, "exec", "MTask: " + name + ": Starting Phase II.");
 
-			if (!messageQueue.isEmpty()) {
+			// Drain all pending messages in this pass.
+			while (!messageQueue.isEmpty()) {
 
 				TaskEvent tev = (TaskEvent) messageQueue.remove(0);
 
@@ -763,26 +786,18 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 			taskLog.log(5, CLASS, name, "exec", "MTask: " + name + ": Starting Phase III.");
 
 			// Start any pending which are triggerred.
-			Iterator it = taskList.listAllTasks();
+			Iterator it = taskList.listReadyTasks().iterator();
 			while (it.hasNext()) {
 				Task t = (Task) it.next();
 				TaskInfo tinfo = taskList.getInfo(t);
 
-				if (tinfo != null) {
-					switch (tinfo.getState()) {
-
-					case TaskInfo.PENDING:
-						if (taskList.canRun(t)) {
-							tinfo.setState(TaskInfo.RUNNING);
-							// Initialize.
-							t.init();
-							// Start its exec thread.
-							new TaskWorker(t.getName(), t).beginJob();
-							taskLog.log(3, CLASS, name, "exec", "MTask: " + name + ": Found and started: "
-									+ t.getName());
-						}
-						break;
-					}
+				if (tinfo != null && taskList.canRun(t)) {
+					tinfo.setState(TaskInfo.RUNNING);
+					// Initialize.
+					t.init();
+					// Start its exec thread.
+					TaskWorker.execute(t);
+					taskLog.log(3, CLASS, name, "exec", "MTask: " + name + ": Found and started: " + t.getName());
 				}
 			}
 
@@ -792,25 +807,9 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 			// DONE, FAILED, ABORTED, SKIPPED - if any ONE of them is NOT
 			// then we have NOT finished yet !
 
-			int taskCount = 0;
-			int finishCount = 0;
-			it = taskList.listAllTasks();
-			while (it.hasNext()) {
-				Task t = (Task) it.next();
-				TaskInfo tinfo = taskList.getInfo(t);
-				taskCount++;
-				if (tinfo != null) {
-					switch (tinfo.getState()) {
-					case TaskInfo.DONE:
-					case TaskInfo.FAILED:
-					case TaskInfo.ABORTED:
-					case TaskInfo.SKIPPED:
-					case TaskInfo.CANCELLED:
-						finishCount++;
-						break;
-					}
-				}
-			}
+			int taskCount = taskList.getTaskCount();
+			int finishCount = taskList.getFinishedCount();
+			updateIdleTime(taskList.getRunningCount());
 
 			taskLog.log(4, CLASS, name, "exec", "MTask: " + name + ": Checked TaskList: Finished [" + finishCount + "/"
 					+ taskCount + "] Tasks:");
@@ -828,6 +827,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 
 					// Template - Failure behaviour.
 					onFailure();
+					recordIdleTime();
 
 					// TODO notify statusListeners
 					try {
@@ -848,6 +848,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 				// System.err.println(name+" Checking my aborting status: "+aborting);
 				if (aborting) {
 					aborted = true;
+					recordIdleTime();
 					// TODO notify statusListeners
 					try {
 						RCS_Controller.controller.getTaskMonitor().notifyListenersTaskAborted(
@@ -871,6 +872,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 
 					// Template - Completion behaviour.
 					onCompletion();
+					recordIdleTime();
 					// TODO notify statusListeners
 					try {
 						RCS_Controller.controller.getTaskMonitor().notifyListenersTaskCompleted(
@@ -897,6 +899,74 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 
 	}
 
+	/**
+	 * Wait until the main exec loop is signalled or the timeout expires.
+	 * Returns immediately if a signal arrived since the last wait.
+	 * 
+	 * @param timeout
+	 *            The longest time to wait (millis).
+	 */
+	protected void awaitSignal(long timeout) {
+		synchronized (wakeup) {
+			if (!signalled) {
+				try {
+					wakeup.wait(timeout);
+				} catch (InterruptedException ix) {
+				}
+			}
+			signalled = false;
+		}
+	}
+
+	/** Wake the main exec loop so it processes any new messages or flags. */
+	protected void signal() {
+		synchronized (wakeup) {
+			signalled = true;
+			wakeup.notifyAll();
+		}
+	}
+
+	/**
+	 * Queue a message for the main exec loop and wake it up.
+	 * 
+	 * @param tev
+	 *            The message.
+	 */
+	protected void postMessage(TaskEvent tev) {
+		messageQueue.add(tev);
+		signal();
+	}
+
+	/**
+	 * Accumulate the time during which no subtask is running.
+	 * 
+	 * @param runCount
+	 *            The number of subtasks currently running.
+	 */
+	protected void updateIdleTime(int runCount) {
+		long now = System.currentTimeMillis();
+		if (runCount == 0) {
+			if (idleSince == 0L)
+				idleSince = now;
+		} else if (idleSince != 0L) {
+			idleTime += now - idleSince;
+			idleSince = 0L;
+		}
+	}
+
+	/** Close off the idle period and record it against the descriptor. */
+	protected void recordIdleTime() {
+		updateIdleTime(1);
+		descriptor.setIdleTime(idleTime);
+		taskLog.log(3, CLASS, name, "exec", "MTask: " + name + ": Idle between subtasks: " + idleTime + " ms in "
+				+ (System.currentTimeMillis() - runStartTime) + " ms");
+	}
+
+	/** @return Accumulated time with no subtask running (millis). */
+	public long getIdleTime() {
+		return idleTime;
+	}
+
 	/** Sends abort() to any running subtasks and cancels any pending. */
 	protected void abortExecutingTasks() {
 
@@ -1021,6 +1091,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 			return;
 		taskLog.log(INFO, 3, CLASS, name, "MTask: " + name + ": Received abort signal");
 		abortFlag = true;
+		signal();
 	}
 
 	/** Overridden temporarily - calls stop(timeout) on executing subtasks. */
@@ -1031,6 +1102,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 		taskLog.log(2, CLASS, name, "stop", "MTask: " + name + ": Received stop signal - must finish by: "
 				+ sdf.format(new Date(stopTime)));
 		stopFlag = true;
+		signal();
 	}
 
 	/**
@@ -1063,6 +1135,8 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 		failing = false;
 		stopping = false;
 		worker = null;
+		idleTime = 0L;
+		idleSince = 0L;
 		timeLimit = 0L;
 		timeConstrained = false;
 
@@ -1083,6 +1157,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 		taskLog.log(3, CLASS, name, "failed", "MTask: " + name + ": Starting failure-abort sequence: " + "\n Code: "
 				+ errorIndicator.getErrorCode() + "\n Msg:  " + errorIndicator.getErrorString());
 		abortExecutingTasks(); // do we want this here ????
+		signal();
 
 		// maybe thats it ?
 
@@ -1244,7 +1319,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	 *            The subTask which has completed.
 	 */
 	public void sigTaskDone(Task task) {
-		messageQueue.add(new TaskEvent(task, SUBTASK_DONE));
+		postMessage(new TaskEvent(task, SUBTASK_DONE));
 	}
 
 	/**
@@ -1257,7 +1332,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	 *            The subTask which has failed.
 	 */
 	public void sigTaskFailed(Task task) {
-		messageQueue.add(new TaskEvent(task, SUBTASK_FAILED));
+		postMessage(new TaskEvent(task, SUBTASK_FAILED));
 	}
 
 	/**
@@ -1272,7 +1347,7 @@ public abstract class ParallelTaskImpl implements Task, TaskManager, Logging, Ev
 	 *            The subTask which has aborted.
 	 */
 	public void sigTaskAborted(Task task) {
-		messageQueue.add(new TaskEvent(task, SUBTASK_ABORTED));
+		postMessage(new TaskEvent(task, SUBTASK_ABORTED));
 	}
 
 	/**